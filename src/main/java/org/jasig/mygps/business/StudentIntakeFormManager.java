@@ -430,7 +430,7 @@ public class StudentIntakeFormManager { // NOPMD
 
 		// now refresh Person from Hibernate so lazy-loading works in case the
 		// person instance was loaded in a previous request
-		student = personService.get(student.getId());
+		student = personService.get(student.getId(), Person.FETCH_PROFILE_INTAKE);
 		
 		boolean completed = student.getStudentIntakeCompleteDate()== null ? false : true;
 			
@@ -24,6 +24,7 @@ import javax.validation.constraints.NotNull;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.util.sort.PagingWrapper;
@@ -91,6 +92,29 @@ public abstract class AbstractDao<T> {
 				this.persistentClass);
 	}
 
+	/**
+	 * Enables a Hibernate fetch profile (see
+	 * {@link org.hibernate.annotations.FetchProfile}) on the current session.
+	 * Affects Criteria queries and loads by id until disabled.
+	 * 
+	 * @param name
+	 *            fetch profile name
+	 * @return true if this call enabled the profile, i.e. the caller is
+	 *         responsible for passing it to {@link #disableFetchProfile(String)}
+	 */
+	public boolean enableFetchProfile(@NotNull final String name) {
+		final Session session = sessionFactory.getCurrentSession();
+		if (session.isFetchProfileEnabled(name)) {
+			return false;
+		}
+		session.enableFetchProfile(name);
+		return true;
+	}
+
+	public void disableFetchProfile(@NotNull final String name) {
+		sessionFactory.getCurrentSession().disableFetchProfile(name);
+	}
+
 	protected Query createHqlQuery(String query) {
 		return sessionFactory.getCurrentSession().createQuery(query);
 	}
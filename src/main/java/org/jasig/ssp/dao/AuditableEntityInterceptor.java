@@ -21,7 +21,9 @@ package org.jasig.ssp.dao;
 import java.io.Serializable;
 import java.util.Date;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.hibernate.EmptyInterceptor;
+import org.hibernate.SessionFactory;
 import org.hibernate.type.Type;
 import org.jasig.ssp.model.AbstractAuditable;
 import org.jasig.ssp.model.AuditPerson;
@@ -33,11 +35,17 @@ import org.springframework.beans.BeansException;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Intercepts Hibernate writes to automatically fill the created and modified
  * author and time stamp fields of any model that derives from the
  * {@link org.jasig.ssp.model.AbstractAuditable} class.
+ * 
+ * <p>
+ * Also evicts cached {@link AuditPerson} names when a {@link Person} is
+ * renamed.
  */
 @Service
 public class AuditableEntityInterceptor extends EmptyInterceptor implements // NOPMD
@@ -49,6 +57,8 @@ public class AuditableEntityInterceptor extends EmptyInterceptor implements // N
 
 	private transient SecurityService securityService;
 
+	private transient SessionFactory sessionFactory;
+
 	/**
 	 * Intercept writes to existing, but changed and therefore needing updated,
 	 * entities.
@@ -72,6 +82,10 @@ public class AuditableEntityInterceptor extends EmptyInterceptor implements // N
 
 		final boolean modified = addAuditingProps(entity, currentState,
 				propertyNames);
+		if (entity instanceof Person
+				&& isNameChanged(currentState, previousState, propertyNames)) {
+			evictAuditPerson((Person) entity);
+		}
 		super.onFlushDirty(entity, id, currentState, previousState,
 				propertyNames, types);
 		return modified;
@@ -164,6 +178,44 @@ public class AuditableEntityInterceptor extends EmptyInterceptor implements // N
 		return true;
 	}
 
+	private boolean isNameChanged(final Object[] currentState,
+			final Object[] previousState, final String[] propertyNames) {
+		if (previousState == null) {
+			// detached update, so can't tell. assume the worst.
+			return true;
+		}
+		for (int i = 0; i < propertyNames.length; i++) {
+			final String property = propertyNames[i];
+			if (("firstName".equals(property) || "lastName".equals(property))
+					&& !ObjectUtils.equals(currentState[i], previousState[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Evicts now and again once the transaction completes, since another
+	 * thread may re-cache the old name in between.
+	 */
+	private void evictAuditPerson(final Person person) {
+		if (person.getId() == null) {
+			return;
+		}
+		final SessionFactory factory = getSessionFactory();
+		factory.getCache().evictEntity(AuditPerson.class, person.getId());
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(
+					new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCompletion(final int status) {
+							factory.getCache().evictEntity(AuditPerson.class,
+									person.getId());
+						}
+					});
+		}
+	}
+
 	/**
 	 * Retrieve the currently authenticated user from the
 	 * {@link org.jasig.ssp.service.SecurityService}.
@@ -185,6 +237,22 @@ public class AuditableEntityInterceptor extends EmptyInterceptor implements // N
 		context = arg0;
 	}
 
+	/**
+	 * Retrieve the {@link SessionFactory} bean from the Spring container.
+	 * Can't be injected since this interceptor is itself a dependency of the
+	 * session factory.
+	 * 
+	 * @return The application's {@link SessionFactory}
+	 */
+	private SessionFactory getSessionFactory() {
+		if (sessionFactory == null) {
+			sessionFactory = context.getBean("sessionFactory",
+					SessionFactory.class);
+		}
+
+		return sessionFactory;
+	}
+
 	/**
 	 * Retrieve a {@link SecurityService} instance bean from the Spring
 	 * container.
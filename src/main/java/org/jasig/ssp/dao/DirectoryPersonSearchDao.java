@@ -42,9 +42,11 @@ import org.jasig.ssp.service.SecurityService;
 import org.jasig.ssp.service.external.TermService;
 import org.jasig.ssp.service.impl.ScheduledTaskWrapperServiceImpl;
 import org.jasig.ssp.service.reference.ConfigService;
-import org.jasig.ssp.util.collections.Pair;
+import org.jasig.ssp.transferobject.ImmutablePersonIdentifiersTO;
 import org.jasig.ssp.util.csvwriter.CaseloadCsvWriterHelper;
 import org.jasig.ssp.util.hibernate.NamespacedAliasToBeanResultTransformer;
+import org.jasig.ssp.util.sort.CountPolicy;
+import org.jasig.ssp.util.sort.PagedQuery;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortingAndPaging;
 import org.slf4j.Logger;
@@ -138,7 +140,14 @@ public class DirectoryPersonSearchDao  {
 
     public Long getCaseloadCountFor(PersonSearchRequest personSearchRequest, SortingAndPaging buildSortAndPage) {
 
-        final Pair<Long, Query> querySet = prepSearchQuery(sessionFactory.getCurrentSession(), personSearchRequest, false);
+        // the count is the whole point here, so never skip or estimate it.
+        // adjust a copy, the caller may go on to use its own for a listing.
+        final SortingAndPaging sortAndPage = personSearchRequest.getSortAndPage().copy();
+        if ( sortAndPage.getCountPolicy() != CountPolicy.CACHED ) {
+            sortAndPage.setCountPolicy(CountPolicy.EXACT);
+        }
+        final PagedQuery querySet = prepSearchQuery(sessionFactory.getCurrentSession(), personSearchRequest,
+                sortAndPage, false);
 
         return querySet.getFirst();
     }
@@ -167,13 +176,11 @@ public class DirectoryPersonSearchDao  {
 	@SuppressWarnings("unchecked")
 	public PagingWrapper<PersonSearchResult2> search(PersonSearchRequest personSearchRequest) {
 
-        final Pair<Long, Query> querySet = prepSearchQuery(
+        final PagedQuery querySet = prepSearchQuery(
 				sessionFactory.getCurrentSession(), personSearchRequest,false);
 
-        querySet.getSecond().setResultTransformer(
+		return personSearchRequest.getSortAndPage().listPagedQuery(querySet,
 				new NamespacedAliasToBeanResultTransformer(PersonSearchResult2.class, "person_"));
-
-		return new PagingWrapper<>(querySet.getFirst(), querySet.getSecond().list());
 	}
 
     /**
@@ -184,13 +191,11 @@ public class DirectoryPersonSearchDao  {
     @SuppressWarnings("unchecked")
     public PagingWrapper<PersonSearchResultFull> searchFull(PersonSearchRequest personSearchRequest) {
 
-        final Pair<Long, Query> querySet = prepSearchQuery(
+        final PagedQuery querySet = prepSearchQuery(
                 sessionFactory.getCurrentSession(), personSearchRequest, true);
 
-        querySet.getSecond().setResultTransformer(
+        return personSearchRequest.getSortAndPage().listPagedQuery(querySet,
                 new NamespacedAliasToBeanResultTransformer(PersonSearchResultFull.class, "person_"));
-
-        return new PagingWrapper<>(querySet.getFirst(), querySet.getSecond().list());
     }
 
     public void exportableSearch(CaseloadCsvWriterHelper csvWriterHelper, PersonSearchRequest personSearchRequest)
@@ -200,7 +205,7 @@ public class DirectoryPersonSearchDao  {
 
         try {
             openStatelessSession = sessionFactory.openStatelessSession();
-            final Pair<Long, Query> querySet = prepSearchQuery(openStatelessSession, personSearchRequest, false);
+            final PagedQuery querySet = prepSearchQuery(openStatelessSession, personSearchRequest, false);
 
             querySet.getSecond().setResultTransformer(new NamespacedAliasToBeanResultTransformer(
                     PersonSearchResult2.class, "person_"));
@@ -230,7 +235,7 @@ public class DirectoryPersonSearchDao  {
 
         try {
             openStatelessSession = sessionFactory.openStatelessSession();
-            final Pair<Long, Query> querySet = prepSearchQuery(openStatelessSession, personSearchRequest, true);
+            final PagedQuery querySet = prepSearchQuery(openStatelessSession, personSearchRequest, true);
 
             querySet.getSecond().setResultTransformer(new NamespacedAliasToBeanResultTransformer(
                     PersonSearchResultFull.class, "person_"));
@@ -251,6 +256,45 @@ public class DirectoryPersonSearchDao  {
         }
     }
 
+	/**
+	 * Identifiers of every person matching the search filters, ignoring any
+	 * paging in the request. Selects just the two identifier columns so
+	 * callers can capture a whole result set up front, e.g. as a
+	 * {@link org.jasig.ssp.model.jobqueue.Job} target snapshot.
+	 *
+	 * @return identifiers in school ID order. Never {@code null}.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<ImmutablePersonIdentifiersTO> searchIdentifiers(PersonSearchRequest personSearchRequest) {
+		final FilterTracker filterTracker = new FilterTracker();
+		final StringBuilder hqlWithoutSelect = new StringBuilder();
+
+		buildFrom(personSearchRequest, hqlWithoutSelect);
+
+		buildJoins(personSearchRequest, hqlWithoutSelect);
+
+		buildWhere(personSearchRequest, filterTracker, hqlWithoutSelect);
+
+		final Map<String,Object> params = getBindParams(personSearchRequest);
+
+		final Query query = sessionFactory.getCurrentSession().createQuery(
+				"select distinct dp.personId, dp.schoolId " + hqlWithoutSelect + " order by dp.schoolId")
+				.setProperties(params);
+		// same SSP-2981 workaround as SortingAndPaging
+		for ( Map.Entry<String,Object> entry : params.entrySet() ) {
+			if ( entry.getValue() == null ) {
+				query.setParameter(entry.getKey(), entry.getValue());
+			}
+		}
+
+		final List<Object[]> rows = query.setReadOnly(true).list();
+		final List<ImmutablePersonIdentifiersTO> identifiers = Lists.newArrayListWithCapacity(rows.size());
+		for ( Object[] row : rows ) {
+			identifiers.add(new ImmutablePersonIdentifiersTO((UUID)row[0], (String)row[1]));
+		}
+		return identifiers;
+	}
+
 	//Necessary due to the pass by value nature of booleans
 	private class FilterTracker {
 		private boolean isFirstFilter = true;
@@ -264,7 +308,12 @@ public class DirectoryPersonSearchDao  {
 		}
 	}
 
-	private Pair<Long, Query> prepSearchQuery(Object session, PersonSearchRequest personSearchRequest, boolean fullResultSearch) {
+	private PagedQuery prepSearchQuery(Object session, PersonSearchRequest personSearchRequest, boolean fullResultSearch) {
+		return prepSearchQuery(session, personSearchRequest, personSearchRequest.getSortAndPage(), fullResultSearch);
+	}
+
+	private PagedQuery prepSearchQuery(Object session, PersonSearchRequest personSearchRequest,
+			SortingAndPaging sortAndPage, boolean fullResultSearch) {
 
 		final FilterTracker filterTracker = new FilterTracker();
 		final String hqlSelect;
@@ -296,9 +345,10 @@ public class DirectoryPersonSearchDao  {
 
 		params = getBindParams(personSearchRequest); //TODO use currentTerm in bindParams here?
 
-		Pair<Long,Query> querySet =  personSearchRequest.getSortAndPage()
+		PagedQuery querySet =  sortAndPage
 				.applySortingAndPagingToPagedQuery(
-						session, "dp.schoolId", hqlSelect, hqlWithoutSelect, false, null, false, params);
+						session, "dp.schoolId", hqlSelect, hqlWithoutSelect, false, null,
+						filterTracker.isFirstFilter(), params);
 
 		querySet.getSecond().setResultTransformer(new NamespacedAliasToBeanResultTransformer(
 				PersonSearchResult2.class, "person_"));
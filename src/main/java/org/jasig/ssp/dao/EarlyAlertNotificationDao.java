@@ -0,0 +1,175 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.jasig.ssp.model.EarlyAlertNotification;
+import org.jasig.ssp.model.ObjectStatus;
+import org.jasig.ssp.util.uuid.UUIDCustomType;
+import org.springframework.stereotype.Repository;
+
+/**
+ * DAO for the {@link EarlyAlertNotification} model
+ */
+@Repository
+public class EarlyAlertNotificationDao
+		extends AbstractAuditableCrudDao<EarlyAlertNotification>
+		implements AuditableCrudDao<EarlyAlertNotification> {
+
+	// object_status is a literal, not a parameter, so the planner can match
+	// it to the idx_ea_notification_waiting filtered index
+	private static final String CLAIMABLE_ROWS =
+			" where processed_date is null" +
+			" and object_status = " + ObjectStatus.ACTIVE.ordinal() +
+			" and attempts < :retryLimit" +
+			" and (claimed_until is null or claimed_until < :now)";
+
+	public EarlyAlertNotificationDao() {
+		super(EarlyAlertNotification.class);
+	}
+
+	/**
+	 * Atomically claims up to <code>maxResults</code> of the oldest
+	 * unprocessed notifications which have been attempted fewer than
+	 * <code>retryLimit</code> times and which no other caller holds a live
+	 * claim on. Rows locked by a concurrent claim are skipped rather than
+	 * waited on. Load the claimed notifications with
+	 * {@link #getClaimed(String)}.
+	 *
+	 * @param maxResults maximum number of notifications to claim
+	 * @param claimedBy identifies this claim, should be unique per caller
+	 * @param now the current time, used to detect lapsed claims
+	 * @param claimedUntil when the new claim lapses
+	 * @param retryLimit notifications attempted this many times are skipped
+	 * @return the number of notifications claimed
+	 */
+	@SuppressWarnings(UNCHECKED)
+	public int claim(int maxResults, String claimedBy, Date now, Date claimedUntil, int retryLimit) {
+		if ( maxResults <= 0 ) {
+			return 0;
+		}
+
+		final Dialect dialect = ((SessionFactoryImplementor) sessionFactory).getDialect();
+		final String sql;
+		if ( dialect instanceof SQLServerDialect ) {
+			sql = "select top (:maxResults) id from early_alert_notification with (updlock, rowlock, readpast)" +
+					CLAIMABLE_ROWS +
+					" order by created_date";
+		} else {
+			sql = "select id from early_alert_notification" +
+					CLAIMABLE_ROWS +
+					" order by created_date" +
+					" limit :maxResults" +
+					" for update skip locked";
+		}
+
+		final List<UUID> ids = sessionFactory.getCurrentSession()
+				.createSQLQuery(sql)
+				.addScalar("id", new UUIDCustomType())
+				.setInteger("retryLimit", retryLimit)
+				.setTimestamp("now", now)
+				.setInteger("maxResults", maxResults)
+				.list();
+
+		if ( ids.isEmpty() ) {
+			return 0;
+		}
+
+		return sessionFactory.getCurrentSession()
+				.createQuery("update EarlyAlertNotification set claimedBy = :claimedBy, claimedUntil = :claimedUntil" +
+						" where id in (:ids)")
+				.setString("claimedBy", claimedBy)
+				.setTimestamp("claimedUntil", claimedUntil)
+				.setParameterList("ids", ids)
+				.executeUpdate();
+	}
+
+	/**
+	 * Ids of the unprocessed notifications claimed by
+	 * {@link #claim(int, String, Date, Date, int)} under the given claim,
+	 * oldest first.
+	 *
+	 * @param claimedBy the claim
+	 * @return claimed notification ids. Never {@code null}.
+	 */
+	@SuppressWarnings(UNCHECKED)
+	public List<UUID> getClaimed(String claimedBy) {
+		return sessionFactory.getCurrentSession()
+				.createQuery("select id from EarlyAlertNotification" +
+						" where claimedBy = :claimedBy and processedDate is null" +
+						" order by createdDate")
+				.setString("claimedBy", claimedBy)
+				.list();
+	}
+
+	/**
+	 * Marks the given notification processed, unless it already is. Run
+	 * this before queuing its messages, in the same transaction. The update
+	 * holds the row lock until commit, so of two transactions racing on the
+	 * same notification, e.g. because a claim lapsed, only one sees a row
+	 * updated.
+	 *
+	 * @param id the notification
+	 * @param processedDate when it was processed
+	 * @return true if this call marked it processed, false if it had
+	 *         already been processed
+	 */
+	public boolean markProcessed(UUID id, Date processedDate) {
+		return createHqlQuery("update EarlyAlertNotification" +
+				" set processedDate = :processedDate, claimedBy = null, claimedUntil = null" +
+				" where id = :id and processedDate is null")
+				.setTimestamp("processedDate", processedDate)
+				.setParameter("id", id)
+				.executeUpdate() > 0;
+	}
+
+	/**
+	 * Deletes notifications processed before the given time.
+	 *
+	 * @param processedBefore cutoff
+	 * @return the number of notifications deleted
+	 */
+	public int deleteProcessedBefore(Date processedBefore) {
+		return createHqlQuery("delete from EarlyAlertNotification where processedDate < :processedBefore")
+				.setTimestamp("processedBefore", processedBefore)
+				.executeUpdate();
+	}
+
+	/**
+	 * Deletes notifications which were given up on, i.e. made inactive at
+	 * the retry limit, before the given time.
+	 *
+	 * @param abandonedBefore cutoff
+	 * @return the number of notifications deleted
+	 */
+	public int deleteAbandonedBefore(Date abandonedBefore) {
+		return createHqlQuery("delete from EarlyAlertNotification" +
+				" where processedDate is null and objectStatus = :inactive" +
+				" and modifiedDate < :abandonedBefore")
+				.setInteger("inactive", ObjectStatus.INACTIVE.ordinal())
+				.setTimestamp("abandonedBefore", abandonedBefore)
+				.executeUpdate();
+	}
+}
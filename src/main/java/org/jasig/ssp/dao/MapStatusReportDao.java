@@ -19,26 +19,61 @@
 package org.jasig.ssp.dao;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import org.apache.commons.lang.StringUtils;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.jasig.ssp.model.MapStatusReport;
 import org.jasig.ssp.model.MapStatusReportCourseDetails;
 import org.jasig.ssp.model.MapStatusReportOverrideDetails;
 import org.jasig.ssp.model.MapStatusReportSubstitutionDetails;
 import org.jasig.ssp.model.MapStatusReportTermDetails;
+import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.Person;
 import org.jasig.ssp.model.external.PlanStatus;
 import org.jasig.ssp.transferobject.reports.MapStatusReportOwnerAndCoachInfo;
 import org.jasig.ssp.transferobject.reports.MapStatusReportPerson;
 import org.jasig.ssp.transferobject.reports.MapStatusReportSummaryDetail;
+import org.jasig.ssp.util.hibernate.BatchProcessor;
+import org.jasig.ssp.util.uuid.UUIDCustomType;
 import org.springframework.stereotype.Repository;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
 @Repository
 public class MapStatusReportDao  extends AbstractPersonAssocAuditableCrudDao<MapStatusReport> implements PersonAssocAuditableCrudDao<MapStatusReport> { 
 
+	/**
+	 * Transcript watermark of a school ID without any transcript records
+	 */
+	public static final String NO_TRANSCRIPT_WATERMARK = "0";
+
+	private static final String[] TRANSCRIPT_COURSE_COLUMNS = { "term_code", "subject_abbreviation", "number",
+			"formatted_course", "course_code", "section_number", "section_code", "title", "grade", "credit_earned",
+			"credit_type", "audited", "status_code" };
+
+	private static final String[] TRANSCRIPT_NON_COURSE_COLUMNS = { "term_code", "target_formatted_course",
+			"non_course_code", "title", "grade", "credit_earned", "credit_type", "status_code" };
+
+	private static final String[] SUBSTITUTABLE_COURSE_COLUMNS = { "term_code", "program_code", "catalog_year_code",
+			"source_formatted_course", "source_course_code", "source_course_title", "source_credit_hours",
+			"target_formatted_course", "target_course_code", "target_course_title", "target_credit_hours" };
+
+	private static final int WATERMARK_SCHOOL_ID_BATCH_SIZE = 1000;
+
+	// 48-bit slices of a 256-bit row hash, see watermarkAggregate()
+	private static final int SQL_SERVER_WATERMARK_SLICES = 5;
+
 	public MapStatusReportDao() {
 		super(MapStatusReport.class);
 	}
@@ -120,6 +155,234 @@ public class MapStatusReportDao  extends AbstractPersonAssocAuditableCrudDao<Map
 		return createHqlQuery(query).setEntity("person", person).list();
 	}
 
+	/**
+	 * Plan status of the calculated report for each of the given persons. Persons without a report are absent
+	 * from the result.
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<UUID, PlanStatus> getPlanStatusesForPersonIds(Collection<UUID> personIds) {
+		final Map<UUID, PlanStatus> statuses = Maps.newHashMapWithExpectedSize(personIds.size());
+		if ( personIds.isEmpty() ) {
+			return statuses;
+		}
+		final BatchProcessor<UUID, Object[]> processor = new BatchProcessor<>(personIds);
+		do {
+			processor.process(createHqlQuery("select msr.person.id, msr.planStatus from MapStatusReport msr " +
+					"where msr.person.id in (:personIds)"), "personIds");
+		} while ( processor.moreToProcess() );
+		for ( Object[] row : processor.getUnsortedUnpagedResultsAsList() ) {
+			// first one wins, same as getAllForPersonId()
+			if ( !(statuses.containsKey(row[0])) ) {
+				statuses.put((UUID) row[0], (PlanStatus) row[1]);
+			}
+		}
+		return statuses;
+	}
+
+	/**
+	 * IDs of active plans, of active students, whose report is missing or was calculated from a different plan
+	 * {@code modifiedDate}, transcript watermark or inputs fingerprint than the current ones.
+	 *
+	 * @param inputsFingerprint fingerprint of the calculation settings about to be used
+	 */
+	@SuppressWarnings("unchecked")
+	public List<UUID> getPlanIdsNeedingCalculation(String inputsFingerprint) {
+		final String sql = "select distinct p.id from map_plan p" +
+				" join person per on per.id = p.person_id" +
+				" left join map_status_report r on r.plan_id = p.id" +
+				" left join " + transcriptWatermarksBySchoolId(false) + " x on x.school_id = per.school_id" +
+				" where p.object_status = :active and per.object_status = :active" +
+				" and (r.id is null" +
+				" or r.inputs_fingerprint is null or r.inputs_fingerprint <> :inputsFingerprint" +
+				" or r.plan_modified_date is null or r.plan_modified_date <> p.modified_date" +
+				" or r.transcript_watermark is null or r.transcript_watermark <> coalesce(x.watermark, :noTranscript))";
+		return sessionFactory.getCurrentSession()
+				.createSQLQuery(sql)
+				.addScalar("id", new UUIDCustomType())
+				.setInteger("active", ObjectStatus.ACTIVE.ordinal())
+				.setString("inputsFingerprint", inputsFingerprint)
+				.setString("noTranscript", NO_TRANSCRIPT_WATERMARK)
+				.list();
+	}
+
+	/**
+	 * Current transcript watermark of each of the given school IDs, covering both transcript courses and
+	 * non-course transcript entries. School IDs without any are absent from the result, see
+	 * {@link #NO_TRANSCRIPT_WATERMARK}.
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, String> getTranscriptWatermarksBySchoolIds(Collection<String> schoolIds) {
+		final Map<String, String> watermarks = Maps.newHashMapWithExpectedSize(schoolIds.size());
+		for ( List<String> batch : Iterables.partition(schoolIds, WATERMARK_SCHOOL_ID_BATCH_SIZE) ) {
+			final List<Object[]> rows = sessionFactory.getCurrentSession()
+					.createSQLQuery("select x.school_id, x.watermark from " + transcriptWatermarksBySchoolId(true) + " x")
+					.setParameterList("schoolIds", batch)
+					.list();
+			for ( Object[] row : rows ) {
+				watermarks.put((String) row[0], (String) row[1]);
+			}
+		}
+		return watermarks;
+	}
+
+	/**
+	 * Current watermark of the entire external substitutable course table
+	 */
+	public String getSubstitutableCoursesWatermark() {
+		final Object watermark = sessionFactory.getCurrentSession()
+				.createSQLQuery("select " + watermarkAggregate("h") + " as watermark from (select " +
+						rowHash("sc", "S", SUBSTITUTABLE_COURSE_COLUMNS) + " as h from v_external_substitutable_course sc) t")
+				.uniqueResult();
+		return watermark == null ? NO_TRANSCRIPT_WATERMARK : watermark.toString();
+	}
+
+	/**
+	 * Current {@code modifiedDate} of each of the given plans
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<UUID, Date> getPlanModifiedDates(Collection<UUID> planIds) {
+		final Map<UUID, Date> modifiedDates = Maps.newHashMapWithExpectedSize(planIds.size());
+		if ( planIds.isEmpty() ) {
+			return modifiedDates;
+		}
+		final BatchProcessor<UUID, Object[]> processor = new BatchProcessor<>(planIds);
+		do {
+			processor.process(createHqlQuery("select plan.id, plan.modifiedDate from Plan plan " +
+					"where plan.id in (:planIds)"), "planIds");
+		} while ( processor.moreToProcess() );
+		for ( Object[] row : processor.getUnsortedUnpagedResultsAsList() ) {
+			modifiedDates.put((UUID) row[0], (Date) row[1]);
+		}
+		return modifiedDates;
+	}
+
+	/**
+	 * Existing report for each of the given plans. Plans without a report are absent from the result. Should a
+	 * plan have more than one report, only the most recently created one is returned, see
+	 * {@link #deleteDuplicateReports()}.
+	 */
+	public Map<UUID, MapStatusReport> getByPlanIds(Collection<UUID> planIds) {
+		final Map<UUID, MapStatusReport> reports = Maps.newHashMapWithExpectedSize(planIds.size());
+		for ( MapStatusReport report : getAllByPlanIds(planIds) ) {
+			if ( !(reports.containsKey(report.getPlan().getId())) ) {
+				reports.put(report.getPlan().getId(), report);
+			}
+		}
+		return reports;
+	}
+
+	/**
+	 * Hard delete all but the most recently created report, with its details, of each plan which has more than
+	 * one, e.g. from overlapping calculations.
+	 *
+	 * @return number of reports deleted
+	 */
+	@SuppressWarnings("unchecked")
+	public int deleteDuplicateReports() {
+		final List<UUID> planIds = createHqlQuery("select msr.plan.id from MapStatusReport msr " +
+				"group by msr.plan.id having count(msr.id) > 1").list();
+		final Set<UUID> kept = Sets.newHashSetWithExpectedSize(planIds.size());
+		int deleted = 0;
+		for ( MapStatusReport report : getAllByPlanIds(planIds) ) {
+			if ( !(kept.add(report.getPlan().getId())) ) {
+				delete(report);
+				deleted++;
+			}
+		}
+		sessionFactory.getCurrentSession().flush();
+		return deleted;
+	}
+
+	/**
+	 * All reports of the given plans, each plan's most recently created first
+	 */
+	private List<MapStatusReport> getAllByPlanIds(Collection<UUID> planIds) {
+		if ( planIds.isEmpty() ) {
+			return Lists.newArrayList();
+		}
+		// a plan's reports always come back in the same batch, so ordering within each batch is enough
+		final BatchProcessor<UUID, MapStatusReport> processor = new BatchProcessor<>(planIds);
+		do {
+			processor.process(createHqlQuery("from MapStatusReport msr where msr.plan.id in (:planIds) " +
+					"order by msr.createdDate desc, msr.id"), "planIds");
+		} while ( processor.moreToProcess() );
+		return processor.getUnsortedUnpagedResultsAsList();
+	}
+
+	/**
+	 * Hard delete reports, with their details, of plans which are no longer active or whose students are no
+	 * longer active. Those are never recalculated, so would otherwise keep showing their last status.
+	 *
+	 * @return number of reports deleted
+	 */
+	public int deleteReportsForInactivePlans() {
+		final String staleReportIds = "select msr.id from MapStatusReport msr join msr.plan plan join plan.person person " +
+				"where plan.objectStatus <> :active or person.objectStatus <> :active";
+		for ( String details : new String[] { "MapStatusReportSubstitutionDetails", "MapStatusReportCourseDetails",
+				"MapStatusReportTermDetails", "MapStatusReportOverrideDetails" } ) {
+			createHqlQuery("delete " + details + " d where d.report.id in (" + staleReportIds + ")")
+					.setInteger("active", ObjectStatus.ACTIVE.ordinal())
+					.executeUpdate();
+		}
+		return createHqlQuery("delete MapStatusReport r where r.id in (" + staleReportIds + ")")
+				.setInteger("active", ObjectStatus.ACTIVE.ordinal())
+				.executeUpdate();
+	}
+
+	/**
+	 * Derived table of {@code (school_id, watermark)} over both transcript views. Aggregated over an
+	 * order-independent set of per-row hashes, so any inserted, deleted or updated transcript row changes the
+	 * watermark of its school ID.
+	 *
+	 * @param restrictToSchoolIds if {@code true}, expects a {@code :schoolIds} list parameter
+	 */
+	private String transcriptWatermarksBySchoolId(boolean restrictToSchoolIds) {
+		final String courseWhere = restrictToSchoolIds ? " where c.school_id in (:schoolIds)" : "";
+		final String nonCourseWhere = restrictToSchoolIds ? " where n.school_id in (:schoolIds)" : "";
+		return "(select t.school_id, " + watermarkAggregate("t.h") + " as watermark from (" +
+				"select c.school_id, " + rowHash("c", "C", TRANSCRIPT_COURSE_COLUMNS) + " as h" +
+				" from v_external_student_transcript_course c" + courseWhere +
+				" union all select n.school_id, " + rowHash("n", "N", TRANSCRIPT_NON_COURSE_COLUMNS) + " as h" +
+				" from v_external_student_transcript_non_course n" + nonCourseWhere +
+				") t group by t.school_id)";
+	}
+
+	private String rowHash(String alias, String tag, String[] columns) {
+		final List<String> values = Lists.newArrayListWithCapacity(columns.length);
+		if ( isSqlServer() ) {
+			for ( String column : columns ) {
+				// distinguish nulls from empty strings
+				values.add("coalesce(cast(" + alias + "." + column + " as nvarchar(max)), N'\\N')");
+			}
+			return "hashbytes('SHA2_256', N'" + tag + "|' + " + StringUtils.join(values, " + N'|' + ") + ")";
+		}
+		for ( String column : columns ) {
+			// distinguish nulls from empty strings
+			values.add("coalesce(cast(" + alias + "." + column + " as varchar), '\\N')");
+		}
+		return "md5('" + tag + "|' || " + StringUtils.join(values, " || '|' || ") + ")";
+	}
+
+	private String watermarkAggregate(String hash) {
+		if ( isSqlServer() ) {
+			// No ordered string aggregation on older SQL Server, so sum each row's SHA-256 in 48-bit slices instead.
+			// Sums don't depend on row order, and any inserted, deleted or updated row shifts every slice by an
+			// effectively random amount. Hashed together with the row count to fit the watermark column.
+			final StringBuilder sums = new StringBuilder("cast(count(*) as varchar(20))");
+			for ( int slice = 0; slice < SQL_SERVER_WATERMARK_SLICES; slice++ ) {
+				// summed as decimal so the whole substitutable course table can't overflow it
+				sums.append(" + ':' + cast(sum(cast(cast(substring(").append(hash).append(", ")
+						.append(slice * 6 + 1).append(", 6) as bigint) as decimal(38, 0))) as varchar(40))");
+			}
+			return "convert(varchar(64), hashbytes('SHA2_256', " + sums + "), 2)";
+		}
+		return "md5(string_agg(" + hash + ", ',' order by " + hash + "))";
+	}
+
+	private boolean isSqlServer() {
+		return ((SessionFactoryImplementor) sessionFactory).getDialect() instanceof SQLServerDialect;
+	}
+
 	public void deleteAllOldReportsForPerson(UUID personId) {
 		Collection<MapStatusReport> allForPersonId = getAllForPersonId(personId, null).getRows();
 		for (MapStatusReport mapStatusReport : allForPersonId) {
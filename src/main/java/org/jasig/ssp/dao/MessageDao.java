@@ -18,15 +18,26 @@
  */
 package org.jasig.ssp.dao;
 
-import java.util.Calendar;
+import java.util.Date;
 import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
 import org.hibernate.Criteria;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.jasig.ssp.model.Message;
+import org.jasig.ssp.model.ObjectStatus;
+import org.jasig.ssp.model.TaskMessageEnqueue;
 import org.jasig.ssp.service.reference.ConfigService;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortDirection;
 import org.jasig.ssp.util.sort.SortingAndPaging;
+import org.jasig.ssp.util.uuid.UUIDCustomType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,6 +55,17 @@ public class MessageDao extends AbstractAuditableCrudDao<Message> implements Aud
     @Autowired
 	private transient ConfigService configService;
 
+	private static final String CLAIMABLE_ROWS =
+			" where sent_date is null" +
+			" and object_status = :active" +
+			" and (retry_count is null or retry_count < :retryLimit)" +
+			" and (claimed_until is null or claimed_until < :now)";
+
+	// correlated so it can be run as an anti-join against the
+	// task_message_enqueue.message_id index, unlike the "not in" it replaced
+	private static final String NOT_ENQUEUED =
+			" and not exists (select tme.id from TaskMessageEnqueue tme where tme.message.id = msg.id)";
+
 
 	/**
 	 * Constructor that initializes the instance with the specific class types
@@ -98,19 +120,160 @@ public class MessageDao extends AbstractAuditableCrudDao<Message> implements Aud
         return processCriteriaWithStatusSortingAndPaging(criteria, sAndP);
 	}
 
-	public int archiveAndPruneMessages(Integer messageAgeInDays) {
-		final Calendar date = Calendar.getInstance();
-		date.add(Calendar.DAY_OF_MONTH, messageAgeInDays * -1);
+	/**
+	 * Atomically claim up to {@code maxResults} queued messages for sending.
+	 * A message is claimable if it is unsent, active, under the
+	 * {@code mail_delivery_retry_limit}, and either was never claimed or its
+	 * claim has lapsed.
+	 *
+	 * <p>Candidate rows are selected with a row-level lock that skips rows
+	 * already locked by a concurrent claim ({@code FOR UPDATE SKIP LOCKED} on
+	 * PostgreSQL 9.5+, {@code UPDLOCK, READPAST} on SQL Server) and are
+	 * stamped with the claim before the locks are released, so concurrent
+	 * callers, on this or any other node, always claim disjoint sets of
+	 * messages. The caller should commit promptly and do the actual sending
+	 * in a later transaction, reading the claimed messages back with
+	 * {@link #getClaimed(String)}.</p>
+	 *
+	 * @param maxResults maximum number of messages to claim
+	 * @param claimedBy identifies this claim, should be unique per caller
+	 * @param now the current time, used to detect lapsed claims
+	 * @param claimedUntil when the new claim lapses
+	 * @return the number of messages claimed
+	 */
+	@SuppressWarnings(UNCHECKED)
+	public int claimQueued(int maxResults, String claimedBy, Date now, Date claimedUntil) {
+		if ( maxResults <= 0 ) {
+			return 0;
+		}
+		final int retryLimit = configService.getByNameExceptionOrDefaultAsInt("mail_delivery_retry_limit");
+
+		final Dialect dialect = ((SessionFactoryImplementor) sessionFactory).getDialect();
+		final String sql;
+		if ( dialect instanceof SQLServerDialect ) {
+			sql = "select top (:maxResults) id from message with (updlock, rowlock, readpast)" +
+					CLAIMABLE_ROWS +
+					" order by created_date";
+		} else {
+			sql = "select id from message" +
+					CLAIMABLE_ROWS +
+					" order by created_date" +
+					" limit :maxResults" +
+					" for update skip locked";
+		}
+
+		final List<UUID> ids = sessionFactory.getCurrentSession()
+				.createSQLQuery(sql)
+				.addScalar("id", new UUIDCustomType())
+				.setInteger("active", ObjectStatus.ACTIVE.ordinal())
+				.setInteger("retryLimit", retryLimit)
+				.setTimestamp("now", now)
+				.setInteger("maxResults", maxResults)
+				.list();
+
+		if ( ids.isEmpty() ) {
+			return 0;
+		}
+
+		return sessionFactory.getCurrentSession()
+				.createQuery("update Message set claimedBy = :claimedBy, claimedUntil = :claimedUntil" +
+						" where id in (:ids)")
+				.setString("claimedBy", claimedBy)
+				.setTimestamp("claimedUntil", claimedUntil)
+				.setParameterList("ids", ids)
+				.executeUpdate();
+	}
+
+	/**
+	 * Unsent messages claimed by {@link #claimQueued(int, String, Date, Date)}
+	 * under the given claim, oldest first.
+	 *
+	 * @param claimedBy the claim
+	 * @return claimed messages. Never {@code null}.
+	 */
+	@SuppressWarnings(UNCHECKED)
+	public List<Message> getClaimed(String claimedBy) {
+		return sessionFactory.getCurrentSession()
+				.createQuery("from Message where claimedBy = :claimedBy and sentDate is null" +
+						" order by createdDate")
+				.setString("claimedBy", claimedBy)
+				.list();
+	}
+
+	/**
+	 * Ids of up to <code>maxResults</code> of the oldest messages created
+	 * before <code>createdBefore</code> which no {@link TaskMessageEnqueue}
+	 * refers to, i.e. those {@link #archiveAndPruneMessages(List)} may prune.
+	 *
+	 * @param createdBefore cutoff
+	 * @param maxResults maximum number of ids to return
+	 * @return prunable message ids, oldest first. Never {@code null}.
+	 */
+	@SuppressWarnings(UNCHECKED)
+	public List<UUID> getPrunableIds(Date createdBefore, int maxResults) {
+		return createHqlQuery("select msg.id from Message msg" +
+				" where msg.createdDate < :createdBefore" + NOT_ENQUEUED +
+				" order by msg.createdDate")
+				.setTimestamp("createdBefore", createdBefore)
+				.setMaxResults(maxResults)
+				.list();
+	}
+
+	/**
+	 * Streams the columns of the given messages archived by
+	 * {@link #archiveAndPruneMessages(List)}, one row at a time, without
+	 * loading them as entities. Each row holds, in order: id, createdDate,
+	 * sentDate, sender id, recipient id, recipientEmailAddress, carbonCopy,
+	 * sentToAddresses, sentCcAddresses, sentBccAddresses, sentFromAddress,
+	 * sentReplyToAddress, subject, body.
+	 *
+	 * @param ids messages to read
+	 * @param rowHandler receives each row
+	 */
+	public void forEachArchiveRow(List<UUID> ids, Consumer<Object[]> rowHandler) {
+		if ( ids.isEmpty() ) {
+			return;
+		}
+		final ScrollableResults rows = createHqlQuery("select msg.id, msg.createdDate, msg.sentDate," +
+				" sender.id, recipient.id, msg.recipientEmailAddress, msg.carbonCopy," +
+				" msg.sentToAddresses, msg.sentCcAddresses, msg.sentBccAddresses," +
+				" msg.sentFromAddress, msg.sentReplyToAddress, msg.subject, msg.body" +
+				" from Message msg left join msg.sender sender left join msg.recipient recipient" +
+				" where msg.id in (:ids) order by msg.createdDate")
+				.setParameterList("ids", ids)
+				.setReadOnly(true)
+				.scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while ( rows.next() ) {
+				rowHandler.accept(rows.get());
+			}
+		} finally {
+			rows.close();
+		}
+	}
+
+	/**
+	 * Copies the given messages, as selected by
+	 * {@link #getPrunableIds(Date, int)}, to the message archive table and
+	 * deletes them.
+	 *
+	 * @param ids messages to prune, should be a few thousand at most
+	 * @return the number of messages archived and deleted
+	 */
+	public int archiveAndPruneMessages(List<UUID> ids) {
+		if ( ids.isEmpty() ) {
+			return 0;
+		}
 
         final String hql = "INSERT INTO ArchivedMessage(id,createdDate, createdBy,modifiedDate, modifiedBy, objectStatus,subject,  body,  sender, recipient,  recipientEmailAddress,  "
 				+ "carbonCopy,	 sentToAddresses,  sentCcAddresses,	 sentBccAddresses,  sentFromAddress, sentReplyToAddress,  sentDate) "  + 
 	             "SELECT id,createdDate, createdBy,modifiedDate, modifiedBy,objectStatus,subject,  body,  sender, recipient,  recipientEmailAddress,  "
 				+ "carbonCopy,	 sentToAddresses,  sentCcAddresses,	 sentBccAddresses,  sentFromAddress, sentReplyToAddress,  sentDate FROM Message msg"
-				+ " Where createdDate < :date and id not in (select message.id from TaskMessageEnqueue)";
+				+ " Where msg.id in (:ids)";
 		
-		final int executedInsert = createHqlQuery(hql).setDate("date", date.getTime()).executeUpdate();
-		final String deleteHql = "delete from Message where createdDate < :date and id not in (select message.id from TaskMessageEnqueue)";
-		final int executedDelete = createHqlQuery(deleteHql).setDate("date", date.getTime()).executeUpdate();
+		final int executedInsert = createHqlQuery(hql).setParameterList("ids", ids).executeUpdate();
+		final String deleteHql = "delete from Message where id in (:ids)";
+		final int executedDelete = createHqlQuery(deleteHql).setParameterList("ids", ids).executeUpdate();
 
         if(executedInsert != executedDelete) {
 			throw new RuntimeException("Number of messages being archived and deleted are not equal, so transaction is being rolled back");
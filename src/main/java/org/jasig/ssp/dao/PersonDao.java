@@ -22,6 +22,7 @@ import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
 import org.hibernate.FlushMode;
 import org.hibernate.Session;
+import org.hibernate.StatelessSession;
 import org.hibernate.criterion.*;
 import org.hibernate.dialect.Dialect;
 import org.hibernate.dialect.SQLServerDialect;
@@ -42,10 +43,13 @@ import org.jasig.ssp.util.hibernate.NamespacedAliasToBeanResultTransformer;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortingAndPaging;
 import org.jasig.ssp.web.api.validation.ValidationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.CollectionUtils;
 import javax.validation.constraints.NotNull;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 /**
  * CRUD methods for the Person model.
@@ -55,6 +59,10 @@ import java.util.*;
 @Repository
 public class PersonDao extends AbstractAuditableCrudDao<Person> implements AuditableCrudDao<Person> {
 
+	@Autowired
+	@Qualifier("batchQueryExecutor")
+	private transient ExecutorService batchQueryExecutor;
+
 	/**
 	 * Constructor
 	 */
@@ -105,7 +113,31 @@ public class PersonDao extends AbstractAuditableCrudDao<Person> implements Audit
 
 		criteria = createCriteria(sAndP);
 
-		return new PagingWrapper<Person>(totalRows, criteria.list());
+		final boolean profileEnabled = enableFetchProfile(Person.FETCH_PROFILE_SUMMARY);
+		try {
+			return new PagingWrapper<Person>(totalRows, criteria.list());
+		} finally {
+			if ( profileEnabled ) {
+				disableFetchProfile(Person.FETCH_PROFILE_SUMMARY);
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link #get(UUID)} but with the given fetch profile applied,
+	 * e.g. {@link Person#FETCH_PROFILE_FULL}. Has no effect if the Person is
+	 * already in the session.
+	 */
+	public Person get(@NotNull final UUID id, @NotNull final String fetchProfile)
+			throws ObjectNotFoundException {
+		final boolean profileEnabled = enableFetchProfile(fetchProfile);
+		try {
+			return get(id);
+		} finally {
+			if ( profileEnabled ) {
+				disableFetchProfile(fetchProfile);
+			}
+		}
 	}
 
 	public Person fromUsername(@NotNull final String username) {
@@ -140,15 +172,87 @@ public class PersonDao extends AbstractAuditableCrudDao<Person> implements Audit
 
 		final BatchProcessor<UUID, Person> processor =  new BatchProcessor<UUID,Person>(personIds, sAndP);
 
-        do {
-			final Criteria criteria = createCriteria();
-			processor.process(criteria, "id");
-			
-		} while (processor.moreToProcess());
-		
+		final boolean profileEnabled = enableFetchProfile(Person.FETCH_PROFILE_SUMMARY);
+		try {
+			do {
+				final Criteria criteria = createCriteria();
+				processor.process(criteria, "id");
+
+			} while (processor.moreToProcess());
+		} finally {
+			if ( profileEnabled ) {
+				disableFetchProfile(Person.FETCH_PROFILE_SUMMARY);
+			}
+		}
+
 		return processor.getSortedAndPagedResultsAsList();
 	}
-	
+
+	/**
+	 * IDs which split active persons, in ID order, into {@code partitions}
+	 * ranges of roughly equal size. Boundaries come from the database's own
+	 * ordering of IDs, so ranges built from them are contiguous whatever
+	 * that ordering is.
+	 *
+	 * @param partitions number of ranges wanted
+	 * @return at most {@code partitions - 1} ascending, distinct IDs. Fewer
+	 *   if there are too few persons to go round.
+	 */
+	public List<UUID> getActiveIdPartitionBoundaries(final int partitions) {
+		final long total = (Long) createCriteria()
+				.add(Restrictions.eq("objectStatus", ObjectStatus.ACTIVE))
+				.setProjection(Projections.rowCount())
+				.uniqueResult();
+		final List<UUID> boundaries = new ArrayList<UUID>();
+		for ( int i = 1; i < partitions; i++ ) {
+			final long offset = total * i / partitions;
+			if ( offset <= 0 || offset >= total ) {
+				continue;
+			}
+			final UUID boundary = (UUID) createCriteria()
+					.add(Restrictions.eq("objectStatus", ObjectStatus.ACTIVE))
+					.setProjection(Projections.property("id"))
+					.addOrder(Order.asc("id"))
+					.setFirstResult((int) offset)
+					.setMaxResults(1)
+					.uniqueResult();
+			if ( boundary != null && !(boundaries.contains(boundary)) ) {
+				boundaries.add(boundary);
+			}
+		}
+		return boundaries;
+	}
+
+	/**
+	 * Next batch of active persons in one of the ranges described by
+	 * {@link #getActiveIdPartitionBoundaries(int)}, in ID order.
+	 *
+	 * @param rangeStart first ID in the range, inclusive. {@code null} if unbounded.
+	 * @param after last ID already processed, exclusive. {@code null} to start
+	 *   at {@code rangeStart}.
+	 * @param rangeEnd end of the range, exclusive. {@code null} if unbounded.
+	 * @param maxResults batch size, unlimited if zero or less
+	 */
+	@SuppressWarnings(UNCHECKED)
+	public List<Person> getActiveInIdRange(final UUID rangeStart, final UUID after, final UUID rangeEnd,
+										   final int maxResults) {
+		final Criteria criteria = createCriteria()
+				.add(Restrictions.eq("objectStatus", ObjectStatus.ACTIVE));
+		if ( after != null ) {
+			criteria.add(Restrictions.gt("id", after));
+		} else if ( rangeStart != null ) {
+			criteria.add(Restrictions.ge("id", rangeStart));
+		}
+		if ( rangeEnd != null ) {
+			criteria.add(Restrictions.lt("id", rangeEnd));
+		}
+		criteria.addOrder(Order.asc("id"));
+		if ( maxResults > 0 ) {
+			criteria.setMaxResults(maxResults);
+		}
+		return criteria.list();
+	}
+
 	public void removeFromSession(Person person) {
 		sessionFactory.getCurrentSession().evict(person);
 	}
@@ -562,19 +666,22 @@ public class PersonDao extends AbstractAuditableCrudDao<Person> implements Audit
         }
 
 		final BatchProcessor<UUID, BaseStudentReportTO> processor =  new BatchProcessor<UUID,BaseStudentReportTO>(ids, sAndP);
-		do {
-			final Criteria criteria = createCriteria();
-								
-			final ProjectionList projections = Projections.projectionList();
-		
-			criteria.setProjection(projections);
+		// read-only transfer objects, so chunks can run concurrently in their own sessions
+		processor.processInParallel(sessionFactory, batchQueryExecutor, new BatchProcessor.ChunkCriteriaFactory() {
+			@Override
+			public Criteria createCriteria(StatelessSession session) {
+				final Criteria criteria = session.createCriteria(Person.class);
 
-			addBasicStudentProperties(projections, criteria, sAndP.getStatus());
+				final ProjectionList projections = Projections.projectionList();
 
-			criteria.setResultTransformer(new AliasToBeanResultTransformer(BaseStudentReportTO.class));
-            processor.process(criteria, "id");
-			
-		} while(processor.moreToProcess());
+				criteria.setProjection(projections);
+
+				addBasicStudentProperties(projections, criteria, sAndP.getStatus());
+
+				criteria.setResultTransformer(new AliasToBeanResultTransformer(BaseStudentReportTO.class));
+				return criteria;
+			}
+		}, "id");
 
 		return new PagingWrapper<BaseStudentReportTO>(ids.size(), processor.getSortedAndPagedResultsAsList());
 	}
@@ -19,14 +19,18 @@
 package org.jasig.ssp.dao;
 
 import org.hibernate.Criteria;
+import org.hibernate.Session;
 import org.hibernate.criterion.Restrictions;
 import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.Person;
 import org.jasig.ssp.model.PersonSuccessIndicatorAlert;
 import org.jasig.ssp.model.reference.SuccessIndicator;
+import org.jasig.ssp.util.hibernate.BatchProcessor;
 import org.springframework.stereotype.Repository;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
 
 
 @Repository
@@ -54,8 +58,38 @@ public class PersonSuccessIndicatorAlertDao extends AbstractAuditableCrudDao<Per
 		return (PersonSuccessIndicatorAlert) criteria.uniqueResult();
 	}
 
+	/**
+	 * Batched {@link #get(Person)}. Results are in no particular order.
+	 */
+	public List<PersonSuccessIndicatorAlert> getForPersonIds(Collection<UUID> personIds) {
+		final BatchProcessor<UUID, PersonSuccessIndicatorAlert> processor = new BatchProcessor<>(personIds);
+		do {
+			final Criteria criteria = createCriteria()
+					.add(Restrictions.eq("objectStatus", ObjectStatus.ACTIVE));
+			processor.process(criteria, "person.id");
+		} while ( processor.moreToProcess() );
+		return processor.getUnsortedUnpagedResultsAsList();
+	}
+
 	public void delete(PersonSuccessIndicatorAlert personSuccessIndicatorAlert) {
 		super.delete(personSuccessIndicatorAlert);
 		sessionFactory.getCurrentSession().flush();
 	}
+
+	/**
+	 * Saves the given new alerts and deletes the given existing ones with a single flush at the end, unlike
+	 * {@link #save(PersonSuccessIndicatorAlert)} and {@link #delete(PersonSuccessIndicatorAlert)} which flush
+	 * after every statement.
+	 */
+	public void saveAndDeleteAll(Collection<PersonSuccessIndicatorAlert> toSave,
+								 Collection<PersonSuccessIndicatorAlert> toDelete) {
+		final Session session = sessionFactory.getCurrentSession();
+		for ( PersonSuccessIndicatorAlert alert : toSave ) {
+			session.save(alert);
+		}
+		for ( PersonSuccessIndicatorAlert alert : toDelete ) {
+			super.delete(alert);
+		}
+		session.flush();
+	}
 }
@@ -20,10 +20,12 @@ package org.jasig.ssp.dao;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.Session;
 import org.hibernate.criterion.Restrictions;
 import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.Person;
 import org.jasig.ssp.model.PersonSuccessIndicatorCount;
+import org.jasig.ssp.util.hibernate.BatchProcessor;
 import org.springframework.stereotype.Repository;
 import java.util.Collection;
 import java.util.UUID;
@@ -34,6 +36,8 @@ public class PersonSuccessIndicatorCountDao extends AbstractAuditableCrudDao<Per
 		implements AuditableCrudDao<PersonSuccessIndicatorCount> {
 
     private static final String deleteQuery = "delete from PersonSuccessIndicatorCount as psic where psic.person.id = :pid";
+    private static final String deleteForPersonIdsQuery =
+            "delete from PersonSuccessIndicatorCount as psic where psic.person.id in (:pids)";
 
 	public PersonSuccessIndicatorCountDao() {
 		super(PersonSuccessIndicatorCount.class);
@@ -57,4 +61,31 @@ public class PersonSuccessIndicatorCountDao extends AbstractAuditableCrudDao<Per
 
         sessionFactory.getCurrentSession().flush();
     }
+
+    /**
+     * Batched {@link #deleteAllSuccessIndicatorCountsForPerson(UUID)}.
+     */
+    public void deleteAllSuccessIndicatorCountsForPersonIds(Collection<UUID> personIds) {
+        if ( personIds.isEmpty() ) {
+            return;
+        }
+        final BatchProcessor<UUID, Object> processor = new BatchProcessor<>(personIds);
+        do {
+            processor.updateProcess(createHqlQuery(deleteForPersonIdsQuery), "pids");
+        } while ( processor.moreToProcess() );
+
+        sessionFactory.getCurrentSession().flush();
+    }
+
+    /**
+     * Saves all the given new counts with a single flush at the end, unlike {@link #save(PersonSuccessIndicatorCount)}
+     * which flushes after every insert.
+     */
+    public void saveAll(Collection<PersonSuccessIndicatorCount> counts) {
+        final Session session = sessionFactory.getCurrentSession();
+        for ( PersonSuccessIndicatorCount count : counts ) {
+            session.save(count);
+        }
+        session.flush();
+    }
 }
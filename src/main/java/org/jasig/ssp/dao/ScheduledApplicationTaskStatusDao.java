@@ -18,10 +18,15 @@
  */
 package org.jasig.ssp.dao;
 
+import java.util.Date;
+import java.util.List;
+
 import org.hibernate.Criteria;
 import org.hibernate.HibernateException;
+import org.hibernate.Query;
 import org.hibernate.criterion.Restrictions;
 import org.jasig.ssp.model.ScheduledApplicationTaskStatus;
+import org.jasig.ssp.model.ScheduledTaskStatus;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -36,5 +41,94 @@ public class ScheduledApplicationTaskStatusDao extends
 		Criteria criteria = createCriteria().add(Restrictions.eq("taskName", taskName));
 		return (ScheduledApplicationTaskStatus) criteria.uniqueResult();
 	}
-	
+
+	/**
+	 * Take the lease on the named task if no one holds it or if the current
+	 * holder's lease has lapsed. Single conditional update, so safe to race
+	 * from several nodes. The row must already exist.
+	 *
+	 * <p>If {@code occurrence} is given the lease is also refused if a run
+	 * already started at or after that time. Every node fires the same
+	 * trigger, so without this a node whose trigger fires a little late
+	 * could take the lease right after another node released it and run the
+	 * same occurrence a second time.</p>
+	 *
+	 * @param occurrence scheduled time of the trigger occurrence being run,
+	 *   {@code null} to run regardless of earlier runs
+	 * @return {@code true} if the lease was acquired
+	 */
+	public boolean acquireLease(String taskName, String owner, Date now, Date leaseExpiresDate,
+			Date occurrence) {
+		final Query query = createHqlQuery("update ScheduledApplicationTaskStatus" +
+				" set leaseOwner = :owner, leaseExpiresDate = :leaseExpiresDate," +
+				" fencingToken = fencingToken + 1," +
+				" status = :running, startDate = :now, completedDate = null" +
+				" where taskName = :taskName" +
+				" and (leaseOwner is null or leaseExpiresDate is null or leaseExpiresDate < :now)" +
+				(occurrence == null ? "" : " and (startDate is null or startDate < :occurrence)"))
+				.setString("owner", owner)
+				.setTimestamp("leaseExpiresDate", leaseExpiresDate)
+				.setString("running", ScheduledTaskStatus.RUNNING.name())
+				.setTimestamp("now", now)
+				.setString("taskName", taskName);
+		if ( occurrence != null ) {
+			query.setTimestamp("occurrence", occurrence);
+		}
+		return query.executeUpdate() > 0;
+	}
+
+	/**
+	 * @return the current fencing token for the named task, {@code null} if
+	 *   the task has never been leased by the given owner
+	 */
+	public Long getFencingToken(String taskName, String owner) {
+		return (Long) createHqlQuery("select fencingToken from ScheduledApplicationTaskStatus" +
+				" where taskName = :taskName and leaseOwner = :owner")
+				.setString("taskName", taskName)
+				.setString("owner", owner)
+				.uniqueResult();
+	}
+
+	/**
+	 * @return {@code true} if the lease was still held under the given token
+	 *   and has been extended
+	 */
+	public boolean renewLease(String taskName, String owner, long fencingToken, Date leaseExpiresDate) {
+		return createHqlQuery("update ScheduledApplicationTaskStatus" +
+				" set leaseExpiresDate = :leaseExpiresDate" +
+				" where taskName = :taskName and leaseOwner = :owner and fencingToken = :fencingToken")
+				.setTimestamp("leaseExpiresDate", leaseExpiresDate)
+				.setString("taskName", taskName)
+				.setString("owner", owner)
+				.setLong("fencingToken", fencingToken)
+				.executeUpdate() > 0;
+	}
+
+	/**
+	 * @return {@code true} if the lease was still held under the given token
+	 *   and has been released
+	 */
+	public boolean releaseLease(String taskName, String owner, long fencingToken, ScheduledTaskStatus status, Date now) {
+		return createHqlQuery("update ScheduledApplicationTaskStatus" +
+				" set leaseOwner = null, leaseExpiresDate = null, status = :status, completedDate = :now" +
+				" where taskName = :taskName and leaseOwner = :owner and fencingToken = :fencingToken")
+				.setString("status", status.name())
+				.setTimestamp("now", now)
+				.setString("taskName", taskName)
+				.setString("owner", owner)
+				.setLong("fencingToken", fencingToken)
+				.executeUpdate() > 0;
+	}
+
+	/**
+	 * Leases whose holder stopped renewing them without releasing them,
+	 * typically because the holding node died mid-task.
+	 */
+	@SuppressWarnings(UNCHECKED)
+	public List<ScheduledApplicationTaskStatus> getAbandonedLeases(Date now) {
+		return createCriteria()
+				.add(Restrictions.isNotNull("leaseOwner"))
+				.add(Restrictions.lt("leaseExpiresDate", now))
+				.list();
+	}
 }
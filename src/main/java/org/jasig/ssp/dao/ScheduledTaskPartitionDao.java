@@ -0,0 +1,131 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.common.collect.Lists;
+import org.hibernate.SQLQuery;
+import org.hibernate.SessionFactory;
+import org.jasig.ssp.model.ScheduledTaskPartition;
+import org.jasig.ssp.util.uuid.UUIDCustomType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Data access for {@link ScheduledTaskPartition}s. Plain SQL, the rows are
+ * only ever read and written by the task which owns them.
+ */
+@Repository
+public class ScheduledTaskPartitionDao {
+
+	@Autowired
+	protected transient SessionFactory sessionFactory;
+
+	/**
+	 * @return all ranges of the named task, in partition order. Empty if the
+	 *   task has never been partitioned.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<ScheduledTaskPartition> getPartitions(String taskName) {
+		final List<Object[]> rows = sessionFactory.getCurrentSession()
+				.createSQLQuery("select partition_index, partition_count, range_start, range_end," +
+						" last_processed_id, processed_count, completed_date" +
+						" from scheduled_task_partition where task_name = :taskName" +
+						" order by partition_index")
+				.addScalar("partition_index")
+				.addScalar("partition_count")
+				.addScalar("range_start", new UUIDCustomType())
+				.addScalar("range_end", new UUIDCustomType())
+				.addScalar("last_processed_id", new UUIDCustomType())
+				.addScalar("processed_count")
+				.addScalar("completed_date")
+				.setString("taskName", taskName)
+				.list();
+		final List<ScheduledTaskPartition> partitions = Lists.newArrayListWithCapacity(rows.size());
+		for ( Object[] row : rows ) {
+			final ScheduledTaskPartition partition = new ScheduledTaskPartition();
+			partition.setTaskName(taskName);
+			partition.setPartitionIndex(((Number) row[0]).intValue());
+			partition.setPartitionCount(((Number) row[1]).intValue());
+			partition.setRangeStart((UUID) row[2]);
+			partition.setRangeEnd((UUID) row[3]);
+			partition.setLastProcessedId((UUID) row[4]);
+			partition.setProcessedCount(((Number) row[5]).longValue());
+			partition.setCompletedDate((Date) row[6]);
+			partitions.add(partition);
+		}
+		return partitions;
+	}
+
+	/**
+	 * Discard any previous ranges of the named task and start over with the
+	 * given ones, none of them processed yet.
+	 */
+	public void replacePartitions(String taskName, List<ScheduledTaskPartition> partitions) {
+		sessionFactory.getCurrentSession()
+				.createSQLQuery("delete from scheduled_task_partition where task_name = :taskName")
+				.setString("taskName", taskName)
+				.executeUpdate();
+		final UUIDCustomType uuidType = new UUIDCustomType();
+		final Date now = new Date();
+		for ( ScheduledTaskPartition partition : partitions ) {
+			final SQLQuery insert = sessionFactory.getCurrentSession()
+					.createSQLQuery("insert into scheduled_task_partition (task_name, partition_index," +
+							" partition_count, range_start, range_end, last_processed_id, processed_count," +
+							" completed_date, modified_date)" +
+							" values (:taskName, :partitionIndex, :partitionCount, :rangeStart, :rangeEnd," +
+							" null, 0, null, :now)");
+			insert.setString("taskName", taskName);
+			insert.setInteger("partitionIndex", partition.getPartitionIndex());
+			insert.setInteger("partitionCount", partition.getPartitionCount());
+			insert.setParameter("rangeStart", partition.getRangeStart(), uuidType);
+			insert.setParameter("rangeEnd", partition.getRangeEnd(), uuidType);
+			insert.setTimestamp("now", now);
+			insert.executeUpdate();
+		}
+	}
+
+	/**
+	 * Record progress on one range. Meant to run in the same transaction as
+	 * the batch it records, so the checkpoint never gets ahead of the work.
+	 *
+	 * @param lastProcessedId new checkpoint
+	 * @param processed number of people processed since the last checkpoint
+	 * @param completedDate non-{@code null} if the range is now finished
+	 */
+	public void checkpoint(String taskName, int partitionIndex, UUID lastProcessedId, long processed,
+						   Date completedDate) {
+		sessionFactory.getCurrentSession()
+				.createSQLQuery("update scheduled_task_partition" +
+						" set last_processed_id = :lastProcessedId," +
+						" processed_count = processed_count + :processed," +
+						" completed_date = :completedDate, modified_date = :now" +
+						" where task_name = :taskName and partition_index = :partitionIndex")
+				.setParameter("lastProcessedId", lastProcessedId, new UUIDCustomType())
+				.setLong("processed", processed)
+				.setTimestamp("completedDate", completedDate)
+				.setTimestamp("now", new Date())
+				.setString("taskName", taskName)
+				.setInteger("partitionIndex", partitionIndex)
+				.executeUpdate();
+	}
+}
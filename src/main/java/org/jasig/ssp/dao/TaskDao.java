@@ -19,10 +19,13 @@
 package org.jasig.ssp.dao;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import com.google.common.collect.Maps;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
 import org.hibernate.criterion.Projections;
@@ -281,4 +284,35 @@ public class TaskDao
 
 		return new Pair<Long,Long>(openCnt, closedCnt);
 	}
+
+	/**
+	 * Batched {@link #getOpenVsClosedTaskCountsForPerson(Person)}. Persons without any active tasks map to
+	 * {@code (0,0)} so callers can tell them apart from persons they didn't ask about.
+	 */
+	public Map<UUID, Pair<Long,Long>> getOpenVsClosedTaskCountsForPersonIds(Collection<UUID> personIds) {
+		final Map<UUID, Pair<Long,Long>> counts = Maps.newHashMapWithExpectedSize(personIds.size());
+		for ( UUID personId : personIds ) {
+			counts.put(personId, new Pair<Long,Long>(0L, 0L));
+		}
+		if ( personIds.isEmpty() ) {
+			return counts;
+		}
+
+		final BatchProcessor<UUID, Object[]> processor = new BatchProcessor<>(personIds);
+		do {
+			final Query query = createHqlQuery("select t.person.id, " +
+					"sum(case when t.completedDate is null then 1 else 0 end), " +
+					"sum(case when t.completedDate is null then 0 else 1 end) " +
+					"from Task t where t.objectStatus = :objectStatus and t.person.id in (:personIds) " +
+					"group by t.person.id");
+			query.setParameter("objectStatus", ObjectStatus.ACTIVE);
+			processor.process(query, "personIds");
+		} while ( processor.moreToProcess() );
+
+		for ( Object[] row : processor.getUnsortedUnpagedResultsAsList() ) {
+			counts.put((UUID) row[0], new Pair<Long,Long>(((Number) row[1]).longValue(),
+					((Number) row[2]).longValue()));
+		}
+		return counts;
+	}
 }
\ No newline at end of file
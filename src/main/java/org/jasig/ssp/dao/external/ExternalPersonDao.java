@@ -19,19 +19,29 @@
 package org.jasig.ssp.dao.external;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.UUID;
 
 import javax.validation.constraints.NotNull;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.Query;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.external.ExternalPerson;
 import org.jasig.ssp.service.ObjectNotFoundException;
 import org.jasig.ssp.util.hibernate.BatchProcessor;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortingAndPaging;
+import org.jasig.ssp.util.uuid.UUIDCustomType;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -40,10 +50,145 @@ import org.springframework.stereotype.Repository;
 @Repository
 public class ExternalPersonDao extends AbstractExternalDataDao<ExternalPerson> {
 
+	/**
+	 * {@code external_person} columns copied onto {@code Person} and its
+	 * associations by
+	 * {@link org.jasig.ssp.service.external.ExternalPersonService#updatePersonFromExternalPerson(org.jasig.ssp.model.Person, ExternalPerson, boolean, boolean)},
+	 * i.e. the columns which make up a sync fingerprint.
+	 */
+	private static final String[] SYNCED_COLUMNS = {
+			"school_id", "username", "first_name", "middle_name", "last_name", "birth_date",
+			"primary_email_address", "address_line_1", "address_line_2", "city", "state", "zip_code",
+			"home_phone", "work_phone", "cell_phone", "photo_url", "office_location", "office_hours",
+			"department_name", "actual_start_term", "actual_start_year", "marital_status", "ethnicity",
+			"race_code", "gender", "is_local", "balance_owed", "coach_school_id", "non_local_address",
+			"residency_county", "f1_status", "student_type_code", "campus_code" };
+
+	// keeps each IN list well under SQL Server's 2100 parameter limit
+	private static final int FINGERPRINT_ID_BATCH_SIZE = 1000;
+
 	public ExternalPersonDao() {
 		super(ExternalPerson.class);
 	}
 
+	/**
+	 * Recompute the {@code external_person} fingerprint of every school ID
+	 * into {@code external_person_sync_fingerprint}. Hashing all of
+	 * {@code external_person} is the expensive part of change detection, so
+	 * it happens once per sync run, not once per batch. Changes made to
+	 * {@code external_person} after this call go unnoticed until the next
+	 * call, at which point the affected persons are selected again.
+	 */
+	public void refreshSyncFingerprintSnapshot() {
+		sessionFactory.getCurrentSession()
+				.createSQLQuery("delete from external_person_sync_fingerprint")
+				.executeUpdate();
+		// aggregated so that duplicate external_person rows can't yield more
+		// than one fingerprint per school ID
+		sessionFactory.getCurrentSession()
+				.createSQLQuery("insert into external_person_sync_fingerprint (school_id, fingerprint)" +
+						" select ep.school_id, min(" + fingerprintExpression() + ")" +
+						" from external_person ep group by ep.school_id")
+				.executeUpdate();
+	}
+
+	/**
+	 * IDs of active persons whose {@code external_person} record (matched by
+	 * school ID) has changed since {@link #recordSyncFingerprints(Collection, Date)}
+	 * was last called for them, or who have never had a fingerprint recorded.
+	 * Changes are detected against the snapshot taken by the last
+	 * {@link #refreshSyncFingerprintSnapshot()}, so unchanged persons are
+	 * never loaded.
+	 *
+	 * <p>Persons only matched to {@code external_person} by username are not
+	 * covered, nor are changes in other external tables.</p>
+	 *
+	 * @param afterPersonId only return IDs ordered after this one, so a caller
+	 *   paging through the results doesn't see persons it failed to sync
+	 *   again; {@code null} to start from the beginning
+	 * @param maxResults maximum number of IDs to return
+	 * @return person IDs in ID order, never {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	public List<UUID> getPersonIdsWithChangedExternalData(UUID afterPersonId, int maxResults) {
+		final String candidates = " from person p" +
+				" join external_person_sync_fingerprint x on x.school_id = p.school_id" +
+				" left join person_external_sync s on s.person_id = p.id" +
+				" where p.object_status = :active" +
+				" and (s.person_id is null or s.fingerprint <> x.fingerprint)" +
+				(afterPersonId == null ? "" : " and p.id > :afterPersonId");
+		final String sql;
+		if ( getDialect() instanceof SQLServerDialect ) {
+			sql = "select top (:maxResults) p.id" + candidates + " order by p.id";
+		} else {
+			sql = "select p.id" + candidates + " order by p.id limit :maxResults";
+		}
+		final Query query = sessionFactory.getCurrentSession()
+				.createSQLQuery(sql)
+				.addScalar("id", new UUIDCustomType())
+				.setInteger("active", ObjectStatus.ACTIVE.ordinal())
+				.setInteger("maxResults", maxResults);
+		if ( afterPersonId != null ) {
+			query.setParameter("afterPersonId", afterPersonId, new UUIDCustomType());
+		}
+		return query.list();
+	}
+
+	/**
+	 * Remember the current {@code external_person} fingerprint of each of the
+	 * given persons, so {@link #getPersonIdsWithChangedExternalData(UUID, int)}
+	 * skips them until their external record changes again. Only pass persons
+	 * which were actually synced. Persons without an {@code external_person}
+	 * record matching their school ID are ignored.
+	 *
+	 * @param personIds persons just synced from {@code external_person}
+	 * @param syncedDate when the sync happened
+	 */
+	public void recordSyncFingerprints(Collection<UUID> personIds, Date syncedDate) {
+		final UUIDCustomType uuidType = new UUIDCustomType();
+		for ( List<UUID> ids : Iterables.partition(personIds, FINGERPRINT_ID_BATCH_SIZE) ) {
+			sessionFactory.getCurrentSession()
+					.createSQLQuery("delete from person_external_sync where person_id in (:ids)")
+					.setParameterList("ids", ids, uuidType)
+					.executeUpdate();
+			sessionFactory.getCurrentSession()
+					.createSQLQuery("insert into person_external_sync (person_id, fingerprint, synced_date)" +
+							" select p.id, x.fingerprint, :syncedDate from person p" +
+							" join external_person_sync_fingerprint x on x.school_id = p.school_id" +
+							" where p.id in (:ids)")
+					.setTimestamp("syncedDate", syncedDate)
+					.setParameterList("ids", ids, uuidType)
+					.executeUpdate();
+		}
+	}
+
+	/**
+	 * Hash of the {@link #SYNCED_COLUMNS} of the {@code external_person} row
+	 * aliased {@code ep}, as 32 hex characters. Nulls are distinguished from
+	 * empty strings.
+	 *
+	 * <p>On SQL Server each column is hashed on its own and the hashes are
+	 * hashed again, since before SQL Server 2016 {@code hashbytes} rejects
+	 * input over 8000 bytes. That keeps every input under the limit as long
+	 * as no single column holds more than 4000 characters.</p>
+	 */
+	private String fingerprintExpression() {
+		final boolean sqlServer = getDialect() instanceof SQLServerDialect;
+		final List<String> columns = Lists.newArrayListWithCapacity(SYNCED_COLUMNS.length);
+		for ( String column : SYNCED_COLUMNS ) {
+			columns.add(sqlServer
+					? "hashbytes('MD5', coalesce(cast(ep." + column + " as nvarchar(max)), N'\\N'))"
+					: "coalesce(cast(ep." + column + " as varchar), '\\N')");
+		}
+		return sqlServer
+				? "convert(varchar(32), hashbytes('MD5', " + StringUtils.join(columns, " + ") + "), 2)"
+				: "md5(" + StringUtils.join(columns, " || '|' || ") + ")";
+	}
+
+	private Dialect getDialect() {
+		return ((SessionFactoryImplementor) sessionFactory).getDialect();
+	}
+
 	/**
 	 * Retrieves the specified instance from persistent storage.
 	 * 
@@ -21,8 +21,12 @@ package org.jasig.ssp.dao.external;
 import org.hibernate.Criteria;
 import org.hibernate.criterion.Restrictions;
 import org.jasig.ssp.model.external.ExternalPersonPlanStatus;
+import org.jasig.ssp.util.hibernate.BatchProcessor;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Repository
 public class ExternalPersonPlanStatusDao extends
 		AbstractExternalDataDao<ExternalPersonPlanStatus> {
@@ -37,4 +41,18 @@ public class ExternalPersonPlanStatusDao extends
 		criteria.add(Restrictions.eq("schoolId", schoolId));
 		return (ExternalPersonPlanStatus) criteria.uniqueResult();
 	}
+
+	public List<ExternalPersonPlanStatus> getBySchoolIds(List<String> schoolIds){
+		if ( schoolIds == null || schoolIds.isEmpty() ) {
+			return new ArrayList<>();
+		}
+
+		final BatchProcessor<String, ExternalPersonPlanStatus> processor = new BatchProcessor<>(schoolIds);
+		do {
+			final Criteria criteria = createCriteria();
+			processor.process(criteria, "schoolId");
+		} while ( processor.moreToProcess() );
+
+		return processor.getUnsortedUnpagedResultsAsList();
+	}
 }
@@ -22,9 +22,11 @@ import org.hibernate.Criteria;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.jasig.ssp.model.external.ExternalStudentRiskIndicator;
+import org.jasig.ssp.util.hibernate.BatchProcessor;
 import org.springframework.stereotype.Repository;
 
 import javax.validation.constraints.NotNull;
+import java.util.ArrayList;
 import java.util.List;
 
 @Repository
@@ -41,4 +43,18 @@ public class ExternalStudentRiskIndicatorDao extends AbstractExternalDataDao<Ext
         criteria.addOrder(Order.asc("indicatorName"));
         return (List<ExternalStudentRiskIndicator>)criteria.list();
     }
+
+    public List<ExternalStudentRiskIndicator> getStudentRiskIndicatorsBySchoolIds(List<String> schoolIds){
+        if ( schoolIds == null || schoolIds.isEmpty() ) {
+            return new ArrayList<>();
+        }
+
+        final BatchProcessor<String, ExternalStudentRiskIndicator> processor = new BatchProcessor<>(schoolIds);
+        do {
+            final Criteria criteria = createCriteria();
+            processor.process(criteria, "schoolId");
+        } while ( processor.moreToProcess() );
+
+        return processor.getUnsortedUnpagedResultsAsList();
+    }
 }
@@ -61,6 +61,41 @@ public class ExternalStudentTranscriptCourseDao extends AbstractExternalDataDao<
 		return (List<ExternalStudentTranscriptCourse>)criteria.list();
 	}
 
+	/**
+	 * Batched {@link #getTranscriptsBySchoolId(String)}. Results are in no particular order.
+	 */
+	public List<ExternalStudentTranscriptCourse> getTranscriptsBySchoolIds(List<String> schoolIds) {
+		if ( CollectionUtils.isEmpty(schoolIds) ) {
+			return Lists.newArrayList();
+		}
+
+		final BatchProcessor<String, ExternalStudentTranscriptCourse> processor = new BatchProcessor<>(schoolIds);
+		do {
+			processor.process(createCriteria(), "schoolId");
+		} while ( processor.moreToProcess() );
+
+		return processor.getUnsortedUnpagedResultsAsList();
+	}
+
+	/**
+	 * Batched {@link #getTranscriptsBySchoolIdAndTermCode(String, String)}. Results are in no particular order.
+	 */
+	public List<ExternalStudentTranscriptCourse> getTranscriptsBySchoolIdsAndTermCode(List<String> schoolIds,
+																					 String termCode) {
+		if ( CollectionUtils.isEmpty(schoolIds) ) {
+			return Lists.newArrayList();
+		}
+
+		final BatchProcessor<String, ExternalStudentTranscriptCourse> processor = new BatchProcessor<>(schoolIds);
+		do {
+			final Criteria criteria = createCriteria();
+			criteria.add(Restrictions.eq("termCode", termCode));
+			processor.process(criteria, "schoolId");
+		} while ( processor.moreToProcess() );
+
+		return processor.getUnsortedUnpagedResultsAsList();
+	}
+
     /**
      * Returns SSG Course Report TOs by specified criteria.
      *  SchoolIds *must* be populated! The rest can be empty/null.
@@ -23,10 +23,14 @@ import org.hibernate.criterion.Restrictions;
 import org.jasig.ssp.model.Person;
 import org.jasig.ssp.model.external.RegistrationStatusByTerm;
 import org.jasig.ssp.model.external.Term;
+import org.jasig.ssp.util.hibernate.BatchProcessor;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortingAndPaging;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Data access class for the RegistrationStatusByTerm reference entity.
  */
@@ -51,6 +55,27 @@ public class RegistrationStatusByTermDao extends
 		query.add(Restrictions.gt("registeredCourseCount", 0));
 		return (RegistrationStatusByTerm) query.uniqueResult();
 	}
+
+	/**
+	 * Batched {@link #getForTerm(String, String)} across every combination of the given school IDs and term codes.
+	 * Results are in no particular order.
+	 */
+	public List<RegistrationStatusByTerm> getForTerms(final List<String> schoolIds,
+			final List<String> termCodes) {
+		if ( schoolIds == null || schoolIds.isEmpty() || termCodes == null || termCodes.isEmpty() ) {
+			return new ArrayList<>();
+		}
+
+		final BatchProcessor<String, RegistrationStatusByTerm> processor = new BatchProcessor<>(schoolIds);
+		do {
+			final Criteria query = createCriteria();
+			query.add(Restrictions.in("termCode", termCodes));
+			query.add(Restrictions.gt("registeredCourseCount", 0));
+			processor.process(query, "schoolId");
+		} while ( processor.moreToProcess() );
+
+		return processor.getUnsortedUnpagedResultsAsList();
+	}
 	
 	public PagingWrapper<RegistrationStatusByTerm> getAllForTerm(
 			final Term term, final SortingAndPaging sAndP) {
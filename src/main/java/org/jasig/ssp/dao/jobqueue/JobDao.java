@@ -18,18 +18,32 @@
  */
 package org.jasig.ssp.dao.jobqueue;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.hibernate.Criteria;
+import org.hibernate.SQLQuery;
+import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.type.IntegerType;
+import org.hibernate.type.StringType;
 import org.jasig.ssp.dao.AbstractAuditableCrudDao;
 import org.jasig.ssp.dao.AuditableCrudDao;
 import org.jasig.ssp.model.Message;
 import org.jasig.ssp.model.jobqueue.Job;
 import org.jasig.ssp.model.jobqueue.WorkflowStatus;
+import org.jasig.ssp.transferobject.ImmutablePersonIdentifiersTO;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortDirection;
 import org.jasig.ssp.util.sort.SortingAndPaging;
+import org.jasig.ssp.util.uuid.UUIDCustomType;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -39,6 +53,19 @@ import org.springframework.stereotype.Repository;
 public class JobDao extends AbstractAuditableCrudDao<Job> implements
 		AuditableCrudDao<Job> {
 
+	/**
+	 * Rows per insert statement in {@link #insertTargets(UUID, List)}. Each row binds three parameters, so this
+	 * stays well under SQL Server's 2100 parameter limit.
+	 */
+	private static final int TARGET_INSERT_ROWS = 250;
+
+	private static final String CLAIMABLE_ROWS =
+			" where workflow_stopped_date is null" +
+			" and ((workflow_status = :queued)" +
+				" or ((workflow_status = :scheduling or workflow_status = :executing)" +
+					" and (lease_expires_date is null or lease_expires_date < :now))" +
+			")";
+
 	/**
 	 * Constructor that initializes the instance with the specific class types
 	 * for super class method use.
@@ -47,19 +74,267 @@ public class JobDao extends AbstractAuditableCrudDao<Job> implements
 		super(Job.class);
 	}
 
+	/**
+	 * Atomically claim up to {@code maxResults} jobs for scheduling. A job is claimable if it is {@link WorkflowStatus#QUEUED} or if
+	 * it is {@link WorkflowStatus#SCHEDULING}/{@link WorkflowStatus#EXECUTING}
+	 * but its lease has lapsed, i.e. the process that claimed it stopped
+	 * renewing it.
+	 *
+	 * <p>Candidate rows are selected with a row-level lock that skips rows
+	 * already locked by a concurrent claim on another node
+	 * ({@code FOR UPDATE SKIP LOCKED} on PostgreSQL 9.5+,
+	 * {@code UPDLOCK, READPAST} on SQL Server), so concurrent callers always
+	 * see disjoint sets of jobs. The locks are held until the current
+	 * transaction ends, so the caller must transition the returned jobs
+	 * (e.g. assign {@link Job#setScheduledByProcess(String)} and
+	 * {@link Job#setLeaseExpiresDate(Date)}) in the same transaction.</p>
+	 *
+	 * @param maxResults maximum number of jobs to claim
+	 * @param now the current time, used to detect lapsed leases
+	 * @return claimed jobs, oldest first. Never {@code null}.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Job> claimNextQueuedJobsForExecution(int maxResults, Date now) {
+		if ( maxResults <= 0 ) {
+			return Lists.newArrayList();
+		}
+
+		final Dialect dialect = ((SessionFactoryImplementor) sessionFactory).getDialect();
+		final String sql;
+		if ( dialect instanceof SQLServerDialect ) {
+			sql = "select top (:maxResults) id from job_queue with (updlock, rowlock, readpast)" +
+					CLAIMABLE_ROWS +
+					" order by created_date";
+		} else {
+			sql = "select id from job_queue" +
+					CLAIMABLE_ROWS +
+					" order by created_date" +
+					" limit :maxResults" +
+					" for update skip locked";
+		}
+
+		final List<UUID> ids = sessionFactory.getCurrentSession()
+				.createSQLQuery(sql)
+				.addScalar("id", new UUIDCustomType())
+				.setString("queued", WorkflowStatus.QUEUED.toString())
+				.setString("scheduling", WorkflowStatus.SCHEDULING.toString())
+				.setString("executing", WorkflowStatus.EXECUTING.toString())
+				.setTimestamp("now", now)
+				.setInteger("maxResults", maxResults)
+				.list();
+
+		if ( ids.isEmpty() ) {
+			return Lists.newArrayList();
+		}
+
+		return sessionFactory.getCurrentSession()
+				.createQuery("from Job where id in (:ids) order by createdDate")
+				.setParameterList("ids", ids)
+				.list();
+	}
+
+	/**
+	 * Cheap, lock-free check for whether
+	 * {@link #claimNextQueuedJobsForExecution(int, Date)} would currently find
+	 * anything to claim. Used to decide whether a dispatch is worth attempting
+	 * at all, so a {@code true} result is only a hint: a concurrent claim on
+	 * another node may still win the race.
+	 *
+	 * @param now the current time, used to detect lapsed leases
+	 * @return {@code true} if at least one job is claimable
+	 */
+	public boolean hasClaimableJobs(Date now) {
+		final Dialect dialect = ((SessionFactoryImplementor) sessionFactory).getDialect();
+		final String sql;
+		if ( dialect instanceof SQLServerDialect ) {
+			sql = "select top 1 id from job_queue" + CLAIMABLE_ROWS;
+		} else {
+			sql = "select id from job_queue" + CLAIMABLE_ROWS + " limit 1";
+		}
+		return !(sessionFactory.getCurrentSession()
+				.createSQLQuery(sql)
+				.addScalar("id", new UUIDCustomType())
+				.setString("queued", WorkflowStatus.QUEUED.toString())
+				.setString("scheduling", WorkflowStatus.SCHEDULING.toString())
+				.setString("executing", WorkflowStatus.EXECUTING.toString())
+				.setTimestamp("now", now)
+				.list()
+				.isEmpty());
+	}
+
+	/**
+	 * Extend the lease on every unfinished job currently claimed by the given
+	 * process. Intended to be called periodically as a heartbeat so that jobs
+	 * which outlive a single lease period are not reclaimed by another node.
+	 *
+	 * @param processId the claiming process
+	 * @param leaseExpiresDate new lease expiry
+	 * @return the number of jobs whose lease was extended
+	 */
+	public int renewLeases(String processId, Date leaseExpiresDate) {
+		return sessionFactory.getCurrentSession()
+				.createQuery("update Job set leaseExpiresDate = :leaseExpiresDate" +
+						" where scheduledByProcess = :processId" +
+						" and workflowStoppedDate is null" +
+						" and (workflowStatus = :scheduling or workflowStatus = :executing)")
+				.setTimestamp("leaseExpiresDate", leaseExpiresDate)
+				.setString("processId", processId)
+				.setString("scheduling", WorkflowStatus.SCHEDULING.toString())
+				.setString("executing", WorkflowStatus.EXECUTING.toString())
+				.executeUpdate();
+	}
+
+	/**
+	 * Extend the lease on a single job, but only if it is still claimed by
+	 * the given process.
+	 *
+	 * @param jobId the job
+	 * @param processId the process expected to hold the lease
+	 * @param leaseExpiresDate new lease expiry
+	 * @return {@code false} if the lease is no longer held by {@code processId},
+	 *   i.e. the job has been reclaimed elsewhere or has already finished
+	 */
+	public boolean renewLease(UUID jobId, String processId, Date leaseExpiresDate) {
+		return sessionFactory.getCurrentSession()
+				.createQuery("update Job set leaseExpiresDate = :leaseExpiresDate" +
+						" where id = :id" +
+						" and scheduledByProcess = :processId" +
+						" and workflowStoppedDate is null")
+				.setTimestamp("leaseExpiresDate", leaseExpiresDate)
+				.setParameter("id", jobId)
+				.setString("processId", processId)
+				.executeUpdate() > 0;
+	}
+
+	/**
+	 * Store the complete, ordered list of persons a job will work through. Rows are written with multi-row
+	 * inserts so capturing a large snapshot costs a handful of statements rather than one per person.
+	 *
+	 * @param jobId the job
+	 * @param targets persons in processing order, stored at indexes {@code 0..targets.size()-1}
+	 */
+	public void insertTargets(UUID jobId, List<ImmutablePersonIdentifiersTO> targets) {
+		final UUIDCustomType uuidType = new UUIDCustomType();
+		for ( int start = 0; start < targets.size(); start += TARGET_INSERT_ROWS ) {
+			final List<ImmutablePersonIdentifiersTO> rows =
+					targets.subList(start, Math.min(start + TARGET_INSERT_ROWS, targets.size()));
+			final StringBuilder sql = new StringBuilder(
+					"insert into job_queue_target (job_id, target_index, person_id, school_id) values ");
+			for ( int i = 0; i < rows.size(); i++ ) {
+				sql.append(i == 0 ? "" : ", ")
+						.append("(:jobId, :index").append(i)
+						.append(", :personId").append(i)
+						.append(", :schoolId").append(i).append(")");
+			}
+			final SQLQuery query = sessionFactory.getCurrentSession().createSQLQuery(sql.toString());
+			query.setParameter("jobId", jobId, uuidType);
+			for ( int i = 0; i < rows.size(); i++ ) {
+				query.setInteger("index" + i, start + i);
+				query.setParameter("personId" + i, rows.get(i).getId(), uuidType);
+				query.setString("schoolId" + i, rows.get(i).getSchoolId());
+			}
+			query.executeUpdate();
+		}
+	}
+
+	/**
+	 * Read a chunk of the persons stored by {@link #insertTargets(UUID, List)}.
+	 *
+	 * @param jobId the job
+	 * @param firstIndex index of the first person to return
+	 * @param maxResults maximum number of persons to return
+	 * @return persons in processing order, empty once {@code firstIndex} is past the end. Never {@code null}.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<ImmutablePersonIdentifiersTO> getTargets(UUID jobId, int firstIndex, int maxResults) {
+		final List<Object[]> rows = sessionFactory.getCurrentSession()
+				.createSQLQuery("select person_id, school_id from job_queue_target" +
+						" where job_id = :jobId and target_index >= :firstIndex" +
+						" order by target_index")
+				.addScalar("person_id", new UUIDCustomType())
+				.addScalar("school_id", StringType.INSTANCE)
+				.setParameter("jobId", jobId, new UUIDCustomType())
+				.setInteger("firstIndex", firstIndex)
+				.setMaxResults(maxResults)
+				.list();
+		final List<ImmutablePersonIdentifiersTO> targets = Lists.newArrayListWithCapacity(rows.size());
+		for ( Object[] row : rows ) {
+			targets.add(new ImmutablePersonIdentifiersTO((UUID)row[0], (String)row[1]));
+		}
+		return targets;
+	}
+
+	/**
+	 * Record that the person at the given index has been processed, along with whatever that processing
+	 * produced. Meant to be called in the same transaction as the processing itself, so the marker exists if and
+	 * only if the person's changes were committed.
+	 *
+	 * @param jobId the job
+	 * @param targetIndex index of the person, as stored by {@link #insertTargets(UUID, List)}
+	 * @param results serialized results of processing that person. May be {@code null} if there were none.
+	 * @return {@code false} if there is no such person
+	 */
+	public boolean markTargetProcessed(UUID jobId, int targetIndex, String results) {
+		return sessionFactory.getCurrentSession()
+				.createSQLQuery("update job_queue_target set processed = :processed, processed_results = :results" +
+						" where job_id = :jobId and target_index = :targetIndex")
+				.setBoolean("processed", true)
+				.setString("results", results)
+				.setParameter("jobId", jobId, new UUIDCustomType())
+				.setInteger("targetIndex", targetIndex)
+				.executeUpdate() > 0;
+	}
+
+	/**
+	 * Persons in the given range of indexes that {@link #markTargetProcessed(UUID, int, String)} has been
+	 * called for.
+	 *
+	 * @param jobId the job
+	 * @param firstIndex index of the first person to consider
+	 * @param maxResults number of persons to consider
+	 * @return serialized results keyed by index. Never {@code null}.
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<Integer, String> getProcessedTargets(UUID jobId, int firstIndex, int maxResults) {
+		final List<Object[]> rows = sessionFactory.getCurrentSession()
+				.createSQLQuery("select target_index, processed_results from job_queue_target" +
+						" where job_id = :jobId and processed = :processed" +
+						" and target_index >= :firstIndex and target_index < :endIndex")
+				.addScalar("target_index", IntegerType.INSTANCE)
+				.addScalar("processed_results", StringType.INSTANCE)
+				.setParameter("jobId", jobId, new UUIDCustomType())
+				.setBoolean("processed", true)
+				.setInteger("firstIndex", firstIndex)
+				.setInteger("endIndex", firstIndex + maxResults)
+				.list();
+		final Map<Integer, String> processed = Maps.newHashMapWithExpectedSize(rows.size());
+		for ( Object[] row : rows ) {
+			processed.put((Integer)row[0], (String)row[1]);
+		}
+		return processed;
+	}
+
+	/**
+	 * Remove the persons stored by {@link #insertTargets(UUID, List)}.
+	 *
+	 * @param jobId the job
+	 * @return the number of persons removed
+	 */
+	public int deleteTargets(UUID jobId) {
+		return sessionFactory.getCurrentSession()
+				.createSQLQuery("delete from job_queue_target where job_id = :jobId")
+				.setParameter("jobId", jobId, new UUIDCustomType())
+				.executeUpdate();
+	}
+
+	/**
+	 * Jobs that have not reached a terminal workflow status, oldest first.
+	 */
 	@SuppressWarnings("unchecked")
-	public List<Job> getNextQueuedJobsForExecution(int maxResults, String processId) {
-		 return sessionFactory
-			.getCurrentSession()
-			// This really only happens to work b/c we only support single-node deployments.
-			.createQuery(
-					"from Job where workflowStoppedDate is null" +
-						" and ((workflowStatus = :queued)" +
-							" or ((workflowStatus = :scheduling or workflowStatus = :executing) and scheduledByProcess != :processId)" +
-						")" +
-						" order by createdDate")
-			.setMaxResults(maxResults).setString("queued", WorkflowStatus.QUEUED.toString()).setString("scheduling", WorkflowStatus.SCHEDULING.toString()).setString("executing", WorkflowStatus.EXECUTING.toString())
-			.setString("processId", processId)
-			.list();
+	public List<Job> getUnfinishedJobs() {
+		return createCriteria()
+				.add(Restrictions.isNull("workflowStoppedDate"))
+				.addOrder(Order.asc("createdDate"))
+				.list();
 	}
-}
\ No newline at end of file
+}
@@ -19,9 +19,11 @@
 package org.jasig.ssp.dao.reference;
 
 import org.hibernate.Criteria;
+import org.hibernate.annotations.Cache;
 import org.hibernate.criterion.Restrictions;
 import org.jasig.ssp.dao.AbstractAuditableCrudDao;
 import org.jasig.ssp.model.Auditable;
+import org.jasig.ssp.model.reference.AbstractReference;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortingAndPaging;
 import org.springframework.stereotype.Repository;
@@ -33,6 +35,10 @@ import org.springframework.stereotype.Repository;
  * Defaults to sorting by the <code>Name</code> property unless otherwise
  * specified.
  * 
+ * <p>
+ * Lookups for types mapped with a second-level {@link Cache} also go through
+ * the query cache, see {@link AbstractReference#QUERY_CACHE_REGION}.
+ * 
  * @param <T>
  *            * Any domain type that extends the Auditable class.
  */
@@ -40,6 +46,8 @@ import org.springframework.stereotype.Repository;
 public abstract class AbstractReferenceAuditableCrudDao<T extends Auditable>
 		extends AbstractAuditableCrudDao<T> {
 
+	private final boolean cacheable;
+
 	/**
 	 * Constructor that initializes the instance with the specific type.
 	 * 
@@ -47,18 +55,27 @@ public abstract class AbstractReferenceAuditableCrudDao<T extends Auditable>
 	 */
 	protected AbstractReferenceAuditableCrudDao(final Class<T> persistentClass) {
 		super(persistentClass);
+		cacheable = persistentClass.isAnnotationPresent(Cache.class);
 	}
 
 	@Override
 	public PagingWrapper<T> getAll(final SortingAndPaging sAndP) {
-		return processCriteriaWithStatusSortingAndPaging(createCriteria(),
-				sAndP);
+		return processCriteriaWithStatusSortingAndPaging(
+				cacheable(createCriteria()), sAndP);
 	}
 
 	@SuppressWarnings("unchecked")
 	public T getByName(final String name) {
-		final Criteria query = createCriteria();
+		final Criteria query = cacheable(createCriteria());
 		query.add(Restrictions.eq("name", name));
 		return (T) query.uniqueResult();
 	}
+
+	protected Criteria cacheable(final Criteria query) {
+		if (cacheable) {
+			query.setCacheable(true).setCacheRegion(
+					AbstractReference.QUERY_CACHE_REGION);
+		}
+		return query;
+	}
 }
\ No newline at end of file
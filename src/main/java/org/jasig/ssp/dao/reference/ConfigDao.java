@@ -18,6 +18,9 @@
  */
 package org.jasig.ssp.dao.reference;
 
+import java.util.Date;
+import java.util.List;
+
 import org.hibernate.Criteria;
 import org.hibernate.criterion.Restrictions;
 import org.jasig.ssp.dao.AuditableCrudDao;
@@ -60,9 +63,32 @@ public class ConfigDao extends AbstractReferenceAuditableCrudDao<Config>
 
 	@Override
 	public Config getByName(final String name) {
-		// TODO: (performance) Perfect example of data that should be cached
 		final Criteria query = createCriteria();
 		query.add(Restrictions.eq("name", name));
 		return (Config) query.uniqueResult();
 	}
+
+	/**
+	 * Every Config row regardless of status, unsorted and unpaged.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Config> getAllEntries() {
+		return createCriteria().list();
+	}
+
+	/**
+	 * Cheap fingerprint of the whole config table. Changes whenever a row
+	 * is saved through Hibernate (which always bumps modifiedDate) or a row
+	 * is added or removed.
+	 *
+	 * @return opaque version string, only meaningful for equality checks
+	 */
+	public String getVersion() {
+		final Object[] result = (Object[]) createHqlQuery(
+				"select max(c.modifiedDate), count(c.id) from Config c")
+				.uniqueResult();
+		final Date lastModified = (Date) result[0];
+		return (lastModified == null ? 0L : lastModified.getTime())
+				+ ":" + result[1];
+	}
 }
\ No newline at end of file
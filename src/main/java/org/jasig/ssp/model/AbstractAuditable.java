@@ -82,13 +82,15 @@ public abstract class AbstractAuditable implements Auditable { // NOPMD
 	/**
 	 * Person that created this entity.
 	 * 
-	 * Set to load eagerly because
-	 * {@link org.jasig.ssp.transferobject.AbstractAuditableTO#from(org.jasig.ssp.model.AbstractAuditable)}
-	 * pulls the ID from the full Person object and would require an extra
-	 * lookup for every entity sent through the Controllers (or anything that
-	 * uses {@link AbstractAuditable} transfer objects).
+	 * Lazy so loading any auditable entity doesn't also join
+	 * <code>v_audit_person</code> twice. Uninitialized {@link AuditPerson}
+	 * proxies are resolved in batches (see {@link AuditPerson}) and served
+	 * from the second-level cache where possible, so converting a page of
+	 * entities with
+	 * {@link org.jasig.ssp.transferobject.AbstractAuditableTO#from(org.jasig.ssp.model.Auditable)}
+	 * costs at most one extra lookup per batch of distinct people.
 	 */
-	@ManyToOne(fetch = FetchType.EAGER)
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(nullable = false, updatable = false)
 	private AuditPerson createdBy;
 	
@@ -103,13 +105,9 @@ public abstract class AbstractAuditable implements Auditable { // NOPMD
 	/**
 	 * Last person to modify this entity.
 	 * 
-	 * Set to load eagerly because
-	 * {@link org.jasig.ssp.transferobject.AbstractAuditableTO#from(org.jasig.ssp.model.AbstractAuditable)}
-	 * pulls the ID from the full Person object and would require an extra
-	 * lookup for every entity sent through the Controllers (or anything that
-	 * uses AbstractAuditable transfer objects).
+	 * Lazy for the same reasons as {@link #createdBy}.
 	 */
-	@ManyToOne(fetch = FetchType.EAGER)
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(nullable = false, updatable = true)
 	private AuditPerson modifiedBy;
 
@@ -30,6 +30,9 @@ import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Immutable;
 import org.hibernate.annotations.Parameter;
@@ -45,9 +48,24 @@ import org.hibernate.validator.constraints.NotEmpty;
  */
 @Entity
 @Immutable
+@Cache(usage = CacheConcurrencyStrategy.READ_ONLY, region = AuditPerson.CACHE_REGION)
+@BatchSize(size = AuditPerson.BATCH_SIZE)
 @Table(name = "v_audit_person")
 public class AuditPerson  { // NOPMD
 
+	/**
+	 * Second-level cache region, i.e. the node-wide id to name cache. Entries
+	 * are evicted when a {@link Person} name changes, see
+	 * {@link org.jasig.ssp.dao.AuditableEntityInterceptor}. See
+	 * ehcache-ssp.xml for size and expiry.
+	 */
+	public static final String CACHE_REGION = "ssp.auditPerson";
+
+	/**
+	 * Number of lazy createdBy/modifiedBy proxies initialized per query.
+	 */
+	public static final int BATCH_SIZE = 100;
+
 	/**
 	 * First name; required.
 	 * 
@@ -0,0 +1,196 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.model;
+
+import javax.persistence.*;
+import javax.validation.constraints.NotNull;
+import java.util.Date;
+
+
+/**
+ * Records that the emails owed for an {@link EarlyAlert} have yet to be
+ * rendered and queued. Written in the same transaction as the alert itself so
+ * the submitting user doesn't wait on routing, template rendering and
+ * {@link Message} inserts, which are instead done in the background.
+ */
+@Entity
+@Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
+public class EarlyAlertNotification extends AbstractAuditable implements Auditable {
+
+	private static final long serialVersionUID = 4217536094470613268L;
+
+	/**
+	 * Which set of emails is owed.
+	 */
+	public enum Type {
+		/**
+		 * The coach, watchers, matching campus routes and, if so configured,
+		 * a confirmation to the creating faculty.
+		 */
+		ADVISOR_AND_FACULTY,
+
+		/**
+		 * The student the alert is about.
+		 */
+		STUDENT
+	}
+
+	@NotNull
+	@ManyToOne
+	@JoinColumn(name = "early_alert_id", updatable = false, nullable = false)
+	private EarlyAlert earlyAlert;
+
+	@NotNull
+	@Enumerated(EnumType.STRING)
+	@Column(length = 32, nullable = false, updatable = false)
+	private Type notificationType;
+
+	/**
+	 * Address the submitting user asked to also copy on the advisor email.
+	 */
+	@Column(name = "email_cc", length = 255, nullable = true, updatable = false)
+	private String emailCC;
+
+	@Column(nullable = false)
+	private int attempts;
+
+	@Column(length = 1024, nullable = true)
+	private String lastError;
+
+	/**
+	 * When the owed emails were queued. Null until then.
+	 */
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(nullable = true)
+	private Date processedDate;
+
+	/**
+	 * Identifies the background run which has claimed this notification, so
+	 * concurrent runs, possibly on other nodes, skip it.
+	 */
+	@Column(length = 255, nullable = true)
+	private String claimedBy;
+
+	/**
+	 * Time after which {@link #claimedBy}'s claim has lapsed and the
+	 * notification may be claimed again.
+	 */
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(nullable = true)
+	private Date claimedUntil;
+
+	public EarlyAlertNotification() {
+		super();
+	}
+
+	public EarlyAlertNotification(@NotNull final EarlyAlert earlyAlert,
+			@NotNull final Type notificationType, final String emailCC) {
+		super();
+		this.earlyAlert = earlyAlert;
+		this.notificationType = notificationType;
+		this.emailCC = emailCC;
+		setObjectStatus(ObjectStatus.ACTIVE);
+	}
+
+	public EarlyAlert getEarlyAlert() {
+		return earlyAlert;
+	}
+
+	public void setEarlyAlert(EarlyAlert earlyAlert) {
+		this.earlyAlert = earlyAlert;
+	}
+
+	public Type getNotificationType() {
+		return notificationType;
+	}
+
+	public void setNotificationType(Type notificationType) {
+		this.notificationType = notificationType;
+	}
+
+	public String getEmailCC() {
+		return emailCC;
+	}
+
+	public void setEmailCC(String emailCC) {
+		this.emailCC = emailCC;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public void setLastError(String lastError) {
+		this.lastError = lastError;
+	}
+
+	public Date getProcessedDate() {
+		return processedDate == null ? null : new Date(processedDate.getTime());
+	}
+
+	public void setProcessedDate(final Date processedDate) {
+		this.processedDate = processedDate == null ? null : new Date(processedDate.getTime());
+	}
+
+	public String getClaimedBy() {
+		return claimedBy;
+	}
+
+	public void setClaimedBy(String claimedBy) {
+		this.claimedBy = claimedBy;
+	}
+
+	public Date getClaimedUntil() {
+		return claimedUntil == null ? null : new Date(claimedUntil.getTime());
+	}
+
+	public void setClaimedUntil(final Date claimedUntil) {
+		this.claimedUntil = claimedUntil == null ? null : new Date(claimedUntil.getTime());
+	}
+
+	@Override
+	protected int hashPrime() {
+		return 433;
+	}
+
+	@Override
+	final public int hashCode() { // NOPMD
+		int result = hashPrime();
+
+		// AbstractAuditable properties
+		result *= hashField("id", getId());
+		result *= hashField("objectStatus", getObjectStatus());
+
+		// EarlyAlertNotification
+		result *= hashField("notificationType",
+				notificationType == null ? null : notificationType.name());
+		result *= hashField("emailCC", emailCC);
+		result *= hashField("processedDate", processedDate);
+
+		return result;
+	}
+}
@@ -20,6 +20,7 @@ package org.jasig.ssp.model;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 import javax.persistence.Column;
@@ -32,6 +33,8 @@ import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import org.hibernate.annotations.Cascade;
@@ -91,6 +94,27 @@ public class MapStatusReport extends AbstractAuditable implements PersonAssocAud
 	
 	@Column
 	private int planRatioDemerits;
+
+	/**
+	 * {@link Plan#getModifiedDate()} as of this report's calculation
+	 */
+	@Column
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date planModifiedDate;
+
+	/**
+	 * Fingerprint of the student's external transcript as of this report's calculation
+	 */
+	@Column(length = 64)
+	@Size(max = 64)
+	private String transcriptWatermark;
+
+	/**
+	 * Fingerprint of the calculation settings, cutoff term and terms this report was calculated with
+	 */
+	@Column(length = 32)
+	@Size(max = 32)
+	private String inputsFingerprint;
 	
 
 
@@ -201,4 +225,28 @@ public class MapStatusReport extends AbstractAuditable implements PersonAssocAud
     public void setOverrideDetails (List<MapStatusReportOverrideDetails> overrideDetails) {
         this.overrideDetails = overrideDetails;
     }
+
+	public Date getPlanModifiedDate() {
+		return planModifiedDate == null ? null : new Date(planModifiedDate.getTime());
+	}
+
+	public void setPlanModifiedDate(Date planModifiedDate) {
+		this.planModifiedDate = planModifiedDate == null ? null : new Date(planModifiedDate.getTime());
+	}
+
+	public String getTranscriptWatermark() {
+		return transcriptWatermark;
+	}
+
+	public void setTranscriptWatermark(String transcriptWatermark) {
+		this.transcriptWatermark = transcriptWatermark;
+	}
+
+	public String getInputsFingerprint() {
+		return inputsFingerprint;
+	}
+
+	public void setInputsFingerprint(String inputsFingerprint) {
+		this.inputsFingerprint = inputsFingerprint;
+	}
 }
@@ -73,6 +73,22 @@ final public class Message extends AbstractAuditable implements Auditable {
 
 	private Integer retryCount;
 
+	/**
+	 * Identifies the queue drain which has claimed this message for sending,
+	 * so concurrent drains, possibly on other nodes, skip it.
+	 */
+	@Column(length = 255, nullable = true)
+	private String claimedBy;
+
+	/**
+	 * Time after which {@link #claimedBy}'s claim has lapsed and the message
+	 * may be claimed again, e.g. because the claiming node died mid-send, or
+	 * because the send failed and should be retried.
+	 */
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(nullable = true)
+	private Date claimedUntil;
+
     /**
 	 * Empty constructor
 	 */
@@ -262,4 +278,20 @@ final public class Message extends AbstractAuditable implements Auditable {
 	public void setRetryCount(Integer retryCount) {
 		this.retryCount = retryCount;
 	}
+
+	public String getClaimedBy() {
+		return claimedBy;
+	}
+
+	public void setClaimedBy(String claimedBy) {
+		this.claimedBy = claimedBy;
+	}
+
+	public Date getClaimedUntil() {
+		return claimedUntil == null ? null : new Date(claimedUntil.getTime());
+	}
+
+	public void setClaimedUntil(final Date claimedUntil) {
+		this.claimedUntil = claimedUntil == null ? null : new Date(claimedUntil.getTime());
+	}
 }
@@ -37,8 +37,13 @@ import javax.persistence.Transient;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Cascade;
 import org.hibernate.annotations.CascadeType;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.FetchProfile;
+import org.hibernate.annotations.FetchProfile.FetchOverride;
+import org.hibernate.annotations.FetchProfiles;
 import org.hibernate.annotations.Formula;
 import org.hibernate.annotations.Sort;
 import org.hibernate.envers.AuditTable;
@@ -67,8 +72,48 @@ import com.google.common.collect.Sets;
 )
 @DiscriminatorValue("user")
 @AuditTable("person_coach_audit")
+@BatchSize(size = Person.BATCH_SIZE)
+@FetchProfiles({
+		@FetchProfile(name = Person.FETCH_PROFILE_SUMMARY, fetchOverrides = {
+				@FetchOverride(entity = Person.class, association = "coach", mode = FetchMode.JOIN),
+				@FetchOverride(entity = Person.class, association = "studentType", mode = FetchMode.JOIN),
+				@FetchOverride(entity = Person.class, association = "homeCampus", mode = FetchMode.JOIN) }),
+		@FetchProfile(name = Person.FETCH_PROFILE_FULL, fetchOverrides = {
+				@FetchOverride(entity = Person.class, association = "coach", mode = FetchMode.JOIN),
+				@FetchOverride(entity = Person.class, association = "studentType", mode = FetchMode.JOIN),
+				@FetchOverride(entity = Person.class, association = "homeCampus", mode = FetchMode.JOIN),
+				@FetchOverride(entity = Person.class, association = "programStatuses", mode = FetchMode.JOIN) }),
+		@FetchProfile(name = Person.FETCH_PROFILE_INTAKE, fetchOverrides = {
+				@FetchOverride(entity = Person.class, association = "educationLevels", mode = FetchMode.JOIN),
+				@FetchOverride(entity = Person.class, association = "fundingSources", mode = FetchMode.JOIN),
+				@FetchOverride(entity = Person.class, association = "challenges", mode = FetchMode.JOIN) }) })
 public class Person extends AbstractAuditable implements Auditable { // NOPMD
 
+	/**
+	 * Number of people whose lazy collections (or proxies) are initialized
+	 * together once any one of them is touched, so converting a page of
+	 * people costs one query per association rather than one per person.
+	 */
+	public static final int BATCH_SIZE = 100;
+
+	/**
+	 * Fetch profile for lists and pages of people, e.g. before converting
+	 * them with {@link org.jasig.ssp.transferobject.PersonTO}. Only joins
+	 * to-one associations so paging still happens in the database.
+	 * Collections are batch loaded instead, see {@link #BATCH_SIZE}.
+	 */
+	public static final String FETCH_PROFILE_SUMMARY = "person-summary";
+
+	/**
+	 * Fetch profile for loading a single person for full display.
+	 */
+	public static final String FETCH_PROFILE_FULL = "person-full";
+
+	/**
+	 * Fetch profile for loading a single person into the student intake form.
+	 */
+	public static final String FETCH_PROFILE_INTAKE = "person-intake";
+
 	private static final long serialVersionUID = 4159658337332259029L;
 
 	private static final String DATABASE_TABLE_NAME = "person";
@@ -502,6 +547,7 @@ public class Person extends AbstractAuditable implements Auditable { // NOPMD
 	 * Should be null for non-student users.
 	 */
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade(value = { CascadeType.PERSIST, CascadeType.MERGE,
 			CascadeType.SAVE_UPDATE })
@@ -513,6 +559,7 @@ public class Person extends AbstractAuditable implements Auditable { // NOPMD
 	 * Should be null for non-student users.
 	 */
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade({ CascadeType.PERSIST, CascadeType.MERGE, CascadeType.SAVE_UPDATE })
 	private Set<PersonFundingSource> fundingSources;
@@ -523,11 +570,13 @@ public class Person extends AbstractAuditable implements Auditable { // NOPMD
 	 * Should be null for non-student users.
 	 */
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade({ CascadeType.PERSIST, CascadeType.MERGE, CascadeType.SAVE_UPDATE })
 	private Set<PersonChallenge> challenges;
 
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade({ CascadeType.PERSIST, CascadeType.MERGE, CascadeType.SAVE_UPDATE })
 	private Set<PersonCompletedItem> completedItems;
@@ -548,11 +597,13 @@ public class Person extends AbstractAuditable implements Auditable { // NOPMD
 	 * Should be null for non-student users.
 	 */
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade({ CascadeType.PERSIST, CascadeType.MERGE, CascadeType.SAVE_UPDATE })
 	private Set<PersonDisabilityAgency> disabilityAgencies;	
 
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(fetch = FetchType.LAZY, mappedBy="student")
 	@Cascade({ CascadeType.LOCK })
 	private List<WatchStudent> watchers;
@@ -562,6 +613,7 @@ public class Person extends AbstractAuditable implements Auditable { // NOPMD
 	 * Should be null for non-student users.
 	 */
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade({ CascadeType.PERSIST, CascadeType.MERGE, CascadeType.SAVE_UPDATE })
 	private Set<PersonDisabilityType> disabilityTypes;	
@@ -572,23 +624,27 @@ public class Person extends AbstractAuditable implements Auditable { // NOPMD
 	 * Should be null for non-student users.
 	 */
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade({ CascadeType.PERSIST, CascadeType.MERGE, CascadeType.SAVE_UPDATE })
 	private Set<PersonDisabilityAccommodation> disabilityAccommodations;
 
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade(value = { CascadeType.PERSIST, CascadeType.MERGE,
 			CascadeType.SAVE_UPDATE })
 	private Set<PersonTool> tools;
 
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade(value = { CascadeType.PERSIST, CascadeType.MERGE,
 			CascadeType.SAVE_UPDATE })
 	private Set<PersonConfidentialityDisclosureAgreement> confidentialityDisclosureAgreements;
 
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade(value = { CascadeType.PERSIST, CascadeType.MERGE,
 			CascadeType.SAVE_UPDATE })
@@ -602,12 +658,14 @@ public class Person extends AbstractAuditable implements Auditable { // NOPMD
 	private Person coach;
 	
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(fetch = FetchType.LAZY, mappedBy="person")
 	@Cascade({ CascadeType.LOCK })
 	private List<Plan> plans;
 
 	@Nullable
 	@Sort(comparator = PersonServiceReasonComparator.class)
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade(value = { CascadeType.PERSIST, CascadeType.MERGE,
 			CascadeType.SAVE_UPDATE })
@@ -623,6 +681,7 @@ public class Person extends AbstractAuditable implements Auditable { // NOPMD
 	}
 	@Nullable
 	@Sort(comparator = PersonSpecialServiceGroupComparator.class)
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade(value = { CascadeType.PERSIST, CascadeType.MERGE,
 			CascadeType.SAVE_UPDATE })
@@ -638,6 +697,7 @@ public class Person extends AbstractAuditable implements Auditable { // NOPMD
 	}
 	@Nullable
 	@Sort(comparator = ReferralSourceComparator.class)
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade(value = { CascadeType.PERSIST, CascadeType.MERGE,
 			CascadeType.SAVE_UPDATE })
@@ -653,6 +713,7 @@ public class Person extends AbstractAuditable implements Auditable { // NOPMD
 	}
 
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME, orphanRemoval = true)
 	@Cascade(value = { CascadeType.PERSIST, CascadeType.MERGE,
 			CascadeType.SAVE_UPDATE })
@@ -669,6 +730,7 @@ public class Person extends AbstractAuditable implements Auditable { // NOPMD
 	private Campus homeCampus;
 
 	@Nullable
+	@BatchSize(size = BATCH_SIZE)
 	@OneToMany(mappedBy = DATABASE_TABLE_NAME)
 	@Cascade(value = { CascadeType.PERSIST, CascadeType.MERGE,
 			CascadeType.SAVE_UPDATE })
@@ -31,6 +31,7 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Cascade;
 import org.hibernate.annotations.CascadeType;
 import org.jasig.ssp.model.reference.ChildCareArrangement;
@@ -54,6 +55,7 @@ import org.jasig.ssp.model.reference.VeteranStatus;
  * @author jon.adams
  */
 @Entity
+@BatchSize(size = Person.BATCH_SIZE)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class PersonDemographics // NOPMD by jon.adams on 5/24/12 1:34 PM
 		extends AbstractAuditable implements Auditable {
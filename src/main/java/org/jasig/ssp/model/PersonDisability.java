@@ -32,6 +32,7 @@ import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Cascade;
 import org.hibernate.annotations.CascadeType;
 import org.jasig.ssp.model.reference.DisabilityStatus;
@@ -48,6 +49,7 @@ import org.jasig.ssp.model.reference.DisabilityStatus;
  * @author shawn.gormley
  */
 @Entity
+@BatchSize(size = Person.BATCH_SIZE)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class PersonDisability // NOPMD
 		extends AbstractAuditable implements Auditable {
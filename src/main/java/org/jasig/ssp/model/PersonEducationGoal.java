@@ -27,6 +27,7 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Cascade;
 import org.hibernate.annotations.CascadeType;
 import org.jasig.ssp.model.reference.CourseworkHours;
@@ -44,6 +45,7 @@ import org.jasig.ssp.model.reference.RegistrationLoad;
  * @author jon.adams
  */
 @Entity
+@BatchSize(size = Person.BATCH_SIZE)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class PersonEducationGoal
 		extends AbstractAuditable
@@ -30,6 +30,7 @@ import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.BatchSize;
 import org.jasig.ssp.model.reference.StudentStatus;
 
 /**
@@ -42,6 +43,7 @@ import org.jasig.ssp.model.reference.StudentStatus;
  * @author jon.adams
  */
 @Entity
+@BatchSize(size = Person.BATCH_SIZE)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class PersonEducationPlan
 		extends AbstractAuditable
@@ -24,6 +24,8 @@ import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.BatchSize;
+
 /**
  * Staff should have some information stored for use in notifications to
  * appropriate users and for other reporting purposes.
@@ -34,6 +36,7 @@ import javax.validation.constraints.Size;
  * @author jon.adams
  */
 @Entity
+@BatchSize(size = Person.BATCH_SIZE)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class PersonStaffDetails // NOPMD by jon.adams on 5/24/12 1:34 PM
 		extends AbstractAuditable implements Auditable {
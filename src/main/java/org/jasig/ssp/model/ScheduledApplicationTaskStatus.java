@@ -73,6 +73,30 @@ public class ScheduledApplicationTaskStatus extends AbstractAuditable implements
 	@Column(nullable = false)
  	private ScheduledTaskStatus status;
 
+	/**
+	 * Identifies the process currently holding the cluster-wide lease on
+	 * this task, if any. Null if no lease is held.
+	 */
+	@Column(nullable = true, length = 150)
+	@Size(max = 150)
+	private String leaseOwner;
+
+	/**
+	 * Time after which {@link #leaseOwner}'s lease is considered abandoned
+	 * and may be taken over by another process.
+	 */
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(nullable = true)
+	private Date leaseExpiresDate;
+
+	/**
+	 * Incremented on every lease acquisition. Renewal and release must
+	 * present the token handed out at acquisition, so a holder which has
+	 * been superseded can never extend or clear its successor's lease.
+	 */
+	@Column(nullable = false)
+	private long fencingToken;
+
 	
 	public String getTaskName() {
 		return taskName;
@@ -106,6 +130,43 @@ public class ScheduledApplicationTaskStatus extends AbstractAuditable implements
 		this.status = status;
 	}
 
+	public String getLeaseOwner() {
+		return leaseOwner;
+	}
+
+	public void setLeaseOwner(String leaseOwner) {
+		this.leaseOwner = leaseOwner;
+	}
+
+	public Date getLeaseExpiresDate() {
+		return leaseExpiresDate;
+	}
+
+	public void setLeaseExpiresDate(Date leaseExpiresDate) {
+		this.leaseExpiresDate = leaseExpiresDate;
+	}
+
+	public long getFencingToken() {
+		return fencingToken;
+	}
+
+	public void setFencingToken(long fencingToken) {
+		this.fencingToken = fencingToken;
+	}
+
+	/**
+	 * Name under which a partition of a larger task is leased, e.g. so
+	 * several nodes can each hold a lease on a different range of a batched
+	 * task's keyspace at the same time.
+	 *
+	 * @param taskName the parent task's lease name
+	 * @param partition zero-based partition index
+	 * @return
+	 */
+	public static String subLeaseTaskName(String taskName, int partition) {
+		return taskName + "#" + partition;
+	}
+
 	protected int hashPrime() {
 		return 3;
 	}
@@ -0,0 +1,125 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.model;
+
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Progress of one range of a batched task whose people have been split by
+ * ID into ranges which are worked on in parallel. Persisted in
+ * {@code scheduled_task_partition} so an interrupted task resumes each range
+ * from its own checkpoint.
+ */
+public class ScheduledTaskPartition {
+
+	private String taskName;
+
+	private int partitionIndex;
+
+	private int partitionCount;
+
+	private UUID rangeStart;
+
+	private UUID rangeEnd;
+
+	private UUID lastProcessedId;
+
+	private long processedCount;
+
+	private Date completedDate;
+
+	public String getTaskName() {
+		return taskName;
+	}
+
+	public void setTaskName(String taskName) {
+		this.taskName = taskName;
+	}
+
+	public int getPartitionIndex() {
+		return partitionIndex;
+	}
+
+	public void setPartitionIndex(int partitionIndex) {
+		this.partitionIndex = partitionIndex;
+	}
+
+	public int getPartitionCount() {
+		return partitionCount;
+	}
+
+	public void setPartitionCount(int partitionCount) {
+		this.partitionCount = partitionCount;
+	}
+
+	/**
+	 * @return first ID in the range, inclusive. {@code null} if unbounded.
+	 */
+	public UUID getRangeStart() {
+		return rangeStart;
+	}
+
+	public void setRangeStart(UUID rangeStart) {
+		this.rangeStart = rangeStart;
+	}
+
+	/**
+	 * @return end of the range, exclusive. {@code null} if unbounded.
+	 */
+	public UUID getRangeEnd() {
+		return rangeEnd;
+	}
+
+	public void setRangeEnd(UUID rangeEnd) {
+		this.rangeEnd = rangeEnd;
+	}
+
+	/**
+	 * @return the checkpoint, {@code null} if nothing in the range has been
+	 *   processed yet
+	 */
+	public UUID getLastProcessedId() {
+		return lastProcessedId;
+	}
+
+	public void setLastProcessedId(UUID lastProcessedId) {
+		this.lastProcessedId = lastProcessedId;
+	}
+
+	public long getProcessedCount() {
+		return processedCount;
+	}
+
+	public void setProcessedCount(long processedCount) {
+		this.processedCount = processedCount;
+	}
+
+	public Date getCompletedDate() {
+		return completedDate;
+	}
+
+	public void setCompletedDate(Date completedDate) {
+		this.completedDate = completedDate;
+	}
+
+	public boolean isCompleted() {
+		return completedDate != null;
+	}
+}
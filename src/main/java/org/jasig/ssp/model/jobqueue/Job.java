@@ -88,6 +88,16 @@ public class Job extends AbstractAuditable {
 	@Column(nullable = true)
 	private Date workflowStoppedDate;	
 
+	/**
+	 * Time after which a {@code SCHEDULING} or {@code EXECUTING} job is
+	 * considered abandoned by {@link #scheduledByProcess} and may be claimed
+	 * by any other process. Renewed periodically while the owning process
+	 * is alive.
+	 */
+	@Temporal(TemporalType.TIMESTAMP)
+	@Column(nullable = true)
+	private Date leaseExpiresDate;
+
 	@Override
 	protected int hashPrime() {
 		return 13;
@@ -166,6 +176,14 @@ public class Job extends AbstractAuditable {
 		this.workflowStoppedDate = workflowStoppedDate;
 	}
 
+	public Date getLeaseExpiresDate() {
+		return leaseExpiresDate;
+	}
+
+	public void setLeaseExpiresDate(Date leaseExpiresDate) {
+		this.leaseExpiresDate = leaseExpiresDate;
+	}
+
 	public static long getSerialversionuid() {
 		return serialVersionUID;
 	}
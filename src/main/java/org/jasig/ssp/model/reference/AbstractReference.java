@@ -40,6 +40,17 @@ public abstract class AbstractReference
 		extends AbstractAuditable
 		implements Auditable {
 
+	/**
+	 * Second-level cache region shared by reference entities. See
+	 * ehcache-ssp.xml.
+	 */
+	public static final String CACHE_REGION = "ssp.reference";
+
+	/**
+	 * Query cache region for reference entity lookups.
+	 */
+	public static final String QUERY_CACHE_REGION = "ssp.reference.query";
+
 	/**
 	 * Name
 	 * 
@@ -24,6 +24,8 @@ import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.NotEmpty;
 import org.jasig.ssp.model.Auditable;
 
@@ -31,6 +33,7 @@ import org.jasig.ssp.model.Auditable;
  * RegistrationLoad reference object.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AbstractReference.CACHE_REGION)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class Blurb
 		extends AbstractReference
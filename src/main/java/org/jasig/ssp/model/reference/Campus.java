@@ -27,6 +27,8 @@ import javax.persistence.InheritanceType;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Type;
 import org.hibernate.annotations.TypeDef;
 import org.jasig.ssp.model.Auditable;
@@ -38,6 +40,7 @@ import org.jasig.ssp.util.uuid.UUIDCustomType;
  * @author jon.adams
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AbstractReference.CACHE_REGION)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 @TypeDef(name = "uuid-custom", typeClass = UUIDCustomType.class)
 public class Campus extends AbstractReference implements Auditable {
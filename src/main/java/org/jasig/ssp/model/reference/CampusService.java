@@ -25,12 +25,15 @@ import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.validation.constraints.NotNull;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.jasig.ssp.model.Auditable;
 
 /**
  * CampusService reference object.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AbstractReference.CACHE_REGION)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class CampusService
 		extends AbstractReference
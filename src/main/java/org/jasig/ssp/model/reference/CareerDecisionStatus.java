@@ -18,6 +18,8 @@
  */
 package org.jasig.ssp.model.reference;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.jasig.ssp.model.Auditable;
 import javax.persistence.Entity;
 import javax.persistence.Inheritance;
@@ -25,6 +27,7 @@ import javax.persistence.InheritanceType;
 import java.util.UUID;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AbstractReference.CACHE_REGION)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class CareerDecisionStatus extends AbstractReference implements Auditable {
 
@@ -27,12 +27,15 @@ import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.OneToMany;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.jasig.ssp.model.Auditable;
 
 /**
  * Category reference object.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AbstractReference.CACHE_REGION)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class Category extends AbstractReference implements Auditable {
 
@@ -29,6 +29,8 @@ import javax.persistence.InheritanceType;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.NotEmpty;
 import org.jasig.ssp.model.Auditable;
 import org.jasig.ssp.security.permissions.DataPermissions;
@@ -37,6 +39,7 @@ import org.jasig.ssp.security.permissions.DataPermissions;
  * ConfidentialityLevel reference object.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AbstractReference.CACHE_REGION)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class ConfidentialityLevel
 		extends AbstractReference
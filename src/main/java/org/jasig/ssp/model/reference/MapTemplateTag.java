@@ -18,6 +18,8 @@
  */
 package org.jasig.ssp.model.reference;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.jasig.ssp.model.Auditable;
 
 import javax.persistence.Entity;
@@ -30,6 +32,7 @@ import java.util.UUID;
  * Tag reference object.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AbstractReference.CACHE_REGION)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class MapTemplateTag
 		extends AbstractReference
@@ -18,6 +18,8 @@
  */
 package org.jasig.ssp.model.reference;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.jasig.ssp.model.Auditable;
 
 import javax.persistence.Column;
@@ -29,6 +31,7 @@ import java.util.UUID;
  * Allows e-mails and other messaging to be customized using the Velocity Framework
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AbstractReference.CACHE_REGION)
 public class MessageTemplate
 		extends AbstractReference
 		implements Auditable {
@@ -103,6 +106,9 @@ public class MessageTemplate
 	public static final UUID EMAIL_SPECIAL_SERVICE_GROUP_COURSE_WITHDRAWAL_TO_ADVISOR_ID = UUID.
 			fromString("55185f25-3356-465e-9ebc-c62125bd7ca2");
 
+	public static final UUID TASK_REMINDER_DIGEST_ID = UUID.
+			fromString("c3a9e4d1-6f2b-4b7e-9d15-2e8f7a6b4c30");
+
 	@NotNull
 	@Column(name = "subject", nullable = false, length = 250)
 	private String subject;
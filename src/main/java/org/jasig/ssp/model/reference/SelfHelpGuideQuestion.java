@@ -30,6 +30,8 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.jasig.ssp.model.Auditable;
 import org.jasig.ssp.model.SelfHelpGuideQuestionResponse;
 
@@ -37,6 +39,7 @@ import org.jasig.ssp.model.SelfHelpGuideQuestionResponse;
  * SelfHelpGuideQuestion reference object.
  */
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AbstractReference.CACHE_REGION)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 // :TODO rename to SelfHelpGuideChallenge
 public class SelfHelpGuideQuestion
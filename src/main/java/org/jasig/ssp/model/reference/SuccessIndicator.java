@@ -18,6 +18,8 @@
  */
 package org.jasig.ssp.model.reference;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.validator.constraints.NotEmpty;
 import org.jasig.ssp.model.SuccessIndicatorEvaluationType;
 import org.jasig.ssp.model.SuccessIndicatorGroup;
@@ -34,6 +36,7 @@ import java.math.BigDecimal;
 
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AbstractReference.CACHE_REGION)
 @Inheritance(strategy = InheritanceType.TABLE_PER_CLASS)
 public class SuccessIndicator extends AbstractReference {
 
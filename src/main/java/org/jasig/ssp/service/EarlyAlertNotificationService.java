@@ -0,0 +1,39 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service;
+
+/**
+ * Background processing of the
+ * {@link org.jasig.ssp.model.EarlyAlertNotification}s recorded by
+ * {@link EarlyAlertService} when <code>early_alert_notifications_async</code>
+ * is on.
+ */
+public interface EarlyAlertNotificationService {
+
+	/**
+	 * Claims and processes, in batches, every waiting notification not
+	 * already claimed elsewhere, until none remain. Each notification's
+	 * messages are queued in a transaction of its own. A notification which
+	 * fails keeps its claim until it lapses, and is then retried up to
+	 * <code>early_alert_notification_retry_limit</code> attempts in all,
+	 * after which it is made inactive and no longer claimed.
+	 * Safe to run concurrently on any number of nodes.
+	 */
+	void processQueuedNotifications();
+}
@@ -130,6 +130,11 @@ public interface EarlyAlertService
 	 * This method is not called during the {@link #create(EarlyAlert)} action.
 	 * It must be called by the calling code.
 	 * 
+	 * <p>
+	 * When <code>early_alert_notifications_async</code> is on, this only
+	 * records an {@link org.jasig.ssp.model.EarlyAlertNotification}, and the
+	 * message is queued later by {@link #sendNotification(UUID)}.
+	 * 
 	 * @param earlyAlert
 	 *            Early Alert
 	 * @throws ObjectNotFoundException
@@ -143,6 +148,22 @@ public interface EarlyAlertService
 			throws ObjectNotFoundException, SendFailedException,
 			ValidationException;
 
+	/**
+	 * Renders and queues the messages owed by a recorded
+	 * {@link org.jasig.ssp.model.EarlyAlertNotification}, as if by the user
+	 * who recorded it, and marks it processed. Does nothing if it was
+	 * already processed.
+	 * 
+	 * @param notificationId
+	 *            notification to process
+	 * @throws ObjectNotFoundException
+	 *             If the notification or reference data could not be found.
+	 * @throws ValidationException
+	 *             If any data was invalid.
+	 */
+	void sendNotification(@NotNull UUID notificationId)
+			throws ObjectNotFoundException, ValidationException;
+
 	/**
 	 * Fills early alert parameters for messages.
 	 * 
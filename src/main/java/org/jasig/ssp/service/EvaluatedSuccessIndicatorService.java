@@ -23,6 +23,7 @@ import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.reference.SuccessIndicator;
 import org.jasig.ssp.transferobject.EvaluatedSuccessIndicatorTO;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 
@@ -38,4 +39,17 @@ public interface EvaluatedSuccessIndicatorService {
      */
     List<EvaluatedSuccessIndicatorTO> getForPerson(UUID personId, ObjectStatus status,
                                      List<SuccessIndicator> indicators) throws ObjectNotFoundException;
+
+    /**
+     * Evaluates Success Indicators for many people at once. Equivalent to calling
+     * {@link #getForPerson(UUID, ObjectStatus, List)} for each person, but loads each kind of metric (transcripts,
+     * financial aid, registrations, risk indicators, tasks, MAP status, etc) for all of them in one go rather than
+     * once per person.
+     * @param personIds
+     * @param status
+     * @param indicators  if null all indicators will be evaluated for each person
+     * @return evaluations keyed by person ID. Persons that could not be found are absent.
+     */
+    Map<UUID, List<EvaluatedSuccessIndicatorTO>> getForPeople(List<UUID> personIds, ObjectStatus status,
+                                                               List<SuccessIndicator> indicators);
 }
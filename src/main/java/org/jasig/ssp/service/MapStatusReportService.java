@@ -19,7 +19,9 @@
 package org.jasig.ssp.service;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import org.jasig.ssp.model.MapStatusReport;
@@ -78,6 +80,34 @@ public interface MapStatusReportService extends PersonAssocAuditableService<MapS
 
 	Boolean calculateStatusForStudent(UUID personId) throws ObjectNotFoundException, ValidationException;
 
+	/**
+	 * Fingerprint of everything other than the plan and transcript which a plan evaluation depends on. A report
+	 * calculated with a different fingerprint is out of date.
+	 */
+	String getInputsFingerprint(Set<String> gradesSet, Set<String> criteriaSet, Term cutoffTerm,
+			List<Term> allTerms, boolean termBound, boolean useSubstitutableCourses);
+
+	List<UUID> getPlanIdsNeedingCalculation(String inputsFingerprint);
+
+	int deleteReportsForInactivePlans();
+
+	int deleteDuplicateReports();
+
+	Map<String, String> getTranscriptWatermarks(Collection<String> schoolIds);
+
+	Map<UUID, Date> getPlanModifiedDates(Collection<UUID> planIds);
+
+	Map<UUID, MapStatusReport> getByPlanIds(Collection<UUID> planIds);
+
+	/**
+	 * Saves a newly evaluated report, updating {@code existing} in place if the plan already has a report
+	 *
+	 * @param calculated result of {@link #evaluatePlan}, never saved itself if {@code existing} is given
+	 * @param existing the plan's current report, or {@code null}
+	 */
+	MapStatusReport saveCalculatedReport(MapStatusReport calculated, MapStatusReport existing)
+			throws ObjectNotFoundException, ValidationException;
+
 	List<MapStatusReportOwnerAndCoachInfo> getWatchersOffPlanStudent();
 
 	List<MapStatusReportPerson> getOffPlanPlansForWatcher(Person person);
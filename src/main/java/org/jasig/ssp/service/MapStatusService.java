@@ -18,13 +18,23 @@
  */
 package org.jasig.ssp.service;
 
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.external.PlanStatus;
 import org.jasig.ssp.transferobject.external.AbstractPlanStatusReportTO;
 import org.jasig.ssp.transferobject.external.MapStatusReportLiteTO;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.UUID;
 
 public interface MapStatusService {
 
     AbstractPlanStatusReportTO getByPersonId(UUID personId) throws ObjectNotFoundException;
 
+    /**
+     * Batched equivalent of {@code getByPersonId(personId).getStatus()} for many students at once, honoring the
+     * same {@code calculate_map_plan_status} switch. Students without a plan status are absent from the result.
+     */
+    Map<UUID, PlanStatus> getPlanStatusesForPeople(Collection<Person> people);
+
 }
@@ -107,7 +107,9 @@ public interface MessageService {
 
 	/**
 	 * Send any queued messages. Should be set to run regularly via some kind of
-	 * scheduling system.
+	 * scheduling system. Messages are claimed a batch at a time before being
+	 * sent, so this may safely run concurrently on any number of threads or
+	 * nodes.
 	 */
 	void sendQueuedMessages(CallableExecutor<Pair<PagingWrapper<Message>, Collection<Throwable>>> batchExec);
 
@@ -139,6 +141,14 @@ public interface MessageService {
 			ObjectNotFoundException, UnsupportedEncodingException, ValidationException;
 
 
+	/**
+	 * Moves messages older than <code>mail_age_in_days_limit</code> to the
+	 * message archive, and optionally an archive file, in small chunks each
+	 * committed on its own. Gives up for this run once its time budget is
+	 * spent.
+	 *
+	 * @return the number of messages archived and pruned
+	 */
 	int archiveAndPruneMessages();
 
 }
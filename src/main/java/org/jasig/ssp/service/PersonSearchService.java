@@ -25,6 +25,7 @@ import org.jasig.ssp.model.*;
 import org.jasig.ssp.model.reference.ProgramStatus;
 import org.jasig.ssp.transferobject.CaseloadReassignmentRequestTO;
 import org.jasig.ssp.transferobject.CoachPersonLiteTO;
+import org.jasig.ssp.transferobject.ImmutablePersonIdentifiersTO;
 import org.jasig.ssp.transferobject.reports.CaseLoadSearchTO;
 import org.jasig.ssp.util.csvwriter.CaseloadCsvWriterHelper;
 import org.jasig.ssp.util.sort.PagingWrapper;
@@ -82,6 +83,11 @@ public interface PersonSearchService {
 
     PagingWrapper<PersonSearchResultFull> searchPersonDirectoryFull(PersonSearchRequest form);
 
+	/**
+	 * Identifiers of every person matching {@link #searchPersonDirectory(PersonSearchRequest)}, ignoring paging.
+	 */
+	List<ImmutablePersonIdentifiersTO> searchPersonDirectoryIdentifiers(PersonSearchRequest form);
+
     void refreshDirectoryPerson();
 	
 	void refreshDirectoryPersonBlue();
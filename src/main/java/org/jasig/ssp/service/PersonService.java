@@ -60,6 +60,20 @@ public interface PersonService extends AuditableCrudService<Person> {
 	@Override
 	Person get(UUID id) throws ObjectNotFoundException;
 
+	/**
+	 * Retrieves the specified Person by uuid, eagerly fetching the
+	 * associations named by the given fetch profile.
+	 * 
+	 * @param id
+	 *            Required identifier for the Person to retrieve.
+	 * @param fetchProfile
+	 *            One of the <code>Person.FETCH_PROFILE_*</code> names
+	 * @exception ObjectNotFoundException
+	 *                If the supplied identifier does not exist in the database.
+	 * @return The specified Person instance.
+	 */
+	Person get(UUID id, String fetchProfile) throws ObjectNotFoundException;
+
     /**
      * Returns internal-only person by Username (Doesn't sync from external)
      * @param username
@@ -124,6 +138,24 @@ public interface PersonService extends AuditableCrudService<Person> {
 	 */
 	List<Person> peopleFromListOfIds(List<UUID> personIds, SortingAndPaging sAndP);
 
+	/**
+	 * IDs splitting active persons into {@code partitions} ranges of roughly
+	 * equal size, for batch tasks which work on ranges in parallel.
+	 *
+	 * @see #getActiveInIdRange(UUID, UUID, UUID, int)
+	 */
+	List<UUID> getActiveIdPartitionBoundaries(int partitions);
+
+	/**
+	 * Next batch of active persons in an ID range, in ID order.
+	 *
+	 * @param rangeStart first ID in the range, inclusive, {@code null} if unbounded
+	 * @param after last ID already processed, {@code null} to start at {@code rangeStart}
+	 * @param rangeEnd end of the range, exclusive, {@code null} if unbounded
+	 * @param maxResults batch size, unlimited if zero or less
+	 */
+	List<Person> getActiveInIdRange(UUID rangeStart, UUID after, UUID rangeEnd, int maxResults);
+
     /**
      * Attempts to retrieve a specified Person by their Student ID (school_id), if not then pulls from external.
      *
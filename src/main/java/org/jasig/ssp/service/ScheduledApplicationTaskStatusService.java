@@ -18,6 +18,9 @@
  */
 package org.jasig.ssp.service;
 
+import java.util.Date;
+import java.util.List;
+
 import org.jasig.ssp.model.ScheduledApplicationTaskStatus;
 
 public interface ScheduledApplicationTaskStatusService extends
@@ -30,4 +33,41 @@ public interface ScheduledApplicationTaskStatusService extends
 	ScheduledApplicationTaskStatus interruptTask(String taskName);
 	
 	ScheduledApplicationTaskStatus getByName(String taskName);
+
+	/**
+	 * Try to take the cluster-wide lease on the named task, creating its
+	 * status record if necessary.
+	 *
+	 * @param taskName
+	 * @param owner identifies the calling process
+	 * @param leaseMillis how long the lease is valid without renewal
+	 * @param occurrence scheduled time of the trigger occurrence being run.
+	 *   If a run of the task already started at or after this time the lease
+	 *   is refused, so each occurrence runs once across the cluster. May be
+	 *   {@code null}, e.g. when re-running a task whose lease was abandoned.
+	 * @return the lease's fencing token if acquired, {@code null} if some
+	 *   other process holds an unexpired lease on the task or has already
+	 *   run the given occurrence
+	 */
+	Long acquireLease(String taskName, String owner, long leaseMillis, Date occurrence);
+
+	/**
+	 * Extend a lease previously returned by {@link #acquireLease(String, String, long, Date)}
+	 *
+	 * @return {@code false} if the lease has since been lost
+	 */
+	boolean renewLease(String taskName, String owner, long fencingToken, long leaseMillis);
+
+	/**
+	 * Give up a lease previously returned by {@link #acquireLease(String, String, long, Date)}
+	 * and record the task's outcome.
+	 *
+	 * @return {@code false} if the lease had already been lost
+	 */
+	boolean releaseLease(String taskName, String owner, long fencingToken, boolean failed);
+
+	/**
+	 * Tasks whose lease lapsed without being released
+	 */
+	List<ScheduledApplicationTaskStatus> getAbandonedLeases();
 }
@@ -97,6 +97,14 @@ public interface ScheduledTaskWrapperService {
     @Async
 	public void sendEarlyAlertReminders();
 
+	/**
+	 * Renders and queues the emails for Early Alerts created while
+	 * early_alert_notifications_async is on.
+	 * Runs default every 15 seconds, but can be scheduled in config.
+	 */
+	@Async
+	public void processEarlyAlertNotifications();
+
     /**
      * Removes all nonces that are expired in order to keep the nonce table at a reasonable size
      */
@@ -157,4 +165,16 @@ public interface ScheduledTaskWrapperService {
      * @param runAsId
      */
 	void execWithTaskContext(String taskName, Runnable work, boolean isStatusedTask, UUID runAsId);
+
+    /**
+     * Runs the given {@code Runnable} only if this node can take the cluster-wide
+     * lease named {@code leaseName}, holding the lease for the duration. Returns
+     * immediately without running the work if another node holds the lease.
+     * Typically used by long-running tasks to claim sub-leases on partitions of
+     * their work (see {@link org.jasig.ssp.model.ScheduledApplicationTaskStatus#subLeaseTaskName(String, int)})
+     * so those partitions can be spread across nodes.
+     * @param leaseName
+     * @param work
+     */
+	void execWithClusterLease(String leaseName, Runnable work);
 }
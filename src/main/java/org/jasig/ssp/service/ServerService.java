@@ -26,4 +26,16 @@ public interface ServerService {
 	Map<String,Object> getDateTimeProfile();
 	Map<String,Object> getVersionProfile() throws IOException;
 	Map<String,Object> getClientTimeout();
+
+	/**
+	 * Hit/miss/put counts and sizes for each Hibernate second-level cache
+	 * region on this node.
+	 */
+	Map<String,Object> getCacheProfile();
+
+	/**
+	 * Empties every second-level entity, collection and query cache region on
+	 * this node. Other nodes catch up once their entries expire.
+	 */
+	void evictCaches();
 }
@@ -18,6 +18,7 @@
  */
 package org.jasig.ssp.service;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -271,6 +272,12 @@ public interface TaskService
 			Date createDateTo, List<UUID> studentTypeIds);
 
 	Pair<Long, Long> getOpenVsClosedTaskCountsForPerson(Person person);
+
+	/**
+	 * Batched {@link #getOpenVsClosedTaskCountsForPerson(Person)}, keyed by person ID. Every given ID is present
+	 * in the result.
+	 */
+	Map<UUID, Pair<Long, Long>> getOpenVsClosedTaskCountsForPersonIds(Collection<UUID> personIds);
 	
 	PagingWrapper<EntityStudentCountByCoachTO> getStudentTaskCountForCoaches(EntityCountByCoachSearchForm form);
 	
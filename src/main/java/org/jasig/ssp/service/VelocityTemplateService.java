@@ -19,6 +19,9 @@
 package org.jasig.ssp.service;
 
 import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.apache.velocity.Template;
@@ -28,20 +31,44 @@ import org.apache.velocity.exception.MethodInvocationException;
 import org.apache.velocity.exception.ParseErrorException;
 import org.apache.velocity.exception.ResourceNotFoundException;
 import org.apache.velocity.runtime.resource.loader.StringResourceLoader;
+import org.apache.velocity.runtime.resource.util.StringResourceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
  * Exposes the velocity template engine to the application.
  * <p>
- * Caches Templates by the templateId.
+ * Caches parsed Templates by the templateId, up to
+ * {@code velocity_template_cache_size} of them, least recently used first
+ * out. The templateId must change whenever the template text does.
  */
 @Service
 public class VelocityTemplateService {
 
+	/**
+	 * Per-thread output buffers grown past this many chars are discarded
+	 * rather than kept for reuse, so one huge render (e.g. a MAP plan print)
+	 * doesn't pin its buffer for the life of the thread.
+	 */
+	private static final int MAX_REUSED_WRITER_CAPACITY = 64 * 1024;
+
+	private static final ThreadLocal<StringWriter> WRITER = new ThreadLocal<StringWriter>();
+
 	@Autowired
 	private transient VelocityEngine velocityEngine;
 
+	@Value("#{configProperties.velocity_template_cache_size}")
+	private transient int maxCachedTemplates = 500;
+
+	// guarded by itself
+	private final Map<String, Template> templates = new LinkedHashMap<String, Template>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+			return size() > Math.max(1, maxCachedTemplates);
+		}
+	};
+
 	/**
 	 * 
 	 * @param templateText
@@ -65,38 +92,108 @@ public class VelocityTemplateService {
 			throws ResourceNotFoundException, ParseErrorException,
 			MethodInvocationException {
 
-		// fill the velocity context with the parameters
-		final VelocityContext context = new VelocityContext();
-		for (final Map.Entry<String, Object> entry : parameters.entrySet()) {
-			context.put(entry.getKey(), entry.getValue());
-		}
+		// fill the velocity context with the parameters. copied so a #set
+		// in one template can't leak into the caller's map, and from there
+		// into the next template rendered with it.
+		final VelocityContext context = new VelocityContext(
+				new HashMap<String, Object>(parameters));
 
 		// get the template
 		final Template template = getTemplate(templateId, templateText);
 
 		// Process the template, and extract string
-		final StringWriter writer = new StringWriter();
+		final StringWriter writer = borrowWriter();
 		template.merge(context, writer);
 		writer.flush();
-		return writer.toString();
+		final String content = writer.toString();
+		returnWriter(writer);
+		return content;
+	}
+
+	/**
+	 * Parse and cache the given template ahead of its first use.
+	 *
+	 * @throws ParseErrorException
+	 *             If there was a parsing error
+	 */
+	public void warmTemplate(final String templateText, final String templateId)
+			throws ParseErrorException {
+		getTemplate(templateId, templateText);
+	}
+
+	/**
+	 * Drop every cached template whose templateId starts with the given
+	 * prefix, e.g. all cached versions of a template which has just been
+	 * changed.
+	 *
+	 * @return the number of templates dropped
+	 */
+	public int evictTemplates(final String templateIdPrefix) {
+		int evicted = 0;
+		synchronized (templates) {
+			for (final Iterator<String> ids = templates.keySet().iterator(); ids.hasNext(); ) {
+				if (ids.next().startsWith(templateIdPrefix)) {
+					ids.remove();
+					evicted++;
+				}
+			}
+		}
+		return evicted;
 	}
 
 	/**
-	 * Get the template from the Velocity Template Repository. If the Template
-	 * is not in the repository, then add it to the repository. Some processing
-	 * occurs on the template, so if we can reuse the id, we save ourselves the
-	 * additional processing, as well as remove a potential memory leak.
+	 * Get the parsed template from the cache. If the Template is not cached,
+	 * parse it through the Velocity String resource repository, but only
+	 * keep it there long enough to parse. Velocity's string loader does not
+	 * cache, so parsing once per templateId here is what saves repeating
+	 * that processing on every render, and keeping the repository empty
+	 * removes a potential memory leak.
 	 */
 	private Template getTemplate(final String templateId,
 			final String templateText) {
-		Template template = null;
+		synchronized (templates) {
+			final Template cached = templates.get(templateId);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		// parse outside the lock. at worst two threads both parse the same
+		// new template, and Templates are safe to share once parsed.
+		final Template template;
+		final StringResourceRepository repository = StringResourceLoader.getRepository();
+		repository.putStringResource(templateId, templateText);
 		try {
 			template = velocityEngine.getTemplate(templateId);
-		} catch (final ResourceNotFoundException e) {
-			StringResourceLoader.getRepository().putStringResource(templateId,
-					templateText);
-			template = velocityEngine.getTemplate(templateId);
+		} finally {
+			repository.removeStringResource(templateId);
+		}
+
+		synchronized (templates) {
+			final Template cached = templates.get(templateId);
+			if (cached != null) {
+				return cached;
+			}
+			templates.put(templateId, template);
 		}
 		return template;
 	}
+
+	private StringWriter borrowWriter() {
+		final StringWriter writer = WRITER.get();
+		if (writer == null) {
+			return new StringWriter();
+		}
+		// not reentrant safe otherwise, e.g. a template calling back into
+		// a service which renders another template
+		WRITER.remove();
+		writer.getBuffer().setLength(0);
+		return writer;
+	}
+
+	private void returnWriter(final StringWriter writer) {
+		if (writer.getBuffer().capacity() <= MAX_REUSED_WRITER_CAPACITY) {
+			WRITER.set(writer);
+		}
+	}
 }
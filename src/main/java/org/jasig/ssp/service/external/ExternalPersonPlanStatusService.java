@@ -21,9 +21,13 @@ package org.jasig.ssp.service.external;
 import org.jasig.ssp.model.external.ExternalPersonPlanStatus;
 import org.jasig.ssp.service.ObjectNotFoundException;
 
+import java.util.List;
+
 
 public interface ExternalPersonPlanStatusService extends
 		ExternalDataService<ExternalPersonPlanStatus> {
 
 	ExternalPersonPlanStatus getBySchoolId(String schoolId);
+
+	List<ExternalPersonPlanStatus> getBySchoolIds(List<String> schoolIds);
 }
@@ -26,4 +26,9 @@ public interface ExternalStudentRiskIndicatorService extends ExternalDataService
 
     List<ExternalStudentRiskIndicator> getBySchoolId(String schoolId);
 
+    /**
+     * Batched {@link #getBySchoolId(String)}. Results are in no particular order.
+     */
+    List<ExternalStudentRiskIndicator> getBySchoolIds(List<String> schoolIds);
+
 }
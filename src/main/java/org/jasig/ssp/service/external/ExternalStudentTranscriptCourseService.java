@@ -28,8 +28,19 @@ public interface ExternalStudentTranscriptCourseService extends
 	
 	List<ExternalStudentTranscriptCourse> getTranscriptsBySchoolId(String schoolId);
 
+	/**
+	 * Batched {@link #getTranscriptsBySchoolId(String)}. Results are in no particular order.
+	 */
+	List<ExternalStudentTranscriptCourse> getTranscriptsBySchoolIds(List<String> schoolIds);
+
 	List<ExternalStudentTranscriptCourse> getTranscriptsBySchoolIdAndTermCode(String schoolId, String termCode);
 
+	/**
+	 * Batched {@link #getTranscriptsBySchoolIdAndTermCode(String, String)}. Results are in no particular order.
+	 */
+	List<ExternalStudentTranscriptCourse> getTranscriptsBySchoolIdsAndTermCode(List<String> schoolIds,
+																			  String termCode);
+
     /**
      * Returns Special Service Student Course Report TOs based for passed schoolIds.
      *   It is batched.
@@ -80,5 +80,12 @@ public interface RegistrationStatusByTermService extends
 	List<RegistrationStatusByTerm> getCurrentAndFutureTerms(Person person)
 			throws ObjectNotFoundException;
 
+	/**
+	 * Registration records with a non-zero {@code registeredCourseCount} for any of the given students in any of
+	 * the given terms, fetched in as few queries as possible. Results are in no particular order.
+	 */
+	List<RegistrationStatusByTerm> getForTerms(@NotNull List<String> schoolIds,
+			@NotNull List<String> termCodes);
+
 
 }
\ No newline at end of file
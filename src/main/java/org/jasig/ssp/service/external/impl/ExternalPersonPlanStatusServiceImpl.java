@@ -26,6 +26,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
 @Transactional
 public class ExternalPersonPlanStatusServiceImpl extends
@@ -47,4 +49,10 @@ public class ExternalPersonPlanStatusServiceImpl extends
 		return getDao().getBySchoolId(schoolId);
 	}
 
+	@Override
+	@Transactional(readOnly = true)
+	public List<ExternalPersonPlanStatus> getBySchoolIds(List<String> schoolIds) {
+		return getDao().getBySchoolIds(schoolIds);
+	}
+
 }
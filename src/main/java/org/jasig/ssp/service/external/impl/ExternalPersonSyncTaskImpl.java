@@ -18,6 +18,7 @@
  */
 package org.jasig.ssp.service.external.impl;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.hibernate.FlushMode;
 import org.hibernate.SessionFactory;
@@ -25,11 +26,15 @@ import org.jasig.ssp.dao.DirectoryPersonSearchDao;
 import org.jasig.ssp.dao.external.ExternalPersonDao;
 import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.ScheduledApplicationTaskStatus;
+import org.jasig.ssp.model.ScheduledTaskStatus;
 import org.jasig.ssp.model.external.ExternalPerson;
 import org.jasig.ssp.service.PersonService;
+import org.jasig.ssp.service.ScheduledApplicationTaskStatusService;
 import org.jasig.ssp.service.external.ExternalPersonService;
 import org.jasig.ssp.service.external.ExternalPersonSyncTask;
 import org.jasig.ssp.service.external.ExternalStudentSpecialServiceGroupService;
+import org.jasig.ssp.service.impl.PersonPartitionedTaskRunner;
 import org.jasig.ssp.service.reference.ConfigService;
 import org.jasig.ssp.util.CallableExecutor;
 import org.jasig.ssp.util.collections.Pair;
@@ -42,8 +47,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.Callable;
 
 @Service
@@ -59,6 +67,14 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
 	private static final int DEFAULT_BATCH_SIZE = 100;
 	private static final String MAX_BATCHES_PER_EXECUTION_CONFIG_NAME = "task_external_person_sync_max_batches_per_exec";
 	private static final int DEFAULT_MAX_BATCHES_PER_EXECUTION = -1; // unlimited
+	private static final String FULL_RECONCILIATION_HOURS_CONFIG_NAME = "task_external_person_sync_full_reconciliation_hours";
+	private static final int DEFAULT_FULL_RECONCILIATION_HOURS = 168;
+	private static final String WORKERS_CONFIG_NAME = "task_external_person_sync_workers";
+	private static final int DEFAULT_WORKERS = 4; // same as the seeded config
+	// same as the task's lease name, so worker sub-leases sit alongside it
+	private static final String PARTITIONED_TASK_NAME = "task_external_person_sync";
+	// status row whose completed date is the end of the last full sync
+	static final String FULL_SYNC_STATUS_TASK_NAME = "task_external_person_sync_full";
 
 
 	@Autowired
@@ -85,8 +101,20 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
 	@Autowired
 	protected transient SessionFactory sessionFactory;
 
+	@Autowired
+	private transient PersonPartitionedTaskRunner partitionedTaskRunner;
+
+	@Autowired
+	private transient ScheduledApplicationTaskStatusService taskStatusService;
+
 	private transient long nextPersonIndex = 0;
 
+	private transient boolean partitionedSyncUnfinished = false;
+
+	// last person ID selected by the delta sync under way, so people it
+	// couldn't sync aren't selected again until the next execution
+	private transient UUID deltaSyncAfterPersonId;
+
 	// intentionally not transactional... this is the main loop, each iteration
 	// of which should be its own transaction.
 	@Override
@@ -96,9 +124,39 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
 			LOGGER.info("Abandoning external person sync because of thread interruption");
 			return;
 		}
+
+		if ( getMaxBatchesAllowed() == 0 ) {
+			LOGGER.info("Skipping external person sync because the batch"
+					+ " limit has been set to zero.");
+			return;
+		}
+
+		// once per execution, every batch below compares against it
+		try {
+			refreshSyncFingerprintSnapshot();
+		} catch ( final Exception e ) {
+			LOGGER.error("Abandoning external person sync because external"
+					+ " person fingerprints could not be refreshed.", e);
+			return;
+		}
+
+		if ( isDeltaSyncSufficient() ) {
+			execDeltaSync(batchExec);
+			return;
+		}
+
+		final int workers = getWorkers();
+		if ( workers > 1 ) {
+			execPartitionedSync(batchExec, workers);
+			return;
+		}
  
 		LOGGER.info("BEGIN : External person sync.");
 
+		if ( nextPersonIndex == 0 ) {
+			markFullSyncStarted();
+		}
+
 		int recordsProcessed = 0;
 		int batch = 0;
 		Exception error = null;
@@ -180,6 +238,7 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
 							+ " last batch processed zero records. Exiting"
 							+ " person sync task.");
 					nextPersonIndex = 0;
+					markFullSyncCompleted();
 					break;
 				}
 
@@ -192,6 +251,7 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
 
 				if ( nextPersonIndex >= processedOfTotal.getSecond() ) {
 					nextPersonIndex = 0;
+					markFullSyncCompleted();
 					LOGGER.debug("Reached the end of the list of candidate"
 							+ " persons for sync. More batches are allowed, so"
 							+ " starting over at index 0.");
@@ -225,6 +285,147 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
 		LOGGER.info("END : External person sync.");
 	}
 
+	/**
+	 * Only syncs people whose external record changed since they were last
+	 * synced. Batch size and batch limit configs apply as for the full sync,
+	 * but there is no position to resume from: anyone not reached or not
+	 * synced this time still shows up as changed next time.
+	 */
+	private void execDeltaSync(CallableExecutor<Pair<Long,Long>> batchExec) {
+
+		LOGGER.info("BEGIN : External person delta sync.");
+
+		deltaSyncAfterPersonId = null;
+		long recordsProcessed = 0;
+		int batch = 0;
+		while ( true ) {
+			final int maxBatchesAllowed = getMaxBatchesAllowed();
+			if ( maxBatchesAllowed == 0 ) {
+				LOGGER.info("Abandoning external person delta sync at batch [{}]"
+						+ " because the batch limit has been set to zero."
+						+ " Records processed: [{}]", batch, recordsProcessed);
+				break;
+			}
+
+			batch++;
+
+			final int configuredBatchSize = getBatchSize();
+			final int batchSize = configuredBatchSize > 0 ? configuredBatchSize : Integer.MAX_VALUE;
+			Pair<Long,Long> processedOfSelected = null;
+			try {
+				if ( batchExec == null ) {
+					processedOfSelected = syncChangedPeopleInTransaction(batchSize);
+				} else {
+					processedOfSelected = batchExec.exec(new Callable<Pair<Long, Long>>() {
+						@Override
+						public Pair<Long, Long> call() throws Exception {
+							return syncChangedPeopleInTransaction(batchSize);
+						}
+					});
+				}
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt(); // reassert
+			} catch ( final Exception e ) {
+				LOGGER.error("Abandoning external person delta sync at batch [{}]"
+						+ " because of a processing error. Changed records not yet"
+						+ " processed will be picked up at the next execution.",
+						batch, e);
+				break;
+			}
+
+			if ( processedOfSelected == null ) {
+				LOGGER.error("Abandoning external person delta sync at batch [{}]"
+						+ " because of an InterruptionException.", batch);
+				break;
+			}
+
+			recordsProcessed += processedOfSelected.getFirst();
+
+			LOGGER.info("Synced [{}] changed person records in batch [{}] of [{}]."
+					+ " Total records processed [{}].",
+					new Object[] { processedOfSelected.getFirst(), batch,
+							maxBatchesAllowed, recordsProcessed });
+
+			if ( processedOfSelected.getSecond() < batchSize ) {
+				break; // that was the last of them
+			}
+
+			if ( maxBatchesAllowed > 0 && batch >= maxBatchesAllowed ) {
+				LOGGER.debug("No more batches allowed for this execution."
+						+ " Exiting person delta sync task.");
+				break;
+			}
+		}
+
+		LOGGER.info("END : External person delta sync.");
+	}
+
+	/**
+	 * Full sync with people split into ranges which are synced in parallel,
+	 * see {@link PersonPartitionedTaskRunner}. Progress is saved per range,
+	 * so unlike {@link #nextPersonIndex} it survives a restart.
+	 */
+	private void execPartitionedSync(CallableExecutor<Pair<Long,Long>> batchExec, int workers) {
+
+		LOGGER.info("BEGIN : External person sync with [{}] workers.", workers);
+
+		if ( !(partitionedSyncUnfinished) ) {
+			markFullSyncStarted();
+		}
+
+		final boolean finished = partitionedTaskRunner.execute(PARTITIONED_TASK_NAME, workers,
+				this::getBatchSize, this::getMaxBatchesAllowed, batchExec,
+				new PersonPartitionedTaskRunner.PersonBatchWork() {
+					@Override
+					public void process(List<Person> people) throws Exception {
+						recordSyncFingerprints(syncPeople(people, people.size()));
+					}
+				});
+		partitionedSyncUnfinished = !(finished);
+		if ( finished ) {
+			markFullSyncCompleted();
+		}
+
+		LOGGER.info("END : External person sync. All ranges finished: [{}].", finished);
+	}
+
+	private boolean isDeltaSyncSufficient() {
+		if ( nextPersonIndex > 0 || partitionedSyncUnfinished ) {
+			return false; // let the full sync under way finish first
+		}
+		final int hours = getFullReconciliationHours();
+		if ( hours <= 0 ) {
+			return false;
+		}
+		// kept in the database rather than in memory, so a restart or a
+		// different node picking up the task doesn't force a full sync
+		final ScheduledApplicationTaskStatus lastFullSync =
+				taskStatusService.getByName(FULL_SYNC_STATUS_TASK_NAME);
+		if ( lastFullSync == null || lastFullSync.getStatus() != ScheduledTaskStatus.COMPLETED
+				|| lastFullSync.getCompletedDate() == null ) {
+			return false;
+		}
+		return System.currentTimeMillis() - lastFullSync.getCompletedDate().getTime() < hours * 3600000L;
+	}
+
+	private void markFullSyncStarted() {
+		taskStatusService.beginTask(FULL_SYNC_STATUS_TASK_NAME);
+	}
+
+	private void markFullSyncCompleted() {
+		taskStatusService.completeTask(FULL_SYNC_STATUS_TASK_NAME);
+	}
+
+	protected void refreshSyncFingerprintSnapshot() throws Exception {
+		withTransaction.withNewTransaction(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				dao.refreshSyncFingerprintSnapshot();
+				return null;
+			}
+		});
+	}
+
 	@Override
 	public Class<Pair<Long, Long>> getBatchExecReturnType() {
 		return BATCH_RETURN_TYPE;
@@ -239,6 +440,43 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
 		});
 	}
 
+	protected Pair<Long, Long> syncChangedPeopleInTransaction(final int batchSize) throws Exception {
+		return withTransaction.withNewTransaction(new Callable<Pair<Long, Long>>() {
+			@Override
+			public Pair<Long, Long> call() throws Exception {
+				return syncChangedPeople(batchSize);
+			}
+		});
+	}
+
+	/**
+	 * @return number of people synced and number of changed people selected.
+	 *   The latter is less than {@code batchSize} once no changed people remain.
+	 */
+	protected Pair<Long,Long> syncChangedPeople(final int batchSize) throws InterruptedException {
+
+		sessionFactory.getCurrentSession().setFlushMode(FlushMode.COMMIT);
+
+		if ( Thread.currentThread().isInterrupted() ) {
+			LOGGER.info("Abandoning external person delta sync because of thread interruption");
+			throw new InterruptedException();
+		}
+
+		final List<UUID> personIds =
+				dao.getPersonIdsWithChangedExternalData(deltaSyncAfterPersonId, batchSize);
+		LOGGER.info("External person delta sync selected [{}] changed records", personIds.size());
+		if ( personIds.isEmpty() ) {
+			return new Pair(0L, 0L);
+		}
+
+		final List<Person> people = personService.peopleFromListOfIds(personIds, null);
+		// only those actually synced, so the rest are retried next execution
+		final List<UUID> syncedPersonIds = syncPeople(people, personIds.size());
+		recordSyncFingerprints(syncedPersonIds);
+		deltaSyncAfterPersonId = personIds.get(personIds.size() - 1);
+		return new Pair((long) syncedPersonIds.size(), (long) personIds.size());
+	}
+
 	protected Pair<Long,Long> syncWithPerson(final SortingAndPaging sAndP) throws InterruptedException {
 
 		sessionFactory.getCurrentSession().setFlushMode(FlushMode.COMMIT);
@@ -269,13 +507,26 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
 			throw new InterruptedException();
 		}
 
+		recordSyncFingerprints(syncPeople(people, sAndP.getMaxResults()));
+
+		return new Pair((long) people.getRows().size(), people.getResults());
+	}
+
+	/**
+	 * Update each of the given people from their external record, looked up
+	 * by school ID or, failing that, by username.
+	 *
+	 * @return IDs of the people updated, i.e. excluding any without an
+	 *   external record
+	 */
+	private List<UUID> syncPeople(final Iterable<Person> people, final int maxResults) throws InterruptedException {
+
 		// allow access to people by schoolId
 		final Map<String, Person> peopleBySchoolId = Maps.newHashMap();
-		long peopleCnt = 0;
 		for (final Person person : people) {
 			peopleBySchoolId.put(person.getSchoolId().toLowerCase(), person);
-			peopleCnt++;
 		}
+		final List<UUID> syncedPersonIds = Lists.newArrayListWithCapacity(peopleBySchoolId.size());
 
 		Set<String> internalPeopleSchoolIds = peopleBySchoolId.keySet();
 		if ( LOGGER.isDebugEnabled() ) {
@@ -292,7 +543,7 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
 		// fetch external people by schoolId
 		final PagingWrapper<ExternalPerson> externalPeople =
 				dao.getBySchoolIds(internalPeopleSchoolIds,SortingAndPaging.createForSingleSortWithPaging(
-						ObjectStatus.ACTIVE, 0, sAndP.getMaxResults(),
+						ObjectStatus.ACTIVE, 0, maxResults,
 						"username",
 						SortDirection.ASC.toString(), null));
 
@@ -314,6 +565,7 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
 
             // update person special service groups from external student special service groups
             externalStudentSpecialServiceGroupService.updatePersonSSGsFromExternalPerson(person);
+            syncedPersonIds.add(person.getId());
 
             //remove from internal set (used below)
             internalPeopleSchoolIds.remove(person.getSchoolId());
@@ -332,7 +584,7 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
             // fetch external people by username
             final PagingWrapper<ExternalPerson> externalPeopleByUsername =
                     dao.getByUsernames(peopleByUsername.keySet(),SortingAndPaging.createForSingleSortWithPaging(
-                            ObjectStatus.ACTIVE, 0, sAndP.getMaxResults(),"schoolId",
+                            ObjectStatus.ACTIVE, 0, maxResults,"schoolId",
                             SortDirection.ASC.toString(), null));
 
             for (final ExternalPerson externalPerson2 : externalPeopleByUsername) {
@@ -350,13 +602,21 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
                     directoryPersonSearchDao.purgeDuplicateRecord(externalPerson2.getSchoolId(), externalPerson2.getUsername()); //duplicate found purge from mv directory person otherwise will block update
                     externalPersonService.updatePersonFromExternalPerson(person2, externalPerson2, true, true); //this might add a program status to a coach, but should be rare
                     externalStudentSpecialServiceGroupService.updatePersonSSGsFromExternalPerson(person2);
+                    syncedPersonIds.add(person2.getId());
                 }
             }
 
             LOGGER.trace("Couldn't find the following by schoolId or username in external person: {" + internalPeopleSchoolIds.toString() + "}");
         }
 
-		return new Pair(peopleCnt, people.getResults());
+		return syncedPersonIds;
+	}
+
+	private void recordSyncFingerprints(final List<UUID> personIds) {
+		// flush first, the fingerprint query joins on person.school_id, which
+		// the sync may have changed
+		sessionFactory.getCurrentSession().flush();
+		dao.recordSyncFingerprints(personIds, new Date());
 	}
 
 	private int getMaxBatchesAllowed() {
@@ -380,6 +640,32 @@ public class ExternalPersonSyncTaskImpl implements ExternalPersonSyncTask {
 		return maxBatches;
 	}
 
+	private int getWorkers() {
+		String workersStr = configService.getByNameNullOrDefaultValue(WORKERS_CONFIG_NAME);
+		int workers = DEFAULT_WORKERS;
+		try {
+			workers = Integer.parseInt(workersStr);
+		} catch ( NumberFormatException e ) {
+			LOGGER.info("Failed to parse [{}] config [{}] to an integer. Falling"
+					+ " back to [{}].", new Object[]{WORKERS_CONFIG_NAME, workersStr, workers});
+		}
+		return workers;
+	}
+
+	private int getFullReconciliationHours() {
+		String hoursStr = configService.getByNameNullOrDefaultValue(FULL_RECONCILIATION_HOURS_CONFIG_NAME);
+		int hours = DEFAULT_FULL_RECONCILIATION_HOURS;
+		try {
+			hours = Integer.parseInt(hoursStr);
+		} catch ( NumberFormatException e ) {
+			LOGGER.info("Failed to parse [{}] config [{}] to an integer. Falling"
+					+ " back to [{}]. (Zero or less means every sync is a full sync.)",
+					new Object[]{FULL_RECONCILIATION_HOURS_CONFIG_NAME,
+							hoursStr, hours});
+		}
+		return hours;
+	}
+
 	private int getBatchSize() {
 		String batchSizeStr = configService.getByNameNullOrDefaultValue(BATCH_SIZE_CONFIG_NAME);
 		int batchSize = DEFAULT_BATCH_SIZE;
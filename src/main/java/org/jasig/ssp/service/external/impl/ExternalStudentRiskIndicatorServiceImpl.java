@@ -45,4 +45,9 @@ public class ExternalStudentRiskIndicatorServiceImpl extends
     public List<ExternalStudentRiskIndicator> getBySchoolId(String schoolId) {
         return dao.getStudentRiskIndicators(schoolId);
     }
+
+    @Override
+    public List<ExternalStudentRiskIndicator> getBySchoolIds(List<String> schoolIds) {
+        return dao.getStudentRiskIndicatorsBySchoolIds(schoolIds);
+    }
 }
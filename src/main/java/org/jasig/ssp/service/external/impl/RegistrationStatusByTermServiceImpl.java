@@ -136,6 +136,12 @@ public class RegistrationStatusByTermServiceImpl extends
 		return registrationStatuses;
 	}
 
+	@Override
+	public List<RegistrationStatusByTerm> getForTerms(final List<String> schoolIds,
+			final List<String> termCodes) {
+		return dao.getForTerms(schoolIds, termCodes);
+	}
+
 	@Override
 	public PagingWrapper<RegistrationStatusByTerm> getAllForTerm(
 			@NotNull Term term, SortingAndPaging sAndP) {
@@ -59,12 +59,10 @@ import org.springframework.transaction.annotation.Transactional;
 import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -257,7 +255,7 @@ public  abstract class AbstractPlanServiceImpl<T extends AbstractPlan,
 			}
 		}
 
-		final Set<String> passingGrades = new HashSet<String>(Arrays.asList(configService.getByNameNullOrDefaultValue("map_plan_status_passing_grades").replaceAll(" ", "").split(",")));
+		final Set<String> passingGrades = configService.getByNameNullOrDefaultValueAsSet("map_plan_status_passing_grades");
 		final Map<String, Term> termCodeTerm = new HashMap<String, Term>();
 		final Map<String, String> courseCodeTermCode = new HashMap<String,String>();
 		final Map<String, AbstractPlanCourseTO<T, ? extends AbstractPlanCourse<T>>> courseCodeCourse = new HashMap<String,AbstractPlanCourseTO<T, ? extends AbstractPlanCourse<T>>>();
@@ -0,0 +1,213 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.impl;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.jasig.ssp.dao.EarlyAlertNotificationDao;
+import org.jasig.ssp.model.EarlyAlertNotification;
+import org.jasig.ssp.model.ObjectStatus;
+import org.jasig.ssp.service.EarlyAlertNotificationService;
+import org.jasig.ssp.service.EarlyAlertService;
+import org.jasig.ssp.service.reference.ConfigService;
+import org.jasig.ssp.util.transaction.WithTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Not {@code @Transactional} b/c each claim and each notification needs a
+ * transaction of its own.
+ */
+@Service
+public class EarlyAlertNotificationServiceImpl implements EarlyAlertNotificationService {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(EarlyAlertNotificationServiceImpl.class);
+
+	// processed notifications are only kept around for troubleshooting
+	private static final long PROCESSED_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+	// abandoned ones hold the only record of the emails which were never
+	// queued, so are kept long enough for someone to notice
+	private static final long ABANDONED_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+	@Autowired
+	private transient EarlyAlertNotificationDao dao;
+
+	@Autowired
+	private transient EarlyAlertService earlyAlertService;
+
+	@Autowired
+	private transient ConfigService configService;
+
+	@Autowired
+	private transient WithTransaction withTransaction;
+
+	@Value("#{configProperties.system_id}")
+	private String systemId = "";
+
+	@Value("#{configProperties.early_alert_notification_batch_size}")
+	private transient int batchSize = 50;
+
+	@Value("#{configProperties.early_alert_notification_claim_lease_millis}")
+	private transient long claimLeaseMillis = 300000;
+
+	private final long startupTime = new Date().getTime();
+
+	// system_id is not necessarily unique per node, so disambiguate claims
+	// made by nodes which happen to share both it and a startup time
+	private final String processInstanceId = UUID.randomUUID().toString();
+
+	private final AtomicLong claimSequence = new AtomicLong();
+
+	@Override
+	public void processQueuedNotifications() {
+		final int retryLimit = configService.getByNameExceptionOrDefaultAsInt("early_alert_notification_retry_limit");
+
+		while ( !(Thread.currentThread().isInterrupted()) ) {
+			final String claim = newClaim();
+			final int claimedCnt = claimBatch(claim, retryLimit);
+			if ( claimedCnt == 0 ) {
+				break;
+			}
+
+			final List<UUID> ids = withTransaction.withTransactionAndUncheckedExceptions(
+					new Callable<List<UUID>>() {
+						@Override
+						public List<UUID> call() throws Exception {
+							return dao.getClaimed(claim);
+						}
+					});
+
+			int failedCnt = 0;
+			for ( final UUID id : ids ) {
+				if ( Thread.currentThread().isInterrupted() ) {
+					LOGGER.info("Abandoning Early Alert notification processing because of thread interruption");
+					return;
+				}
+				try {
+					// transactional in its own right, and rolls back every
+					// message it queued if any of them fails
+					earlyAlertService.sendNotification(id);
+				} catch ( final Exception e ) {
+					failedCnt++;
+					recordFailure(id, e, retryLimit);
+				}
+			}
+
+			LOGGER.info("Processed {} Early Alert notification(s) claimed as {}, {} failed",
+					new Object[] { ids.size(), claim, failedCnt });
+
+			if ( claimedCnt < getBatchSize() ) {
+				break;
+			}
+		}
+
+		pruneFinished();
+	}
+
+	private int claimBatch(final String claim, final int retryLimit) {
+		return withTransaction.withTransactionAndUncheckedExceptions(
+				new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						final Date now = new Date();
+						return dao.claim(getBatchSize(), claim, now,
+								new Date(now.getTime() + claimLeaseMillis), retryLimit);
+					}
+				});
+	}
+
+	/**
+	 * The failed notification keeps its claim, so it won't be retried until
+	 * that lapses. At the retry limit it is made inactive instead, which
+	 * takes it out of the claim query, and pruned once
+	 * {@link #ABANDONED_RETENTION_MILLIS} have passed.
+	 */
+	private void recordFailure(final UUID id, final Exception cause, final int retryLimit) {
+		try {
+			final int attempts = withTransaction.withTransactionAndUncheckedExceptions(
+					new Callable<Integer>() {
+						@Override
+						public Integer call() throws Exception {
+							final EarlyAlertNotification notification = dao.get(id);
+							notification.setAttempts(notification.getAttempts() + 1);
+							notification.setLastError(StringUtils.abbreviate(String.valueOf(cause), 1024));
+							if ( notification.getAttempts() >= retryLimit ) {
+								notification.setObjectStatus(ObjectStatus.INACTIVE);
+								notification.setClaimedBy(null);
+								notification.setClaimedUntil(null);
+							}
+							dao.save(notification);
+							return notification.getAttempts();
+						}
+					});
+			if ( attempts >= retryLimit ) {
+				LOGGER.error("Giving up on Early Alert notification {} after {} attempts."
+						+ " Its messages were not queued. It has been made inactive, and"
+						+ " its last error recorded, until it is pruned.",
+						new Object[] { id, attempts, cause });
+			} else {
+				LOGGER.warn("Early Alert notification {} failed on attempt {} of {}."
+						+ " Will retry.", new Object[] { id, attempts, retryLimit, cause });
+			}
+		} catch ( final Exception e ) {
+			LOGGER.error("Early Alert notification {} failed, and recording that failed too."
+					+ " Original failure:", id, cause);
+			LOGGER.error("Failure recording failure for Early Alert notification {}:", id, e);
+		}
+	}
+
+	private void pruneFinished() {
+		try {
+			final int pruned = withTransaction.withTransactionAndUncheckedExceptions(
+					new Callable<Integer>() {
+						@Override
+						public Integer call() throws Exception {
+							final long now = new Date().getTime();
+							return dao.deleteProcessedBefore(new Date(now - PROCESSED_RETENTION_MILLIS))
+									+ dao.deleteAbandonedBefore(new Date(now - ABANDONED_RETENTION_MILLIS));
+						}
+					});
+			if ( pruned > 0 ) {
+				LOGGER.info("Pruned {} processed or abandoned Early Alert notification(s)", pruned);
+			}
+		} catch ( final Exception e ) {
+			LOGGER.warn("Failed to prune processed or abandoned Early Alert notifications."
+					+ " Will try again on the next run.", e);
+		}
+	}
+
+	private String newClaim() {
+		return systemId + "-" + startupTime + "." + processInstanceId + "/" + claimSequence.incrementAndGet();
+	}
+
+	private int getBatchSize() {
+		return Math.max(1, batchSize);
+	}
+}
@@ -23,8 +23,10 @@ import com.google.common.collect.Maps;
 import org.apache.commons.lang.StringUtils;
 import org.jasig.ssp.config.EarlyAlertResponseReminderRecipientsConfig;
 import org.jasig.ssp.dao.EarlyAlertDao;
+import org.jasig.ssp.dao.EarlyAlertNotificationDao;
 import org.jasig.ssp.factory.EarlyAlertSearchResultTOFactory;
 import org.jasig.ssp.model.EarlyAlert;
+import org.jasig.ssp.model.EarlyAlertNotification;
 import org.jasig.ssp.model.EarlyAlertRouting;
 import org.jasig.ssp.model.EarlyAlertSearchResult;
 import org.jasig.ssp.model.Message;
@@ -115,9 +117,10 @@ public class EarlyAlertServiceImpl extends // NOPMD
 	private EarlyAlertSearchResultTOFactory searchResultFactory;
 	private EarlyAlertResponseReminderRecipientsConfig earReminderRecipientConfig;
 	private EnrollmentStatusService enrollmentStatusService;
+	private EarlyAlertNotificationDao earlyAlertNotificationDao;
 
 	@Autowired
-	public EarlyAlertServiceImpl(EarlyAlertDao dao, ConfigService configService, EarlyAlertRoutingService earlyAlertRoutingService, MessageService messageService, MessageTemplateService messageTemplateService, EarlyAlertReasonService earlyAlertReasonService, EarlyAlertSuggestionService earlyAlertSuggestionService, PersonService personService, FacultyCourseService facultyCourseService, TermService termService, PersonProgramStatusService personProgramStatusService, ProgramStatusService programStatusService, StudentTypeService studentTypeService, SecurityService securityService, EarlyAlertSearchResultTOFactory searchResultFactory, EarlyAlertResponseReminderRecipientsConfig earReminderRecipientConfig, EnrollmentStatusService enrollmentStatusService) {
+	public EarlyAlertServiceImpl(EarlyAlertDao dao, ConfigService configService, EarlyAlertRoutingService earlyAlertRoutingService, MessageService messageService, MessageTemplateService messageTemplateService, EarlyAlertReasonService earlyAlertReasonService, EarlyAlertSuggestionService earlyAlertSuggestionService, PersonService personService, FacultyCourseService facultyCourseService, TermService termService, PersonProgramStatusService personProgramStatusService, ProgramStatusService programStatusService, StudentTypeService studentTypeService, SecurityService securityService, EarlyAlertSearchResultTOFactory searchResultFactory, EarlyAlertResponseReminderRecipientsConfig earReminderRecipientConfig, EnrollmentStatusService enrollmentStatusService, EarlyAlertNotificationDao earlyAlertNotificationDao) {
 		this.dao = dao;
 		this.configService = configService;
 		this.earlyAlertRoutingService = earlyAlertRoutingService;
@@ -135,6 +138,7 @@ public class EarlyAlertServiceImpl extends // NOPMD
 		this.searchResultFactory = searchResultFactory;
 		this.earReminderRecipientConfig = earReminderRecipientConfig;
 		this.enrollmentStatusService = enrollmentStatusService;
+		this.earlyAlertNotificationDao = earlyAlertNotificationDao;
 	}
 
 	private static final Logger LOGGER = LoggerFactory
@@ -167,9 +171,22 @@ public class EarlyAlertServiceImpl extends // NOPMD
 		// Create alert
 		final EarlyAlert saved = getDao().save(earlyAlert);
 
+		if ( isNotificationAsync() ) {
+			// Routing, rendering and queueing happen in the background. Only
+			// check here what would keep them from ever succeeding.
+			try {
+				doFillTemplateParametersValidations(saved);
+			} catch (final IllegalArgumentException e) {
+				throw new ValidationException("Early Alert notification e-mails could not be prepared. Early Alert was NOT created.", e);
+			}
+			earlyAlertNotificationDao.save(new EarlyAlertNotification(saved,
+					EarlyAlertNotification.Type.ADVISOR_AND_FACULTY, earlyAlert.getEmailCC()));
+			return saved;
+		}
+
 		// Send e-mail to assigned advisor (coach)
 		try {
-			sendMessageToAdvisor(saved, earlyAlert.getEmailCC());
+			sendMessageToAdvisor(saved, earlyAlert.getEmailCC(), null);
 		} catch (final Exception e) {
 			LOGGER.warn("Could not send Early Alert message to advisor.", e);
 			throw new ValidationException("Early Alert notification e-mail could not be sent to advisor. Early Alert was NOT created.", e);
@@ -177,7 +194,7 @@ public class EarlyAlertServiceImpl extends // NOPMD
 
 		// Send e-mail CONFIRMATION to faculty
 		try {
-			sendConfirmationMessageToFaculty(saved);
+			sendConfirmationMessageToFaculty(saved, null);
 		} catch (final Exception e) {
 			LOGGER.warn("Could not send Early Alert confirmation to faculty.", e);
 			throw new ValidationException("Early Alert confirmation e-mail could not be sent. Early Alert was NOT created.", e);
@@ -385,17 +402,19 @@ public class EarlyAlertServiceImpl extends // NOPMD
 	 *            Early Alert
 	 * @param emailCC
 	 *            Email address to also CC this message
+	 * @param sender
+	 *            Sender of the messages, or null for the current user
 	 * @throws ObjectNotFoundException
 	 * @throws ValidationException
 	 */
 	private void sendMessageToAdvisor(@NotNull final EarlyAlert earlyAlert,
-																		final String emailCC) throws ObjectNotFoundException, ValidationException {
+																		final String emailCC, final Person sender) throws ObjectNotFoundException, ValidationException {
 
 		earlyAlert.getPersonOptional().orElseThrow(() -> new IllegalArgumentException("EarlyAlert Person is missing."));
 
 		final SubjectAndBody subjAndBody = messageTemplateService.createEarlyAlertAdvisorConfirmationMessage(fillTemplateParameters(earlyAlert));
 
-		this.notifyPersonWatcher(earlyAlert, emailCC, subjAndBody);
+		this.notifyPersonWatcher(earlyAlert, emailCC, subjAndBody, sender);
 
 		// Send same message to all applicable Campus Early Alert routing
 		// entries
@@ -412,36 +431,36 @@ public class EarlyAlertServiceImpl extends // NOPMD
 				if (earlyAlert.getEarlyAlertReasons().contains(route.getEarlyAlertReason()) &&
 								!alreadySent.contains(route.getPersonPrimaryEmailAddress())) {
 
-					sendToCoach(earlyAlert, subjAndBody, alreadySent, route);
+					sendToCoach(earlyAlert, subjAndBody, alreadySent, route, sender);
 
-					sendToGroup(earlyAlert, subjAndBody, route);
+					sendToGroup(earlyAlert, subjAndBody, route, sender);
 
 				}
 			}
 		}
 	}
 
-	private void sendToCoach(@NotNull EarlyAlert earlyAlert, SubjectAndBody subjAndBody, Set<String> alreadySent, EarlyAlertRouting route) throws ObjectNotFoundException, ValidationException {
+	private void sendToCoach(@NotNull EarlyAlert earlyAlert, SubjectAndBody subjAndBody, Set<String> alreadySent, EarlyAlertRouting route, Person sender) throws ObjectNotFoundException, ValidationException {
 		final Person to = route.getPerson();
 		if ( Objects.nonNull(to) && StringUtils.isNotBlank(to.getPrimaryEmailAddress()) ) {
 			//check if this alert has already been sent to this recipient, if so skip
-			final Message message = messageService.createMessage(to, null, subjAndBody);
+			final Message message = sentBy(messageService.createMessage(to, null, subjAndBody), sender);
 			LOGGER.info("Message {} for EarlyAlert {} also routed to {}",
 							new Object[]{message, earlyAlert, to}); // NOPMD
 			alreadySent.add(route.getPersonPrimaryEmailAddress());
 		}
 	}
 
-	private void sendToGroup(@NotNull EarlyAlert earlyAlert, SubjectAndBody subjAndBody, EarlyAlertRouting route) throws ObjectNotFoundException, ValidationException {
+	private void sendToGroup(@NotNull EarlyAlert earlyAlert, SubjectAndBody subjAndBody, EarlyAlertRouting route, Person sender) throws ObjectNotFoundException, ValidationException {
 		// Send e-mail to a group
 		if ( !StringUtils.isEmpty(route.getGroupName()) && !StringUtils.isEmpty(route.getGroupEmail()) ) {
-			final Message message = messageService.createMessage(route.getGroupEmail(), null,subjAndBody);
+			final Message message = sentBy(messageService.createMessage(route.getGroupEmail(), null,subjAndBody), sender);
 			LOGGER.info("Message {} for EarlyAlert {} also routed to {}", new Object[] { message, earlyAlert, // NOPMD
 							route.getGroupEmail() });
 		}
 	}
 
-	private void notifyPersonWatcher(@NotNull EarlyAlert earlyAlert, String emailCC, SubjectAndBody subjAndBody) throws ObjectNotFoundException, ValidationException {
+	private void notifyPersonWatcher(@NotNull EarlyAlert earlyAlert, String emailCC, SubjectAndBody subjAndBody, Person sender) throws ObjectNotFoundException, ValidationException {
 		final Person coach = earlyAlert.getCoach();
 		Set<String> watcherEmailAddresses = earlyAlert.getPersonWatcherEmailAddresses();
 
@@ -455,7 +474,7 @@ public class EarlyAlertServiceImpl extends // NOPMD
 					earlyAlert.getPerson(), earlyAlert);
 		} else {
 			// Create and queue the message
-			final Message message = messageService.createMessage(coach, String.join(";", watcherEmailAddresses), subjAndBody);
+			final Message message = sentBy(messageService.createMessage(coach, String.join(";", watcherEmailAddresses), subjAndBody), sender);
 			LOGGER.info("Message {} created for EarlyAlert {}", message, earlyAlert);
 		}
 	}
@@ -465,12 +484,23 @@ public class EarlyAlertServiceImpl extends // NOPMD
 
 		earlyAlert.getPersonOptional().orElseThrow(() -> new IllegalArgumentException("EarlyAlert.Person is missing."));
 
+		if ( isNotificationAsync() ) {
+			earlyAlertNotificationDao.save(new EarlyAlertNotification(earlyAlert,
+					EarlyAlertNotification.Type.STUDENT, null));
+			return;
+		}
+
+		sendMessageToStudent(earlyAlert, null);
+	}
+
+	private void sendMessageToStudent(@NotNull final EarlyAlert earlyAlert, final Person sender) throws ObjectNotFoundException, ValidationException {
+
 		final Person person = earlyAlert.getPerson();
 		final SubjectAndBody subjAndBody = messageTemplateService
 				.createEarlyAlertToStudentMessage(fillTemplateParameters(earlyAlert));
 
 		// Create and queue the message
-		final Message message = messageService.createMessage(person, String.join(";", person.getWatcherEmailAddresses()), subjAndBody);
+		final Message message = sentBy(messageService.createMessage(person, String.join(";", person.getWatcherEmailAddresses()), subjAndBody), sender);
 
 		LOGGER.info("Message {} created for EarlyAlert {}", message, earlyAlert);
 	}
@@ -481,10 +511,12 @@ public class EarlyAlertServiceImpl extends // NOPMD
 	 * 
 	 * @param earlyAlert
 	 *            Early Alert
+	 * @param sender
+	 *            Sender of the message, or null for the current user
 	 * @throws ObjectNotFoundException
 	 * @throws ValidationException
 	 */
-	private void sendConfirmationMessageToFaculty(final EarlyAlert earlyAlert) throws ObjectNotFoundException, ValidationException {
+	private void sendConfirmationMessageToFaculty(final EarlyAlert earlyAlert, final Person sender) throws ObjectNotFoundException, ValidationException {
 		if (earlyAlert == null) {
 			throw new IllegalArgumentException("EarlyAlert was missing.");
 		}
@@ -508,13 +540,65 @@ public class EarlyAlertServiceImpl extends // NOPMD
 					.createEarlyAlertFacultyConfirmationMessage(fillTemplateParameters(earlyAlert));
 
 			// Create and queue the message
-			final Message message = messageService.createMessage(person, null,
-					subjAndBody);
+			final Message message = sentBy(messageService.createMessage(person, null,
+					subjAndBody), sender);
 
 			LOGGER.info("Message {} created for EarlyAlert {}", message, earlyAlert);
 		}
 	}
 
+	@Override
+	@Transactional(rollbackFor = { ObjectNotFoundException.class, ValidationException.class })
+	public void sendNotification(@NotNull final UUID notificationId)
+			throws ObjectNotFoundException, ValidationException {
+		// Marked first, and in the same transaction as the Message inserts.
+		// The update locks the row, so a second node which claimed it after
+		// our claim lapsed waits here, then finds it processed, and either
+		// all of a notification's messages are queued exactly once or none
+		// are.
+		if ( !(earlyAlertNotificationDao.markProcessed(notificationId, new Date())) ) {
+			// already queued its messages, e.g. under a claim which lapsed
+			// while they were being rendered
+			return;
+		}
+		final EarlyAlertNotification notification = earlyAlertNotificationDao.get(notificationId);
+
+		final EarlyAlert earlyAlert = notification.getEarlyAlert();
+
+		// Queue the messages as whoever recorded the notification, just as if
+		// they had been queued during that request rather than by the system
+		final Person sender = personService.get(notification.getCreatedBy().getId());
+
+		switch ( notification.getNotificationType() ) {
+			case ADVISOR_AND_FACULTY:
+				sendMessageToAdvisor(earlyAlert, notification.getEmailCC(), sender);
+				sendConfirmationMessageToFaculty(earlyAlert, sender);
+				break;
+			case STUDENT:
+				sendMessageToStudent(earlyAlert, sender);
+				break;
+			default:
+				throw new IllegalStateException("Unexpected EarlyAlertNotification type "
+						+ notification.getNotificationType());
+		}
+	}
+
+	private boolean isNotificationAsync() {
+		return configService.getByNameOrDefaultValue("early_alert_notifications_async");
+	}
+
+	/**
+	 * Messages are otherwise sent as the current user, which for
+	 * notifications processed in the background is the system rather than
+	 * the user who raised the alert.
+	 */
+	private Message sentBy(final Message message, final Person sender) {
+		if ( sender != null ) {
+			message.setSender(sender);
+		}
+		return message;
+	}
+
 	@Override
 	public Map<String, Object> fillTemplateParameters(final EarlyAlert earlyAlert) {
 
@@ -29,6 +29,7 @@ import org.apache.commons.lang.StringUtils;
 import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.Person;
 import org.jasig.ssp.model.SuccessIndicatorEvaluationType;
+import org.jasig.ssp.model.SuccessIndicatorGroup;
 import org.jasig.ssp.model.external.*;
 import org.jasig.ssp.model.reference.Blurb;
 import org.jasig.ssp.model.reference.SuccessIndicator;
@@ -119,6 +120,16 @@ public class EvaluatedSuccessIndicatorServiceImpl implements EvaluatedSuccessInd
     private static final String EXTERNAL_RISK_INDICATOR_METRIC_KEY = "EXTERNAL_RISK";
     private static final String EVALUATION_DISPLAY_NAMES_KEY = "DISPLAY_NAMES";
     private static final String CURRENT_TERM_KEY = "CURRENT_TERM";
+    private static final String CURRENT_AND_FUTURE_TERMS_KEY = "CURRENT_AND_FUTURE_TERMS";
+    // The following are only ever present when prefetched by getForPeople(), i.e. they are seeded into a cache
+    // dedicated to a single person, so unlike the keys above, they never need a staleness check.
+    private static final String REGISTRATION_STATUSES_KEY = "REGISTRATION_STATUSES";
+    private static final String TASK_COUNTS_KEY = "TASK_COUNTS";
+    private static final String PLAN_STATUS_KEY = "PLAN_STATUS";
+    private static final String PARTICIPATION_COURSES_KEY = "PARTICIPATION_COURSES";
+    private static final Set<String> TRANSCRIPT_INDICATOR_CODES = Collections.unmodifiableSet(new HashSet<>(
+            Arrays.asList("system.student.gpa", "system.student.creditcompletion", "system.student.standing",
+                    "system.student.restrictions")));
     private static final String BLURB_SEPARATOR = ".";
     private static final String EVALUATION_DISPLAY_NAMES_BLURB_PREFIX = "ssp.success.indicator.evaluation";
     private static final String EVALUATION_DISPLAY_NAMES_BLURB_QUERY = EVALUATION_DISPLAY_NAMES_BLURB_PREFIX
@@ -206,6 +217,233 @@ public class EvaluatedSuccessIndicatorServiceImpl implements EvaluatedSuccessInd
         return rsltHolder.get();
     }
 
+    @Override
+    public Map<UUID, List<EvaluatedSuccessIndicatorTO>> getForPeople(final List<UUID> personIds,
+                                                                      final ObjectStatus status,
+                                                                      final List<SuccessIndicator> indicators) {
+        // Same transaction management workaround as getForPerson(). There is no ObjectNotFoundException to
+        // relay here though: persons that can't be found are just absent from the result.
+        TransactionTemplate transactionTemplate = new TransactionTemplate(platformTransactionManager);
+        transactionTemplate.setReadOnly(true);
+        final AtomicReference<Map<UUID, List<EvaluatedSuccessIndicatorTO>>> rsltHolder = new AtomicReference<>();
+        try {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus txnStatus) {
+                    getForPeopleInTransaction(personIds, status, indicators, rsltHolder);
+                }
+            });
+        } catch ( UnexpectedRollbackException e ) {
+            // nothing to be done, totally normal. see comments in getForPerson().
+        }
+
+        final Map<UUID, List<EvaluatedSuccessIndicatorTO>> rslt = rsltHolder.get();
+        return rslt == null ? Maps.<UUID, List<EvaluatedSuccessIndicatorTO>>newLinkedHashMap() : rslt;
+    }
+
+    private void getForPeopleInTransaction(List<UUID> personIds, ObjectStatus status,
+                                           List<SuccessIndicator> possibleSubsetOfIndicators,
+                                           AtomicReference<Map<UUID, List<EvaluatedSuccessIndicatorTO>>> rsltHolder) {
+
+        final Map<UUID, List<EvaluatedSuccessIndicatorTO>> evaluationsByPersonId = Maps.newLinkedHashMap();
+        rsltHolder.set(evaluationsByPersonId);
+        if ( personIds == null || personIds.isEmpty() ) {
+            return;
+        }
+
+        final List<SuccessIndicator> successIndicators;
+        if (CollectionUtils.isEmpty(possibleSubsetOfIndicators)) {
+            successIndicators = Lists.newArrayList(successIndicatorService.getAll(allActive()));
+        } else {
+            successIndicators = possibleSubsetOfIndicators;
+        }
+
+        final List<Person> people = personService.peopleFromListOfIds(personIds, null);
+        if ( successIndicators.isEmpty() ) {
+            for ( Person person : people ) {
+                evaluationsByPersonId.put(person.getId(), Lists.<EvaluatedSuccessIndicatorTO>newArrayListWithCapacity(0));
+            }
+            return;
+        }
+
+        final Map<UUID, Map<String, Object>> resourcesByPersonId = prefetchEvaluationResources(people, successIndicators);
+        for ( Person person : people ) {
+            final ArrayList<EvaluatedSuccessIndicatorTO> evaluations =
+                    Lists.newArrayListWithExpectedSize(successIndicators.size());
+            evaluationResourceCache.set(resourcesByPersonId.get(person.getId()));
+            try {
+                for ( SuccessIndicator successIndicator : successIndicators ) {
+                    try {
+                        final List<EvaluatedSuccessIndicatorTO> evaluation = evaluate(successIndicator, person);
+                        if ( evaluation != null ) {
+                            evaluations.addAll(evaluation);
+                        }
+                    } catch ( Exception e ) {
+                        // See getForPersonInTransaction()
+                        LOGGER.error("System failure evaluating success indicator [{}] for person [{}]",
+                                new Object[]{ successIndicatorLoggingId(successIndicator), person.getId(), e });
+                    }
+                }
+            } finally {
+                evaluationResourceCache.set(null);
+            }
+            evaluationsByPersonId.put(person.getId(), evaluations);
+        }
+    }
+
+    /**
+     * Loads every metric source the given indicators need for all the given people, one query (or one
+     * {@link org.jasig.ssp.util.hibernate.BatchProcessor} run) per source rather than per person, and splits the
+     * results into one {@link #evaluationResourceCache} map per person. Sources no indicator needs aren't loaded.
+     * Resources that don't vary by person, e.g. terms and evaluation display names, are loaded once and shared.
+     */
+    private Map<UUID, Map<String, Object>> prefetchEvaluationResources(@Nonnull List<Person> people,
+                                                                      @Nonnull List<SuccessIndicator> successIndicators) {
+        boolean needsTranscript = false;
+        boolean needsFinancialAid = false;
+        boolean needsRegistration = false;
+        boolean needsTasks = false;
+        boolean needsPlanStatus = false;
+        boolean needsParticipation = false;
+        boolean needsRisk = false;
+        for ( SuccessIndicator successIndicator : successIndicators ) {
+            if ( successIndicator.getIndicatorGroup() == SuccessIndicatorGroup.RISK ) {
+                needsRisk = true;
+                continue;
+            }
+            final String code = successIndicator.getCode();
+            needsTranscript |= TRANSCRIPT_INDICATOR_CODES.contains(code);
+            needsFinancialAid |= "system.student.sap".equals(code);
+            needsRegistration |= "system.student.registration".equals(code);
+            needsTasks |= "system.intervention.opentasks".equals(code);
+            needsPlanStatus |= "system.intervention.mapstatus".equals(code);
+            needsParticipation |= "system.intervention.participation".equals(code);
+        }
+
+        // Shared, person-independent resources. Primed through the usual lookups so their error handling applies.
+        final Map<String, Object> shared = Maps.newLinkedHashMap();
+        evaluationResourceCache.set(shared);
+        final Term currentTerm;
+        List<Term> currentAndFutureTerms = null;
+        try {
+            findEvaluationDisplayName(SuccessIndicatorEvaluation.HIGH);
+            currentTerm = findCurrentTerm();
+            if ( needsRegistration ) {
+                currentAndFutureTerms = findCurrentAndFutureTerms();
+            }
+        } finally {
+            evaluationResourceCache.set(null);
+        }
+
+        final Map<UUID, Map<String, Object>> resourcesByPersonId = Maps.newHashMapWithExpectedSize(people.size());
+        final Map<String, Map<String, Object>> resourcesBySchoolId = Maps.newHashMapWithExpectedSize(people.size());
+        final List<String> schoolIds = Lists.newArrayListWithCapacity(people.size());
+        final List<UUID> personIds = Lists.newArrayListWithCapacity(people.size());
+        for ( Person person : people ) {
+            final Map<String, Object> resources = Maps.newLinkedHashMap(shared);
+            resourcesByPersonId.put(person.getId(), resources);
+            personIds.add(person.getId());
+            if ( person.getSchoolId() != null ) {
+                resourcesBySchoolId.put(person.getSchoolId(), resources);
+                schoolIds.add(person.getSchoolId());
+            }
+            // Absent records are cached as absent (null/empty), same as the single-person lookups would
+            // eventually conclude. Overwritten below for everyone that actually has records.
+            if ( needsTranscript ) {
+                resources.put(TRANSCRIPT_INDICATOR_METRIC_KEY, null);
+            }
+            if ( needsFinancialAid ) {
+                resources.put(FINANCIAL_AID_INDICATOR_METRIC_KEY, null);
+            }
+            if ( needsRisk ) {
+                resources.put(EXTERNAL_RISK_INDICATOR_METRIC_KEY, Maps.<String, ExternalStudentRiskIndicator>newHashMap());
+            }
+            if ( needsRegistration ) {
+                resources.put(REGISTRATION_STATUSES_KEY, Lists.<RegistrationStatusByTerm>newArrayList());
+            }
+            if ( needsPlanStatus ) {
+                resources.put(PLAN_STATUS_KEY, null);
+            }
+            if ( needsParticipation && currentTerm != null ) {
+                resources.put(PARTICIPATION_COURSES_KEY, Lists.<ExternalStudentTranscriptCourse>newArrayList());
+            }
+        }
+
+        if ( needsTranscript ) {
+            for ( ExternalStudentTranscript transcript :
+                    externalStudentTranscriptService.getBatchedRecordsBySchoolIds(schoolIds) ) {
+                final Map<String, Object> resources = resourcesBySchoolId.get(transcript.getSchoolId());
+                if ( resources != null ) {
+                    resources.put(TRANSCRIPT_INDICATOR_METRIC_KEY, transcript);
+                }
+            }
+        }
+
+        if ( needsFinancialAid ) {
+            for ( ExternalStudentFinancialAid fa :
+                    externalStudentFinancialAidService.getStudentFinancialAidBySchoolIds(schoolIds) ) {
+                final Map<String, Object> resources = resourcesBySchoolId.get(fa.getSchoolId());
+                if ( resources != null ) {
+                    resources.put(FINANCIAL_AID_INDICATOR_METRIC_KEY, fa);
+                }
+            }
+        }
+
+        if ( needsRisk ) {
+            for ( ExternalStudentRiskIndicator esri : externalStudentRiskIndicatorService.getBySchoolIds(schoolIds) ) {
+                final Map<String, Object> resources = resourcesBySchoolId.get(esri.getSchoolId());
+                if ( resources != null ) {
+                    ((Map<String, ExternalStudentRiskIndicator>) resources.get(EXTERNAL_RISK_INDICATOR_METRIC_KEY))
+                            .put(RISK_INDICATOR_MAP_KEY_GENERATOR.apply(esri), esri);
+                }
+            }
+        }
+
+        if ( needsRegistration && currentAndFutureTerms != null && !(currentAndFutureTerms.isEmpty()) ) {
+            final List<String> termCodes = Lists.newArrayListWithCapacity(currentAndFutureTerms.size());
+            for ( Term term : currentAndFutureTerms ) {
+                termCodes.add(term.getCode());
+            }
+            for ( RegistrationStatusByTerm regStatus : registrationStatusByTermService.getForTerms(schoolIds, termCodes) ) {
+                final Map<String, Object> resources = resourcesBySchoolId.get(regStatus.getSchoolId());
+                if ( resources != null ) {
+                    ((List<RegistrationStatusByTerm>) resources.get(REGISTRATION_STATUSES_KEY)).add(regStatus);
+                }
+            }
+        }
+
+        if ( needsTasks ) {
+            for ( Map.Entry<UUID, Pair<Long, Long>> entry :
+                    taskService.getOpenVsClosedTaskCountsForPersonIds(personIds).entrySet() ) {
+                final Map<String, Object> resources = resourcesByPersonId.get(entry.getKey());
+                if ( resources != null ) {
+                    resources.put(TASK_COUNTS_KEY, entry.getValue());
+                }
+            }
+        }
+
+        if ( needsPlanStatus ) {
+            for ( Map.Entry<UUID, PlanStatus> entry : mapStatusService.getPlanStatusesForPeople(people).entrySet() ) {
+                final Map<String, Object> resources = resourcesByPersonId.get(entry.getKey());
+                if ( resources != null ) {
+                    resources.put(PLAN_STATUS_KEY, entry.getValue());
+                }
+            }
+        }
+
+        if ( needsParticipation && currentTerm != null ) {
+            for ( ExternalStudentTranscriptCourse course : externalStudentTranscriptCourseService.
+                    getTranscriptsBySchoolIdsAndTermCode(schoolIds, currentTerm.getCode()) ) {
+                final Map<String, Object> resources = resourcesBySchoolId.get(course.getSchoolId());
+                if ( resources != null ) {
+                    ((List<ExternalStudentTranscriptCourse>) resources.get(PARTICIPATION_COURSES_KEY)).add(course);
+                }
+            }
+        }
+
+        return resourcesByPersonId;
+    }
+
     private void getForPersonInTransaction(UUID personId, ObjectStatus status, List<SuccessIndicator> possibleSubsetOfIndicators,
                                            AtomicReference<List<EvaluatedSuccessIndicatorTO>> rsltHolder) throws ObjectNotFoundException {
 
@@ -719,12 +957,7 @@ public class EvaluatedSuccessIndicatorServiceImpl implements EvaluatedSuccessInd
     private SuccessIndicatorMetric findRegistrationMetric(@Nonnull SuccessIndicator successIndicator,
                                                           @Nonnull Person person) {
 
-        List<Term> currentAndFutureTerms = null;
-        try {
-            currentAndFutureTerms = termService.getCurrentAndFutureTerms();
-        } catch ( ObjectNotFoundException e ) {
-            // nothing to be done - missing terms handled below
-        }
+        final List<Term> currentAndFutureTerms = findCurrentAndFutureTerms();
 
         final boolean areCurrentOrFutureTerms = currentAndFutureTerms != null && !(currentAndFutureTerms.isEmpty());
 
@@ -741,13 +974,18 @@ public class EvaluatedSuccessIndicatorServiceImpl implements EvaluatedSuccessInd
 
         final boolean isCurrentTerm = currentTerm != null;
 
+        final Map<String, Object> cache = evaluationResourceCache.get();
         List<RegistrationStatusByTerm> regStatuses = null;
-        try {
-            regStatuses = registrationStatusByTermService.getCurrentAndFutureTerms(person);
-        } catch ( ObjectNotFoundException e ) {
-            // really shouldn't happen, but if it does, indicates all current/future terms have gone missing, so
-            // handle it the same was as in that check above
-            return emptyMetricDescriptor(successIndicator);
+        if ( cache != null && cache.containsKey(REGISTRATION_STATUSES_KEY) ) {
+            regStatuses = (List<RegistrationStatusByTerm>) cache.get(REGISTRATION_STATUSES_KEY);
+        } else {
+            try {
+                regStatuses = registrationStatusByTermService.getCurrentAndFutureTerms(person);
+            } catch ( ObjectNotFoundException e ) {
+                // really shouldn't happen, but if it does, indicates all current/future terms have gone missing, so
+                // handle it the same was as in that check above
+                return emptyMetricDescriptor(successIndicator);
+            }
         }
 
         if ( regStatuses == null || regStatuses.isEmpty() ) {
@@ -872,7 +1110,10 @@ public class EvaluatedSuccessIndicatorServiceImpl implements EvaluatedSuccessInd
         // Special service method invented specifically for this use case... without it, pulling back
         // a list of actual Tasks to filter ends up taking easily half the elapsed time of the entire
         // getForPerson(). The query generated by a getAllForPerson() is nightmarish.
-        final Pair<Long, Long> openVsClosed = taskService.getOpenVsClosedTaskCountsForPerson(person);
+        final Map<String, Object> cache = evaluationResourceCache.get();
+        final Pair<Long, Long> openVsClosed = cache != null && cache.containsKey(TASK_COUNTS_KEY)
+                ? (Pair<Long, Long>) cache.get(TASK_COUNTS_KEY)
+                : taskService.getOpenVsClosedTaskCountsForPerson(person);
 
         // No conceptual difference between 'no data' and 0's here.
         final long open = openVsClosed.getFirst();
@@ -900,20 +1141,26 @@ public class EvaluatedSuccessIndicatorServiceImpl implements EvaluatedSuccessInd
     }
 
     private SuccessIndicatorMetric findMapStatusMetric(SuccessIndicator successIndicator, Person person) {
-        AbstractPlanStatusReportTO statusReport = null;
-        try {
-            statusReport = mapStatusService.getByPersonId(person.getId());
-        } catch (ObjectNotFoundException e) {
-            // actually means 'no such person', which means something terrible has gone wrong, but we'll treat it
-            // as just a missing indicator metric
-            return emptyMetricDescriptor(successIndicator);
+        final Map<String, Object> cache = evaluationResourceCache.get();
+        final PlanStatus status;
+        if ( cache != null && cache.containsKey(PLAN_STATUS_KEY) ) {
+            status = (PlanStatus) cache.get(PLAN_STATUS_KEY);
+        } else {
+            AbstractPlanStatusReportTO statusReport = null;
+            try {
+                statusReport = mapStatusService.getByPersonId(person.getId());
+            } catch (ObjectNotFoundException e) {
+                // actually means 'no such person', which means something terrible has gone wrong, but we'll treat it
+                // as just a missing indicator metric
+                return emptyMetricDescriptor(successIndicator);
+            }
+            status = statusReport == null ? null : statusReport.getStatus();
         }
         // PlanStatus is so domain specific, we don't pass it back into the evaluate(). That function does have
         // coercion/translation/normalization capabilities, but they're all focused on very low-level types,
         // e.g. Numeric and BigDecimal, or purpose built but still very generic stuff, e.g. Ratio. So
         // we translate that enum into a name here, the same way we do it for findRegistrationMetric()
 
-        final PlanStatus status = statusReport == null ? null : statusReport.getStatus();
         return new SuccessIndicatorMetric((status == null ? null : status.name()),
                 (status == null ? null : status.getDisplayName()), null,
                 successIndicator.getCode(), successIndicator.getName());
@@ -931,9 +1178,15 @@ public class EvaluatedSuccessIndicatorServiceImpl implements EvaluatedSuccessInd
      */
     private SuccessIndicatorMetric findParticipationStatusMetric(@Nonnull SuccessIndicator successIndicator,
                                                  @Nonnull Person person) {
-        final Term currentTerm = findCurrentTerm();
-        final List<ExternalStudentTranscriptCourse> scheduleCourses = externalStudentTranscriptCourseService.
-                getTranscriptsBySchoolIdAndTermCode(person.getSchoolId(), currentTerm.getCode());
+        final Map<String, Object> cache = evaluationResourceCache.get();
+        final List<ExternalStudentTranscriptCourse> scheduleCourses;
+        if ( cache != null && cache.containsKey(PARTICIPATION_COURSES_KEY) ) {
+            scheduleCourses = (List<ExternalStudentTranscriptCourse>) cache.get(PARTICIPATION_COURSES_KEY);
+        } else {
+            final Term currentTerm = findCurrentTerm();
+            scheduleCourses = externalStudentTranscriptCourseService.
+                    getTranscriptsBySchoolIdAndTermCode(person.getSchoolId(), currentTerm.getCode());
+        }
         String worstParticipationScore = null; //used for default null and string comparisons
 
         if (successIndicator.getEvaluationType().equals(SuccessIndicatorEvaluationType.SCALE)) {
@@ -1183,6 +1436,24 @@ public class EvaluatedSuccessIndicatorServiceImpl implements EvaluatedSuccessInd
         return currentTerm;
     }
 
+    private List<Term> findCurrentAndFutureTerms() {
+        final Map<String, Object> cache = evaluationResourceCache.get();
+        if ( cache != null && cache.containsKey(CURRENT_AND_FUTURE_TERMS_KEY) ) {
+            return (List<Term>) cache.get(CURRENT_AND_FUTURE_TERMS_KEY);
+        }
+
+        List<Term> currentAndFutureTerms = null;
+        try {
+            currentAndFutureTerms = termService.getCurrentAndFutureTerms();
+        } catch ( ObjectNotFoundException e ) {
+            // nothing to be done - missing terms handled by callers
+        }
+        if ( cache != null ) {
+            cache.put(CURRENT_AND_FUTURE_TERMS_KEY, currentAndFutureTerms);
+        }
+        return currentAndFutureTerms;
+    }
+
     private String evaluationDisplayNameFor(@Nonnull SuccessIndicatorEvaluation evaluation, @Nonnull Map<String, Blurb> blurbMap) {
         final String blurbCode = new StringBuilder(EVALUATION_DISPLAY_NAMES_BLURB_PREFIX).append(BLURB_SEPARATOR).
                 append(evaluation.name().toLowerCase()).toString();
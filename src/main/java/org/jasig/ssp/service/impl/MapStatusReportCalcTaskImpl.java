@@ -22,6 +22,7 @@ import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -29,8 +30,15 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.jasig.ssp.dao.MapStatusReportDao;
 import org.jasig.ssp.dao.external.ExternalPersonDao;
 import org.jasig.ssp.model.MapStatusReport;
 import org.jasig.ssp.model.Person;
@@ -59,6 +67,7 @@ import org.jasig.ssp.web.api.validation.ValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -67,6 +76,13 @@ public class MapStatusReportCalcTaskImpl implements MapStatusReportCalcTask {
 	private static final Logger LOGGER = LoggerFactory
 			.getLogger(MapStatusReportCalcTaskImpl.class);
 
+	private static final String WORKERS_CONFIG_NAME = "map_plan_status_workers";
+	private static final int DEFAULT_WORKERS = 1;
+	private static final int MAX_WORKERS = 16;
+	private static final String CHUNK_SIZE_CONFIG_NAME = "map_plan_status_chunk_size";
+	private static final int DEFAULT_CHUNK_SIZE = 50;
+	private static final String INCREMENTAL_CONFIG_NAME = "map_plan_status_incremental_calculation";
+
 	@Autowired 
 	private transient PlanService planService;
 	
@@ -97,6 +113,9 @@ public class MapStatusReportCalcTaskImpl implements MapStatusReportCalcTask {
 	@Autowired
 	protected transient MessageTemplateService  messageTemplateService;
 
+	@Autowired
+	protected transient SessionFactory sessionFactory;
+
 
 
 	public Class<Void> getBatchExecReturnType() {
@@ -123,65 +142,64 @@ public class MapStatusReportCalcTaskImpl implements MapStatusReportCalcTask {
 		MapStatusReportSummary summary = new MapStatusReportSummary();
 		summary.setStartTime(Calendar.getInstance());
 		
-		//Hard delete all previous reports
-		mapStatusReportService.deleteAllOldReports();
+		final boolean incremental = Boolean.parseBoolean(configService.getByNameEmpty(INCREMENTAL_CONFIG_NAME).trim());
+		if ( !(incremental) ) {
+			//Hard delete all previous reports
+			mapStatusReportService.deleteAllOldReports();
+		}
 
+		// Everything below is computed once and then only ever read, possibly by several workers at once
 		final boolean useSubstitutableCourses = Boolean.parseBoolean(configService.getByNameEmpty("map_plan_status_use_substitutable_courses").trim());
-		final Collection<ExternalSubstitutableCourse> allSubstitutableCourses =
-				useSubstitutableCourses ? mapStatusReportService.getAllSubstitutableCourses() : Lists.<ExternalSubstitutableCourse>newArrayList();
 
-        final Collection<ExternalStudentTranscriptNonCourseEntity> nonCourseEntities =
-                                            externalStudentTranscriptNonCourseEntityService.getAllNonCourseTranscripts();
-		
 		//Load up our configs
-		final Set<String> gradesSet = mapStatusReportService.getPassingGrades();
-		final Set<String> additionalCriteriaSet = mapStatusReportService.getAdditionalCriteria();
+		final Set<String> gradesSet = Collections.unmodifiableSet(mapStatusReportService.getPassingGrades());
+		final Set<String> additionalCriteriaSet = Collections.unmodifiableSet(mapStatusReportService.getAdditionalCriteria());
 		final boolean termBound = Boolean.parseBoolean(configService.getByNameEmpty("map_plan_status_term_bound_strict").trim());
 
 		//Lets figure out our cutoff term
 		final Term cutoffTerm = mapStatusReportService.deriveCutoffTerm();
+
+		final List<Term> sortedTerms = termService.getAll();
+		//Sort terms by startDate, we do this here so we have no dependency on the default sort order in termService.getAll()
+		sortTerms(sortedTerms);
+		final List<Term> allTerms = Collections.unmodifiableList(sortedTerms);
+
+		final String inputsFingerprint = mapStatusReportService.getInputsFingerprint(gradesSet, additionalCriteriaSet,
+				cutoffTerm, allTerms, termBound, useSubstitutableCourses);
 		
 		//Lightweight query to avoid the potential 'kitchen sink' we would pull out if we fetched the Plan object
 		List<MapStatusReportPerson> allActivePlans = planService.getAllActivePlanIds();
-		LOGGER.info("Starting report calculations for {} plans",allActivePlans.size());
-		
-		
-		final List<Term> allTerms = termService.getAll();
-		//Sort terms by startDate, we do this here so we have no dependency on the default sort order in termService.getAll()
-		sortTerms(allTerms);
-		
-		//Iterate through the active plans.  A transaction is committed after each plan
-		for (final MapStatusReportPerson planIdPersonIdPair : allActivePlans) {
-			
-			if ( Thread.currentThread().isInterrupted() ) {
-				LOGGER.info("Abandoning map status report calculation because of thread interruption");
+		List<MapStatusReportPerson> plansToEvaluate = allActivePlans;
+		if ( incremental ) {
+			LOGGER.info("Deleted map status reports of {} inactive plans", mapStatusReportService.deleteReportsForInactivePlans());
+			// so that each plan's report is updated in place below, rather than one of several
+			LOGGER.info("Deleted {} duplicate map status reports", mapStatusReportService.deleteDuplicateReports());
+			plansToEvaluate = plansNeedingCalculation(allActivePlans, inputsFingerprint);
+		}
+		LOGGER.info("Starting report calculations for {} of {} plans", plansToEvaluate.size(), allActivePlans.size());
+
+		if ( !(plansToEvaluate.isEmpty()) ) {
+			// Indexed once here rather than for every plan
+			final Collection<ExternalSubstitutableCourse> allSubstitutableCourses = MapStatusReportIndexes.SubstitutableCourses.of(
+					useSubstitutableCourses ? mapStatusReportService.getAllSubstitutableCourses() : Lists.<ExternalSubstitutableCourse>newArrayList());
+
+			final Collection<ExternalStudentTranscriptNonCourseEntity> nonCourseEntities = MapStatusReportIndexes.NonCourseEntities.of(
+					externalStudentTranscriptNonCourseEntityService.getAllNonCourseTranscripts());
+
+			// Loaded in this thread's session but read on worker threads, so must not stay attached to it
+			detachFromSession(allTerms);
+			detachFromSession(Collections.singletonList(cutoffTerm));
+			detachFromSession(allSubstitutableCourses);
+			detachFromSession(nonCourseEntities);
+
+			final PlanEvaluationInputs inputs = new PlanEvaluationInputs(gradesSet, additionalCriteriaSet, cutoffTerm,
+					allTerms, allSubstitutableCourses, nonCourseEntities, termBound, useSubstitutableCourses,
+					inputsFingerprint);
+			if ( !(evaluatePlans(batchExecutor, inputs, plansToEvaluate)) ) {
 				return;
 			}
-			
-			LOGGER.info("MAP STATUS REPORT CALCULATION STARTING FOR: " + planIdPersonIdPair.getSchoolId());
-
-			if (batchExecutor == null) {
-				evaluatePlan(gradesSet, additionalCriteriaSet, cutoffTerm,
-						allTerms, planIdPersonIdPair, allSubstitutableCourses,nonCourseEntities,termBound,useSubstitutableCourses);
-			} else {
-				try {
-					batchExecutor.exec(new Callable<Void>() {
-						@Override
-						public Void call() throws Exception {
-							evaluatePlan(gradesSet, additionalCriteriaSet, cutoffTerm,
-									allTerms, planIdPersonIdPair, allSubstitutableCourses,nonCourseEntities,termBound,useSubstitutableCourses);
-							return null;
-						}
-					});
-				} catch ( RuntimeException e ) {
-					throw e;
-				} catch ( Exception e ) {
-					throw new RuntimeException(e);
-				}
-			}
-			
-			LOGGER.info("FINISHED MAP STATUS REPORT CALCULATION FOR: " + planIdPersonIdPair.getSchoolId());
 		}
+
 		summary.setEndTime(Calendar.getInstance());
 		summary.setStudentsInScope(allActivePlans.size());
 
@@ -195,6 +213,43 @@ public class MapStatusReportCalcTaskImpl implements MapStatusReportCalcTask {
 
 	}
 
+	/**
+	 * Subset of {@code allActivePlans} whose reports are missing or out of date
+	 */
+	private List<MapStatusReportPerson> plansNeedingCalculation(List<MapStatusReportPerson> allActivePlans,
+																String inputsFingerprint) {
+		final Set<UUID> planIds = new HashSet<UUID>(mapStatusReportService.getPlanIdsNeedingCalculation(inputsFingerprint));
+		final List<MapStatusReportPerson> plans = Lists.newArrayListWithCapacity(planIds.size());
+		for ( MapStatusReportPerson plan : allActivePlans ) {
+			if ( planIds.contains(plan.getPlanId()) ) {
+				plans.add(plan);
+			}
+		}
+		return plans;
+	}
+
+	/**
+	 * @return {@code false} if interrupted
+	 */
+	private boolean evaluatePlans(CallableExecutor<Void> batchExecutor, PlanEvaluationInputs inputs,
+								  List<MapStatusReportPerson> plans) {
+		final List<List<MapStatusReportPerson>> chunks = Lists.partition(plans, getChunkSize());
+		final int workers = Math.min(getWorkers(), chunks.size());
+
+		if ( batchExecutor == null || workers <= 1 ) {
+			// Chunks one after another on this thread, each still its own transaction
+			for ( List<MapStatusReportPerson> chunk : chunks ) {
+				if ( Thread.currentThread().isInterrupted() ) {
+					LOGGER.info("Abandoning map status report calculation because of thread interruption");
+					return false;
+				}
+				evaluateChunkInContext(batchExecutor, inputs, chunk);
+			}
+			return true;
+		}
+		return evaluateChunksInParallel(batchExecutor, inputs, chunks, workers);
+	}
+
 	private void sendOffPlanEmailsToCoaches() {
 		boolean sendEmail = Boolean.parseBoolean(configService.getByNameEmpty("map_plan_status_send_off_plan_coach_email").trim().toLowerCase());
 		if ( !(sendEmail) ) {
@@ -397,23 +452,228 @@ public class MapStatusReportCalcTaskImpl implements MapStatusReportCalcTask {
  		}
 	}
 
-	private void evaluatePlan(Set<String> gradesSet, Set<String> criteriaSet,
-			Term cutoffTerm,  List<Term> allTerms,
-			MapStatusReportPerson planIdPersonIdPair, Collection<ExternalSubstitutableCourse> allSubstitutableCourses, Collection<ExternalStudentTranscriptNonCourseEntity> allNonCourseEntities, boolean termBound, boolean useSubstitutableCourses)
-	{ 
-		List<ExternalStudentTranscriptCourse> transcript = externalStudentTranscriptCourseService.getTranscriptsBySchoolId(planIdPersonIdPair.getSchoolId());
-		final MapStatusReport report = mapStatusReportService.evaluatePlan(gradesSet, criteriaSet, cutoffTerm, allTerms, planIdPersonIdPair,allSubstitutableCourses,allNonCourseEntities,transcript,termBound,useSubstitutableCourses);
+	/**
+	 * Hands chunks out to a bounded pool of workers. Each chunk runs through {@code batchExecutor}, which binds a
+	 * Hibernate session to the worker's thread for the duration of the chunk, so workers never share a session.
+	 *
+	 * @return {@code false} if interrupted
+	 */
+	private boolean evaluateChunksInParallel(final CallableExecutor<Void> batchExecutor,
+											 final PlanEvaluationInputs inputs,
+											 final List<List<MapStatusReportPerson>> chunks, final int workers) {
+		LOGGER.info("Evaluating {} chunks of plans with {} workers", chunks.size(), workers);
+		final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("map-status-worker-");
+		threadFactory.setDaemon(true);
+		final ExecutorService pool = Executors.newFixedThreadPool(workers, threadFactory);
+		final List<Future<?>> futures = Lists.newArrayListWithCapacity(chunks.size());
+		try {
+			for ( final List<MapStatusReportPerson> chunk : chunks ) {
+				futures.add(pool.submit(new Runnable() {
+					@Override
+					public void run() {
+						if ( Thread.currentThread().isInterrupted() ) {
+							return;
+						}
+						evaluateChunkInContext(batchExecutor, inputs, chunk);
+					}
+				}));
+			}
+			for ( Future<?> future : futures ) {
+				try {
+					future.get();
+				} catch ( ExecutionException e ) {
+					LOGGER.error("Map status report calculation worker failed", e.getCause());
+				}
+			}
+			return true;
+		} catch ( InterruptedException e ) {
+			LOGGER.info("Abandoning map status report calculation because of thread interruption");
+			for ( Future<?> future : futures ) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt(); // reassert
+			return false;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void evaluateChunkInContext(CallableExecutor<Void> batchExecutor, final PlanEvaluationInputs inputs,
+										final List<MapStatusReportPerson> chunk) {
+		final Callable<Void> work = new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				evaluateChunk(inputs, chunk);
+				return null;
+			}
+		};
 		try {
-			//Any new writes to this task should be included here
-			withTransaction.withNewTransaction(new Callable<MapStatusReport>() {
+			if ( batchExecutor == null ) {
+				work.call();
+			} else {
+				batchExecutor.exec(work);
+			}
+		} catch ( RuntimeException e ) {
+			throw e;
+		} catch ( Exception e ) {
+			throw new RuntimeException(e);
+		}
+	}
 
+	/**
+	 * Evaluates and saves a chunk of plans in one transaction, with batched lookups for the whole chunk. If that
+	 * transaction fails, falls back to evaluating the chunk's plans one at a time so a single bad plan can't cost
+	 * the rest of its chunk their reports.
+	 */
+	private void evaluateChunk(final PlanEvaluationInputs inputs, final List<MapStatusReportPerson> chunk) {
+		try {
+			// unchecked so that any failure rolls back the whole chunk before the retry below
+			withTransaction.withNewTransactionAndUncheckedExceptions(new Callable<Void>() {
 				@Override
-				public MapStatusReport call() throws Exception {
-					return mapStatusReportService.save(report);
+				public Void call() throws Exception {
+					evaluateAndSave(inputs, chunk);
+					return null;
 				}
 			});
-		} catch (Exception e) {
-			LOGGER.error(e.getMessage());
+		} catch ( RuntimeException e ) {
+			LOGGER.error("Failed to save map status reports for a chunk of {} plans, retrying them one at a time",
+					chunk.size(), e);
+			for ( final MapStatusReportPerson planIdPersonIdPair : chunk ) {
+				if ( Thread.currentThread().isInterrupted() ) {
+					return;
+				}
+				try {
+					withTransaction.withNewTransactionAndUncheckedExceptions(new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							evaluateAndSave(inputs, Collections.singletonList(planIdPersonIdPair));
+							return null;
+						}
+					});
+				} catch ( RuntimeException planException ) {
+					LOGGER.error("Failed to save map status report for plan {}", planIdPersonIdPair.getPlanId(),
+							planException);
+				}
+			}
+		}
+	}
+
+	private void evaluateAndSave(PlanEvaluationInputs inputs, List<MapStatusReportPerson> plans)
+			throws ObjectNotFoundException, ValidationException {
+		final Set<String> schoolIds = new HashSet<String>();
+		final Set<UUID> planIds = new HashSet<UUID>();
+		for ( MapStatusReportPerson planIdPersonIdPair : plans ) {
+			schoolIds.add(planIdPersonIdPair.getSchoolId());
+			planIds.add(planIdPersonIdPair.getPlanId());
+		}
+		// Watermarks are read before the data they describe, so anything that changes in between is picked up
+		// again by the next run rather than missed
+		final Map<String, String> transcriptWatermarks = mapStatusReportService.getTranscriptWatermarks(schoolIds);
+		final Map<UUID, Date> planModifiedDates = mapStatusReportService.getPlanModifiedDates(planIds);
+		final Map<UUID, MapStatusReport> existingReports = mapStatusReportService.getByPlanIds(planIds);
+		final Map<String, List<ExternalStudentTranscriptCourse>> transcriptsBySchoolId = loadTranscripts(schoolIds);
+		for ( MapStatusReportPerson planIdPersonIdPair : plans ) {
+			if ( Thread.currentThread().isInterrupted() ) {
+				// keep what's been evaluated so far, same as a plan-at-a-time run would
+				break;
+			}
+			LOGGER.info("MAP STATUS REPORT CALCULATION STARTING FOR: " + planIdPersonIdPair.getSchoolId());
+			List<ExternalStudentTranscriptCourse> transcript =
+					transcriptsBySchoolId.get(planIdPersonIdPair.getSchoolId());
+			if ( transcript == null ) {
+				transcript = Lists.newArrayList();
+			}
+			final MapStatusReport report = mapStatusReportService.evaluatePlan(inputs.gradesSet,
+					inputs.criteriaSet, inputs.cutoffTerm, inputs.allTerms, planIdPersonIdPair,
+					inputs.allSubstitutableCourses, inputs.nonCourseEntities, transcript,
+					inputs.termBound, inputs.useSubstitutableCourses);
+			final String transcriptWatermark = transcriptWatermarks.get(planIdPersonIdPair.getSchoolId());
+			report.setTranscriptWatermark(transcriptWatermark == null
+					? MapStatusReportDao.NO_TRANSCRIPT_WATERMARK : transcriptWatermark);
+			report.setPlanModifiedDate(planModifiedDates.get(planIdPersonIdPair.getPlanId()));
+			report.setInputsFingerprint(inputs.inputsFingerprint);
+			// details cascade from the report. A new report is flushed as it's saved, an updated one at commit.
+			mapStatusReportService.saveCalculatedReport(report, existingReports.get(planIdPersonIdPair.getPlanId()));
+			LOGGER.info("FINISHED MAP STATUS REPORT CALCULATION FOR: " + planIdPersonIdPair.getSchoolId());
+		}
+	}
+
+	/**
+	 * Evicts shared inputs from the current session. They have no lazy state, so workers can go on reading them
+	 * detached without ever reaching back into a session that belongs to another thread.
+	 */
+	private void detachFromSession(Iterable<?> entities) {
+		final Session session = sessionFactory.getCurrentSession();
+		for ( Object entity : entities ) {
+			if ( entity != null ) {
+				session.evict(entity);
+			}
+		}
+	}
+
+	private Map<String, List<ExternalStudentTranscriptCourse>> loadTranscripts(Set<String> schoolIds) {
+		final Map<String, List<ExternalStudentTranscriptCourse>> transcriptsBySchoolId =
+				new HashMap<String, List<ExternalStudentTranscriptCourse>>();
+		for ( ExternalStudentTranscriptCourse course :
+				externalStudentTranscriptCourseService.getTranscriptsBySchoolIds(Lists.newArrayList(schoolIds)) ) {
+			List<ExternalStudentTranscriptCourse> transcript = transcriptsBySchoolId.get(course.getSchoolId());
+			if ( transcript == null ) {
+				transcript = Lists.newArrayList();
+				transcriptsBySchoolId.put(course.getSchoolId(), transcript);
+			}
+			transcript.add(course);
+		}
+		return transcriptsBySchoolId;
+	}
+
+	private int getWorkers() {
+		return Math.min(Math.max(getIntConfig(WORKERS_CONFIG_NAME, DEFAULT_WORKERS), 1), MAX_WORKERS);
+	}
+
+	private int getChunkSize() {
+		return Math.max(getIntConfig(CHUNK_SIZE_CONFIG_NAME, DEFAULT_CHUNK_SIZE), 1);
+	}
+
+	private int getIntConfig(String name, int defaultValue) {
+		final String value = configService.getByNameNullOrDefaultValue(name);
+		try {
+			return Integer.parseInt(value.trim());
+		} catch ( NumberFormatException | NullPointerException e ) {
+			LOGGER.info("Failed to parse [{}] config [{}] to an integer. Falling back to [{}].",
+					new Object[] { name, value, defaultValue });
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Inputs shared read-only by every plan evaluation in a run
+	 */
+	private static final class PlanEvaluationInputs {
+		private final Set<String> gradesSet;
+		private final Set<String> criteriaSet;
+		private final Term cutoffTerm;
+		private final List<Term> allTerms;
+		private final Collection<ExternalSubstitutableCourse> allSubstitutableCourses;
+		private final Collection<ExternalStudentTranscriptNonCourseEntity> nonCourseEntities;
+		private final boolean termBound;
+		private final boolean useSubstitutableCourses;
+		private final String inputsFingerprint;
+
+		private PlanEvaluationInputs(Set<String> gradesSet, Set<String> criteriaSet, Term cutoffTerm,
+									 List<Term> allTerms,
+									 Collection<ExternalSubstitutableCourse> allSubstitutableCourses,
+									 Collection<ExternalStudentTranscriptNonCourseEntity> nonCourseEntities,
+									 boolean termBound, boolean useSubstitutableCourses,
+									 String inputsFingerprint) {
+			this.gradesSet = gradesSet;
+			this.criteriaSet = criteriaSet;
+			this.cutoffTerm = cutoffTerm;
+			this.allTerms = allTerms;
+			this.allSubstitutableCourses = allSubstitutableCourses;
+			this.nonCourseEntities = nonCourseEntities;
+			this.termBound = termBound;
+			this.useSubstitutableCourses = useSubstitutableCourses;
+			this.inputsFingerprint = inputsFingerprint;
 		}
 	}
 
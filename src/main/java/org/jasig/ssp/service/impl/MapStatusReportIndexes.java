@@ -0,0 +1,217 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.impl;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.Lists;
+import org.jasig.ssp.model.external.ExternalStudentTranscriptCourse;
+import org.jasig.ssp.model.external.ExternalStudentTranscriptNonCourseEntity;
+import org.jasig.ssp.model.external.ExternalSubstitutableCourse;
+
+/**
+ * Lookup structures for MAP plan status evaluation, so matching a plan course
+ * only ever looks at the handful of records with the same formatted course
+ * instead of scanning whole transcripts and substitution tables.
+ *
+ * <p>Keys fold case exactly the way {@link String#equalsIgnoreCase(String)}
+ * compares, after trimming, and every bucket keeps the order of the source
+ * collection. So the first match found in a bucket is the same one a scan
+ * over the whole collection would have found. Records with a {@code null} key
+ * are left out.
+ */
+final class MapStatusReportIndexes {
+
+	private MapStatusReportIndexes() {}
+
+	/**
+	 * A student's transcript courses by formatted course, and by term code
+	 * plus formatted course
+	 */
+	static final class Transcript {
+
+		private final Map<String, List<ExternalStudentTranscriptCourse>> byCourse =
+				new HashMap<String, List<ExternalStudentTranscriptCourse>>();
+		private final Map<String, Map<String, List<ExternalStudentTranscriptCourse>>> byTermAndCourse =
+				new HashMap<String, Map<String, List<ExternalStudentTranscriptCourse>>>();
+
+		Transcript(Collection<ExternalStudentTranscriptCourse> transcript) {
+			for ( ExternalStudentTranscriptCourse course : transcript ) {
+				final String key = key(course.getFormattedCourse());
+				if ( key == null ) {
+					continue;
+				}
+				add(byCourse, key, course);
+				Map<String, List<ExternalStudentTranscriptCourse>> termCourses = byTermAndCourse.get(course.getTermCode());
+				if ( termCourses == null ) {
+					termCourses = new HashMap<String, List<ExternalStudentTranscriptCourse>>();
+					byTermAndCourse.put(course.getTermCode(), termCourses);
+				}
+				add(termCourses, key, course);
+			}
+		}
+
+		/**
+		 * Courses taken in any term
+		 */
+		List<ExternalStudentTranscriptCourse> forCourse(String formattedCourse) {
+			return get(byCourse, key(formattedCourse));
+		}
+
+		/**
+		 * Courses taken in the given term, term codes compared exactly
+		 */
+		List<ExternalStudentTranscriptCourse> forTermAndCourse(String termCode, String formattedCourse) {
+			final Map<String, List<ExternalStudentTranscriptCourse>> termCourses = byTermAndCourse.get(termCode);
+			return termCourses == null ? Collections.<ExternalStudentTranscriptCourse>emptyList()
+					: get(termCourses, key(formattedCourse));
+		}
+	}
+
+	/**
+	 * Substitutable courses by source formatted course. Is itself a read-only
+	 * view of all of them, so it can be built once per calculation run and then
+	 * be handed around wherever the plain collection was.
+	 */
+	static final class SubstitutableCourses extends AbstractCollection<ExternalSubstitutableCourse> {
+
+		private final Collection<ExternalSubstitutableCourse> all;
+		private final Map<String, List<ExternalSubstitutableCourse>> bySourceCourse =
+				new HashMap<String, List<ExternalSubstitutableCourse>>();
+
+		private SubstitutableCourses(Collection<ExternalSubstitutableCourse> all) {
+			this.all = Collections.unmodifiableCollection(all);
+			for ( ExternalSubstitutableCourse course : all ) {
+				final String key = key(course.getSourceFormattedCourse());
+				if ( key != null ) {
+					add(bySourceCourse, key, course);
+				}
+			}
+		}
+
+		static SubstitutableCourses of(Collection<ExternalSubstitutableCourse> courses) {
+			if ( courses instanceof SubstitutableCourses ) {
+				return (SubstitutableCourses) courses;
+			}
+			return new SubstitutableCourses(courses == null
+					? Collections.<ExternalSubstitutableCourse>emptyList() : courses);
+		}
+
+		List<ExternalSubstitutableCourse> forSourceCourse(String formattedCourse) {
+			return get(bySourceCourse, key(formattedCourse));
+		}
+
+		@Override
+		public Iterator<ExternalSubstitutableCourse> iterator() {
+			return all.iterator();
+		}
+
+		@Override
+		public int size() {
+			return all.size();
+		}
+	}
+
+	/**
+	 * First non-course transcript entry for each target formatted course and
+	 * term code, both compared ignoring case. Is itself a read-only view of all
+	 * of them, see {@link SubstitutableCourses}.
+	 */
+	static final class NonCourseEntities extends AbstractCollection<ExternalStudentTranscriptNonCourseEntity> {
+
+		private final Collection<ExternalStudentTranscriptNonCourseEntity> all;
+		private final Map<String, ExternalStudentTranscriptNonCourseEntity> byCourseAndTerm =
+				new HashMap<String, ExternalStudentTranscriptNonCourseEntity>();
+
+		private NonCourseEntities(Collection<ExternalStudentTranscriptNonCourseEntity> all) {
+			this.all = Collections.unmodifiableCollection(all);
+			for ( ExternalStudentTranscriptNonCourseEntity entity : all ) {
+				final String key = courseAndTermKey(entity.getTargetFormattedCourse(), entity.getTermCode());
+				if ( key != null && !(byCourseAndTerm.containsKey(key)) ) {
+					byCourseAndTerm.put(key, entity);
+				}
+			}
+		}
+
+		static NonCourseEntities of(Collection<ExternalStudentTranscriptNonCourseEntity> entities) {
+			if ( entities instanceof NonCourseEntities ) {
+				return (NonCourseEntities) entities;
+			}
+			return new NonCourseEntities(entities == null
+					? Collections.<ExternalStudentTranscriptNonCourseEntity>emptyList() : entities);
+		}
+
+		ExternalStudentTranscriptNonCourseEntity forCourseAndTerm(String formattedCourse, String termCode) {
+			final String key = courseAndTermKey(formattedCourse, termCode);
+			return key == null ? null : byCourseAndTerm.get(key);
+		}
+
+		private static String courseAndTermKey(String formattedCourse, String termCode) {
+			final String courseKey = key(formattedCourse);
+			final String termKey = key(termCode);
+			return courseKey == null || termKey == null ? null : courseKey + '\u0000' + termKey;
+		}
+
+		@Override
+		public Iterator<ExternalStudentTranscriptNonCourseEntity> iterator() {
+			return all.iterator();
+		}
+
+		@Override
+		public int size() {
+			return all.size();
+		}
+	}
+
+	/**
+	 * Two strings have the same key iff they're {@code equalsIgnoreCase()}
+	 * once trimmed
+	 */
+	static String key(String value) {
+		if ( value == null ) {
+			return null;
+		}
+		final String trimmed = value.trim();
+		final char[] folded = new char[trimmed.length()];
+		for ( int i = 0; i < folded.length; i++ ) {
+			folded[i] = Character.toLowerCase(Character.toUpperCase(trimmed.charAt(i)));
+		}
+		return new String(folded);
+	}
+
+	private static <T> void add(Map<String, List<T>> index, String key, T value) {
+		List<T> bucket = index.get(key);
+		if ( bucket == null ) {
+			bucket = Lists.newArrayListWithCapacity(1);
+			index.put(key, bucket);
+		}
+		bucket.add(value);
+	}
+
+	private static <T> List<T> get(Map<String, List<T>> index, String key) {
+		final List<T> bucket = key == null ? null : index.get(key);
+		return bucket == null ? Collections.<T>emptyList() : bucket;
+	}
+}
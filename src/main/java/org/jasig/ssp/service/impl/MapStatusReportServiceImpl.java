@@ -45,6 +45,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 
@@ -140,8 +144,13 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
         //Organize Plan Courses by term.. Preprocessing this data by term helps with term based matching
 		Map<String,List<MapPlanStatusReportCourse>> planCoursesByTerm = organizePlanCoursesByTerm(planCourses);
 		
-		//Organize Transcript Courses by Term  Preprocessing this data by term helps with term based matching
-		Map<String,List<ExternalStudentTranscriptCourse>> transcriptCoursesByTerm = organizeTranscriptCourseByTerm(transcript);
+		//Index transcript courses, substitutions and overrides up front so matching a plan course is a few lookups
+		//rather than a scan of each of them
+		final MapStatusReportIndexes.Transcript transcriptIndex = new MapStatusReportIndexes.Transcript(transcript);
+		final MapStatusReportIndexes.SubstitutableCourses substitutableCourses =
+				MapStatusReportIndexes.SubstitutableCourses.of(allSubstitutableCourses);
+		final MapStatusReportIndexes.NonCourseEntities nonCourseOverrides =
+				MapStatusReportIndexes.NonCourseEntities.of(nonCourseEntities);
 		
 		Map<String,List<MapStatusReportCourseDetails>> courseReportsByTerm = new HashMap<String,List<MapStatusReportCourseDetails>>();
 
@@ -152,9 +161,9 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
                 if (planCoursesForTerm != null && !planCoursesForTerm.isEmpty()) {
                     courseReportsByTerm.put(term.getCode(),new ArrayList<MapStatusReportCourseDetails>());
                     evaluateTerm(gradesSet, criteriaSet, report,
-                            reportCourseDetails, transcriptCoursesByTerm,
-                            term, planCoursesForTerm,courseReportsByTerm,transcript,allSubstitutableCourses,
-                            reportSubstitutionDetails,nonCourseEntities,reportOverrideDetails,planAndPersonInfo);
+                            reportCourseDetails, transcriptIndex,
+                            term, planCoursesForTerm,courseReportsByTerm,substitutableCourses,
+                            reportSubstitutionDetails,nonCourseOverrides,reportOverrideDetails,planAndPersonInfo);
                 }
             }
 		}
@@ -385,22 +394,23 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
 
 	private void evaluateTerm(Set<String> gradesSet, Set<String> criteriaSet, MapStatusReport report,
                               List<MapStatusReportCourseDetails> reportCourseDetails,
-                              Map<String, List<ExternalStudentTranscriptCourse>> transcriptCoursesByTerm, Term term,
+                              MapStatusReportIndexes.Transcript transcriptIndex, Term term,
                               List<MapPlanStatusReportCourse> planCoursesForTerm,
                               Map<String, List<MapStatusReportCourseDetails>> courseReportsByTerm,
-                              List<ExternalStudentTranscriptCourse> transcript,
-                              Collection<ExternalSubstitutableCourse> allSubstitutableCourses,
+                              MapStatusReportIndexes.SubstitutableCourses allSubstitutableCourses,
                               List<MapStatusReportSubstitutionDetails> reportSubstitutionDetails,
-                              Collection<ExternalStudentTranscriptNonCourseEntity> allNonCourseEntities,
+                              MapStatusReportIndexes.NonCourseEntities allNonCourseEntities,
                               List<MapStatusReportOverrideDetails> reportOverrideDetails,
                               MapStatusReportPerson planAndPersonInfo) {
-		
-		List<ExternalStudentTranscriptCourse> transcriptCoursesForTerm = transcriptCoursesByTerm.get(term.getCode());
 
 		//Iterate through the courses for the term and try to find a match
 		for (MapPlanStatusReportCourse mapPlanStatusReportCourse : planCoursesForTerm) {
+			//Transcript courses in any term which could possibly match, in transcript order
+			final List<ExternalStudentTranscriptCourse> transcript = transcriptIndex.forCourse(mapPlanStatusReportCourse.getFormattedCourse());
+
 			//Try to find term bound match
-			ExternalStudentTranscriptCourse matchedTranscriptCourse = findTranscriptCourseMatch(mapPlanStatusReportCourse,transcriptCoursesForTerm,criteriaSet);
+			ExternalStudentTranscriptCourse matchedTranscriptCourse = findTranscriptCourseMatch(mapPlanStatusReportCourse,
+					transcriptIndex.forTermAndCourse(term.getCode(), mapPlanStatusReportCourse.getFormattedCourse()), criteriaSet);
 
             ExternalStudentTranscriptNonCourseEntity matchedNonCourseOverride = null;
             if (matchedTranscriptCourse == null) {
@@ -426,7 +436,7 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
 
 			if (matchedTranscriptCourse == null && matchedNonCourseOverride == null) {
 				//Third try to find a substitutable course
-				matchedTranscriptCourse = findTranscriptCourseMatchSubstitutableCourse(mapPlanStatusReportCourse, transcript, criteriaSet, allSubstitutableCourses, planAndPersonInfo);
+				matchedTranscriptCourse = findTranscriptCourseMatchSubstitutableCourse(mapPlanStatusReportCourse, transcriptIndex, criteriaSet, allSubstitutableCourses, planAndPersonInfo);
 				if (matchedTranscriptCourse != null) {
 					//If we find a transcript match, it must have a passing grade before we log it
 					if (gradesSet.contains(matchedTranscriptCourse.getGrade().trim())) {
@@ -439,7 +449,7 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
                         }
                     }
 				} else if (mapPlanStatusReportCourse.getOriginalFormattedCourse()!=null) {
-					matchedTranscriptCourse = findTranscriptCourseMatchElectiveCourse(planAndPersonInfo, mapPlanStatusReportCourse, transcript, criteriaSet);
+					matchedTranscriptCourse = findTranscriptCourseMatchElectiveCourse(planAndPersonInfo, mapPlanStatusReportCourse, transcriptIndex, criteriaSet);
 					if (matchedTranscriptCourse != null) {
 						if (gradesSet.contains(matchedTranscriptCourse.getGrade().trim())) {
 							reportSubstitutionDetails.add(createSubstitutionEntry(matchedTranscriptCourse, mapPlanStatusReportCourse, SubstitutionCode.ELECTIVE_COURSE, report));
@@ -500,15 +510,15 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
 
 	private ExternalStudentTranscriptCourse findTranscriptCourseMatchSubstitutableCourse(
 			MapPlanStatusReportCourse mapPlanStatusReportCourse,
-			List<ExternalStudentTranscriptCourse> transcript,
-			Set<String> criteriaSet, Collection<ExternalSubstitutableCourse> allSubstitutableCourses,
+			MapStatusReportIndexes.Transcript transcriptIndex,
+			Set<String> criteriaSet, MapStatusReportIndexes.SubstitutableCourses allSubstitutableCourses,
             MapStatusReportPerson planAndPersonInfo) {
 
-        if (allSubstitutableCourses == null || allSubstitutableCourses.isEmpty()) {
+        if (allSubstitutableCourses.isEmpty()) {
             return null;
         }
 
-        for (ExternalSubstitutableCourse substitutableCourse : allSubstitutableCourses) {
+        for (ExternalSubstitutableCourse substitutableCourse : allSubstitutableCourses.forSourceCourse(mapPlanStatusReportCourse.getFormattedCourse())) {
 			//If term or program code are defined as null as part of the substitution then it's considered term or program unbounded
 			//In otherwords, if term is null it applies to all terms, if program is null is applies to all programs
 			if ((mapPlanStatusReportCourse.getFormattedCourse().trim().equalsIgnoreCase(substitutableCourse.getSourceFormattedCourse().trim()) &&
@@ -521,7 +531,7 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
 				
 			{
 				//if a substitution is found, check to see if the student has taken the target course
-				for (ExternalStudentTranscriptCourse transcriptCourse : transcript) {
+				for (ExternalStudentTranscriptCourse transcriptCourse : transcriptIndex.forCourse(substitutableCourse.getTargetFormattedCourse())) {
 					if( (transcriptCourse.getFormattedCourse().trim().equalsIgnoreCase(substitutableCourse.getTargetFormattedCourse().trim()) &&
 							(!criteriaSet.contains(MapStatusReportServiceImpl.CONFIGURABLE_MATCH_CRITERIA_COURSE_TITLE) || transcriptCourse.getTitle().trim().equalsIgnoreCase(substitutableCourse.getTargetCourseTitle())) &&
 							(!criteriaSet.contains(MapStatusReportServiceImpl.CONFIGURABLE_MATCH_CRITERIA_CREDIT_HOURS) || transcriptCourse.getCreditEarned().equals(substitutableCourse.getTargetCreditHours())) &&
@@ -541,7 +551,7 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
 	private ExternalStudentTranscriptCourse findTranscriptCourseMatchElectiveCourse(
 			MapStatusReportPerson planAndPersonInfo,
 			MapPlanStatusReportCourse mapPlanStatusReportCourse,
-			List<ExternalStudentTranscriptCourse> transcript,
+			MapStatusReportIndexes.Transcript transcript,
 			Set<String> criteriaSet) {
 
 		Plan plan;
@@ -570,9 +580,9 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
 		return null;
 	}
 
-	private ExternalStudentTranscriptCourse findExternalStudentTranscriptCourseForElectiveCourse(List<ExternalStudentTranscriptCourse> transcript, Set<String> criteriaSet,
+	private ExternalStudentTranscriptCourse findExternalStudentTranscriptCourseForElectiveCourse(MapStatusReportIndexes.Transcript transcript, Set<String> criteriaSet,
 																								 String formattedCourse, String courseTitle, BigDecimal creditHours, String courseCode){
-		for (ExternalStudentTranscriptCourse transcriptCourse : transcript) {
+		for (ExternalStudentTranscriptCourse transcriptCourse : transcript.forCourse(formattedCourse)) {
 			if( (transcriptCourse.getFormattedCourse().trim().equalsIgnoreCase(formattedCourse.trim()) &&
 					(!criteriaSet.contains(MapStatusReportServiceImpl.CONFIGURABLE_MATCH_CRITERIA_COURSE_TITLE) || transcriptCourse.getTitle().trim().equalsIgnoreCase(courseTitle)) &&
 					(!criteriaSet.contains(MapStatusReportServiceImpl.CONFIGURABLE_MATCH_CRITERIA_CREDIT_HOURS) || transcriptCourse.getCreditEarned().equals(creditHours)) &&
@@ -753,41 +763,10 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
 	}
 
     private ExternalStudentTranscriptNonCourseEntity findCourseMatchOverrideCourse(String formattedCourse, String termCode,
-                                                                      Collection<ExternalStudentTranscriptNonCourseEntity> allNonCourseEntities) {
-
-        if (allNonCourseEntities == null || allNonCourseEntities.isEmpty()) {
-            return null;
-        }
-
-        for (ExternalStudentTranscriptNonCourseEntity externalStudentTranscriptNonCourseEntity : allNonCourseEntities) {
-
-            if (formattedCourse.trim().equalsIgnoreCase(externalStudentTranscriptNonCourseEntity.getTargetFormattedCourse().trim())
-                     && termCode.trim().equalsIgnoreCase(externalStudentTranscriptNonCourseEntity.getTermCode().trim())) {
-                return externalStudentTranscriptNonCourseEntity;
-            }
-        }
-
-        return null;
+                                                                      MapStatusReportIndexes.NonCourseEntities allNonCourseEntities) {
+        return allNonCourseEntities.forCourseAndTerm(formattedCourse, termCode);
     }
 
-	private Map<String, List<ExternalStudentTranscriptCourse>> organizeTranscriptCourseByTerm(List<ExternalStudentTranscriptCourse> transcriptsBySchoolId) {
-		Map<String, List<ExternalStudentTranscriptCourse>> transcriptCoursesByTerm = new HashMap<String,List<ExternalStudentTranscriptCourse>>();
-
-        for (ExternalStudentTranscriptCourse transcriptCourse:transcriptsBySchoolId) {
-
-            if (transcriptCoursesByTerm.get(transcriptCourse.getTermCode()) == null) {
-				List<ExternalStudentTranscriptCourse> list = new ArrayList<ExternalStudentTranscriptCourse>();
-				list.add(transcriptCourse);
-				transcriptCoursesByTerm.put(transcriptCourse.getTermCode(), list);
-			} else {
-				List<ExternalStudentTranscriptCourse> list = transcriptCoursesByTerm.get(transcriptCourse.getTermCode());
-				list.add(transcriptCourse);
-			}
-		}
-
-		return transcriptCoursesByTerm;
-	}
-
 	private Map<String, List<MapPlanStatusReportCourse>> organizePlanCoursesByTerm(List<MapPlanStatusReportCourse> planCourses) {
 		Map<String, List<MapPlanStatusReportCourse>> planCoursesByTerm = new HashMap<String,List<MapPlanStatusReportCourse>>();
 
@@ -929,7 +908,14 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
 	@Override
 	public Boolean calculateStatusForStudent(UUID personId) throws ObjectNotFoundException, ValidationException {
 
-        deleteAllOldReportsForStudent(personId);
+		//Lightweight query to avoid the potential 'kitchen sink' we would pull out if we fetched the Plan object
+		Plan plan = planService.getCurrentForStudent(personId);
+
+        //If there is no active plan return false
+		if (plan == null) {
+            deleteAllOldReportsForStudent(personId);
+            return false;
+        }
 
 		//Load up our configs
         Set<String> gradesSet = getPassingGrades();
@@ -939,17 +925,17 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
 
 		//Lets figure out our cutoff term
 		Term cutoffTerm = deriveCutoffTerm();
-		
-		//Lightweight query to avoid the potential 'kitchen sink' we would pull out if we fetched the Plan object
-		Plan plan = planService.getCurrentForStudent(personId);
-
-        //If there is no active plan return false
-		if (plan == null) {
-            return false;
-        }
+		List<Term> allTerms = termService.getAll();
 
         final String studentSchoolId = plan.getPerson().getSchoolId();
-		
+
+		// Same bookkeeping as the scheduled calculation so it won't redo this student until something changes again.
+		// Read before the transcript so a concurrent ETL load shows up as a changed watermark next time around.
+		final String transcriptWatermark = getTranscriptWatermark(studentSchoolId);
+		final Date planModifiedDate = plan.getModifiedDate();
+		final String inputsFingerprint = getInputsFingerprint(gradesSet, additionalCriteriaSet, cutoffTerm, allTerms,
+				termBound, useSubstitutableCourses);
+
 		List<ExternalStudentTranscriptCourse> transcript = externalStudentTranscriptCourseService.getTranscriptsBySchoolId(studentSchoolId);
 		
 		Collection<ExternalSubstitutableCourse> allSubstitutableCourses =
@@ -958,16 +944,131 @@ public class MapStatusReportServiceImpl extends AbstractPersonAssocAuditableServ
         Collection<ExternalStudentTranscriptNonCourseEntity> allNonCourseEntities = externalStudentTranscriptNonCourseEntityService.getNonCourseTranscriptsBySchoolId(studentSchoolId);
 		
 		MapStatusReportPerson mapStatusReportPerson = new MapStatusReportPerson(plan.getId(), personId, plan.getPerson().getSchoolId(), plan.getProgramCode(),plan.getCatalogYearCode(), plan.getPerson().getFirstName(), plan.getPerson().getLastName(), plan.getPerson().getCoach().getId(), plan.getOwner().getId());
-		List<Term> allTerms = termService.getAll();
 		
 		MapStatusReport report = evaluatePlan(gradesSet, additionalCriteriaSet, cutoffTerm, allTerms,
                 mapStatusReportPerson, allSubstitutableCourses, allNonCourseEntities, transcript,
                 termBound, useSubstitutableCourses);
-		save(report);
+		report.setPlanModifiedDate(planModifiedDate);
+		report.setTranscriptWatermark(transcriptWatermark);
+		report.setInputsFingerprint(inputsFingerprint);
+
+		// Reports on the student's previous plans are no longer of interest
+		MapStatusReport existing = null;
+		for (MapStatusReport other : dao.getAllForPersonId(personId, null).getRows()) {
+			if (existing == null && plan.getId().equals(other.getPlan().getId())) {
+				existing = other;
+			} else {
+				dao.delete(other);
+			}
+		}
+		saveCalculatedReport(report, existing);
 		
 		return true;
 	}
 
+	@Override
+	public String getInputsFingerprint(Set<String> gradesSet, Set<String> criteriaSet, Term cutoffTerm,
+			List<Term> allTerms, boolean termBound, boolean useSubstitutableCourses) {
+		final StringBuilder inputs = new StringBuilder()
+				.append("grades=").append(new TreeSet<String>(gradesSet))
+				.append(";criteria=").append(new TreeSet<String>(criteriaSet))
+				.append(";cutoff=").append(cutoffTerm.getCode())
+				.append(";termBound=").append(termBound)
+				.append(";anyPassing=").append(configService.getByNameOrDefaultValue(CONFIGURABLE_MATCH_COURSE_ANY_PASSING_COURSE))
+				.append(";substitutable=").append(useSubstitutableCourses ? dao.getSubstitutableCoursesWatermark() : "none");
+
+		// evaluation treats terms which have ended differently, so the passage of time alone can change a status
+		final Date now = new Date();
+		final SortedMap<String, String> terms = new TreeMap<String, String>();
+		for (Term term : allTerms) {
+			terms.put(term.getCode(), term.getStartDate().getTime() + "-" + term.getEndDate().getTime()
+					+ (term.getEndDate().after(now) ? "" : "-ended"));
+		}
+		inputs.append(";terms=").append(terms);
+
+		try {
+			final byte[] digest = MessageDigest.getInstance("MD5").digest(inputs.toString().getBytes(StandardCharsets.UTF_8));
+			return String.format("%032x", new BigInteger(1, digest));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("MD5 not available", e);
+		}
+	}
+
+	@Override
+	public List<UUID> getPlanIdsNeedingCalculation(String inputsFingerprint) {
+		return dao.getPlanIdsNeedingCalculation(inputsFingerprint);
+	}
+
+	@Override
+	public int deleteReportsForInactivePlans() {
+		return dao.deleteReportsForInactivePlans();
+	}
+
+	@Override
+	public int deleteDuplicateReports() {
+		return dao.deleteDuplicateReports();
+	}
+
+	@Override
+	public Map<String, String> getTranscriptWatermarks(Collection<String> schoolIds) {
+		return dao.getTranscriptWatermarksBySchoolIds(schoolIds);
+	}
+
+	private String getTranscriptWatermark(String schoolId) {
+		final String watermark = dao.getTranscriptWatermarksBySchoolIds(Collections.singleton(schoolId)).get(schoolId);
+		return watermark == null ? MapStatusReportDao.NO_TRANSCRIPT_WATERMARK : watermark;
+	}
+
+	@Override
+	public Map<UUID, Date> getPlanModifiedDates(Collection<UUID> planIds) {
+		return dao.getPlanModifiedDates(planIds);
+	}
+
+	@Override
+	public Map<UUID, MapStatusReport> getByPlanIds(Collection<UUID> planIds) {
+		return dao.getByPlanIds(planIds);
+	}
+
+	@Override
+	public MapStatusReport saveCalculatedReport(MapStatusReport calculated, MapStatusReport existing)
+			throws ObjectNotFoundException, ValidationException {
+		if (existing == null) {
+			return save(calculated);
+		}
+
+		existing.setPlanStatus(calculated.getPlanStatus());
+		existing.setPlanNote(calculated.getPlanNote());
+		existing.setPlanRatio(calculated.getPlanRatio());
+		existing.setTotalPlanCourses(calculated.getTotalPlanCourses());
+		existing.setPlanRatioDemerits(calculated.getPlanRatioDemerits());
+		existing.setPlanModifiedDate(calculated.getPlanModifiedDate());
+		existing.setTranscriptWatermark(calculated.getTranscriptWatermark());
+		existing.setInputsFingerprint(calculated.getInputsFingerprint());
+
+		// Details are rewritten wholesale, orphan removal deletes the old ones
+		existing.getCourseDetails().clear();
+		for (MapStatusReportCourseDetails detail : calculated.getCourseDetails()) {
+			detail.setReport(existing);
+			existing.getCourseDetails().add(detail);
+		}
+		existing.getTermDetails().clear();
+		for (MapStatusReportTermDetails detail : calculated.getTermDetails()) {
+			detail.setReport(existing);
+			existing.getTermDetails().add(detail);
+		}
+		existing.getSubstitutionDetails().clear();
+		for (MapStatusReportSubstitutionDetails detail : calculated.getSubstitutionDetails()) {
+			detail.setReport(existing);
+			existing.getSubstitutionDetails().add(detail);
+		}
+		existing.getOverrideDetails().clear();
+		for (MapStatusReportOverrideDetails detail : calculated.getOverrideDetails()) {
+			detail.setReport(existing);
+			existing.getOverrideDetails().add(detail);
+		}
+		return save(existing);
+	}
+
 	private Collection<ExternalSubstitutableCourse> getAllPossibleSubstitutableCoursesForStudent(
 			Plan plan, List<ExternalStudentTranscriptCourse> transcript) {
 		return externalSubstitutableCourseDao.getAllPossibleSubstitutableCoursesForStudent(plan, transcript);
@@ -18,11 +18,15 @@
  */
 package org.jasig.ssp.service.impl;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.jasig.ssp.dao.MapStatusReportDao;
 import org.jasig.ssp.factory.external.ExternalPersonPlanStatusTOFactory;
 import org.jasig.ssp.factory.external.MapStatusReportLiteTOFactory;
 import org.jasig.ssp.model.MapStatusReport;
 import org.jasig.ssp.model.Person;
 import org.jasig.ssp.model.external.ExternalPersonPlanStatus;
+import org.jasig.ssp.model.external.PlanStatus;
 import org.jasig.ssp.service.MapStatusReportService;
 import org.jasig.ssp.service.MapStatusService;
 import org.jasig.ssp.service.ObjectNotFoundException;
@@ -36,6 +40,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -53,6 +60,8 @@ public class MapStatusServiceImpl implements MapStatusService {
     private MapStatusReportLiteTOFactory mapStatusReportLiteTOFactory;
     @Autowired
     private ExternalPersonPlanStatusTOFactory planStatusFactory;
+    @Autowired
+    private MapStatusReportDao mapStatusReportDao;
 
 
     @Override
@@ -87,4 +96,32 @@ public class MapStatusServiceImpl implements MapStatusService {
             return planStatusFactory.from(externalPlanStatus);
         }
     }
+
+    @Override
+    @Transactional(readOnly=true)
+    public Map<UUID, PlanStatus> getPlanStatusesForPeople(Collection<Person> people) {
+        Boolean calcPlanStatus = Boolean.parseBoolean(configService.getByNameEmpty("calculate_map_plan_status").trim().toLowerCase());
+
+        final List<UUID> personIds = Lists.newArrayListWithCapacity(people.size());
+        for ( Person person : people ) {
+            personIds.add(person.getId());
+        }
+        if ( calcPlanStatus ) {
+            return mapStatusReportDao.getPlanStatusesForPersonIds(personIds);
+        }
+
+        final Map<String, UUID> personIdsBySchoolId = Maps.newHashMapWithExpectedSize(people.size());
+        for ( Person person : people ) {
+            personIdsBySchoolId.put(person.getSchoolId(), person.getId());
+        }
+        final Map<UUID, PlanStatus> statuses = Maps.newHashMapWithExpectedSize(people.size());
+        for ( ExternalPersonPlanStatus externalPlanStatus :
+                externalPersonPlanStatusService.getBySchoolIds(Lists.newArrayList(personIdsBySchoolId.keySet())) ) {
+            final UUID personId = personIdsBySchoolId.get(externalPlanStatus.getSchoolId());
+            if ( personId != null && externalPlanStatus.getStatus() != null ) {
+                statuses.put(personId, externalPlanStatus.getStatus());
+            }
+        }
+        return statuses;
+    }
 }
@@ -18,13 +18,15 @@
  */
 package org.jasig.ssp.service.impl; // NOPMD
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.validator.EmailValidator;
 import org.jasig.ssp.dao.MessageDao;
 import org.jasig.ssp.model.AuditPerson;
 import org.jasig.ssp.model.Message;
-import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.Person;
 import org.jasig.ssp.model.SubjectAndBody;
 import org.jasig.ssp.service.MessageService;
@@ -40,29 +42,58 @@ import org.jasig.ssp.util.transaction.WithTransaction;
 import org.jasig.ssp.web.api.validation.ValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
 import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import javax.mail.MessagingException;
 import javax.mail.SendFailedException;
+import javax.mail.Transport;
 import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 import javax.validation.constraints.NotNull;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.UUID;
 import java.util.concurrent.Callable;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
 
 
 /**
@@ -70,12 +101,12 @@ import java.util.concurrent.atomic.AtomicReference;
  * parties.
  */
 @Service
-public class MessageServiceImpl implements MessageService {
-
-	private static final Integer QUEUE_BATCH_SIZE = 25;
+public class MessageServiceImpl implements MessageService, InitializingBean, DisposableBean {
 
 	private static final long INTER_QUEUE_BATCH_SLEEP = 200;
 
+	private static final long SEND_RETRY_SLEEP = 20 * 1000L;
+
 	@Autowired
 	private transient JavaMailSender javaMailSender;
 
@@ -106,6 +137,76 @@ public class MessageServiceImpl implements MessageService {
     @Value("#{configProperties.system_id}")
     private  String systemId = "";
 
+	@Value("#{configProperties.smtp_queue_batch_size}")
+	private transient int queueBatchSize = 100;
+
+	@Value("#{configProperties.smtp_max_connections}")
+	private transient int smtpMaxConnections = 1;
+
+	@Value("#{configProperties.smtp_max_messages_per_second}")
+	private transient int smtpMaxMessagesPerSecond;
+
+	@Value("#{configProperties.message_queue_claim_lease_millis}")
+	private transient long queueClaimLeaseMillis = 600000;
+
+	private final SendThrottle sendThrottle = new SendThrottle();
+
+	// one thread per smtp_max_connections for the bean's lifetime, each of
+	// which holds its own SMTP connection open between batches
+	private ExecutorService senders;
+
+	private final ThreadLocal<Transport> heldTransport = new ThreadLocal<Transport>();
+
+	// every connection held by any sender, so they can all be closed on shutdown
+	private final Set<Transport> heldTransports =
+			Collections.newSetFromMap(new ConcurrentHashMap<Transport, Boolean>());
+
+	private final long startupTime = new Date().getTime();
+
+	// system_id is not necessarily unique per node, so disambiguate claims
+	// made by nodes which happen to share both it and a startup time
+	private final String processInstanceId = UUID.randomUUID().toString();
+
+	private final AtomicLong queueClaimSequence = new AtomicLong();
+
+	@Value("#{configProperties.message_prune_chunk_size}")
+	private transient int pruneChunkSize = 1000;
+
+	@Value("#{configProperties.message_prune_chunk_pause_millis}")
+	private transient long pruneChunkPauseMillis = 200;
+
+	@Value("#{configProperties.message_prune_time_budget_millis}")
+	private transient long pruneTimeBudgetMillis = 1800000;
+
+	@Value("#{configProperties.message_prune_archive_directory}")
+	private transient String pruneArchiveDirectory;
+
+	// in the column order of MessageDao.forEachArchiveRow()
+	private static final String[] ARCHIVE_FIELDS = { "id", "createdDate", "sentDate",
+			"senderId", "recipientId", "recipientEmailAddress", "carbonCopy",
+			"sentToAddresses", "sentCcAddresses", "sentBccAddresses",
+			"sentFromAddress", "sentReplyToAddress", "subject", "body" };
+
+	private static final ObjectWriter ARCHIVE_WRITER = new ObjectMapper().writer();
+
+	@Override
+	public void afterPropertiesSet() {
+		final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("smtp-sender-");
+		threadFactory.setDaemon(true);
+		senders = Executors.newFixedThreadPool(getMaxConnections(), threadFactory);
+	}
+
+	@Override
+	public void destroy() {
+		if ( senders != null ) {
+			senders.shutdownNow();
+		}
+		for ( Transport transport : heldTransports ) {
+			closeQuietly(transport);
+		}
+		heldTransports.clear();
+	}
+
 
 
     /**
@@ -286,14 +387,11 @@ public class MessageServiceImpl implements MessageService {
 			LOGGER.info("Abandoning sendQueuedMessages because of thread interruption");
 		}
 
-		int startRow = 0;
-		final AtomicReference<SortingAndPaging> sap =
-				new AtomicReference<SortingAndPaging>();
-		sap.set(new SortingAndPaging(ObjectStatus.ACTIVE, startRow, QUEUE_BATCH_SIZE,
-				null, null, null));
-		// process each batch in its own transaction... don't want to hold
-		// a single transaction open while processing what is effectively
-		// an unbounded number of messages.
+		// claim, then send, each batch in transactions of their own... don't
+		// want to hold a single transaction open while processing what is
+		// effectively an unbounded number of messages, nor hold row locks
+		// for as long as it takes to talk to the SMTP server. The claim is
+		// what keeps concurrent drains, on this or other nodes, apart.
 		while (true) {
 
 			if ( Thread.currentThread().isInterrupted() ) {
@@ -301,18 +399,26 @@ public class MessageServiceImpl implements MessageService {
 				break;
 			}
 
-			LOGGER.info("Before message queue processing transaction at start row {}",
-					sap.get().getFirstResult());
+			final String claim = newQueueClaim();
+			final int claimedCnt = claimQueuedMessageBatch(claim);
+			if ( claimedCnt == 0 ) {
+				LOGGER.info("Stop message queue processing. No unclaimed"
+						+ " messages are waiting to be sent.");
+				break;
+			}
+
+			LOGGER.info("Before message queue processing transaction for {}"
+					+ " messages claimed as {}", claimedCnt, claim);
 			Pair<PagingWrapper<Message>, Collection<Throwable>> rslt = null;
 
 			try {
 				if ( batchExec == null ) {
-					rslt = sendQueuedMessageBatchInTransaction(sap.get());
+					rslt = sendQueuedMessageBatchInTransaction(claim);
 				} else {
 					rslt = batchExec.exec(new Callable<Pair<PagingWrapper<Message>, Collection<Throwable>>>() {
 						@Override
 						public Pair<PagingWrapper<Message>, Collection<Throwable>> call() throws Exception {
-							return sendQueuedMessageBatchInTransaction(sap.get());
+							return sendQueuedMessageBatchInTransaction(claim);
 						}
 					});
 				}
@@ -327,82 +433,99 @@ public class MessageServiceImpl implements MessageService {
 				break;
 			}
 
-			PagingWrapper<Message> msgsHandled = rslt.getFirst();
-			int msgHandledCnt = msgsHandled.getRows() == null ? 0 : msgsHandled.getRows().size();
-			if ( msgHandledCnt == 0 || msgHandledCnt < QUEUE_BATCH_SIZE ) {
-				LOGGER.info("Stop message queue processing. Transaction at"
-						+ " start row {} processed fewer messages ({}) than"
-						+ " allowed batch size {}.",
-						new Object[] { startRow, msgHandledCnt, QUEUE_BATCH_SIZE });
+			if ( claimedCnt < getQueueBatchSize() ) {
+				LOGGER.info("Stop message queue processing. Claimed fewer"
+						+ " messages ({}) than allowed batch size {}.",
+						claimedCnt, getQueueBatchSize());
 				break;
 			}
 
-			// Are potentially more msgs to handle and we know at least one
-			// msg in the previous batch errored out. go ahead and grab another
-			// full batch. Grabbing a full batch avoids slowdown when enough
-			// errors accumulate to dramatically reduce the number of
-			// *potentially* valid messages in the previous batch.
+			// Failed messages keep their claim until it lapses, so they
+			// won't be claimed again by the next batch. That doubles as the
+			// wait before their next retry.
 			Collection<Throwable> errors = rslt.getSecond();
 			if ( errors != null && !(errors.isEmpty())) {
-				startRow += msgsHandled.getRows().size();
-				sap.set(new SortingAndPaging(ObjectStatus.ACTIVE, startRow,
-						QUEUE_BATCH_SIZE,
-						null, null, null));
-				LOGGER.info("Need to advance past message queue processing errors."
-						+ " Transaction at start row {} processed all {}"
-						+ " messages in a max batch size of {}, but were"
-						+ " errors.",
-						new Object[] { startRow, msgHandledCnt, QUEUE_BATCH_SIZE });
+				LOGGER.info("Message queue processing transaction for claim {}"
+						+ " processed all {} messages in a max batch size of"
+						+ " {}, but there were errors.",
+						new Object[] { claim, claimedCnt, getQueueBatchSize() });
 				// lets not get into an excessively tight email loop
 				maybePauseBetweenQueueBatches();
 			} else {
-				LOGGER.info("Stop message queue processing. Transaction at"
-						+ " start row {} processed all {} messages in a max"
-						+ " batch size of {}, but were zero errors. Waiting for"
-						+ " next scheduled execution before processing"
-						+ " additional messages.",
-						new Object[] { startRow, msgHandledCnt, QUEUE_BATCH_SIZE });
-				break;
+				LOGGER.info("Continue message queue processing. Transaction"
+						+ " for claim {} processed all {} messages in a max"
+						+ " batch size of {} with zero errors.",
+						new Object[] { claim, claimedCnt, getQueueBatchSize() });
 			}
 		}
 
 		LOGGER.info("END : sendQueuedMessages()");
 	}
 
-	private Pair<PagingWrapper<Message>, Collection<Throwable>> sendQueuedMessageBatchInTransaction(final SortingAndPaging sap) {
+	private int claimQueuedMessageBatch(final String claim) {
+		return withTransaction.withTransactionAndUncheckedExceptions(
+				new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						final Date now = new Date();
+						return messageDao.claimQueued(getQueueBatchSize(), claim, now,
+								new Date(now.getTime() + queueClaimLeaseMillis));
+					}
+				});
+	}
+
+	private Pair<PagingWrapper<Message>, Collection<Throwable>> sendQueuedMessageBatchInTransaction(final String claim) {
 		return withTransaction.withTransactionAndUncheckedExceptions(
 				new Callable<Pair<PagingWrapper<Message>, Collection<Throwable>>>() {
 					@Override
 					public Pair<PagingWrapper<Message>, Collection<Throwable>> call()
 							throws Exception {
-						return sendQueuedMessageBatch(sap);
+						return sendQueuedMessageBatch(claim);
 					}
 				});
 	}
 
 	private Pair<PagingWrapper<Message>, Collection<Throwable>>
-	sendQueuedMessageBatch(SortingAndPaging sap) throws UnsupportedEncodingException, ValidationException {
+	sendQueuedMessageBatch(String claim) throws UnsupportedEncodingException, ValidationException {
 		LinkedList<Throwable> errors = Lists.newLinkedList();
-		LOGGER.info("Looking for queued message batch at start row {}, batch size {}",
-				sap.getFirstResult(), sap.getMaxResults());
-		final PagingWrapper<Message> messages = messageDao.queued(sap);
-		LOGGER.info("Start processing {} queued messages in batchstart"
-				+ " row {}, max batch size {}",
-				new Object[] { messages.getRows() == null ? 0 : messages.getRows().size(),
-						sap.getFirstResult(), sap.getMaxResults() });
+		final PagingWrapper<Message> messages =
+				new PagingWrapper<Message>(messageDao.getClaimed(claim));
+		LOGGER.info("Start processing {} queued messages claimed as {}",
+				messages.getRows().size(), claim);
+		// Build every MIME message first, so the whole batch can go out over
+		// as few SMTP sessions as possible
+		final Map<MimeMessage, Message> prepared = new LinkedHashMap<MimeMessage, Message>();
 		for (final Message message : messages ) {
 			if ( Thread.currentThread().isInterrupted() ) {
 				LOGGER.info("Abandoning sendQueuedMessageBatch because of thread interruption");
 				break;
 			}
 			try {
-				sendMessage(message);
+				prepared.put(prepareMimeMessage(message), message);
 			} catch (final ObjectNotFoundException e) {
 				LOGGER.error("Could not load current user or administrator.", e);
 				errors.add(e);
-			} catch (final SendFailedException e) {
+			} catch (final MessagingException e) {
 				LOGGER.error("Could not send queued message.", e);
-				errors.add(e);
+				handleSendMessageError(message);
+				errors.add(new SendFailedException(
+						addMessageIdToError(message) + "The message parameters were invalid.", e));
+			}
+		}
+
+		final Map<MimeMessage, Exception> failures = sendBatch(prepared.keySet());
+		for ( Map.Entry<MimeMessage, Message> entry : prepared.entrySet() ) {
+			final Message message = entry.getValue();
+			final Exception failure = failures.get(entry.getKey());
+			if ( failure == null ) {
+				message.setSentDate(new Date());
+				message.setClaimedBy(null);
+				message.setClaimedUntil(null);
+				save(message);
+			} else {
+				LOGGER.error("Could not send queued message.", failure);
+				handleSendMessageError(message);
+				errors.add(new SendFailedException(addMessageIdToError(message) + "Unable to send message.", failure));
 			}
 		}
 		return new Pair<PagingWrapper<Message>, Collection<Throwable>>(messages, errors);
@@ -464,6 +587,27 @@ public class MessageServiceImpl implements MessageService {
 		LOGGER.info(addMessageIdToError(message) + "Sending message: {}" , message.toString());
 
 		try {
+			send(prepareMimeMessage(message));
+
+			message.setSentDate(new Date());
+			save(message);
+		} catch (final MessagingException e) {
+			LOGGER.error("ERROR : sendMessage() : {}", e);
+			handleSendMessageError(message);
+			throw new SendFailedException(
+					addMessageIdToError(message) + "The message parameters were invalid.", e);
+		}
+
+		LOGGER.info("END : sendMessage()");
+		return true;
+	}
+
+	/**
+	 * Builds the MIME message for the given {@link Message}, recording the
+	 * addresses actually used on the {@code Message} as it goes
+	 */
+	private MimeMessage prepareMimeMessage(final Message message)
+			throws ObjectNotFoundException, MessagingException, UnsupportedEncodingException {
 			final MimeMessage mimeMessage = javaMailSender.createMimeMessage();
 			final MimeMessageHelper mimeMessageHelper = new MimeMessageHelper(
 					mimeMessage);
@@ -552,19 +696,7 @@ public class MessageServiceImpl implements MessageService {
 			mimeMessageHelper.setText(message.getBody());
 			mimeMessage.setContent(message.getBody(), "text/html");
 
-			send(mimeMessage);
-
-			message.setSentDate(new Date());
-			save(message);
-		} catch (final MessagingException e) {
-			LOGGER.error("ERROR : sendMessage() : {}", e);
-			handleSendMessageError(message);
-			throw new SendFailedException(
-					addMessageIdToError(message) + "The message parameters were invalid.", e);
-		}
-
-		LOGGER.info("END : sendMessage()");
-		return true;
+			return mimeMessage;
 	}
 	
 	private void handleSendMessageError(Message message) {
@@ -580,11 +712,12 @@ public class MessageServiceImpl implements MessageService {
 		if (shouldSendMail()) {
 			LOGGER.debug("_ : JavaMailSender.send()");
 			try {
+				sendThrottle.acquire(1, smtpMaxMessagesPerSecond);
 				javaMailSender.send(mimeMessage);
 			} catch (final MailSendException e) {
 				try {
 					LOGGER.warn("Send failed, going to wait and try again");
-					Thread.sleep(20 * 1000L);
+					Thread.sleep(SEND_RETRY_SLEEP);
 					javaMailSender.send(mimeMessage);
 				} catch (final InterruptedException e1) {
 					LOGGER.error("Thread error", e1);
@@ -598,6 +731,260 @@ public class MessageServiceImpl implements MessageService {
 		}
 	}
 	
+	/**
+	 * Sends the given messages split across up to {@code smtp_max_connections}
+	 * sender threads, each of which sends its whole share of the batch over the
+	 * SMTP connection it holds open between batches. Messages which fail are
+	 * retried once, after a pause, same as {@link #send(MimeMessage)}.
+	 *
+	 * @return the messages which could not be sent, with the reason why
+	 */
+	private Map<MimeMessage, Exception> sendBatch(Collection<MimeMessage> mimeMessages) {
+		final Map<MimeMessage, Exception> failures = new HashMap<MimeMessage, Exception>();
+		if ( mimeMessages.isEmpty() ) {
+			return failures;
+		}
+		if ( !(shouldSendMail()) ) {
+			LOGGER.warn("_ : JavaMailSender was not called; {} messages were marked sent but were not actually sent.  To enable mail, update the configuration of the app.",
+					mimeMessages.size());
+			return failures;
+		}
+
+		failures.putAll(sendInParallel(Lists.newArrayList(mimeMessages)));
+		if ( !(failures.isEmpty()) && !(Thread.currentThread().isInterrupted()) ) {
+			LOGGER.warn("Send failed for {} of {} messages, going to wait and try those again",
+					failures.size(), mimeMessages.size());
+			try {
+				Thread.sleep(SEND_RETRY_SLEEP);
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt(); // reassert
+				return failures;
+			}
+			final List<MimeMessage> retries = Lists.newArrayList(failures.keySet());
+			failures.clear();
+			failures.putAll(sendInParallel(retries));
+		}
+		return failures;
+	}
+
+	private Map<MimeMessage, Exception> sendInParallel(List<MimeMessage> mimeMessages) {
+		final int connections = Math.min(getMaxConnections(), mimeMessages.size());
+		final List<List<MimeMessage>> shares = Lists.partition(mimeMessages,
+				(mimeMessages.size() + connections - 1) / connections);
+		final Map<MimeMessage, Exception> failures = new HashMap<MimeMessage, Exception>();
+		if ( senders == null ) {
+			// not initialized as a bean, so no senders to hold connections
+			for ( List<MimeMessage> share : shares ) {
+				failures.putAll(sendOverOneConnection(share));
+			}
+			return failures;
+		}
+
+		final List<Future<Map<MimeMessage, Exception>>> futures = Lists.newArrayListWithCapacity(shares.size());
+		for ( final List<MimeMessage> share : shares ) {
+			try {
+				futures.add(senders.submit(new Callable<Map<MimeMessage, Exception>>() {
+					@Override
+					public Map<MimeMessage, Exception> call() {
+						return sendOverHeldConnection(share);
+					}
+				}));
+			} catch ( RejectedExecutionException e ) {
+				// shutting down
+				for ( MimeMessage mimeMessage : share ) {
+					failures.put(mimeMessage, e);
+				}
+			}
+		}
+		for ( int i = 0; i < futures.size(); i++ ) {
+			try {
+				// never abandon a share half way, or we couldn't tell which of its messages went out
+				failures.putAll(Uninterruptibles.getUninterruptibly(futures.get(i)));
+			} catch ( ExecutionException e ) {
+				final Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				for ( MimeMessage mimeMessage : shares.get(i) ) {
+					failures.put(mimeMessage, cause);
+				}
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Sends over the SMTP connection held by the current sender thread,
+	 * connecting first if it has none or the server has since dropped it. The
+	 * connection settings come from {@link JavaMailSenderImpl}, so any other
+	 * {@link JavaMailSender} gets one session per share instead.
+	 */
+	private Map<MimeMessage, Exception> sendOverHeldConnection(List<MimeMessage> mimeMessages) {
+		if ( !(javaMailSender instanceof JavaMailSenderImpl) ) {
+			return sendOverOneConnection(mimeMessages);
+		}
+		final Map<MimeMessage, Exception> failures = new HashMap<MimeMessage, Exception>();
+		try {
+			sendThrottle.acquire(mimeMessages.size(), smtpMaxMessagesPerSecond);
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt(); // reassert
+			for ( MimeMessage mimeMessage : mimeMessages ) {
+				failures.put(mimeMessage, e);
+			}
+			return failures;
+		}
+
+		Transport transport = getHeldTransport();
+		for ( int i = 0; i < mimeMessages.size(); i++ ) {
+			final MimeMessage mimeMessage = mimeMessages.get(i);
+			if ( transport == null ) {
+				try {
+					transport = connectHeldTransport((JavaMailSenderImpl) javaMailSender);
+				} catch ( MessagingException e ) {
+					// e.g. authentication failure, none of the rest can go out either
+					for ( MimeMessage unsent : mimeMessages.subList(i, mimeMessages.size()) ) {
+						failures.put(unsent, e);
+					}
+					return failures;
+				}
+			}
+			try {
+				prepareForSend(mimeMessage);
+				transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+			} catch ( MessagingException e ) {
+				failures.put(mimeMessage, e);
+				if ( !(transport.isConnected()) ) {
+					releaseHeldTransport(transport);
+					transport = null;
+				}
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Same as {@link JavaMailSenderImpl} does before each send
+	 */
+	private void prepareForSend(MimeMessage mimeMessage) throws MessagingException {
+		if ( mimeMessage.getSentDate() == null ) {
+			mimeMessage.setSentDate(new Date());
+		}
+		final String messageId = mimeMessage.getMessageID();
+		mimeMessage.saveChanges();
+		if ( messageId != null ) {
+			// saveChanges() would otherwise replace it
+			mimeMessage.setHeader("Message-ID", messageId);
+		}
+	}
+
+	private Transport getHeldTransport() {
+		final Transport transport = heldTransport.get();
+		if ( transport != null && !(transport.isConnected()) ) {
+			// e.g. timed out by the server between batches
+			releaseHeldTransport(transport);
+			return null;
+		}
+		return transport;
+	}
+
+	private Transport connectHeldTransport(JavaMailSenderImpl mailSender) throws MessagingException {
+		String protocol = mailSender.getProtocol();
+		if ( protocol == null ) {
+			protocol = mailSender.getSession().getProperty("mail.transport.protocol");
+		}
+		final Transport transport = mailSender.getSession()
+				.getTransport(protocol == null ? JavaMailSenderImpl.DEFAULT_PROTOCOL : protocol);
+		transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(),
+				mailSender.getPassword());
+		heldTransport.set(transport);
+		heldTransports.add(transport);
+		return transport;
+	}
+
+	private void releaseHeldTransport(Transport transport) {
+		heldTransport.remove();
+		heldTransports.remove(transport);
+		closeQuietly(transport);
+	}
+
+	private void closeQuietly(Transport transport) {
+		try {
+			transport.close();
+		} catch ( MessagingException e ) {
+			LOGGER.debug("Failed to close SMTP connection", e);
+		}
+	}
+
+	/**
+	 * One SMTP session for all of the given messages
+	 */
+	private Map<MimeMessage, Exception> sendOverOneConnection(List<MimeMessage> mimeMessages) {
+		final Map<MimeMessage, Exception> failures = new HashMap<MimeMessage, Exception>();
+		try {
+			sendThrottle.acquire(mimeMessages.size(), smtpMaxMessagesPerSecond);
+			javaMailSender.send(mimeMessages.toArray(new MimeMessage[mimeMessages.size()]));
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt(); // reassert
+			for ( MimeMessage mimeMessage : mimeMessages ) {
+				failures.put(mimeMessage, e);
+			}
+		} catch ( MailSendException e ) {
+			// only the listed messages failed, the rest went out over the same session
+			for ( Map.Entry<Object, Exception> failure : e.getFailedMessages().entrySet() ) {
+				failures.put((MimeMessage) failure.getKey(), failure.getValue());
+			}
+			if ( failures.isEmpty() ) {
+				for ( MimeMessage mimeMessage : mimeMessages ) {
+					failures.put(mimeMessage, e);
+				}
+			}
+		} catch ( MailException e ) {
+			// e.g. authentication failure, nothing was sent
+			for ( MimeMessage mimeMessage : mimeMessages ) {
+				failures.put(mimeMessage, e);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Unique per call, so concurrent drains within this process are kept
+	 * apart just like drains on different nodes
+	 */
+	private String newQueueClaim() {
+		return systemId + "-" + startupTime + "." + processInstanceId + "/" + queueClaimSequence.incrementAndGet();
+	}
+
+	private int getQueueBatchSize() {
+		return Math.max(1, queueBatchSize);
+	}
+
+	private int getMaxConnections() {
+		return Math.max(1, smtpMaxConnections);
+	}
+
+	/**
+	 * Spaces sends out evenly so that, across all threads, no more than the
+	 * given number of messages per second go out on average
+	 */
+	private static final class SendThrottle {
+
+		private long nextSendNanos = System.nanoTime();
+
+		void acquire(int messages, int maxMessagesPerSecond) throws InterruptedException {
+			if ( maxMessagesPerSecond <= 0 ) {
+				return;
+			}
+			final long sendAt;
+			synchronized ( this ) {
+				final long now = System.nanoTime();
+				sendAt = Math.max(now, nextSendNanos);
+				nextSendNanos = sendAt + (TimeUnit.SECONDS.toNanos(1) * messages) / maxMessagesPerSecond;
+			}
+			final long waitNanos = sendAt - System.nanoTime();
+			if ( waitNanos > 0 ) {
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			}
+		}
+	}
+
 	private InternetAddress[] getEmailAddresses(List<String> emailAddressses, String type, UUID messageId){
 		List<InternetAddress> validAddresses = new ArrayList<InternetAddress>();
 		for(String emailAddress:emailAddressses){
@@ -688,16 +1075,114 @@ public class MessageServiceImpl implements MessageService {
 		return null;
 	}
 
+	/**
+	 * Archives and prunes messages older than
+	 * <code>mail_age_in_days_limit</code> in chunks, each in a transaction of
+	 * its own, until none remain or the run's time budget is spent.
+	 */
 	@Override
 	public int archiveAndPruneMessages() {
-		Integer messageAgeInDays = Integer.MAX_VALUE;
-		try{
-			 messageAgeInDays = Integer.parseInt(configService.getByNameEmpty("mail_age_in_days_limit"));
-		}
-		catch (Exception e)
-		{
+		final int messageAgeInDays;
+		try {
+			messageAgeInDays = Integer.parseInt(configService.getByNameEmpty("mail_age_in_days_limit").trim());
+		} catch ( Exception e ) {
 			LOGGER.error("Config value 'mail_age_in_days_limit' cannot be parsed into an integer");
+			return 0;
+		}
+		final Calendar cutoff = Calendar.getInstance();
+		cutoff.add(Calendar.DAY_OF_MONTH, messageAgeInDays * -1);
+		final Date createdBefore = cutoff.getTime();
+
+		final long deadline = System.currentTimeMillis() + pruneTimeBudgetMillis;
+		int pruned = 0;
+		while ( true ) {
+			if ( Thread.currentThread().isInterrupted() ) {
+				LOGGER.info("Abandoning message archive and pruning because of thread interruption");
+				break;
+			}
+
+			final int chunkPruned = withTransaction.withNewTransactionAndUncheckedExceptions(
+					new Callable<Integer>() {
+						@Override
+						public Integer call() throws Exception {
+							return archiveAndPruneMessageChunk(createdBefore);
+						}
+					});
+			pruned += chunkPruned;
+
+			if ( chunkPruned < getPruneChunkSize() ) {
+				break;
+			}
+			if ( System.currentTimeMillis() >= deadline ) {
+				LOGGER.info("Message archive and pruning time budget of {} ms spent"
+						+ " after {} messages. The rest will be pruned on the next run.",
+						pruneTimeBudgetMillis, pruned);
+				break;
+			}
+			if ( pruneChunkPauseMillis > 0 ) {
+				try {
+					Thread.sleep(pruneChunkPauseMillis);
+				} catch ( InterruptedException e ) {
+					// reassert
+					Thread.currentThread().interrupt();
+				}
+			}
 		}
-		return messageDao.archiveAndPruneMessages(messageAgeInDays);
+		return pruned;
+	}
+
+	private int archiveAndPruneMessageChunk(Date createdBefore) throws IOException {
+		final List<UUID> ids = messageDao.getPrunableIds(createdBefore, getPruneChunkSize());
+		if ( ids.isEmpty() ) {
+			return 0;
+		}
+		if ( StringUtils.isNotBlank(pruneArchiveDirectory) ) {
+			// before the delete, so a chunk which can't be written out
+			// rolls back rather than being lost
+			appendToArchiveFile(ids);
+		}
+		return messageDao.archiveAndPruneMessages(ids);
+	}
+
+	/**
+	 * Appends the given messages, one JSON object per line, to today's
+	 * archive file as a gzip member of its own, and forces it to disk.
+	 * Concatenated gzip members read back as a single stream.
+	 */
+	private void appendToArchiveFile(List<UUID> ids) throws IOException {
+		final File directory = new File(pruneArchiveDirectory.trim());
+		if ( !(directory.isDirectory()) && !(directory.mkdirs()) ) {
+			throw new IOException("Could not create message archive directory " + directory);
+		}
+		final File file = new File(directory, "message-archive-"
+				+ new SimpleDateFormat("yyyyMMdd").format(new Date()) + ".jsonl.gz");
+
+		final FileOutputStream fileOut = new FileOutputStream(file, true);
+		final GZIPOutputStream gzipOut = new GZIPOutputStream(fileOut);
+		try ( Writer out = new BufferedWriter(new OutputStreamWriter(gzipOut, StandardCharsets.UTF_8)) ) {
+			try {
+				messageDao.forEachArchiveRow(ids, row -> {
+					final Map<String, Object> line = new LinkedHashMap<>();
+					for ( int i = 0; i < ARCHIVE_FIELDS.length; i++ ) {
+						line.put(ARCHIVE_FIELDS[i], row[i]);
+					}
+					try {
+						out.write(ARCHIVE_WRITER.writeValueAsString(line));
+						out.write('\n');
+					} catch ( IOException e ) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch ( UncheckedIOException e ) {
+				throw e.getCause();
+			}
+			out.flush();
+			gzipOut.finish();
+			fileOut.getFD().sync();
+		}
+	}
+
+	private int getPruneChunkSize() {
+		return Math.max(1, pruneChunkSize);
 	}
 }
@@ -59,6 +59,7 @@ import org.jasig.ssp.web.api.validation.ValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
@@ -73,6 +74,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 @Service
 public class PersonEmailServiceImpl implements PersonEmailService {
@@ -118,6 +120,10 @@ public class PersonEmailServiceImpl implements PersonEmailService {
 	@Autowired
 	private transient PlatformTransactionManager transactionManager;
 
+	@Autowired
+	@Qualifier("bulkJobPersonExecutor")
+	private transient ExecutorService bulkJobPersonExecutor;
+
 	@Autowired
 	private transient SecurityService securityService;
 
@@ -419,7 +425,8 @@ public class PersonEmailServiceImpl implements PersonEmailService {
 	private void initBulkEmailJobExecutor() {
 
 		this.bulkEmailJobExecutor =  new AbstractPersonSearchBasedJobExecutor<BulkEmailJobSpec, BulkEmailJobExecutionState>(
-				BULK_EMAIL_JOB_EXECUTOR_NAME, jobService, transactionManager, null, personSearchService, personSearchRequestFactory, configService
+				BULK_EMAIL_JOB_EXECUTOR_NAME, jobService, transactionManager, null, personSearchService, personSearchRequestFactory, configService,
+				personService, bulkJobPersonExecutor
 		) {
 
 			private final Logger logger = LoggerFactory.getLogger(PersonEmailServiceImpl.this.getClass().getName() + ".BulkEmailJobExecutor");
@@ -445,6 +452,17 @@ public class PersonEmailServiceImpl implements PersonEmailService {
 				}
 			}
 
+			@Override
+			protected void runPersonWorker(Runnable worker) {
+				// parallel workers log per person too, so need the same logger as the job thread
+				try {
+					PersonEmailServiceImpl.this.setCurrentLogger(logger);
+					worker.run();
+				} finally {
+					PersonEmailServiceImpl.this.setCurrentLogger(null);
+				}
+			}
+
 			@Override
 			protected void recordSuccessful(ImmutablePersonIdentifiersTO personIds, Map<String, ?> results,
 												 BulkEmailJobSpec executionSpec, BulkEmailJobExecutionState executionState, UUID jobId) {
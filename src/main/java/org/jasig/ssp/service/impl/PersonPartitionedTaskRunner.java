@@ -0,0 +1,321 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.impl;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+
+import com.google.common.collect.Lists;
+import org.hibernate.FlushMode;
+import org.hibernate.SessionFactory;
+import org.jasig.ssp.dao.ScheduledTaskPartitionDao;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.ScheduledApplicationTaskStatus;
+import org.jasig.ssp.model.ScheduledTaskPartition;
+import org.jasig.ssp.service.PersonService;
+import org.jasig.ssp.service.ScheduledTaskWrapperService;
+import org.jasig.ssp.util.CallableExecutor;
+import org.jasig.ssp.util.collections.Pair;
+import org.jasig.ssp.util.transaction.WithTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs a batched task over all active persons as several ID ranges in
+ * parallel, one worker thread per range. Each batch is its own transaction
+ * and checkpoints its range in that same transaction, so an interrupted or
+ * failed run picks up every range where it left off the next time the task
+ * runs. A fresh set of ranges is only planned once every range of the
+ * previous run has finished, or if the number of workers changes.
+ *
+ * <p>Each range is also run under its own cluster sub-lease (see
+ * {@link ScheduledApplicationTaskStatus#subLeaseTaskName(String, int)}), so a
+ * range is never worked on twice at once, even if the task's own lease
+ * moves to another node mid-run.</p>
+ */
+@Service
+public class PersonPartitionedTaskRunner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PersonPartitionedTaskRunner.class);
+
+	public static final int MAX_WORKERS = 16;
+
+	/**
+	 * The per-batch work of a partitioned task.
+	 */
+	public interface PersonBatchWork {
+		/**
+		 * Process one batch. Runs in the batch's transaction, after which the
+		 * batch counts as done.
+		 */
+		void process(List<Person> people) throws Exception;
+	}
+
+	@Autowired
+	private transient PersonService personService;
+
+	@Autowired
+	private transient ScheduledTaskPartitionDao partitionDao;
+
+	@Autowired
+	private transient ScheduledTaskWrapperService scheduledTaskWrapperService;
+
+	@Autowired
+	private transient WithTransaction withTransaction;
+
+	@Autowired
+	private transient SessionFactory sessionFactory;
+
+	/**
+	 * @param taskName name progress is saved under, also the parent of the
+	 *   per-range sub-leases. Typically the task's own lease name.
+	 * @param workers number of ranges, and so of worker threads, for a newly
+	 *   planned run. Capped at {@link #MAX_WORKERS}.
+	 * @param batchSize looked up before every batch so a runaway run can be
+	 *   reined in. Zero or less means unlimited.
+	 * @param maxBatches batches allowed in this execution across all ranges,
+	 *   looked up before every batch. Negative means unlimited, zero stops
+	 *   the run.
+	 * @param batchExec wraps each batch in the task's execution context, may
+	 *   be {@code null}
+	 * @param work the per-batch work
+	 * @return {@code true} if every range is now finished
+	 */
+	public boolean execute(final String taskName, final int workers, final IntSupplier batchSize,
+						   final IntSupplier maxBatches, final CallableExecutor<Pair<Long, Long>> batchExec,
+						   final PersonBatchWork work) {
+
+		final List<ScheduledTaskPartition> partitions =
+				loadOrPlanPartitions(taskName, Math.min(Math.max(workers, 1), MAX_WORKERS));
+		if ( partitions == null ) {
+			return false; // background jobs disabled
+		}
+		final List<ScheduledTaskPartition> unfinished = Lists.newArrayList();
+		for ( ScheduledTaskPartition partition : partitions ) {
+			if ( !(partition.isCompleted()) ) {
+				unfinished.add(partition);
+			}
+		}
+		if ( unfinished.isEmpty() ) {
+			return true;
+		}
+
+		final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(taskName + "-worker-");
+		threadFactory.setDaemon(true);
+		final ExecutorService pool = Executors.newFixedThreadPool(unfinished.size(), threadFactory);
+		final AtomicInteger batchesStarted = new AtomicInteger(0);
+		final List<Future<?>> futures = Lists.newArrayListWithCapacity(unfinished.size());
+		try {
+			for ( final ScheduledTaskPartition partition : unfinished ) {
+				futures.add(pool.submit(new Runnable() {
+					@Override
+					public void run() {
+						scheduledTaskWrapperService.execWithClusterLease(
+								ScheduledApplicationTaskStatus.subLeaseTaskName(taskName, partition.getPartitionIndex()),
+								new Runnable() {
+									@Override
+									public void run() {
+										executePartition(partition, batchSize, maxBatches, batchesStarted,
+												batchExec, work);
+									}
+								});
+					}
+				}));
+			}
+			for ( Future<?> future : futures ) {
+				try {
+					future.get();
+				} catch ( ExecutionException e ) {
+					LOGGER.error("Worker for task [{}] failed", taskName, e.getCause());
+				}
+			}
+		} catch ( InterruptedException e ) {
+			LOGGER.info("Interrupted while waiting for workers of task [{}], stopping them", taskName);
+			for ( Future<?> future : futures ) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt(); // reassert
+			return false;
+		} finally {
+			pool.shutdownNow();
+		}
+
+		// some ranges may have been skipped b/c another node holds their sub-lease
+		final List<ScheduledTaskPartition> afterwards = readPartitions(taskName);
+		if ( afterwards == null ) {
+			return false;
+		}
+		for ( ScheduledTaskPartition partition : afterwards ) {
+			if ( !(partition.isCompleted()) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void executePartition(final ScheduledTaskPartition partition, final IntSupplier batchSize,
+								  final IntSupplier maxBatches, final AtomicInteger batchesStarted,
+								  final CallableExecutor<Pair<Long, Long>> batchExec,
+								  final PersonBatchWork work) {
+		final String taskName = partition.getTaskName();
+		final int index = partition.getPartitionIndex();
+		final AtomicReference<UUID> checkpoint = new AtomicReference<UUID>(partition.getLastProcessedId());
+		long processed = 0;
+
+		LOGGER.info("Task [{}] range [{}] of [{}] starting after [{}]",
+				new Object[] { taskName, index, partition.getPartitionCount(), checkpoint.get() });
+
+		while ( true ) {
+			if ( Thread.currentThread().isInterrupted() ) {
+				LOGGER.info("Abandoning task [{}] range [{}] because of thread interruption."
+						+ " Will resume after [{}] on next execution.", new Object[] { taskName, index, checkpoint.get() });
+				return;
+			}
+
+			// look up every time in case someone wants to abort a long-running execution
+			final int batchesAllowed = maxBatches.getAsInt();
+			if ( batchesAllowed == 0 || (batchesAllowed > 0 && batchesStarted.incrementAndGet() > batchesAllowed) ) {
+				LOGGER.info("No more batches allowed for task [{}] in this execution. Range [{}]"
+						+ " will resume after [{}] on next execution.", new Object[] { taskName, index, checkpoint.get() });
+				return;
+			}
+
+			final int size = batchSize.getAsInt();
+			final AtomicReference<UUID> batchCheckpoint = new AtomicReference<UUID>();
+			final Callable<Pair<Long, Long>> batch = new Callable<Pair<Long, Long>>() {
+				@Override
+				public Pair<Long, Long> call() throws Exception {
+					return withTransaction.withNewTransaction(new Callable<Pair<Long, Long>>() {
+						@Override
+						public Pair<Long, Long> call() throws Exception {
+							sessionFactory.getCurrentSession().setFlushMode(FlushMode.COMMIT);
+							final List<Person> people = personService.getActiveInIdRange(
+									partition.getRangeStart(), checkpoint.get(), partition.getRangeEnd(), size);
+							if ( !(people.isEmpty()) ) {
+								work.process(people);
+							}
+							final boolean rangeDone = size <= 0 || people.size() < size;
+							batchCheckpoint.set(people.isEmpty() ? checkpoint.get() : people.get(people.size() - 1).getId());
+							partitionDao.checkpoint(taskName, index, batchCheckpoint.get(), people.size(),
+									rangeDone ? new Date() : null);
+							return new Pair<Long, Long>((long) people.size(), rangeDone ? 1L : 0L);
+						}
+					});
+				}
+			};
+
+			final Pair<Long, Long> result;
+			try {
+				result = batchExec == null ? batch.call() : batchExec.exec(batch);
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt(); // reassert, logged at top of loop
+				continue;
+			} catch ( Exception e ) {
+				// batch rolled back along with its checkpoint
+				LOGGER.error("Abandoning task [{}] range [{}] because of a processing error."
+						+ " Will resume after [{}] on next execution.",
+						new Object[] { taskName, index, checkpoint.get(), e });
+				return;
+			}
+			if ( result == null ) {
+				LOGGER.info("Abandoning task [{}] range [{}], batch did not run", taskName, index);
+				return;
+			}
+
+			checkpoint.set(batchCheckpoint.get());
+			processed += result.getFirst();
+			if ( result.getSecond() > 0 ) {
+				LOGGER.info("Task [{}] range [{}] finished. Processed [{}] records in this execution.",
+						new Object[] { taskName, index, processed });
+				return;
+			}
+		}
+	}
+
+	private List<ScheduledTaskPartition> loadOrPlanPartitions(final String taskName, final int workers) {
+		return inTaskContext(new Callable<List<ScheduledTaskPartition>>() {
+			@Override
+			public List<ScheduledTaskPartition> call() throws Exception {
+				final List<ScheduledTaskPartition> existing = partitionDao.getPartitions(taskName);
+				boolean resumable = false;
+				for ( ScheduledTaskPartition partition : existing ) {
+					if ( partition.getPartitionCount() != workers ) {
+						resumable = false;
+						break;
+					}
+					resumable |= !(partition.isCompleted());
+				}
+				if ( resumable ) {
+					LOGGER.info("Resuming [{}] ranges of task [{}]", existing.size(), taskName);
+					return existing;
+				}
+				if ( !(existing.isEmpty()) ) {
+					LOGGER.info("Planning new ranges for task [{}]. Previous run finished or"
+							+ " worker count changed.", taskName);
+				}
+
+				final List<UUID> boundaries = personService.getActiveIdPartitionBoundaries(workers);
+				final List<ScheduledTaskPartition> planned = Lists.newArrayListWithCapacity(boundaries.size() + 1);
+				for ( int i = 0; i <= boundaries.size(); i++ ) {
+					final ScheduledTaskPartition partition = new ScheduledTaskPartition();
+					partition.setTaskName(taskName);
+					partition.setPartitionIndex(i);
+					partition.setPartitionCount(workers);
+					partition.setRangeStart(i == 0 ? null : boundaries.get(i - 1));
+					partition.setRangeEnd(i == boundaries.size() ? null : boundaries.get(i));
+					planned.add(partition);
+				}
+				partitionDao.replacePartitions(taskName, planned);
+				return planned;
+			}
+		});
+	}
+
+	private List<ScheduledTaskPartition> readPartitions(final String taskName) {
+		return inTaskContext(new Callable<List<ScheduledTaskPartition>>() {
+			@Override
+			public List<ScheduledTaskPartition> call() throws Exception {
+				return partitionDao.getPartitions(taskName);
+			}
+		});
+	}
+
+	private <T> T inTaskContext(final Callable<T> work) {
+		final AtomicReference<T> resultHolder = new AtomicReference<T>();
+		scheduledTaskWrapperService.execWithTaskContext(null, new Runnable() {
+			@Override
+			public void run() {
+				resultHolder.set(withTransaction.withNewTransactionAndUncheckedExceptions(work));
+			}
+		}, false, null);
+		return resultHolder.get();
+	}
+}
@@ -53,6 +53,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
@@ -63,6 +64,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
 
 /**
  * PersonProgramStatus service implementation
@@ -111,6 +113,10 @@ public class PersonProgramStatusServiceImpl extends AbstractPersonAssocAuditable
 	@Autowired
 	private transient PlatformTransactionManager transactionManager;
 
+	@Autowired
+	@Qualifier("bulkJobPersonExecutor")
+	private transient ExecutorService bulkJobPersonExecutor;
+
 	@Autowired
 	private transient PersonProgramStatusTOFactory personProgramStatusTOFactory;
 
@@ -379,7 +385,8 @@ public class PersonProgramStatusServiceImpl extends AbstractPersonAssocAuditable
 
 	private void initBulkProgramStatusTransitionJobExecutor() {
 		this.bulkJobExecutor = new AbstractPersonSearchBasedJobExecutor<BulkProgramStatusChangeJobSpec, BulkProgramStatusChangeJobExecutionState>(
-				BULK_PROGRAM_STATUS_CHANGE_JOB_EXECUTOR_NAME, jobService, transactionManager, null, personSearchService, personSearchRequestFactory, configService
+				BULK_PROGRAM_STATUS_CHANGE_JOB_EXECUTOR_NAME, jobService, transactionManager, null, personSearchService, personSearchRequestFactory, configService,
+				personService, bulkJobPersonExecutor
 		) {
 			private final Logger logger = LoggerFactory.getLogger(PersonProgramStatusServiceImpl.this.getClass().getName() + ".BulkProgramStatusChangeJobExecutor");
 
@@ -404,6 +411,17 @@ public class PersonProgramStatusServiceImpl extends AbstractPersonAssocAuditable
 				}
 			}
 
+			@Override
+			protected void runPersonWorker(Runnable worker) {
+				// parallel workers log per person too, so need the same logger as the job thread
+				try {
+					PersonProgramStatusServiceImpl.this.setCurrentLogger(logger);
+					worker.run();
+				} finally {
+					PersonProgramStatusServiceImpl.this.setCurrentLogger(null);
+				}
+			}
+
 			@Override
 			protected void recordSuccessful(ImmutablePersonIdentifiersTO personIds, Map<String, ?> results,
 											BulkProgramStatusChangeJobSpec executionSpec,
@@ -38,6 +38,7 @@ import org.jasig.ssp.service.external.ExternalStudentTranscriptService;
 import org.jasig.ssp.service.reference.ProgramStatusService;
 import org.jasig.ssp.transferobject.CaseloadReassignmentRequestTO;
 import org.jasig.ssp.transferobject.CoachPersonLiteTO;
+import org.jasig.ssp.transferobject.ImmutablePersonIdentifiersTO;
 import org.jasig.ssp.transferobject.reports.CaseLoadSearchTO;
 import org.jasig.ssp.util.csvwriter.CaseloadCsvWriterHelper;
 import org.jasig.ssp.util.csvwriter.CustomizableCaseloadCsvWriterHelper;
@@ -367,6 +368,12 @@ public class PersonSearchServiceImpl implements PersonSearchService {
         return directoryPersonDao.searchFull(form);
     }
 
+	@Override
+	@Transactional
+	public List<ImmutablePersonIdentifiersTO> searchPersonDirectoryIdentifiers(PersonSearchRequest form) {
+		return directoryPersonDao.searchIdentifiers(form);
+	}
+
 
 	@Override
 	@Transactional
@@ -342,6 +342,12 @@ public class PersonServiceImpl implements PersonService {
 		return person;
 	}
 
+	@Override
+	public Person get(final UUID id, final String fetchProfile)
+			throws ObjectNotFoundException {
+		return dao.get(id, fetchProfile);
+	}
+
 	@Override
 	public Person load(final UUID id) {
 		return dao.load(id);
@@ -673,6 +679,17 @@ public class PersonServiceImpl implements PersonService {
 		}
 	}
 
+	@Override
+	public List<UUID> getActiveIdPartitionBoundaries(final int partitions) {
+		return dao.getActiveIdPartitionBoundaries(partitions);
+	}
+
+	@Override
+	public List<Person> getActiveInIdRange(final UUID rangeStart, final UUID after, final UUID rangeEnd,
+										   final int maxResults) {
+		return dao.getActiveInIdRange(rangeStart, after, rangeEnd, maxResults);
+	}
+
 	/**
 	 * Used for Specific Report "Address Labels"
 	 */
@@ -18,12 +18,9 @@
  */
 package org.jasig.ssp.service.impl;
 
-import java.util.concurrent.Callable;
-
 import org.jasig.ssp.service.MessageService;
 import org.jasig.ssp.service.PruneMessageQueueTask;
 import org.jasig.ssp.util.CallableExecutor;
-import org.jasig.ssp.util.transaction.WithTransaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,9 +34,6 @@ public class PruneMessageQueueTaskImpl implements PruneMessageQueueTask {
 	
 	@Autowired
 	private MessageService messageService;
-	
-	@Autowired
-	private transient WithTransaction withTransaction;
 
 	@Override
 	public void exec(CallableExecutor<Void> batchExecutor) {
@@ -49,13 +43,8 @@ public class PruneMessageQueueTaskImpl implements PruneMessageQueueTask {
 		}
 
 		try { 
-			Integer result = withTransaction.withNewTransaction(new Callable<Integer>() {
-
-				@Override
-				public Integer call() throws Exception {
-					return messageService.archiveAndPruneMessages();
-				}
-			});
+			// no transaction here, each chunk is committed on its own
+			final int result = messageService.archiveAndPruneMessages();
 			LOGGER.info("{} Messages archived and deleted",result);
 		} catch (Exception e) {
 			LOGGER.error("Error while archiving and pruning message table: {}", e);
@@ -19,6 +19,7 @@
 package org.jasig.ssp.service.impl;
 
 import java.util.Date;
+import java.util.List;
 
 import org.jasig.ssp.dao.AuditableCrudDao;
 import org.jasig.ssp.dao.ScheduledApplicationTaskStatusDao;
@@ -116,7 +117,38 @@ public class ScheduledApplicationTaskStatusServiceImpl extends
 		taskStatus.setTaskName(taskName);
 		return dao.save(taskStatus);
 	}
-	
-	
+
+	@Override
+	public Long acquireLease(String taskName, String owner, long leaseMillis, Date occurrence) {
+		if ( dao.getByTaskName(taskName) == null ) {
+			// if another node races us here, the unique index on task_name
+			// fails this transaction and the caller just tries again later
+			final ScheduledApplicationTaskStatus taskStatus = new ScheduledApplicationTaskStatus();
+			taskStatus.setTaskName(taskName);
+			taskStatus.setStatus(ScheduledTaskStatus.COMPLETED);
+			dao.save(taskStatus);
+		}
+		final Date now = new Date();
+		if ( !(dao.acquireLease(taskName, owner, now, new Date(now.getTime() + leaseMillis), occurrence)) ) {
+			return null;
+		}
+		return dao.getFencingToken(taskName, owner);
+	}
+
+	@Override
+	public boolean renewLease(String taskName, String owner, long fencingToken, long leaseMillis) {
+		return dao.renewLease(taskName, owner, fencingToken, new Date(System.currentTimeMillis() + leaseMillis));
+	}
+
+	@Override
+	public boolean releaseLease(String taskName, String owner, long fencingToken, boolean failed) {
+		return dao.releaseLease(taskName, owner, fencingToken,
+				failed ? ScheduledTaskStatus.FAILED : ScheduledTaskStatus.COMPLETED, new Date());
+	}
+
+	@Override
+	public List<ScheduledApplicationTaskStatus> getAbandonedLeases() {
+		return dao.getAbandonedLeases(new Date());
+	}
 
 }
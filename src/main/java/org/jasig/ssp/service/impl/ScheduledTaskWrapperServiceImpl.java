@@ -26,6 +26,7 @@ import org.hibernate.SessionFactory;
 import org.jasig.portal.api.permissions.Assignment;
 import org.jasig.portal.api.permissions.PermissionsService;
 import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.ScheduledApplicationTaskStatus;
 import org.jasig.ssp.security.SspUser;
 import org.jasig.ssp.security.uportal.UPortalSecurityFilter;
 import org.jasig.ssp.service.*;
@@ -70,12 +71,14 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -107,6 +110,7 @@ public class ScheduledTaskWrapperServiceImpl
 	public static final String BULK_JOB_QUEUE_TASK_NAME = "bulk-job-queue";
 	public static final String SEND_TASK_REMINDERS_TASK_NAME = "send-task-reminders";
 	public static final String SEND_EARLY_ALERT_REMINDERS_TASK_NAME = "send-early-alert-reminders";
+	public static final String PROCESS_EARLY_ALERT_NOTIFICATIONS_TASK_NAME = "process-early-alert-notifications";
     public static final String OAUTH1_CULL_NONCE_TABLE_TASK_NAME = "cull-oauth1-nonces";
 	public static final String SPECIAL_SERVICE_GROUP_COURSE_WITHDRAWAL_TASK_NAME = "special-service-group-course-withdrawal";
     public static final String CALC_SUCCESS_INDICATORS_TASK_NAME = "count-success-indicators";
@@ -181,6 +185,10 @@ public class ScheduledTaskWrapperServiceImpl
     private static final String SEND_MESSAGES_TASK_TRIGGER_CONFIG_NAME = "task_send_messages_trigger";
     private static final String SEND_MESSAGES_TASK_DEFAULT_TRIGGER = EVERY_2_AND_A_HALF_MINUTES;
 
+    private static final String EARLY_ALERT_NOTIFICATIONS_TASK_ID = "task_early_alert_notifications";
+    private static final String EARLY_ALERT_NOTIFICATIONS_TASK_TRIGGER_CONFIG_NAME = "task_early_alert_notifications_trigger";
+    private static final String EARLY_ALERT_NOTIFICATIONS_TASK_DEFAULT_TRIGGER = EVERY_15_SECONDS_WITH_30_SECOND_DELAY;
+
     private static final String SYNC_COACHES_TASK_ID = "task_sync-coaches";
     private static final String SYNC_COACHES_TASK_TRIGGER_CONFIG_NAME = "task_sync-coaches_trigger";
     private static final String SYNC_COACHES_TASK_DEFAULT_TRIGGER = EVERY_5_MINUTES;
@@ -241,6 +249,9 @@ public class ScheduledTaskWrapperServiceImpl
 	@Autowired
 	private transient EarlyAlertService earlyAlertService;
 
+	@Autowired
+	private transient EarlyAlertNotificationService earlyAlertNotificationService;
+
 	@Autowired
 	private transient TaskScheduler taskScheduler;
 
@@ -266,6 +277,14 @@ public class ScheduledTaskWrapperServiceImpl
     @Value("#{configProperties.background_jobs}")
     private boolean backGroundJobsEnabled;
 
+	@Value("#{configProperties.system_id}")
+	private String systemId = "";
+
+	@Value("#{configProperties.scheduled_task_lease_millis}")
+	private long taskLeaseMillis = 120000;
+
+	private final String leaseOwner = UUID.randomUUID().toString();
+
 	private HashMap<String, Task> tasks;
 
 
@@ -422,6 +441,16 @@ public class ScheduledTaskWrapperServiceImpl
                     SEND_MESSAGES_TASK_DEFAULT_TRIGGER,
                     SEND_MESSAGES_TASK_TRIGGER_CONFIG_NAME));
 
+            this.tasks.put(EARLY_ALERT_NOTIFICATIONS_TASK_ID, new Task(EARLY_ALERT_NOTIFICATIONS_TASK_ID,
+                    new Runnable() {
+                        @Override
+                        public void run () {
+                            processEarlyAlertNotifications();
+                        }
+                    },
+                    EARLY_ALERT_NOTIFICATIONS_TASK_DEFAULT_TRIGGER,
+                    EARLY_ALERT_NOTIFICATIONS_TASK_TRIGGER_CONFIG_NAME));
+
             this.tasks.put(SYNC_COACHES_TASK_ID, new Task(SYNC_COACHES_TASK_ID,
                     new Runnable() {
                         @Override
@@ -447,6 +476,15 @@ public class ScheduledTaskWrapperServiceImpl
             // likely to be refused when using java.util.concurrent schedulers
             // under the covers.
             this.tasks.get(SCHEDULER_CONFIG_POLL_TASK_ID).mayInterrupt = false;
+
+            // Config polling manages this node's own schedules, so must run
+            // everywhere. And the bulk job, message and Early Alert
+            // notification queues claim their entries atomically, so every
+            // node can safely drain them concurrently.
+            this.tasks.get(SCHEDULER_CONFIG_POLL_TASK_ID).clusterLeased = false;
+            this.tasks.get(BULK_JOB_QUEUE_TASK_ID).clusterLeased = false;
+            this.tasks.get(SEND_MESSAGES_TASK_ID).clusterLeased = false;
+            this.tasks.get(EARLY_ALERT_NOTIFICATIONS_TASK_ID).clusterLeased = false;
         }
 	}
 
@@ -480,6 +518,44 @@ public class ScheduledTaskWrapperServiceImpl
 	protected synchronized void updateTasksTask() {
 		LOGGER.info("Starting task scheduling updates from within a scheduled job");
 		updateTasks();
+		runAbandonedTasks();
+	}
+
+	/**
+	 * Immediately re-runs any task whose cluster-wide lease lapsed without
+	 * being released, i.e. the node running it most likely died. Without
+	 * this a crashed nightly task wouldn't be retried until its next
+	 * scheduled run. Lease acquisition is atomic, so if several nodes notice
+	 * the same abandoned lease only one of them actually re-runs the task.
+	 */
+	protected void runAbandonedTasks() {
+		final AtomicReference<List<ScheduledApplicationTaskStatus>> abandonedHolder =
+				new AtomicReference<List<ScheduledApplicationTaskStatus>>();
+		try {
+			execWithTaskContext(null, new Runnable() {
+				@Override
+				public void run() {
+					abandonedHolder.set(taskStatusService.getAbandonedLeases());
+				}
+			}, false, null);
+		} catch ( RuntimeException e ) {
+			LOGGER.error("Unable to look up abandoned task leases", e);
+			return;
+		}
+		if ( abandonedHolder.get() == null ) {
+			return;
+		}
+		for ( ScheduledApplicationTaskStatus abandoned : abandonedHolder.get() ) {
+			final Task task = this.tasks.get(abandoned.getTaskName());
+			if ( task == null || !(task.clusterLeased) ) {
+				// sub-leases are recovered by their parent task
+				continue;
+			}
+			LOGGER.warn("Task [{}] lease held by [{}] expired at [{}] without being"
+					+ " released. Re-running task.", new Object[] { task.id,
+					abandoned.getLeaseOwner(), abandoned.getLeaseExpiresDate() });
+			taskScheduler.schedule(withClusterLease(task.id, task.runnable), new Date());
+		}
 	}
 
 	/**
@@ -612,7 +688,12 @@ public class ScheduledTaskWrapperServiceImpl
 		}
 		LOGGER.info("Scheduling task [{}] with trigger expression [{}]",
 				task.id, triggerAndExpression.getFirst());
-		task.execution = taskScheduler.schedule(task.runnable, triggerAndExpression.getSecond());
+		if ( task.clusterLeased ) {
+			final OccurrenceTrackingTrigger trigger = new OccurrenceTrackingTrigger(triggerAndExpression.getSecond());
+			task.execution = taskScheduler.schedule(withClusterLease(task.id, task.runnable, trigger), trigger);
+		} else {
+			task.execution = taskScheduler.schedule(task.runnable, triggerAndExpression.getSecond());
+		}
 		task.executingTriggerExpression = triggerAndExpression.getFirst();
 		task.executingTrigger = triggerAndExpression.getSecond();
 	}
@@ -997,6 +1078,148 @@ public class ScheduledTaskWrapperServiceImpl
 		};
 	}
 
+	/**
+	 * Decorates the given {@code Runnable} such that it only runs if this
+	 * node can take the cluster-wide lease named {@code leaseName}. This is
+	 * what allows every node to have {@code background_jobs} enabled without
+	 * nightly work being duplicated: each node fires the same triggers, but
+	 * only the node which wins the lease does the work.
+	 *
+	 * <p>While the work runs the lease is renewed in the background every
+	 * third of a lease period. If a renewal fails, e.g. because this node
+	 * stalled long enough for another node to take over, the work is
+	 * interrupted. Renewal and release present the fencing token handed
+	 * out on acquisition so a superseded holder can never disturb its
+	 * successor's lease.</p>
+	 *
+	 * @param leaseName
+	 * @param work
+	 * @return
+	 */
+	protected Runnable withClusterLease(final String leaseName, final Runnable work) {
+		return withClusterLease(leaseName, work, null);
+	}
+
+	/**
+	 * Same as {@link #withClusterLease(String, Runnable)} but the work is
+	 * also skipped if some node already started running the trigger
+	 * occurrence most recently scheduled by {@code trigger}. Leases alone
+	 * don't prevent that: a node whose trigger fires a moment late could
+	 * otherwise take the lease as soon as a faster node releases it.
+	 *
+	 * @param leaseName
+	 * @param work
+	 * @param trigger the trigger {@code work} is scheduled with, may be
+	 *   {@code null} to skip the occurrence check
+	 * @return
+	 */
+	protected Runnable withClusterLease(final String leaseName, final Runnable work,
+			final OccurrenceTrackingTrigger trigger) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				final Date occurrence = trigger == null ? null : trigger.getLastScheduledExecutionTime();
+				final Long fencingToken = acquireTaskLease(leaseName, occurrence);
+				if ( fencingToken == null ) {
+					LOGGER.debug("Skipping task [{}] because another node holds its lease"
+							+ " or already ran occurrence [{}]", leaseName, occurrence);
+					return;
+				}
+				final Thread worker = Thread.currentThread();
+				final AtomicBoolean leaseLost = new AtomicBoolean(false);
+				final long renewalPeriod = Math.max(taskLeaseMillis / 3, 1);
+				final ScheduledFuture<?> heartbeat = taskScheduler.scheduleAtFixedRate(new Runnable() {
+					@Override
+					public void run() {
+						if ( leaseLost.get() ) {
+							return;
+						}
+						if ( !(renewTaskLease(leaseName, fencingToken)) && leaseLost.compareAndSet(false, true) ) {
+							LOGGER.error("Lost lease on task [{}] with fencing token [{}]."
+									+ " Interrupting task.", leaseName, fencingToken);
+							worker.interrupt();
+						}
+					}
+				}, new Date(System.currentTimeMillis() + renewalPeriod), renewalPeriod);
+				boolean failed = true;
+				try {
+					work.run();
+					failed = false;
+				} finally {
+					heartbeat.cancel(false);
+					if ( !(leaseLost.get()) ) {
+						releaseTaskLease(leaseName, fencingToken, failed);
+					}
+				}
+			}
+		};
+	}
+
+	@Override
+	public void execWithClusterLease(String leaseName, Runnable work) {
+		if ( !backGroundJobsEnabled ) {
+			return;
+		}
+		withClusterLease(leaseName, work).run();
+	}
+
+	private Long acquireTaskLease(final String leaseName, final Date occurrence) {
+		final AtomicReference<Long> tokenHolder = new AtomicReference<Long>();
+		try {
+			execWithTaskContext(null, new Runnable() {
+				@Override
+				public void run() {
+					tokenHolder.set(taskStatusService.acquireLease(leaseName, getLeaseOwner(), taskLeaseMillis, occurrence));
+				}
+			}, false, null);
+		} catch ( RuntimeException e ) {
+			// most likely lost a race to create the lease record
+			LOGGER.info("Unable to acquire lease on task [{}]", leaseName, e);
+			return null;
+		}
+		return tokenHolder.get();
+	}
+
+	private boolean renewTaskLease(final String leaseName, final long fencingToken) {
+		final AtomicBoolean renewed = new AtomicBoolean(false);
+		try {
+			execWithTaskContext(null, new Runnable() {
+				@Override
+				public void run() {
+					renewed.set(taskStatusService.renewLease(leaseName, getLeaseOwner(), fencingToken, taskLeaseMillis));
+				}
+			}, false, null);
+		} catch ( RuntimeException e ) {
+			// transient db problem. don't give up the work yet, the lease
+			// might well still be valid. if it isn't, a later renewal will
+			// notice.
+			LOGGER.warn("Unable to renew lease on task [{}]", leaseName, e);
+			return true;
+		}
+		return renewed.get();
+	}
+
+	private void releaseTaskLease(final String leaseName, final long fencingToken, final boolean failed) {
+		try {
+			execWithTaskContext(null, new Runnable() {
+				@Override
+				public void run() {
+					if ( !(taskStatusService.releaseLease(leaseName, getLeaseOwner(), fencingToken, failed)) ) {
+						LOGGER.warn("Lease on task [{}] with fencing token [{}] was lost before release",
+								leaseName, fencingToken);
+					}
+				}
+			}, false, null);
+		} catch ( RuntimeException e ) {
+			// lease will just lapse
+			LOGGER.error("Unable to release lease on task [{}]", leaseName, e);
+		}
+	}
+
+	private String getLeaseOwner() {
+		return systemId + "-" + leaseOwner;
+	}
+
     /**
      * Helper method for job scheduling and threading
      * @param taskName
@@ -1363,6 +1586,27 @@ public class ScheduledTaskWrapperServiceImpl
 		});
 	}
 
+    /**
+     * Renders and queues the emails for Early Alerts created while
+     *   early_alert_notifications_async is on. Runs default every 15 seconds,
+     *   but can be scheduled in config.
+     *
+     * Not {@code @Scheduled} b/c its scheduling is now handled by the
+     * config polling job.
+     */
+	@Override
+	public void processEarlyAlertNotifications() {
+		if (!backGroundJobsEnabled) {
+			return;
+		}
+		execWithTaskContext(PROCESS_EARLY_ALERT_NOTIFICATIONS_TASK_NAME, new Runnable() {
+			@Override
+			public void run() {
+				earlyAlertNotificationService.processQueuedNotifications();
+			}
+		});
+	}
+
     /**
      * Removes all nonces that are expired in order to keep the nonce table at a reasonable size
      *
@@ -1412,6 +1656,8 @@ public class ScheduledTaskWrapperServiceImpl
 
 		public boolean mayInterrupt = true;
 
+		public boolean clusterLeased = true;
+
 
 		public Task(String id, Runnable task, String defaultTriggerExpression,
 					String triggerExpressionConfigName) {
@@ -1422,6 +1668,34 @@ public class ScheduledTaskWrapperServiceImpl
 		}
 	}
 
+    /**
+     * Remembers the execution time most recently computed by the decorated
+     * {@link Trigger}. The scheduler computes the next execution time before
+     * scheduling a run, so while a run is in progress this is the time that
+     * run was scheduled for, which is the same on every node.
+     */
+	protected static class OccurrenceTrackingTrigger implements Trigger {
+
+		private final Trigger delegate;
+
+		private volatile Date lastScheduledExecutionTime;
+
+		public OccurrenceTrackingTrigger(Trigger delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Date nextExecutionTime(TriggerContext triggerContext) {
+			final Date next = delegate.nextExecutionTime(triggerContext);
+			lastScheduledExecutionTime = next;
+			return next;
+		}
+
+		public Date getLastScheduledExecutionTime() {
+			return lastScheduledExecutionTime;
+		}
+	}
+
     /**
      * A Disabled Trigger
      */
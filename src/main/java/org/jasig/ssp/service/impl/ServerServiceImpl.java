@@ -31,6 +31,10 @@ import java.util.jar.Manifest;
 import javax.servlet.ServletContext;
 
 import org.apache.commons.lang.StringUtils;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
 import org.jasig.ssp.service.ServerService;
 import org.jasig.ssp.service.reference.ConfigService;
 import org.jasig.ssp.transferobject.jsonserializer.DateOnlyFormatting;
@@ -93,6 +97,9 @@ public class ServerServiceImpl implements ServerService {
 	@Autowired
 	private ConfigService configService;
 
+	@Autowired
+	private transient SessionFactory sessionFactory;
+
 	private Map<String,Object> versionProfile;
 
 	private static final Logger LOGGER = LoggerFactory
@@ -123,6 +130,42 @@ public class ServerServiceImpl implements ServerService {
 		return timeout;
 	}
 	
+	public Map<String,Object> getCacheProfile() {
+		final Statistics stats = sessionFactory.getStatistics();
+		final Map<String,Object> profile = new HashMap<String,Object>();
+		profile.put("statisticsEnabled", stats.isStatisticsEnabled());
+		profile.put("queryCacheHitCount", stats.getQueryCacheHitCount());
+		profile.put("queryCacheMissCount", stats.getQueryCacheMissCount());
+		profile.put("queryCachePutCount", stats.getQueryCachePutCount());
+		final Map<String,Object> regions = new HashMap<String,Object>();
+		for ( String regionName : stats.getSecondLevelCacheRegionNames() ) {
+			final SecondLevelCacheStatistics regionStats =
+					stats.getSecondLevelCacheStatistics(regionName);
+			if ( regionStats == null ) {
+				continue;
+			}
+			final Map<String,Object> region = new HashMap<String,Object>();
+			region.put("hitCount", regionStats.getHitCount());
+			region.put("missCount", regionStats.getMissCount());
+			region.put("putCount", regionStats.getPutCount());
+			region.put("elementCountInMemory", regionStats.getElementCountInMemory());
+			region.put("elementCountOnDisk", regionStats.getElementCountOnDisk());
+			region.put("sizeInMemory", regionStats.getSizeInMemory());
+			regions.put(regionName, region);
+		}
+		profile.put("regions", regions);
+		return profile;
+	}
+
+	public void evictCaches() {
+		final Cache cache = sessionFactory.getCache();
+		cache.evictEntityRegions();
+		cache.evictCollectionRegions();
+		cache.evictDefaultQueryRegion();
+		cache.evictQueryRegions();
+		LOGGER.info("Evicted all second-level cache regions");
+	}
+
     private synchronized void maybeCacheVersionProfile() throws IOException {
 		if ( versionProfile == null ) {
 			cacheVersionProfile();
@@ -18,6 +18,7 @@
  */
 package org.jasig.ssp.service.impl;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
@@ -57,6 +58,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -80,10 +82,13 @@ public class SuccessIndicatorsTaskImpl implements SuccessIndicatorsTask {
     private static final Class<Pair<Long, Long>> BATCH_RETURN_TYPE =
             (Class<Pair<Long, Long>>) new Pair<Long,Long>(null,null).getClass();
 
-    //reusing the external person stuff because it fits and this job should be quicker regardless
-    private static final String BATCH_SIZE_CONFIG_NAME = "task_external_person_sync_batch_size";
+    private static final String BATCH_SIZE_CONFIG_NAME = "task_count_success_indicators_batch_size";
     private static final int DEFAULT_BATCH_SIZE = 100;
-    private static final String MAX_BATCHES_PER_EXECUTION_CONFIG_NAME = "task_external_person_sync_max_batches_per_exec";
+    private static final String MAX_BATCHES_PER_EXECUTION_CONFIG_NAME = "task_count_success_indicators_max_batches_per_exec";
+    private static final String WORKERS_CONFIG_NAME = "task_count_success_indicators_workers";
+    private static final int DEFAULT_WORKERS = 4; // same as the seeded config
+    // same as the task's lease name, so worker sub-leases sit alongside it
+    private static final String PARTITIONED_TASK_NAME = "task_count_success_indicators";
     private static final String EARLY_ALERT_CAMPUS_CODE_CONFIG_NAME = "task_success_indicator_early_alert_campus_code";
     private static final int DEFAULT_MAX_BATCHES_PER_EXECUTION = -1; // unlimited
 
@@ -120,6 +125,9 @@ public class SuccessIndicatorsTaskImpl implements SuccessIndicatorsTask {
     @Autowired
     protected transient SessionFactory sessionFactory;
 
+    @Autowired
+    private transient PersonPartitionedTaskRunner partitionedTaskRunner;
+
     private transient long nextPersonIndex = 0;
     private static Map<String, Pair<Boolean, Boolean>> configuredSuccessIndicatorsByCode;
     private static List<SuccessIndicator> configuredSuccessIndicators;
@@ -154,6 +162,21 @@ public class SuccessIndicatorsTaskImpl implements SuccessIndicatorsTask {
             }
         }
 
+        final int workers = getWorkers();
+        if ( workers > 1 ) {
+            LOGGER.info("BEGIN : Success indicator count/alert task with [{}] workers...", workers);
+            final boolean finished = partitionedTaskRunner.execute(PARTITIONED_TASK_NAME, workers,
+                    this::getBatchSize, this::getMaxBatchesAllowed, batchExec,
+                    new PersonPartitionedTaskRunner.PersonBatchWork() {
+                        @Override
+                        public void process(List<Person> people) throws Exception {
+                            processIndicatorsForPeople(people);
+                        }
+                    });
+            LOGGER.info("END : success indicator count/alert task. All ranges finished: [{}].", finished);
+            return;
+        }
+
         LOGGER.info("BEGIN : Success indicator count/alert task...");
 
         int recordsProcessed = 0;
@@ -326,36 +349,82 @@ public class SuccessIndicatorsTaskImpl implements SuccessIndicatorsTask {
             throw new InterruptedException();
         }
 
-        long peopleCnt = 0;
-        for (final Person person : people) {
-            peopleCnt++;
+        final long peopleCnt = processIndicatorsForPeople(people);
 
-            if (Thread.currentThread().isInterrupted()) {
-                LOGGER.info("Abandoning success indicator count/alert task because of thread interruption on person {}",
-                        person.getSchoolId());
-                throw new InterruptedException();
-            }
+        return new Pair(peopleCnt, people.getResults());
+    }
 
-            LOGGER.debug("Evaluating configured Success Indicators for person schoolId {}", person.getSchoolId());
+    private long processIndicatorsForPeople(final Iterable<Person> people) throws InterruptedException {
+        final List<Person> peopleList = Lists.newArrayList(people);
+        final List<UUID> personIds = Lists.newArrayListWithCapacity(peopleList.size());
+        for (final Person person : peopleList) {
+            personIds.add(person.getId());
+        }
 
-            final List<EvaluatedSuccessIndicatorTO> evaluatedSuccessIndicators =
-                    evaluatedSuccessIndicatorService.getForPerson(person.getId(), ObjectStatus.ALL, configuredSuccessIndicators);
+        if (Thread.currentThread().isInterrupted()) {
+            LOGGER.info("Abandoning success indicator count/alert task because of thread interruption");
+            throw new InterruptedException();
+        }
 
-            if (Thread.currentThread().isInterrupted()) {
-                LOGGER.info("Abandoning success indicator count/alert task because of thread interruption on person {}",
-                        person.getSchoolId());
-                throw new InterruptedException();
+        LOGGER.debug("Evaluating configured Success Indicators for [{}] persons", personIds.size());
+
+        // One set of metric lookups for the whole batch rather than one per person
+        final Map<UUID, List<EvaluatedSuccessIndicatorTO>> evaluatedSuccessIndicatorsByPersonId =
+                evaluatedSuccessIndicatorService.getForPeople(personIds, ObjectStatus.ALL, configuredSuccessIndicators);
+
+        if (Thread.currentThread().isInterrupted()) {
+            LOGGER.info("Abandoning success indicator count/alert task because of thread interruption");
+            throw new InterruptedException();
+        }
+
+        final Map<UUID, Map<UUID, PersonSuccessIndicatorAlert>> existingAlertsByPersonId =
+                Maps.newHashMapWithExpectedSize(personIds.size());
+        for (final PersonSuccessIndicatorAlert alert : personSuccessIndicatorAlertDao.getForPersonIds(personIds)) {
+            Map<UUID, PersonSuccessIndicatorAlert> alertsByIndicatorId = existingAlertsByPersonId.get(alert.getPerson().getId());
+            if (alertsByIndicatorId == null) {
+                alertsByIndicatorId = Maps.newHashMap();
+                existingAlertsByPersonId.put(alert.getPerson().getId(), alertsByIndicatorId);
             }
+            alertsByIndicatorId.put(alert.getSuccessIndicator().getId(), alert);
+        }
 
+        final List<UUID> countedPersonIds = Lists.newArrayListWithCapacity(personIds.size());
+        final List<PersonSuccessIndicatorCount> counts = Lists.newArrayListWithCapacity(personIds.size());
+        final List<PersonSuccessIndicatorAlert> alertsToSave = Lists.newArrayList();
+        final List<PersonSuccessIndicatorAlert> alertsToDelete = Lists.newArrayList();
+        for (final Person person : peopleList) {
+            final List<EvaluatedSuccessIndicatorTO> evaluatedSuccessIndicators =
+                    evaluatedSuccessIndicatorsByPersonId.get(person.getId());
             if (CollectionUtils.isNotEmpty(evaluatedSuccessIndicators)) {
-                processEvaluatedIndicators(person, evaluatedSuccessIndicators);
+                final Map<UUID, PersonSuccessIndicatorAlert> existingAlerts = existingAlertsByPersonId.get(person.getId());
+                counts.add(processEvaluatedIndicators(person, evaluatedSuccessIndicators,
+                        existingAlerts == null ? Collections.<UUID, PersonSuccessIndicatorAlert>emptyMap() : existingAlerts,
+                        alertsToSave, alertsToDelete));
+                countedPersonIds.add(person.getId());
             } else {
                 LOGGER.debug("Error in indicator count/alert task because no evaluated success indicators returned for person: {}",
                         person.getSchoolId());
             }
         }
 
-        return new Pair(peopleCnt, people.getResults());
+        //save results. for ease at this time delete all existing counts and insert fresh ones
+        personSuccessIndicatorCountDao.deleteAllSuccessIndicatorCountsForPersonIds(countedPersonIds);
+        personSuccessIndicatorCountDao.saveAll(counts);
+        personSuccessIndicatorAlertDao.saveAndDeleteAll(alertsToSave, alertsToDelete);
+
+        return peopleList.size();
+    }
+
+    private int getWorkers() {
+        String workersStr = configService.getByNameNullOrDefaultValue(WORKERS_CONFIG_NAME);
+        int workers = DEFAULT_WORKERS;
+        try {
+            workers = Integer.parseInt(workersStr);
+        } catch ( NumberFormatException e ) {
+            LOGGER.info("Failed to parse [{}] config [{}] to an integer. Falling"
+                    + " back to [{}].", new Object[]{WORKERS_CONFIG_NAME, workersStr, workers});
+        }
+        return workers;
     }
 
     private int getMaxBatchesAllowed() {
@@ -399,15 +468,19 @@ public class SuccessIndicatorsTaskImpl implements SuccessIndicatorsTask {
     }
 
     /**
-     * Loop through evaluated success indicators for person and store count and/or generate alert depending on config
+     * Loop through evaluated success indicators for person and build their count and/or generate alerts depending
+     * on config. Writes are left to the caller so they can be batched across persons.
      */
-    private void processEvaluatedIndicators(final Person person,
-                                            final List<EvaluatedSuccessIndicatorTO> evaluatedSuccessIndicators) {
+    private PersonSuccessIndicatorCount processEvaluatedIndicators(final Person person,
+                                            final List<EvaluatedSuccessIndicatorTO> evaluatedSuccessIndicators,
+                                            final Map<UUID, PersonSuccessIndicatorAlert> existingAlerts,
+                                            final List<PersonSuccessIndicatorAlert> alertsToSave,
+                                            final List<PersonSuccessIndicatorAlert> alertsToDelete) {
         int lowCount = 0;
         int medCount = 0;
         int highCount = 0;
         int lowCountsAlertedOn = 0;
-        Map<UUID, Boolean> lowMap = getPersonSuccessIndicatorAlertMap(person);
+        Map<UUID, Boolean> lowMap = getPersonSuccessIndicatorAlertMap(existingAlerts);
 
         for (final EvaluatedSuccessIndicatorTO evaluatedIndicator : evaluatedSuccessIndicators) {
             if (configuredSuccessIndicatorsByCode.containsKey(evaluatedIndicator.getIndicatorCode())) {
@@ -453,24 +526,22 @@ public class SuccessIndicatorsTaskImpl implements SuccessIndicatorsTask {
             }
         }
 
-        //save results
-        personSuccessIndicatorCountDao.deleteAllSuccessIndicatorCountsForPerson(person.getId()); //for ease at this time delete all existing and flush
         final PersonSuccessIndicatorCount countResult = new PersonSuccessIndicatorCount();
         countResult.setPerson(person);
         countResult.setLowCount(lowCount);
         countResult.setMediumCount(medCount);
         countResult.setHighCount(highCount);
         countResult.setLowAlertCount(lowCountsAlertedOn);
-        personSuccessIndicatorCountDao.save(countResult); //save the new or updated count
 
-        processEarlyAlert(person, lowMap);
+        processEarlyAlert(person, lowMap, existingAlerts, alertsToSave, alertsToDelete);
 
+        return countResult;
     } //end processEvaluatedSuccessIndicators
 
-    private Map<UUID, Boolean> getPersonSuccessIndicatorAlertMap (Person person) {
+    private Map<UUID, Boolean> getPersonSuccessIndicatorAlertMap (Map<UUID, PersonSuccessIndicatorAlert> existingAlerts) {
         Map<UUID, Boolean> map = new HashMap<>();
-        for (PersonSuccessIndicatorAlert personSuccessIndicatorAlert: personSuccessIndicatorAlertDao.get(person)) {
-            map.put(personSuccessIndicatorAlert.getSuccessIndicator().getId(), new Boolean(false));
+        for (UUID successIndicatorId : existingAlerts.keySet()) {
+            map.put(successIndicatorId, new Boolean(false));
         }
         return map;
     }
@@ -479,25 +550,34 @@ public class SuccessIndicatorsTaskImpl implements SuccessIndicatorsTask {
         map.put(id, new Boolean(true));
     }
 
-    private void processEarlyAlert(Person person, Map<UUID, Boolean> map) {
+    private void processEarlyAlert(Person person, Map<UUID, Boolean> map,
+                                   Map<UUID, PersonSuccessIndicatorAlert> existingAlerts,
+                                   List<PersonSuccessIndicatorAlert> alertsToSave,
+                                   List<PersonSuccessIndicatorAlert> alertsToDelete) {
         for (UUID id : map.keySet()) {
-            SuccessIndicator successIndicator = getSuccessIndicator(id);
-            PersonSuccessIndicatorAlert personSuccessIndicatorAlert = personSuccessIndicatorAlertDao.get(person, successIndicator);
+            PersonSuccessIndicatorAlert personSuccessIndicatorAlert = existingAlerts.get(id);
             Boolean hasLowSuccessInd = map.get(id);
             if (hasLowSuccessInd && personSuccessIndicatorAlert == null) {
+                SuccessIndicator successIndicator = getSuccessIndicator(id);
                 if (createEarlyAlert(person, successIndicator)) {
                     personSuccessIndicatorAlert = new PersonSuccessIndicatorAlert();
                     personSuccessIndicatorAlert.setPerson(person);
                     personSuccessIndicatorAlert.setSuccessIndicator(successIndicator);
-                    personSuccessIndicatorAlertDao.save(personSuccessIndicatorAlert);
+                    alertsToSave.add(personSuccessIndicatorAlert);
                 }
             } else if (!hasLowSuccessInd) {
-                personSuccessIndicatorAlertDao.delete(personSuccessIndicatorAlert);
+                alertsToDelete.add(personSuccessIndicatorAlert);
             }
         }
     }
 
     private SuccessIndicator getSuccessIndicator (UUID id) {
+        // usually one of the configured indicators, which saves a lookup per alert
+        for (SuccessIndicator configured : configuredSuccessIndicators) {
+            if (id.equals(configured.getId())) {
+                return configured;
+            }
+        }
         try {
             return successIndicatorService.get(id);
         } catch (ObjectNotFoundException onfe) {
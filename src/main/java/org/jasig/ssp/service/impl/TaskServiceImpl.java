@@ -19,9 +19,12 @@
 package org.jasig.ssp.service.impl; // NOPMD
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -411,7 +414,11 @@ public class TaskServiceImpl
 			final Integer now = DateTimeUtils.daysSince1900(new Date());
 
 			final List<Task> tasks = getAllWhichNeedRemindersSent(sAndP);
+			final boolean digest = isTaskReminderDigestEnabled();
 
+			// reminders due this run, by student, in task order
+			final Map<UUID, List<Pair<Task, Integer>>> remindersByStudent =
+					new LinkedHashMap<UUID, List<Pair<Task, Integer>>>();
 			for (final Task task : tasks) {
 
 				if ( Thread.currentThread().isInterrupted() ) {
@@ -422,12 +429,33 @@ public class TaskServiceImpl
 				
 				for(Integer daysBefore:getNumberOfDaysPriorForTaskReminder()){
 					if(daysBefore.equals(dueDate - now) && !messageSent(task, daysBefore)) {
-						sendReminderMessage(task, daysBefore);
+						if ( digest ) {
+							List<Pair<Task, Integer>> reminders = remindersByStudent.get(task.getPerson().getId());
+							if ( reminders == null ) {
+								reminders = Lists.newArrayList();
+								remindersByStudent.put(task.getPerson().getId(), reminders);
+							}
+							reminders.add(new Pair<Task, Integer>(task, daysBefore));
+						} else {
+							sendReminderMessage(task, daysBefore);
+						}
 						break;
 					}
 				}				
 			}
 
+			for (final List<Pair<Task, Integer>> reminders : remindersByStudent.values()) {
+				if ( Thread.currentThread().isInterrupted() ) {
+					LOGGER.info("Abandoning sendAllTaskReminderNotifications because of thread interruption");
+					break;
+				}
+				if ( reminders.size() == 1 ) {
+					sendReminderMessage(reminders.get(0).getFirst(), reminders.get(0).getSecond());
+				} else {
+					sendReminderDigestMessage(reminders);
+				}
+			}
+
 		} catch (final Exception e) {
 			LOGGER.error("ERROR : sendTaskReminderNotifications() : {}",
 					e.getMessage(), e);
@@ -468,6 +496,38 @@ public class TaskServiceImpl
 		taskMessageSentService.save(new TaskMessageEnqueue(task, message, daysBefore));
 
 	}
+
+	/**
+	 * One message reminding a student of all the given tasks, recorded
+	 * against each of them just as if it had been sent individually
+	 */
+	private void sendReminderDigestMessage(final List<Pair<Task, Integer>> reminders)
+			throws SendFailedException, ObjectNotFoundException, ValidationException {
+
+		final Person student = reminders.get(0).getFirst().getPerson();
+		final Map<UUID, Person> creators = new HashMap<UUID, Person>();
+		final List<TaskMessageTemplateTO> taskTOs = Lists.newArrayListWithCapacity(reminders.size());
+		for (final Pair<Task, Integer> reminder : reminders) {
+			final UUID creatorId = reminder.getFirst().getCreatedBy().getId();
+			if ( !(creators.containsKey(creatorId)) ) {
+				creators.put(creatorId, personService.get(creatorId));
+			}
+			taskTOs.add(new TaskMessageTemplateTO(reminder.getFirst(), creators.get(creatorId)));
+		}
+
+		final SubjectAndBody subjAndBody = messageTemplateService
+				.createTaskReminderDigestMessage(student, taskTOs);
+		final Message message = messageService.createMessage(student, null,
+				subjAndBody);
+
+		for (final Pair<Task, Integer> reminder : reminders) {
+			taskMessageSentService.save(new TaskMessageEnqueue(reminder.getFirst(), message, reminder.getSecond()));
+		}
+	}
+
+	private boolean isTaskReminderDigestEnabled() {
+		return Boolean.parseBoolean(configService.getByNameEmpty("task_reminder_digest_enabled").trim());
+	}
 	
 	
 
@@ -487,6 +547,11 @@ public class TaskServiceImpl
 		return dao.getOpenVsClosedTaskCountsForPerson(person);
 	}
 
+	@Override
+	public Map<UUID, Pair<Long, Long>> getOpenVsClosedTaskCountsForPersonIds(Collection<UUID> personIds) {
+		return dao.getOpenVsClosedTaskCountsForPersonIds(personIds);
+	}
+
 	@Override
 	public PagingWrapper<EntityStudentCountByCoachTO> getStudentTaskCountForCoaches(EntityCountByCoachSearchForm form) {
 		return dao.getStudentTaskCountForCoaches(form);
@@ -59,12 +59,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 
 
 /**
@@ -107,6 +109,9 @@ public class WatchStudentServiceImpl
 	private transient ConfigService configService;
 	@Autowired
 	private transient PlatformTransactionManager transactionManager;
+	@Autowired
+	@Qualifier("bulkJobPersonExecutor")
+	private transient ExecutorService bulkJobPersonExecutor;
 
 	private static class BulkWatchChangeJobExecutionState extends BasePersonSearchBasedJobExecutionState {
 		public int personsSkippedCount; // b/c they're external or already have the requested status
@@ -263,7 +268,8 @@ public class WatchStudentServiceImpl
 
 	private void initBulkWatchChangeJobExecutor() {
 		this.bulkJobExecutor = new AbstractPersonSearchBasedJobExecutor<BulkWatchChangeJobSpec, BulkWatchChangeJobExecutionState>(
-				BULK_WATCH_CHANGE_JOB_EXECUTOR_NAME, jobService, transactionManager, null, personSearchService, personSearchRequestFactory, configService
+				BULK_WATCH_CHANGE_JOB_EXECUTOR_NAME, jobService, transactionManager, null, personSearchService, personSearchRequestFactory, configService,
+				personService, bulkJobPersonExecutor
 		) {
 			private final Logger logger = LoggerFactory.getLogger(WatchStudentServiceImpl.this.getClass().getName() + ".BulkWatchChangeJobExecutor");
 
@@ -288,6 +294,17 @@ public class WatchStudentServiceImpl
 				}
 			}
 
+			@Override
+			protected void runPersonWorker(Runnable worker) {
+				// parallel workers log per person too, so need the same logger as the job thread
+				try {
+					WatchStudentServiceImpl.this.setCurrentLogger(logger);
+					worker.run();
+				} finally {
+					WatchStudentServiceImpl.this.setCurrentLogger(null);
+				}
+			}
+
 			@Override
 			protected void recordSuccessful(ImmutablePersonIdentifiersTO personIds, Map<String, ?> results,
 											BulkWatchChangeJobSpec executionSpec,
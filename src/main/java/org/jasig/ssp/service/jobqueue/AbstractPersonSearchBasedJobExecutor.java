@@ -21,23 +21,37 @@ package org.jasig.ssp.service.jobqueue;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.apache.commons.lang.StringUtils;
 import org.jasig.ssp.factory.PersonSearchRequestTOFactory;
 import org.jasig.ssp.model.PersonSearchRequest;
 import org.jasig.ssp.model.PersonSearchResult2;
 import org.jasig.ssp.service.ObjectNotFoundException;
 import org.jasig.ssp.service.PersonSearchService;
+import org.jasig.ssp.service.PersonService;
 import org.jasig.ssp.service.reference.ConfigService;
+import org.jasig.ssp.util.exception.RuntimeIoException;
 import org.jasig.ssp.transferobject.ImmutablePersonIdentifiersTO;
 import org.jasig.ssp.transferobject.form.HasPersonSearchRequestCoreSpec;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortingAndPaging;
 import org.jasig.ssp.web.api.validation.ValidationException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
 /**
@@ -50,19 +64,55 @@ import java.util.UUID;
 public abstract class AbstractPersonSearchBasedJobExecutor<P extends HasPersonSearchRequestCoreSpec,T extends BasePersonSearchBasedJobExecutionState>
 		extends AbstractJobExecutor<P,T> {
 
+	/**
+	 * Upper bound on {@link BasePersonSearchBasedJobExecutionState#parallelism}, whatever is configured.
+	 */
+	public static final int MAX_PERSON_PARALLELISM = 16;
+
+	/**
+	 * Parallelism for new jobs if {@link #getParallelismConfigName()} isn't configured. Same as the value seeded
+	 * for {@link #BULK_JOB_PARALLELISM_CONFIG_NAME}.
+	 */
+	public static final int DEFAULT_PERSON_PARALLELISM = 4;
+
+	public static final String BULK_JOB_PARALLELISM_CONFIG_NAME = "bulk_job_person_parallelism";
+
 	private PersonSearchService personSearchService;
 	private PersonSearchRequestTOFactory personSearchRequestFactory;
 	private final ConfigService configService;
+	private PersonService personService;
+	private ExecutorService personExecutor;
 
 	public AbstractPersonSearchBasedJobExecutor(String name, JobService jobService, PlatformTransactionManager transactionManager,
 												ObjectMapper objectMapper,
 												PersonSearchService personSearchService,
 												PersonSearchRequestTOFactory personSearchRequestFactory,
 												ConfigService configService) {
+		this(name, jobService, transactionManager, objectMapper, personSearchService, personSearchRequestFactory,
+				configService, null, null);
+	}
+
+	/**
+	 * @param personService if not {@code null}, used by the default {@link #prefetchTargets(List, HasPersonSearchRequestCoreSpec, BasePersonSearchBasedJobExecutionState, UUID)}
+	 *                      to load each page's {@code Person}s with a single query
+	 * @param personExecutor threads to work on persons with when a job's
+	 *                       {@link BasePersonSearchBasedJobExecutionState#parallelism} is more than 1. Typically
+	 *                       shared by every job on this node, which bounds the number of connections they hold.
+	 *                       If {@code null}, pages are always processed serially.
+	 */
+	public AbstractPersonSearchBasedJobExecutor(String name, JobService jobService, PlatformTransactionManager transactionManager,
+												ObjectMapper objectMapper,
+												PersonSearchService personSearchService,
+												PersonSearchRequestTOFactory personSearchRequestFactory,
+												ConfigService configService,
+												PersonService personService,
+												ExecutorService personExecutor) {
 		super(name,jobService,transactionManager,objectMapper);
 		this.personSearchService = personSearchService;
 		this.personSearchRequestFactory = personSearchRequestFactory;
 		this.configService = configService;
+		this.personService = personService;
+		this.personExecutor = personExecutor;
 	}
 
 	/**
@@ -85,6 +135,7 @@ public abstract class AbstractPersonSearchBasedJobExecutor<P extends HasPersonSe
 			}
 
 			if ( executionState.allPagesProcessed && executionState.retryQueue.isEmpty() ) {
+				// snapshot, if any, is discarded by the JobService when it marks the job terminated
 				logCompletion(executionState, jobId);
 				return new JobExecutionResult<T>(JobExecutionStatus.DONE, executionState, null);
 			}
@@ -129,84 +180,359 @@ public abstract class AbstractPersonSearchBasedJobExecutor<P extends HasPersonSe
 					}
 				}
 
+			} else if ( executionState.snapshotTargets ) {
+				return executeSnapshotChunk(executionSpec, executionState, jobId);
 			} else {
+				return executeSearchPage(executionSpec, executionState, jobId);
+			}
 
-				final PersonSearchRequest criteria = personSearchRequestFactory.from(executionSpec.getCoreSpec().getCriteria());
-				final SortingAndPaging origSortAndPage = criteria.getSortAndPage();
-				final SortingAndPaging nextSortAndPage;
-				int page = 1;
-				if ( executionState.prevPage != null ) {
-					page = executionState.prevPage + 1;
-				}
+		} catch ( Exception e ) {
+			return new JobExecutionResult<T>(JobExecutionStatus.ERROR, executionState, e);
+		}
+	}
 
-				logProgress("Processing result page [{}] (max page size: [{}]) in Job [{}].",
-						new Object[]{page, executionState.pageSize, jobId});
-
-				nextSortAndPage = new SortingAndPaging(origSortAndPage.getStatus(), (page - 1) * executionState.pageSize,
-						executionState.pageSize, origSortAndPage.getSortFields(), origSortAndPage.getDefaultSortProperty(),
-						origSortAndPage.getDefaultSortDirection());
-				criteria.setSortAndPage(nextSortAndPage);
-
-				final PagingWrapper<PersonSearchResult2> searchResults = personSearchService.searchPersonDirectory(criteria);
-				if ( searchResults == null || searchResults.getResults() == 0L ) {
-					logProgress("No results on page [{}] (max page size: [{}]) in Job [{}].",
-							new Object[]{page, executionState.pageSize, jobId});
-					executionState.prevPage = page;
-					executionState.allPagesProcessed = true;
-					// always return partial within this logic tree to ensure centralized completion logic at the top
-					// of this method, i.e. let the job run us again to see if we're *really* done.
-					return new JobExecutionResult<T>(JobExecutionStatus.PARTIAL, executionState, null);
-				} else {
+	/**
+	 * Works through the next chunk of the person snapshot captured for this job, capturing it first if that hasn't
+	 * happened yet. The search itself runs exactly once per job, so later chunks cost no more than the first and
+	 * aren't affected by students entering or leaving the search results while the job runs.
+	 */
+	private JobExecutionResult<T> executeSnapshotChunk(P executionSpec, T executionState, UUID jobId)
+			throws ObjectNotFoundException, InterruptedException {
+		if ( !(executionState.snapshotTaken) ) {
+			final PersonSearchRequest criteria = personSearchRequestFactory.from(executionSpec.getCoreSpec().getCriteria());
+			final List<ImmutablePersonIdentifiersTO> targets = personSearchService.searchPersonDirectoryIdentifiers(criteria);
+			getJobService().saveTargets(jobId, targets);
+			executionState.snapshotTaken = true;
+			executionState.snapshotSize = targets.size();
+			executionState.allPagesProcessed = targets.isEmpty();
+			logProgress("Captured [{}] persons to process in Job [{}].", new Object[] { targets.size(), jobId });
+			// always return partial within this logic tree to ensure centralized completion logic at the top
+			// of executeJobDeserialized()
+			return new JobExecutionResult<T>(JobExecutionStatus.PARTIAL, executionState, null);
+		}
 
-					logProgress("Processing [{}] persons on page [{}] (max page size: [{}], total persons: [{}]) in Job [{}].",
-							new Object[]{searchResults.getRows().size(), page, executionState.pageSize, searchResults.getResults(), jobId});
+		int page = 1;
+		if ( executionState.prevPage != null ) {
+			page = executionState.prevPage + 1;
+		}
+		logProgress("Processing snapshot chunk [{}] (max chunk size: [{}]) in Job [{}].",
+				new Object[]{page, executionState.pageSize, jobId});
+
+		final int firstTargetIndex = executionState.nextTargetIndex;
+		final List<ImmutablePersonIdentifiersTO> targetPersonIdentifiers =
+				getJobService().getTargets(jobId, firstTargetIndex, executionState.pageSize);
+		executionState.prevPage = page;
+		executionState.nextTargetIndex += targetPersonIdentifiers.size();
+		executionState.allPagesProcessed = targetPersonIdentifiers.isEmpty()
+				|| executionState.nextTargetIndex >= executionState.snapshotSize;
+		if ( targetPersonIdentifiers.isEmpty() ) {
+			logProgress("No persons in snapshot chunk [{}] (max chunk size: [{}]) in Job [{}].",
+					new Object[]{page, executionState.pageSize, jobId});
+			return new JobExecutionResult<T>(JobExecutionStatus.PARTIAL, executionState, null);
+		}
+		return executeForTargets(targetPersonIdentifiers, firstTargetIndex, page, executionState.snapshotSize,
+				executionSpec, executionState, jobId);
+	}
 
-					final List<ImmutablePersonIdentifiersTO> targetPersonIdentifiers =
-							Lists.newArrayListWithCapacity((int) searchResults.getResults());
+	/**
+	 * Pre-snapshot behavior, still used for jobs whose persisted state predates
+	 * {@link BasePersonSearchBasedJobExecutionState#snapshotTargets}: re-runs the search for every page.
+	 */
+	private JobExecutionResult<T> executeSearchPage(P executionSpec, T executionState, UUID jobId)
+			throws ObjectNotFoundException, InterruptedException {
+		final PersonSearchRequest criteria = personSearchRequestFactory.from(executionSpec.getCoreSpec().getCriteria());
+		final SortingAndPaging origSortAndPage = criteria.getSortAndPage();
+		final SortingAndPaging nextSortAndPage;
+		int page = 1;
+		if ( executionState.prevPage != null ) {
+			page = executionState.prevPage + 1;
+		}
 
-					// build target list outside of actual 'work loop' so we have the complete
-					// list of failed targets if any one should fail (and thus rollback the whole transaction)
-					for ( PersonSearchResult2 searchResult : searchResults ) {
-						final ImmutablePersonIdentifiersTO searchResultIds =
-								new ImmutablePersonIdentifiersTO(searchResult.getId(), searchResult.getSchoolId());
-						targetPersonIdentifiers.add(searchResultIds);
-					}
+		logProgress("Processing result page [{}] (max page size: [{}]) in Job [{}].",
+				new Object[]{page, executionState.pageSize, jobId});
+
+		// keyset paging keeps each page as cheap as the first no matter how many students the search matches
+		nextSortAndPage = new SortingAndPaging(origSortAndPage.getStatus(),
+				executionState.keysetPaging ? 0 : (page - 1) * executionState.pageSize,
+				executionState.pageSize, origSortAndPage.getSortFields(), origSortAndPage.getDefaultSortProperty(),
+				origSortAndPage.getDefaultSortDirection());
+		if ( executionState.keysetPaging ) {
+			nextSortAndPage.useKeyset(executionState.continuation);
+		}
+		criteria.setSortAndPage(nextSortAndPage);
+
+		final PagingWrapper<PersonSearchResult2> searchResults = personSearchService.searchPersonDirectory(criteria);
+		if ( searchResults == null || searchResults.getRows().isEmpty() ) {
+			logProgress("No results on page [{}] (max page size: [{}]) in Job [{}].",
+					new Object[]{page, executionState.pageSize, jobId});
+			executionState.prevPage = page;
+			executionState.allPagesProcessed = true;
+			// always return partial within this logic tree to ensure centralized completion logic at the top
+			// of executeJobDeserialized(), i.e. let the job run us again to see if we're *really* done.
+			return new JobExecutionResult<T>(JobExecutionStatus.PARTIAL, executionState, null);
+		}
+
+		final List<ImmutablePersonIdentifiersTO> targetPersonIdentifiers =
+				Lists.newArrayListWithCapacity(searchResults.getRows().size());
+		for ( PersonSearchResult2 searchResult : searchResults ) {
+			targetPersonIdentifiers.add(new ImmutablePersonIdentifiersTO(searchResult.getId(), searchResult.getSchoolId()));
+		}
 
-					ImmutablePersonIdentifiersTO targetPersonIdentifier = null;
-					final LinkedHashMap<ImmutablePersonIdentifiersTO, Map<String, ?>> batchCreatedRecords = Maps.newLinkedHashMap();
+		executionState.prevPage = page;
+		if ( executionState.keysetPaging ) {
+			executionState.continuation = searchResults.getContinuation();
+			executionState.allPagesProcessed = executionState.continuation == null;
+		} else {
+			final long totalResults = searchResults.getResults();
+			executionState.allPagesProcessed = (page * executionState.pageSize) >= totalResults;
+		}
+		// no snapshot to mark persons processed in, so always serial
+		return executeForTargets(targetPersonIdentifiers, -1, page, searchResults.getResults(), executionSpec,
+				executionState, jobId);
+	}
+
+	/**
+	 * Runs {@link #executeForSinglePerson(ImmutablePersonIdentifiersTO, Object, BasePersonSearchBasedJobExecutionState, UUID)}
+	 * for each of the given persons in the current transaction. If any one fails, the whole list goes to the retry
+	 * queue. Expects the caller to have already advanced {@code executionState} past these persons.
+	 *
+	 * @param firstTargetIndex index of the first of these persons in the job's snapshot, or a negative number if
+	 *                         they weren't read from a snapshot
+	 */
+	private JobExecutionResult<T> executeForTargets(List<ImmutablePersonIdentifiersTO> targetPersonIdentifiers,
+													int firstTargetIndex, int page, long totalPersons,
+													P executionSpec, T executionState, UUID jobId)
+			throws InterruptedException {
+		logProgress("Processing [{}] persons on page [{}] (max page size: [{}], persons so far: [{}]) in Job [{}].",
+				new Object[]{targetPersonIdentifiers.size(), page, executionState.pageSize, totalPersons, jobId});
+
+		final long startedMillis = System.currentTimeMillis();
+		try {
+			if ( executionState.parallelism > 1 && targetPersonIdentifiers.size() > 1 && firstTargetIndex >= 0
+					&& personExecutor != null && getTransactionTemplate() != null ) {
+				return executeForTargetsInParallel(targetPersonIdentifiers, firstTargetIndex, page, totalPersons,
+						executionSpec, executionState, jobId);
+			}
+			return executeForTargetsSerially(targetPersonIdentifiers, page, totalPersons, executionSpec,
+					executionState, jobId);
+		} finally {
+			executionState.processingMillis += System.currentTimeMillis() - startedMillis;
+		}
+	}
+
+	private JobExecutionResult<T> executeForTargetsSerially(List<ImmutablePersonIdentifiersTO> targetPersonIdentifiers,
+															int page, long totalPersons, P executionSpec,
+															T executionState, UUID jobId) {
+		ImmutablePersonIdentifiersTO targetPersonIdentifier = null;
+		final LinkedHashMap<ImmutablePersonIdentifiersTO, Map<String, ?>> batchCreatedRecords = Maps.newLinkedHashMap();
+		try {
+			prefetchTargets(targetPersonIdentifiers, executionSpec, executionState, jobId);
+			Iterator<ImmutablePersonIdentifiersTO> i = targetPersonIdentifiers.iterator();
+			while ( i.hasNext() ) {
+				targetPersonIdentifier = i.next();
+				logProgress("Execution attempt for person IDs [{}] in Job [{}].", new Object[]{targetPersonIdentifier, jobId});
+				batchCreatedRecords.put(targetPersonIdentifier,
+						executeForSinglePerson(targetPersonIdentifier, executionSpec, executionState, jobId));
+			}
+		} catch ( Exception e ) {
+			executionState.retryQueue.addAll(targetPersonIdentifiers);
+			executionState.failedAttemptsCount++;
+			logProgress("Processing error for person IDs [{}] on page [{}] (max page size: [{}]) in Job [{}]. " +
+					"Added this page to the retry queue (size: [{}])",
+					new Object[] { targetPersonIdentifier, page, executionState.pageSize, jobId, executionState.retryQueue.size() }); // exception itself logged elsewhere
+			return new JobExecutionResult<T>(JobExecutionStatus.FAILED_PARTIAL, executionState, e);
+		}
+
+		for ( Map.Entry<ImmutablePersonIdentifiersTO, Map<String, ?>> createdRecords : batchCreatedRecords.entrySet() ) {
+			recordSuccessful(createdRecords.getKey(), createdRecords.getValue(), executionSpec, executionState, jobId);
+		}
+		logProgress("Processed [{}] persons on page [{}] (max page size: [{}], persons so far: [{}]) in Job [{}].",
+				new Object[]{targetPersonIdentifiers.size(), page, executionState.pageSize, totalPersons, jobId});
+		return new JobExecutionResult<T>(JobExecutionStatus.PARTIAL, executionState, null);
+	}
+
+	/**
+	 * Parallel form of {@link #executeForTargetsSerially(List, int, long, Object, BasePersonSearchBasedJobExecutionState, UUID)}.
+	 * Up to {@link BasePersonSearchBasedJobExecutionState#parallelism} persons are worked on at once, each in its own
+	 * transaction and session on a {@link #personExecutor} thread running as the current user. So unlike the serial
+	 * form, one person's failure doesn't roll back the others: only the failed persons go to the retry queue. Results
+	 * are recorded in page order once every worker is done, so progress is committed into the execution state in the
+	 * same order as the serial form.
+	 *
+	 * <p>Each person's transaction also marks that person processed in the job's snapshot (see
+	 * {@link JobService#markTargetProcessed(UUID, int, String)}). Those transactions commit before the execution
+	 * state does, so if it's lost this page runs again. Persons already marked are then recorded from their stored
+	 * results rather than processed a second time.</p>
+	 */
+	private JobExecutionResult<T> executeForTargetsInParallel(final List<ImmutablePersonIdentifiersTO> targetPersonIdentifiers,
+															  final int firstTargetIndex, int page, long totalPersons,
+															  final P executionSpec, final T executionState,
+															  final UUID jobId)
+			throws InterruptedException {
+		final TransactionTemplate txnTemplate = getTransactionTemplate();
+		final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		final AtomicReferenceArray<Map<String, ?>> results =
+				new AtomicReferenceArray<Map<String, ?>>(targetPersonIdentifiers.size());
+		final AtomicReferenceArray<Exception> failures = new AtomicReferenceArray<Exception>(targetPersonIdentifiers.size());
+
+		final Map<Integer, String> alreadyProcessed =
+				getJobService().getProcessedTargets(jobId, firstTargetIndex, targetPersonIdentifiers.size());
+		final List<Integer> pending = Lists.newArrayListWithCapacity(targetPersonIdentifiers.size());
+		for ( int i = 0; i < targetPersonIdentifiers.size(); i++ ) {
+			if ( alreadyProcessed.containsKey(firstTargetIndex + i) ) {
+				results.set(i, deserializeResults(alreadyProcessed.get(firstTargetIndex + i)));
+			} else {
+				pending.add(i);
+			}
+		}
+		if ( !(alreadyProcessed.isEmpty()) ) {
+			logProgress("Skipping [{}] persons already processed on page [{}] in Job [{}].",
+					new Object[] { alreadyProcessed.size(), page, jobId });
+		}
+		final AtomicInteger nextPending = new AtomicInteger();
+
+		final int workerCount = Math.min(Math.min(executionState.parallelism, MAX_PERSON_PARALLELISM),
+				pending.size());
+		final List<Future<?>> workers = Lists.newArrayListWithCapacity(workerCount);
+		for ( int w = 0; w < workerCount; w++ ) {
+			final Runnable work = new Runnable() {
+				@Override
+				public void run() {
+					final SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+					securityContext.setAuthentication(authentication);
+					SecurityContextHolder.setContext(securityContext);
 					try {
-						Iterator<ImmutablePersonIdentifiersTO> i = targetPersonIdentifiers.iterator();
-						while ( i.hasNext() ) {
-							targetPersonIdentifier = i.next();
-							logProgress("Execution attempt for person IDs [{}] in Job [{}].", new Object[]{targetPersonIdentifier, jobId});
-							batchCreatedRecords.put(targetPersonIdentifier,
-									executeForSinglePerson(targetPersonIdentifier, executionSpec, executionState, jobId));
+						int p;
+						while ( (p = nextPending.getAndIncrement()) < pending.size() ) {
+							final int i = pending.get(p);
+							final ImmutablePersonIdentifiersTO targetPersonIdentifier = targetPersonIdentifiers.get(i);
+							logProgress("Execution attempt for person IDs [{}] in Job [{}].",
+									new Object[]{targetPersonIdentifier, jobId});
+							try {
+								results.set(i, txnTemplate.execute(new TransactionCallback<Map<String, ?>>() {
+									@Override
+									public Map<String, ?> doInTransaction(TransactionStatus status) {
+										try {
+											final Map<String, ?> personResults = executeForSinglePerson(
+													targetPersonIdentifier, executionSpec, executionState, jobId);
+											getJobService().markTargetProcessed(jobId, firstTargetIndex + i,
+													genericSerialize(personResults));
+											return personResults;
+										} catch ( ValidationException | ObjectNotFoundException e ) {
+											throw new PersonExecutionException(e);
+										}
+									}
+								}));
+							} catch ( PersonExecutionException e ) {
+								failures.set(i, (Exception)e.getCause());
+							} catch ( Exception e ) {
+								failures.set(i, e);
+							}
 						}
-					} catch ( Exception e ) {
-						executionState.retryQueue.addAll(targetPersonIdentifiers);
-						logProgress("Processing error for person IDs [{}] on page [{}] (max page size: [{}]) in Job [{}]. " +
-								"Added this page to the retry queue (size: [{}])",
-								new Object[] { targetPersonIdentifier, page, executionState.pageSize, jobId, executionState.retryQueue.size() }); // exception itself logged elsewhere
-						return new JobExecutionResult<T>(JobExecutionStatus.FAILED_PARTIAL, executionState, e);
 					} finally {
-						executionState.prevPage = page;
-						final long totalResults = searchResults.getResults();
-						executionState.allPagesProcessed = (page * executionState.pageSize) >= totalResults;
-					}
-
-					for ( Map.Entry<ImmutablePersonIdentifiersTO, Map<String, ?>> createdRecords : batchCreatedRecords.entrySet() ) {
-						recordSuccessful(createdRecords.getKey(), createdRecords.getValue(), executionSpec, executionState, jobId);
+						SecurityContextHolder.clearContext();
 					}
-					logProgress("Processed [{}] persons on page [{}] (max page size: [{}], total persons: [{}]) in Job [{}].",
-							new Object[]{targetPersonIdentifiers.size(), page, executionState.pageSize, searchResults.getResults(), jobId});
-					return new JobExecutionResult<T>(JobExecutionStatus.PARTIAL, executionState, null);
-
 				}
+			};
+			workers.add(personExecutor.submit(new Runnable() {
+				@Override
+				public void run() {
+					runPersonWorker(work);
+				}
+			}));
+		}
+		try {
+			for ( Future<?> worker : workers ) {
+				worker.get();
+			}
+		} catch ( ExecutionException e ) {
+			// workers catch everything per person, so only reachable on an Error
+			throw new IllegalStateException("Person worker failed unexpectedly in Job [" + jobId + "]", e.getCause());
+		} finally {
+			for ( Future<?> worker : workers ) {
+				worker.cancel(true);
+			}
+		}
 
+		final List<ImmutablePersonIdentifiersTO> failedTargets = Lists.newArrayList();
+		Exception firstFailure = null;
+		for ( int i = 0; i < targetPersonIdentifiers.size(); i++ ) {
+			if ( failures.get(i) != null ) {
+				failedTargets.add(targetPersonIdentifiers.get(i));
+				if ( firstFailure == null ) {
+					firstFailure = failures.get(i);
+				}
+			} else {
+				recordSuccessful(targetPersonIdentifiers.get(i), results.get(i), executionSpec, executionState, jobId);
 			}
+		}
+		if ( firstFailure != null ) {
+			executionState.retryQueue.addAll(failedTargets);
+			executionState.failedAttemptsCount += failedTargets.size();
+			logProgress("Processing error for [{}] of [{}] persons on page [{}] (max page size: [{}]) in Job [{}]. " +
+					"Added those persons to the retry queue (size: [{}])",
+					new Object[] { failedTargets.size(), targetPersonIdentifiers.size(), page, executionState.pageSize,
+							jobId, executionState.retryQueue.size() });
+			return new JobExecutionResult<T>(JobExecutionStatus.FAILED_PARTIAL, executionState, firstFailure);
+		}
+		logProgress("Processed [{}] persons on page [{}] (max page size: [{}], persons so far: [{}]) in Job [{}].",
+				new Object[]{targetPersonIdentifiers.size(), page, executionState.pageSize, totalPersons, jobId});
+		return new JobExecutionResult<T>(JobExecutionStatus.PARTIAL, executionState, null);
+	}
 
+	@SuppressWarnings("unchecked")
+	private Map<String, ?> deserializeResults(String results) {
+		if ( results == null ) {
+			return Maps.newHashMap();
+		}
+		try {
+			return getObjectMapper().readValue(results, Map.class);
 		} catch ( Exception e ) {
-			return new JobExecutionResult<T>(JobExecutionStatus.ERROR, executionState, e);
+			throw new RuntimeIoException(e);
+		}
+	}
+
+	/**
+	 * Carries checked exceptions out of a {@link TransactionCallback} so the worker's transaction rolls back.
+	 */
+	private static class PersonExecutionException extends RuntimeException {
+		PersonExecutionException(Exception cause) {
+			super(cause);
+		}
+	}
+
+	/**
+	 * Runs one worker's share of a page processed by
+	 * {@link #executeForTargetsInParallel(List, int, int, long, Object, BasePersonSearchBasedJobExecutionState, UUID)}
+	 * on a {@link #personExecutor} thread. Per-job state a subclass keeps in thread locals, typically the logger it
+	 * sets around {@link #executeJobDeserialized(Object, BasePersonSearchBasedJobExecutionState, UUID)},
+	 * isn't visible there, so override this to set it up around {@code worker.run()} and clear it after, just as
+	 * for the job thread. By default just runs the worker.
+	 */
+	protected void runPersonWorker(Runnable worker) {
+		worker.run();
+	}
+
+	/**
+	 * Hook for loading whatever {@link #executeForSinglePerson(ImmutablePersonIdentifiersTO, Object, BasePersonSearchBasedJobExecutionState, UUID)}
+	 * needs for a whole page of persons with a single batch fetch. Runs in the same transaction, and only when the
+	 * page is processed serially since parallel workers use their own sessions. By default loads the page's
+	 * {@code Person}s into the current session if this executor was given a {@link PersonService}, else does
+	 * nothing.
+	 */
+	protected void prefetchTargets(List<ImmutablePersonIdentifiersTO> targetPersonIdentifiers, P executionSpec,
+								   T executionState, UUID jobId) {
+		if ( personService == null ) {
+			return;
+		}
+		final List<UUID> personIds = Lists.newArrayListWithCapacity(targetPersonIdentifiers.size());
+		for ( ImmutablePersonIdentifiersTO targetPersonIdentifier : targetPersonIdentifiers ) {
+			if ( targetPersonIdentifier.getId() != null ) {
+				personIds.add(targetPersonIdentifier.getId());
+			}
+		}
+		if ( !(personIds.isEmpty()) ) {
+			personService.peopleFromListOfIds(personIds, null);
 		}
 	}
 
@@ -279,12 +605,40 @@ public abstract class AbstractPersonSearchBasedJobExecutor<P extends HasPersonSe
 
 	protected T configureNewExecutionState(T executionState) {
 		executionState.pageSize = configService.getByNameExceptionOrDefaultAsInt(getPageSizeConfigName());
+		executionState.keysetPaging = true;
+		executionState.snapshotTargets = true;
+		executionState.parallelism = getParallelism();
 		executionState.maxDlqLength = configService.getByNameExceptionOrDefaultAsInt(getDlqSizeConfigName());
 		executionState.failOnDlqOverflow =
 				Boolean.parseBoolean(configService.getByNameNullOrDefaultValue(getFailOnSlqOverflowConfigName()));
 		return executionState;
 	}
 
+	/**
+	 * Number of persons to work on at once in new jobs, read from {@link #getParallelismConfigName()}. Falls back
+	 * to {@link #DEFAULT_PERSON_PARALLELISM} if that isn't configured.
+	 */
+	protected int getParallelism() {
+		final String configured = configService.getByNameNullOrDefaultValue(getParallelismConfigName());
+		if ( StringUtils.isBlank(configured) ) {
+			return DEFAULT_PERSON_PARALLELISM;
+		}
+		try {
+			return Math.max(1, Math.min(MAX_PERSON_PARALLELISM, Integer.parseInt(configured.trim())));
+		} catch ( NumberFormatException e ) {
+			getCurrentLogger().warn("Ignoring non-numeric value [{}] for config [{}]", configured,
+					getParallelismConfigName());
+			return DEFAULT_PERSON_PARALLELISM;
+		}
+	}
+
+	/**
+	 * Override to give a job type its own parallelism setting.
+	 */
+	protected String getParallelismConfigName() {
+		return BULK_JOB_PARALLELISM_CONFIG_NAME;
+	}
+
 	protected abstract String getPageSizeConfigName();
 
 	protected abstract String getDlqSizeConfigName();
@@ -310,4 +664,20 @@ public abstract class AbstractPersonSearchBasedJobExecutor<P extends HasPersonSe
 	public ConfigService getConfigService() {
 		return configService;
 	}
+
+	public PersonService getPersonService() {
+		return personService;
+	}
+
+	public void setPersonService(PersonService personService) {
+		this.personService = personService;
+	}
+
+	public ExecutorService getPersonExecutor() {
+		return personExecutor;
+	}
+
+	public void setPersonExecutor(ExecutorService personExecutor) {
+		this.personExecutor = personExecutor;
+	}
 }
@@ -30,6 +30,21 @@ import java.util.List;
  */
 public class BasePersonSearchBasedJobExecutionState implements Serializable {
 	public Integer prevPage;
+	/**
+	 * True if pages are read with keyset paging, in which case {@link #continuation} rather than {@link #prevPage}
+	 * marks where the next page starts. False for state persisted before keyset paging existed.
+	 */
+	public boolean keysetPaging;
+	public String continuation;
+	/**
+	 * True if the search runs once and its results are stored as a snapshot (see
+	 * {@link org.jasig.ssp.service.jobqueue.JobService#saveTargets(java.util.UUID, List)}) which is then worked
+	 * through {@link #pageSize} persons at a time. False for state persisted before snapshots existed.
+	 */
+	public boolean snapshotTargets;
+	public boolean snapshotTaken;
+	public int snapshotSize;
+	public int nextTargetIndex;
 	public int pageSize = 25;
 	public boolean allPagesProcessed;
 	public List<ImmutablePersonIdentifiersTO> retryQueue = Lists.newArrayListWithExpectedSize(100);
@@ -39,4 +54,18 @@ public class BasePersonSearchBasedJobExecutionState implements Serializable {
 	public boolean dlqOverflowed;
 	public int personsFailedCount;
 	public int personsSucceededCount;
+	/**
+	 * Number of persons worked on at once, each in its own transaction. 1 (or 0 in state persisted before this
+	 * existed) means one transaction per page.
+	 */
+	public int parallelism;
+	/**
+	 * Failed attempts to process a person, including those later retried successfully. With serial processing a
+	 * failure fails the whole page, so this counts failed pages instead.
+	 */
+	public int failedAttemptsCount;
+	/**
+	 * Wall-clock time spent working on pages, excluding time between runs. Basis for throughput metrics.
+	 */
+	public long processingMillis;
 }
@@ -19,11 +19,14 @@
 package org.jasig.ssp.service.jobqueue;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.jasig.ssp.model.jobqueue.Job;
 import org.jasig.ssp.service.AuditableCrudService;
 import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.transferobject.ImmutablePersonIdentifiersTO;
+import org.jasig.ssp.transferobject.jobqueue.JobExecutionMetricsTO;
 import org.jasig.ssp.web.api.validation.ValidationException;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -76,6 +79,15 @@ public interface JobService {
 	 */
 	void scheduleQueuedJobs();
 
+	/**
+	 * Ask for {@link #scheduleQueuedJobs()} to run on this node as soon as possible rather than waiting for the next
+	 * scheduled poll. Returns immediately. Requests made while a dispatch is already pending are coalesced into
+	 * that dispatch, so callers need not worry about calling this too often.
+	 *
+	 * <p>A no-op on nodes with background jobs disabled.</p>
+	 */
+	void requestDispatch();
+
 	/**
 	 * Create and enqueue a new {@link Job}
 	 *
@@ -95,7 +107,7 @@ public interface JobService {
 	 * Transition the given job to {@link WorkflowStatus#EXECUTING}.
 	 *
 	 * @param jobId
-	 * @return
+	 * @return {@code null} if the job is no longer claimed by this process
 	 * @throws ObjectNotFoundException if the {@link Job} is not on file
 	 */
 	Job markExecuting(UUID jobId) throws ObjectNotFoundException;
@@ -110,6 +122,16 @@ public interface JobService {
 	 */
 	Job markTerminated(UUID jobId, JobExecutionResult<JobWorkflowStatusDescription> result)  throws ObjectNotFoundException;
 
+	/**
+	 * Extend this process' claim on the given {@link Job}. Long-running executions should call this between
+	 * units of work so their claim is not considered abandoned and reclaimed by another node.
+	 *
+	 * @param jobId
+	 * @return {@code false} if this process no longer holds the claim, in which case the caller should stop
+	 *   working on the job
+	 */
+	boolean renewLease(UUID jobId);
+
 	/**
 	 * Transition the given {@link Job} to the given serialized {@code executionState}. Typically used to
 	 * store incremental, batched progress against the total work requested, sometimes in a different transaction
@@ -128,4 +150,67 @@ public interface JobService {
 	 * @return
 	 */
 	Job get(UUID jobId);
-}
\ No newline at end of file
+
+	/**
+	 * Store the complete, ordered list of persons the given {@link Job} will work through, so its executor can
+	 * iterate a stable snapshot instead of re-running its search for every unit of work.
+	 *
+	 * @param jobId
+	 * @param targets
+	 */
+	void saveTargets(UUID jobId, List<ImmutablePersonIdentifiersTO> targets);
+
+	/**
+	 * Read a chunk of the persons stored by {@link #saveTargets(UUID, List)}.
+	 *
+	 * @param jobId
+	 * @param firstIndex zero-based index of the first person to return
+	 * @param maxResults
+	 * @return empty once {@code firstIndex} is past the end of the snapshot. Never {@code null}.
+	 */
+	List<ImmutablePersonIdentifiersTO> getTargets(UUID jobId, int firstIndex, int maxResults);
+
+	/**
+	 * Record that the person at the given index of the snapshot stored by {@link #saveTargets(UUID, List)} has
+	 * been processed. Call in the transaction that processed that person, so that if the {@link Job}'s own
+	 * progress is lost, e.g. to a crash, re-running that part of the job can tell which persons to skip.
+	 *
+	 * @param jobId
+	 * @param targetIndex zero-based index of the person
+	 * @param results serialized results of processing that person, may be {@code null}
+	 */
+	void markTargetProcessed(UUID jobId, int targetIndex, String results);
+
+	/**
+	 * Persons in a chunk of the snapshot stored by {@link #saveTargets(UUID, List)} that have been marked with
+	 * {@link #markTargetProcessed(UUID, int, String)}.
+	 *
+	 * @param jobId
+	 * @param firstIndex zero-based index of the first person in the chunk
+	 * @param maxResults size of the chunk
+	 * @return the results passed to {@link #markTargetProcessed(UUID, int, String)}, keyed by index. Never
+	 *   {@code null}.
+	 */
+	Map<Integer, String> getProcessedTargets(UUID jobId, int firstIndex, int maxResults);
+
+	/**
+	 * Discard the persons stored by {@link #saveTargets(UUID, List)}. Happens automatically whenever a
+	 * {@link Job}'s workflow terminates, whether it completed, failed or errored out.
+	 *
+	 * @param jobId
+	 */
+	void deleteTargets(UUID jobId);
+
+	/**
+	 * Progress and throughput of the given {@link Job}, read from its persisted execution state.
+	 *
+	 * @param jobId
+	 * @return {@code null} if the job is not on file
+	 */
+	JobExecutionMetricsTO getExecutionMetrics(UUID jobId);
+
+	/**
+	 * {@link #getExecutionMetrics(UUID)} for every {@link Job} that hasn't finished yet, oldest first.
+	 */
+	List<JobExecutionMetricsTO> getUnfinishedExecutionMetrics();
+}
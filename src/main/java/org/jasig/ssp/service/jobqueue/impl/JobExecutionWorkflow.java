@@ -47,6 +47,7 @@ public class JobExecutionWorkflow implements Runnable {
 	private static final String NO_SUCH_EXECUTION_COMPONENT_MSG = "No job execution component registered under name [{0}]";
 	private static final String JOB_EXECUTION_SYSTEM_ERROR_MSG = "Job execution exited abnormally. Job ID [{0}]";
 	private static final String JOB_EXECUTION_LOOP_INTERRUPTED_MSG = "Job execution loop interrupted. Job ID [{0}]";
+	private static final String JOB_EXECUTION_LEASE_LOST_MSG = "Job execution abandoned because its claim was lost. Job ID [{0}]";
 	public static final String JOB_EXECUTION_TASK_NAME = "job-execution";
 	private static final long POLITE_SLEEP_MILLIS = 1000;
 
@@ -73,7 +74,10 @@ public class JobExecutionWorkflow implements Runnable {
 	public void run() {
 		final Job job = markExecuting();
 		if ( job == null ) {
-			// problem already logged in markExecuting
+			// Either no longer on file or now claimed by another process,
+			// both already logged. The job isn't ours to run or terminate,
+			// but the slot it would have used is free again.
+			jobService.requestDispatch();
 			return;
 		}
 
@@ -89,6 +93,9 @@ public class JobExecutionWorkflow implements Runnable {
 		}
 
 		markTerminated(workResult);
+
+		// a slot just freed up, don't leave queued jobs waiting for the next poll
+		jobService.requestDispatch();
 	}
 
 	protected JobExecutionResult<JobWorkflowStatusDescription> doWork(final Job job) {
@@ -124,6 +131,11 @@ public class JobExecutionWorkflow implements Runnable {
 						final JobExecutionResult<JobWorkflowStatusDescription> result = batchExecutor.exec(new Callable<JobExecutionResult<JobWorkflowStatusDescription>>() {
 							@Override
 							public JobExecutionResult<JobWorkflowStatusDescription> call() throws Exception {
+								// doubles as the execution heartbeat
+								if ( !(jobService.renewLease(job.getId())) ) {
+									LOGGER.warn("Abandoning incremental execution of job [{}] because its claim was lost", job.getId());
+									return newLeaseLostExecLoopResult(job);
+								}
 								return jobExecutor.execute(job.getId());
 							}
 						});
@@ -151,6 +163,11 @@ public class JobExecutionWorkflow implements Runnable {
 						new JobWorkflowStatusDescription(null, Lists.newArrayList(MessageFormat.format(JOB_EXECUTION_LOOP_INTERRUPTED_MSG, job.getId()))));
 			}
 
+			private JobExecutionResult<JobWorkflowStatusDescription> newLeaseLostExecLoopResult(Job job) {
+				return new JobExecutionResult<>(JobExecutionStatus.INTERRUPTED,
+						new JobWorkflowStatusDescription(null, Lists.newArrayList(MessageFormat.format(JOB_EXECUTION_LEASE_LOST_MSG, job.getId()))));
+			}
+
 			@Override
 			public Class<JobExecutionResult<JobWorkflowStatusDescription>> getBatchExecReturnType() {
 				return (Class<JobExecutionResult<JobWorkflowStatusDescription>>) new JobExecutionResult<JobWorkflowStatusDescription>(null,null).getClass();
@@ -160,12 +177,20 @@ public class JobExecutionWorkflow implements Runnable {
 		return resultHolder.get();
 	}
 
+	/**
+	 * @return {@code null} if the job is no longer on file or is now claimed by another process
+	 */
 	protected Job markExecuting() {
 		final AtomicReference<Job> jobHolder = new AtomicReference<Job>();
 		taskHelper.execWithTaskContext(JOB_EXECUTION_TASK_NAME, new Runnable() {
 			public void run() {
 				try {
-					jobHolder.set(jobService.markExecuting(jobId));
+					final Job job = jobService.markExecuting(jobId);
+					if ( job == null ) {
+						LOGGER.info("Scheduled job {} will not be executed by this process because its claim was lost", jobId);
+						return;
+					}
+					jobHolder.set(job);
 				} catch ( ObjectNotFoundException e ) {
 					LOGGER.warn("Scheduled job {} persistent record no longer on file", jobId);
 				}
@@ -23,7 +23,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang.StringUtils;
@@ -35,10 +43,13 @@ import org.jasig.ssp.service.ObjectNotFoundException;
 import org.jasig.ssp.service.PersonService;
 import org.jasig.ssp.service.ScheduledTaskWrapperService;
 import org.jasig.ssp.service.impl.ScheduledTaskWrapperServiceImpl;
+import org.jasig.ssp.service.jobqueue.BasePersonSearchBasedJobExecutionState;
 import org.jasig.ssp.service.jobqueue.JobExecutionResult;
 import org.jasig.ssp.service.jobqueue.JobExecutor;
 import org.jasig.ssp.service.jobqueue.JobService;
 import org.jasig.ssp.service.jobqueue.JobWorkflowStatusDescription;
+import org.jasig.ssp.transferobject.ImmutablePersonIdentifiersTO;
+import org.jasig.ssp.transferobject.jobqueue.JobExecutionMetricsTO;
 import org.jasig.ssp.util.collections.Pair;
 import org.jasig.ssp.util.transaction.WithTransaction;
 import org.jasig.ssp.web.api.validation.ValidationException;
@@ -48,29 +59,56 @@ import org.springframework.aop.framework.Advised;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanNameAware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 
 @Service
-public class JobServiceImpl implements JobService, ApplicationContextAware, BeanNameAware {
+public class JobServiceImpl implements JobService, ApplicationContextAware, BeanNameAware,
+		InitializingBean, DisposableBean {
 
 	private static final Logger LOGGER = LoggerFactory
 			.getLogger(JobServiceImpl.class);
 
 	private final long startupTime = new Date().getTime();
 
+	// system_id is not necessarily unique per node, so disambiguate claims
+	// made by nodes which happen to share both it and a startup time
+	private final String processInstanceId = UUID.randomUUID().toString();
+
+	// matches the startup delay on task_bulk_job_queue_trigger so the
+	// dispatcher doesn't race application startup
+	private static final long DISPATCH_PROBE_INITIAL_DELAY_MILLIS = 30000;
+
 	private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
 
+	private static final ObjectReader EXECUTION_STATE_READER = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+			.readerFor(BasePersonSearchBasedJobExecutionState.class);
+
 	@Value("#{configProperties.system_id}")
 	private  String systemId = "";
 
+	@Value("#{configProperties.bulk_job_queue_lease_millis}")
+	private long leaseMillis = 300000;
+
+	@Value("#{configProperties.background_jobs}")
+	private boolean backgroundJobsEnabled = true;
+
+	@Value("#{configProperties.bulk_job_queue_dispatch_probe_millis}")
+	private long dispatchProbeMillis = 2000;
+
 	@Autowired
 	private transient JobDao dao;
 
@@ -90,6 +128,39 @@ public class JobServiceImpl implements JobService, ApplicationContextAware, Bean
 	private ApplicationContext applicationContext;
 	private String beanName;
 
+	// single thread so dispatches on this node never overlap each other
+	private ScheduledExecutorService dispatcher;
+	private final AtomicBoolean dispatchPending = new AtomicBoolean(false);
+
+	@Override
+	public void afterPropertiesSet() {
+		if ( !(backgroundJobsEnabled) ) {
+			LOGGER.info("Background jobs disabled, bulk job dispatcher not started");
+			return;
+		}
+		final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ssp-job-dispatch-");
+		threadFactory.setDaemon(true);
+		dispatcher = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		if ( dispatchProbeMillis > 0 ) {
+			// picks up jobs queued on other nodes, and jobs whose lease lapsed,
+			// without the cost of a full scheduling pass each time
+			dispatcher.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					probeForClaimableJobs();
+				}
+			}, Math.max(DISPATCH_PROBE_INITIAL_DELAY_MILLIS, dispatchProbeMillis), dispatchProbeMillis,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if ( dispatcher != null ) {
+			dispatcher.shutdownNow();
+		}
+	}
+
 	@Override
 	@Transactional(rollbackFor = ValidationException.class)
 	public Job queue(UUID ownerPersonId, UUID runAsPersonId, String executionComponentName,
@@ -132,17 +203,116 @@ public class JobServiceImpl implements JobService, ApplicationContextAware, Bean
 		job.setWorkflowStatus(WorkflowStatus.QUEUED);
 		job.setExecutionSpec(executionSpec);
 		job.setExecutionState(executionState);
-		return dao.save(job);
+		final Job saved = dao.save(job);
+
+		// other nodes can't see the job until commit, and neither can the
+		// dispatcher's own transaction
+		if ( TransactionSynchronizationManager.isSynchronizationActive() ) {
+			TransactionSynchronizationManager.registerSynchronization(
+					new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCommit() {
+							requestDispatch();
+						}
+					});
+		} else {
+			requestDispatch();
+		}
+		return saved;
+	}
+
+	@Override
+	public void requestDispatch() {
+		if ( dispatcher == null ) {
+			return;
+		}
+		if ( !(dispatchPending.compareAndSet(false, true)) ) {
+			return; // already pending, that dispatch will see this job too
+		}
+		try {
+			dispatcher.execute(new Runnable() {
+				@Override
+				public void run() {
+					dispatch();
+				}
+			});
+		} catch ( RejectedExecutionException e ) {
+			// shutting down. scheduled poll on some node will pick it up.
+			dispatchPending.set(false);
+			LOGGER.debug("Bulk job dispatch rejected", e);
+		}
+	}
+
+	private void dispatch() {
+		// clear first so requests arriving mid-dispatch get a dispatch of their own
+		dispatchPending.set(false);
+		try {
+			if ( getFreeExecutionCapacity() <= 0 ) {
+				LOGGER.debug("Skipping bulk job dispatch, no free execution capacity");
+				return;
+			}
+			// goes through the task wrapper for the usual security and session context
+			scheduledTaskWrapperService.scheduledQueuedJobs();
+		} catch ( Exception e ) {
+			LOGGER.error("Bulk job dispatch failed", e);
+		}
+	}
+
+	private void probeForClaimableJobs() {
+		try {
+			if ( getFreeExecutionCapacity() <= 0 ) {
+				return;
+			}
+			final Boolean claimable = withTransaction.withNewTransactionAndUncheckedExceptionsReadOnly(
+					() -> dao.hasClaimableJobs(new Date()));
+			if ( Boolean.TRUE.equals(claimable) ) {
+				requestDispatch();
+			}
+		} catch ( Exception e ) {
+			// must not escape, would cancel the probe for good
+			LOGGER.warn("Bulk job dispatch probe failed", e);
+		}
+	}
+
+	/**
+	 * How many more jobs the {@link #taskExecutor} can start right away. Only
+	 * core threads count since the executor's queue is unbounded by default,
+	 * so it never grows past its core size. Package-private for tests.
+	 */
+	int getFreeExecutionCapacity() {
+		final ThreadPoolExecutor executor = taskExecutor.getThreadPoolExecutor();
+		return Math.max(0, executor.getCorePoolSize() - executor.getActiveCount() - executor.getQueue().size());
 	}
 
 
 
 	@Override
 	public void scheduleQueuedJobs() {
-		final List<JobExecutionWorkflow> jobExecutionWorkflows = Lists.newArrayListWithExpectedSize(10);
+
+		// Heartbeat first, in its own transaction, so jobs this process is
+		// still working on are never mistaken for abandoned ones, either by
+		// the claim below or by other nodes.
+		try {
+			withTransaction.withNewTransactionAndUncheckedExceptions(() -> {
+				final int renewed = dao.renewLeases(getProcessIdentifier(), newLeaseExpiry());
+				LOGGER.debug("Renewed lease on {} job(s) claimed by process {}", renewed, getProcessIdentifier());
+				return null;
+			});
+		} catch ( Exception e ) {
+			LOGGER.error("Could not renew job leases for process {}", getProcessIdentifier(), e);
+		}
+
+		// claim only what we can start now. anything more would sit in the
+		// executor queue, holding a lease other, idler nodes could have used.
+		final int capacity = getFreeExecutionCapacity();
+		if ( capacity <= 0 ) {
+			LOGGER.debug("Not claiming bulk jobs, no free execution capacity");
+			return;
+		}
+		final List<JobExecutionWorkflow> jobExecutionWorkflows = Lists.newArrayListWithExpectedSize(capacity);
 
 		withTransaction.withTransactionAndUncheckedExceptions(() -> {
-            final List<Job> jobs = dao.getNextQueuedJobsForExecution(10,getProcessIdentifier());
+            final List<Job> jobs = dao.claimNextQueuedJobsForExecution(capacity, new Date());
             for ( Job job : jobs ) {
                 if ( Thread.currentThread().isInterrupted() ) {
                     LOGGER.info("Abandoning job scheduling because of thread interruption");
@@ -219,6 +389,7 @@ public class JobServiceImpl implements JobService, ApplicationContextAware, Bean
 		job.setSchedulingStartedDate(null);
 		job.setScheduledByProcess(null);
 		job.setExecutionStartedDate(null);
+		job.setLeaseExpiresDate(null);
 		return dao.save(job);
 	}
 
@@ -227,6 +398,7 @@ public class JobServiceImpl implements JobService, ApplicationContextAware, Bean
 		job.setSchedulingStartedDate(new Date());
 		job.setScheduledByProcess(getProcessIdentifier());
 		job.setExecutionStartedDate(null);
+		job.setLeaseExpiresDate(newLeaseExpiry());
 		return dao.save(job);
 	}
 
@@ -235,6 +407,7 @@ public class JobServiceImpl implements JobService, ApplicationContextAware, Bean
 	}
 
 	private Job markErrored(Job job, JobWorkflowStatusDescription d) {
+		dao.deleteTargets(job.getId());
 		job.setWorkflowStatus(WorkflowStatus.ERROR);
 		job.setWorkflowStoppedDate(new Date());
 		serializeWorkflowStatusDescriptionOnto(d, job);
@@ -242,6 +415,7 @@ public class JobServiceImpl implements JobService, ApplicationContextAware, Bean
 	}
 
 	private Job markFailed(Job job, JobWorkflowStatusDescription d) {
+		dao.deleteTargets(job.getId());
 		job.setWorkflowStatus(WorkflowStatus.FAILURE);
 		job.setWorkflowStoppedDate(new Date());
 		serializeWorkflowStatusDescriptionOnto(d, job);
@@ -249,6 +423,7 @@ public class JobServiceImpl implements JobService, ApplicationContextAware, Bean
 	}
 
 	private Job markCompleted(Job job, JobWorkflowStatusDescription d) {
+		dao.deleteTargets(job.getId());
 		job.setWorkflowStatus(WorkflowStatus.COMPLETED);
 		job.setWorkflowStoppedDate(new Date());
 		serializeWorkflowStatusDescriptionOnto(d, job);
@@ -273,8 +448,14 @@ public class JobServiceImpl implements JobService, ApplicationContextAware, Bean
 		if ( job == null ) {
 			throw new ObjectNotFoundException(jobId, Job.class.getName());
 		}
+		if ( !(isClaimedByThisProcess(job)) ) {
+			LOGGER.warn("Not executing job {} because it is now claimed by process {}",
+					jobId, job.getScheduledByProcess());
+			return null;
+		}
 		job.setWorkflowStatus(WorkflowStatus.EXECUTING);
 		job.setExecutionStartedDate(new Date());
+		job.setLeaseExpiresDate(newLeaseExpiry());
 		return dao.save(job);
 	}
 
@@ -285,6 +466,13 @@ public class JobServiceImpl implements JobService, ApplicationContextAware, Bean
 		if ( job == null ) {
 			throw new ObjectNotFoundException(jobId, Job.class.getName());
 		}
+		if ( !(isClaimedByThisProcess(job)) ) {
+			// lease lapsed and the job was reclaimed elsewhere. whatever we
+			// think happened, the new owner's view of the job wins.
+			LOGGER.warn("Not terminating job {} with status {} because it is now claimed by process {}",
+					new Object[] { jobId, result.getStatus(), job.getScheduledByProcess() });
+			return job;
+		}
 		switch ( result.getStatus() ) {
 			case PARTIAL:
 			case FAILED_PARTIAL:
@@ -302,6 +490,12 @@ public class JobServiceImpl implements JobService, ApplicationContextAware, Bean
 		}
 	}
 
+	@Override
+	@Transactional
+	public boolean renewLease(UUID jobId) {
+		return dao.renewLease(jobId, getProcessIdentifier(), newLeaseExpiry());
+	}
+
 	@Override
 	public void registerJobExecutor(JobExecutor jobExecutor) {
 		if ( jobExecutor == null ) {
@@ -339,8 +533,78 @@ public class JobServiceImpl implements JobService, ApplicationContextAware, Bean
 		return dao.save(job);
 	}
 
-	private String getProcessIdentifier() {
-		return systemId+"-"+startupTime+"."+systemId;
+	@Override
+	@Transactional
+	public void saveTargets(UUID jobId, List<ImmutablePersonIdentifiersTO> targets) {
+		dao.insertTargets(jobId, targets);
+	}
+
+	@Override
+	@Transactional
+	public List<ImmutablePersonIdentifiersTO> getTargets(UUID jobId, int firstIndex, int maxResults) {
+		return dao.getTargets(jobId, firstIndex, maxResults);
+	}
+
+	@Override
+	@Transactional
+	public void markTargetProcessed(UUID jobId, int targetIndex, String results) {
+		dao.markTargetProcessed(jobId, targetIndex, results);
+	}
+
+	@Override
+	@Transactional
+	public Map<Integer, String> getProcessedTargets(UUID jobId, int firstIndex, int maxResults) {
+		return dao.getProcessedTargets(jobId, firstIndex, maxResults);
+	}
+
+	@Override
+	@Transactional
+	public void deleteTargets(UUID jobId) {
+		dao.deleteTargets(jobId);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public JobExecutionMetricsTO getExecutionMetrics(UUID jobId) {
+		final Job job = get(jobId);
+		return job == null ? null : toExecutionMetrics(job);
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<JobExecutionMetricsTO> getUnfinishedExecutionMetrics() {
+		final List<JobExecutionMetricsTO> metrics = Lists.newArrayList();
+		for ( Job job : dao.getUnfinishedJobs() ) {
+			metrics.add(toExecutionMetrics(job));
+		}
+		return metrics;
+	}
+
+	private JobExecutionMetricsTO toExecutionMetrics(Job job) {
+		BasePersonSearchBasedJobExecutionState state = null;
+		if ( StringUtils.isNotBlank(job.getExecutionState()) ) {
+			try {
+				// concrete state classes add their own fields, only the common ones matter here
+				state = EXECUTION_STATE_READER.readValue(job.getExecutionState());
+			} catch ( Exception e ) {
+				LOGGER.debug("Job {} execution state is not person search based, reporting no person metrics",
+						job.getId(), e);
+			}
+		}
+		return new JobExecutionMetricsTO(job, state);
+	}
+
+	// package-private for tests
+	String getProcessIdentifier() {
+		return systemId+"-"+startupTime+"."+processInstanceId;
+	}
+
+	private boolean isClaimedByThisProcess(Job job) {
+		return getProcessIdentifier().equals(job.getScheduledByProcess());
+	}
+
+	private Date newLeaseExpiry() {
+		return new Date(System.currentTimeMillis() + leaseMillis);
 	}
 
 	@Override
@@ -18,6 +18,8 @@
  */
 package org.jasig.ssp.service.reference;
 
+import java.util.Set;
+
 import org.jasig.ssp.model.reference.Config;
 import org.jasig.ssp.service.ObjectNotFoundException;
 import org.jasig.ssp.service.ReferenceService;
@@ -25,6 +27,14 @@ import org.jasig.ssp.service.ReferenceService;
 /**
  * Configuration (Config) service
  * 
+ * <p>
+ * The <code>getByName...</code> value accessors are served from an in-memory
+ * snapshot of the whole config table rather than the database. The snapshot
+ * is replaced whenever a Config is saved through this service, and is checked
+ * against the database at most every <code>config_snapshot_check_millis</code>
+ * to pick up changes made on other nodes. {@link #getByName(String)} still
+ * returns the persistent entity.
+ * 
  * @author daniel.bower
  */
 public interface ConfigService extends
@@ -93,6 +103,17 @@ public interface ConfigService extends
      */
 	int getByNameExceptionOrDefaultAsInt(String name);
 
+	/**
+	 * Get a comma-delimited Config Value by name as a set of non-empty
+	 * entries. All spaces are removed from the value before it is split.
+	 *
+	 * @param name
+	 *            of the config value
+	 * @return unmodifiable set built from the value, or from the default if
+	 *         the value is empty. Empty if the config is not found.
+	 */
+	Set<String> getByNameNullOrDefaultValueAsSet(String name);
+
 	/**
 	 *
 	 * @param name
@@ -114,4 +135,10 @@ public interface ConfigService extends
 	 */
 	String getDatabaseConcatOperator();
 
+	/**
+	 * Discards the current config snapshot on this node so the next read
+	 * reloads it from the database.
+	 */
+	void invalidateSnapshot();
+
 }
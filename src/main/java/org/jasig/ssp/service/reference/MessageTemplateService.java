@@ -58,6 +58,14 @@ public interface MessageTemplateService extends
 
 	SubjectAndBody createCustomActionPlanTaskMessage(final TaskMessageTemplateTO task);
 
+	/**
+	 * One email reminding a student of several tasks at once, in place of a
+	 * {@link #createActionPlanStepMessage(TaskMessageTemplateTO)} or
+	 * {@link #createCustomActionPlanTaskMessage(TaskMessageTemplateTO)} per
+	 * task.
+	 */
+	SubjectAndBody createTaskReminderDigestMessage(Person student, List<TaskMessageTemplateTO> tasks);
+
 	SubjectAndBody createActionPlanMessage(Person student,
 			List<TaskTO> taskTOs, List<GoalTO> goalTOs,  List<StrengthTO> strengthTOs);
 
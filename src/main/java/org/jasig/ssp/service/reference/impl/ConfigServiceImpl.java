@@ -19,20 +19,31 @@
 package org.jasig.ssp.service.reference.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import org.apache.commons.lang.StringUtils;
 import org.jasig.ssp.dao.reference.ConfigDao;
 import org.jasig.ssp.model.reference.Config;
 import org.jasig.ssp.service.ObjectNotFoundException;
 import org.jasig.ssp.service.reference.ConfigException;
 import org.jasig.ssp.service.reference.ConfigService;
+import org.jasig.ssp.web.api.validation.ValidationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.io.IOException;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -52,8 +63,22 @@ public class ConfigServiceImpl extends
 	@Value("#{configProperties.db_dialect}")
 	private transient String dialect;
 
+	@Value("#{configProperties.config_snapshot_check_millis}")
+	private long snapshotCheckMillis = 30000;
+
 	private ObjectMapper objectMapper = new ObjectMapper();
 
+	private final AtomicReference<Snapshot> snapshot =
+			new AtomicReference<Snapshot>();
+
+	/**
+	 * Bumped on every invalidation so a reload which raced with a save
+	 * doesn't reinstate values read before that save.
+	 */
+	private final AtomicLong snapshotGeneration = new AtomicLong();
+
+	private final AtomicLong nextVersionCheck = new AtomicLong();
+
 	private static final Logger LOGGER = LoggerFactory
 			.getLogger(ConfigServiceImpl.class);
 
@@ -81,17 +106,88 @@ public class ConfigServiceImpl extends
 		}
 	}
 
+	@Override
+	public Config create(final Config obj) throws ObjectNotFoundException,
+			ValidationException {
+		final Config created = super.create(obj);
+		invalidateSnapshotOnCompletion();
+		return created;
+	}
+
+	@Override
+	public Config save(final Config obj) throws ObjectNotFoundException,
+			ValidationException {
+		final Config saved = super.save(obj);
+		invalidateSnapshotOnCompletion();
+		return saved;
+	}
+
+	@Override
+	public void invalidateSnapshot() {
+		snapshotGeneration.incrementAndGet();
+		snapshot.set(null);
+	}
+
+	/**
+	 * Invalidates now, so the rest of the current transaction sees the
+	 * change, and again once the transaction completes, so the rest of the
+	 * node sees the committed (or rolled back) state.
+	 */
+	private void invalidateSnapshotOnCompletion() {
+		invalidateSnapshot();
+		if ( TransactionSynchronizationManager.isSynchronizationActive() ) {
+			TransactionSynchronizationManager.registerSynchronization(
+					new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCompletion(final int status) {
+							invalidateSnapshot();
+						}
+					});
+		}
+	}
+
+	private Snapshot getSnapshot() {
+		final Snapshot current = snapshot.get();
+		if ( current == null ) {
+			return loadSnapshot(null);
+		}
+		final long now = System.currentTimeMillis();
+		final long nextCheck = nextVersionCheck.get();
+		if ( now >= nextCheck
+				&& nextVersionCheck.compareAndSet(nextCheck, now + snapshotCheckMillis) ) {
+			final String version = dao.getVersion();
+			if ( !(version.equals(current.version)) ) {
+				LOGGER.info("Config table changed, reloading config snapshot");
+				return loadSnapshot(version);
+			}
+		}
+		return current;
+	}
+
+	private Snapshot loadSnapshot(final String knownVersion) {
+		final long generation = snapshotGeneration.get();
+		// read the version first so a concurrent change is at worst picked
+		// up again by the next version check
+		final String version = knownVersion == null ? dao.getVersion() : knownVersion;
+		final Snapshot loaded = new Snapshot(version, dao.getAllEntries());
+		nextVersionCheck.set(System.currentTimeMillis() + snapshotCheckMillis);
+		if ( snapshotGeneration.get() == generation ) {
+			snapshot.set(loaded);
+		}
+		return loaded;
+	}
+
 	@Override
 	public <T,E extends T> T getObjectByNameOrDefault(String name,
 			Class<T> clazz, E defaultTo) {
-		final Config config = getByName(name);
+		final Entry config = getSnapshot().get(name);
 		String serialized = null;
 		if ( config == null ) {
 			return defaultTo;
 		}
-		serialized = config.getValue();
+		serialized = config.value;
 		if ( serialized == null ) {
-			serialized = config.getDefaultValue();
+			serialized = config.defaultValue;
 		}
 		if ( serialized == null ) {
 			return defaultTo;
@@ -112,84 +208,170 @@ public class ConfigServiceImpl extends
 
 	@Override
 	public String getByNameEmpty(final String name) {
-		final Config config = getByName(name);
-		if ((config == null) || (config.getValue() == null)) {
+		final Entry config = getSnapshot().get(name);
+		if ((config == null) || (config.value == null)) {
 			return "";
 		}
 
-		return config.getValue();
+		return config.value;
 	}
 
 	@Override
 	public String getByNameException(final String name)
 			throws ObjectNotFoundException {
-		final Config config = getByName(name);
+		final Entry config = getSnapshot().get(name);
 		if (config == null) {
 			throw new ObjectNotFoundException(
 					"Could not find Config value with key: " + name, "Config");
 		}
 
-		if (config.getValue() == null) {
+		if (config.value == null) {
 			throw new ObjectNotFoundException(
 					"Value not set for key: " + name, "Config");
 
 		}
 
-		return config.getValue();
+		return config.value;
 	}
 
 	@Override
 	public String getByNameNull(final String name) {
-		final Config config = getByName(name);
-		if ((config == null) || (config.getValue() == null)) {
+		final Entry config = getSnapshot().get(name);
+		if ((config == null) || (config.value == null)) {
 			return null;
 		}
 
-		return config.getValue();
+		return config.value;
 	}
 
 	@Override
 	public String getByNameNullOrDefaultValue(final String name) {
-		final Config config = getByName(name);
+		final Entry config = getSnapshot().get(name);
 		if (config == null) {
 			return null;
 		}
-		if (StringUtils.isBlank(config.getValue())) {
-			LOGGER.warn("Using default value for:" + name);
-			return config.getDefaultValue();
-		}
-
-		return config.getValue();
+		return config.valueOrDefault();
 	}
 
     @Override
     public boolean getByNameOrDefaultValue(final String name) {
-        final Config config = getByName(name);
-        if (config == null || StringUtils.isBlank(config.getValue())) {
-            LOGGER.warn("Using default value for config:" + name);
-            return Boolean.valueOf(config.getDefaultValue());
-        } else {
-            return Boolean.valueOf(config.getValue());
+        final Entry config = getSnapshot().get(name);
+        if (config == null) {
+            throw new ConfigException(name);
         }
+        return config.asBoolean();
     }
 
 	@Override
 	public int getByNameExceptionOrDefaultAsInt(final String name) {
-		final Config config = getByName(name);
+		final Entry config = getSnapshot().get(name);
 
 		if (config == null) {
 			throw new ConfigException(name);
 		}
-		if (StringUtils.isBlank(config.getValue())
-				|| !StringUtils.isNumeric(config.getValue())) {
-			LOGGER.warn("Using default value for:" + name);
-			if (StringUtils.isNumeric(config.getDefaultValue())) {
-				return Integer.valueOf(config.getDefaultValue());
-			} else {
-				throw new ConfigException(name, "be numeric");
+		return config.asInt();
+	}
+
+	@Override
+	public Set<String> getByNameNullOrDefaultValueAsSet(final String name) {
+		final Entry config = getSnapshot().get(name);
+		if (config == null) {
+			return ImmutableSet.of();
+		}
+		return config.asSet();
+	}
+
+	/**
+	 * Immutable copy of the config table at a given version.
+	 */
+	private static class Snapshot {
+
+		private final String version;
+
+		private final ImmutableMap<String, Entry> entries;
+
+		Snapshot(final String version, final List<Config> configs) {
+			this.version = version;
+			final Map<String, Entry> byName = Maps.newHashMap();
+			for ( Config config : configs ) {
+				byName.put(config.getName(), new Entry(config));
 			}
-		} else {
-			return Integer.valueOf(config.getValue());
+			this.entries = ImmutableMap.copyOf(byName);
+		}
+
+		Entry get(final String name) {
+			return name == null ? null : entries.get(name);
+		}
+	}
+
+	/**
+	 * A single config value plus lazily parsed forms of it. Parsing is
+	 * idempotent so racing threads at worst parse the same value twice.
+	 */
+	private static class Entry {
+
+		private final String name;
+		private final String value;
+		private final String defaultValue;
+
+		private volatile Boolean parsedBoolean;
+		private volatile Integer parsedInt;
+		private volatile Set<String> parsedSet;
+
+		Entry(final Config config) {
+			this.name = config.getName();
+			this.value = config.getValue();
+			this.defaultValue = config.getDefaultValue();
+		}
+
+		String valueOrDefault() {
+			if (StringUtils.isBlank(value)) {
+				LOGGER.debug("Using default value for:" + name);
+				return defaultValue;
+			}
+			return value;
+		}
+
+		boolean asBoolean() {
+			if (parsedBoolean == null) {
+				parsedBoolean = Boolean.valueOf(valueOrDefault());
+			}
+			return parsedBoolean;
+		}
+
+		int asInt() {
+			if (parsedInt == null) {
+				if (StringUtils.isBlank(value)
+						|| !StringUtils.isNumeric(value)) {
+					LOGGER.warn("Using default value for:" + name);
+					if (StringUtils.isNumeric(defaultValue)) {
+						parsedInt = Integer.valueOf(defaultValue);
+					} else {
+						throw new ConfigException(name, "be numeric");
+					}
+				} else {
+					parsedInt = Integer.valueOf(value);
+				}
+			}
+			return parsedInt;
+		}
+
+		Set<String> asSet() {
+			if (parsedSet == null) {
+				final String raw = valueOrDefault();
+				final ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+				if (raw != null) {
+					// spaces are stripped anywhere in the value, not just
+					// trimmed, so e.g. "C +" still means "C+"
+					for (String item : raw.replaceAll(" ", "").split(",")) {
+						if (!(item.isEmpty())) {
+							builder.add(item);
+						}
+					}
+				}
+				parsedSet = builder.build();
+			}
+			return parsedSet;
 		}
 	}
 }
@@ -22,6 +22,7 @@ import org.apache.commons.lang.StringUtils;
 import org.jasig.ssp.dao.reference.MessageTemplateDao;
 import org.jasig.ssp.model.AbstractPlan;
 import org.jasig.ssp.model.EarlyAlert;
+import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.Person;
 import org.jasig.ssp.model.SubjectAndBody;
 import org.jasig.ssp.model.Task;
@@ -45,7 +46,13 @@ import org.jasig.ssp.transferobject.reference.MessageTemplateTO;
 import org.jasig.ssp.transferobject.reports.MapStatusReportSummary;
 import org.jasig.ssp.util.DateTimeUtils;
 import org.jasig.ssp.util.MessageTemplatePreviewTOBuilder;
+import org.jasig.ssp.util.collections.Pair;
+import org.jasig.ssp.web.api.validation.ValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -58,6 +65,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * MessageTemplate service
@@ -66,7 +74,13 @@ import java.util.UUID;
 @Transactional
 public class MessageTemplateServiceImpl extends
 		AbstractReferenceService<MessageTemplate> implements
-		MessageTemplateService {
+		MessageTemplateService, ApplicationListener<ContextRefreshedEvent> {
+
+	private static final Logger LOGGER = LoggerFactory
+			.getLogger(MessageTemplateServiceImpl.class);
+
+	// the root and web contexts both announce their refresh
+	private final AtomicBoolean templatesWarmed = new AtomicBoolean();
 
 	@Autowired
 	transient private MessageTemplateDao dao;
@@ -84,11 +98,50 @@ public class MessageTemplateServiceImpl extends
 		this.dao = dao;
 	}
 
+	protected void setVelocityTemplateService(final VelocityTemplateService velocityTemplateService) {
+		this.velocityTemplateService = velocityTemplateService;
+	}
+
 	@Override
 	protected MessageTemplateDao getDao() {
 		return dao;
 	}
 
+	@Override
+	public MessageTemplate save(final MessageTemplate obj)
+			throws ObjectNotFoundException, ValidationException {
+		// versions cached before this change will never be asked for again
+		if ( obj.getId() != null ) {
+			velocityTemplateService.evictTemplates(obj.getId().toString());
+		}
+		return super.save(obj);
+	}
+
+	/**
+	 * Parses every active template up front so the first messages sent after
+	 * startup, e.g. by a reminder run, don't each pay for it.
+	 */
+	@Override
+	public void onApplicationEvent(final ContextRefreshedEvent event) {
+		if ( !(templatesWarmed.compareAndSet(false, true)) ) {
+			return;
+		}
+		int warmed = 0;
+		for ( final MessageTemplate messageTemplate : dao.getAll(ObjectStatus.ACTIVE) ) {
+			try {
+				velocityTemplateService.warmTemplate(messageTemplate.getSubject(),
+						messageTemplate.subjectTemplateId());
+				velocityTemplateService.warmTemplate(messageTemplate.getBody(),
+						messageTemplate.bodyTemplateId());
+				warmed++;
+			} catch ( final RuntimeException e ) {
+				// leave it to fail, and be reported, when actually rendered
+				LOGGER.warn("Could not pre-parse message template {}", messageTemplate.getId(), e);
+			}
+		}
+		LOGGER.info("Pre-parsed {} message templates", warmed);
+	}
+
 	@Autowired
 	private transient ConfigService configService;
 
@@ -197,6 +250,27 @@ public class MessageTemplateServiceImpl extends
 				messageParams);
 	}
 
+	@Override
+	public SubjectAndBody createTaskReminderDigestMessage(final Person student,
+			final List<TaskMessageTemplateTO> tasks) {
+		final Map<String, Object> messageParams = new HashMap<String, Object>();
+		messageParams.put("student", student);
+		messageParams.put("fullName", student.getFullName());
+		messageParams.put("taskReminders", taskReminders(tasks));
+		return populateFromTemplate(MessageTemplate.TASK_REMINDER_DIGEST_ID,
+				messageParams);
+	}
+
+	private List<Pair<TaskMessageTemplateTO, String>> taskReminders(final List<TaskMessageTemplateTO> tasks) {
+		final List<Pair<TaskMessageTemplateTO, String>> taskReminders =
+				new ArrayList<Pair<TaskMessageTemplateTO, String>>(tasks.size());
+		for ( final TaskMessageTemplateTO task : tasks ) {
+			taskReminders.add(new Pair<TaskMessageTemplateTO, String>(task,
+					task.getDueDate() == null ? "" : formatDate(task.getDueDate())));
+		}
+		return taskReminders;
+	}
+
 	@Override
 	public SubjectAndBody createActionPlanMessage(final Person student,
 			final List<TaskTO> taskTOs, final List<GoalTO> goalTOs,  List<StrengthTO> strengthTOs) {
@@ -519,6 +593,8 @@ public class MessageTemplateServiceImpl extends
 			messageParams = createBulkAddCaseloadReassignmentMessageParams();
 		} else if (id.equals(MessageTemplate.EMAIL_SPECIAL_SERVICE_GROUP_COURSE_WITHDRAWAL_TO_ADVISOR_ID)) {
 			messageParams = createSpecialServiceGroupCourseWithdrawalToAdvisorMessageParams();
+		} else if (id.equals(MessageTemplate.TASK_REMINDER_DIGEST_ID)) {
+			messageParams = createTaskReminderDigestMessageParams();
 		} else{
 			messageParams = new HashMap<String, Object>();
 		}
@@ -561,6 +637,17 @@ public class MessageTemplateServiceImpl extends
 		return messageParams;
 	}
 
+	private Map<String,Object> createTaskReminderDigestMessageParams() {
+		Map<String, Object> messageParams = new HashMap<String, Object>();
+		messageParams.put("student", MessageTemplatePreviewTOBuilder.createPerson());
+		messageParams.put("fullName", "Student FullName");
+		final List<TaskMessageTemplateTO> tasks = new ArrayList<TaskMessageTemplateTO>();
+		tasks.add(MessageTemplatePreviewTOBuilder.createTaskMessageTemplateTO("1"));
+		tasks.add(MessageTemplatePreviewTOBuilder.createTaskMessageTemplateTO("2"));
+		messageParams.put("taskReminders", taskReminders(tasks));
+		return messageParams;
+	}
+
 	private Map<String,Object> createCustomActionPlanTaskEmailMessageParams() {
 		Map<String, Object> messageParams = new HashMap<String, Object>();
 		messageParams.put("task", MessageTemplatePreviewTOBuilder.createTaskMessageTemplateTO());
@@ -21,6 +21,8 @@ package org.jasig.ssp.transferobject;
 import java.io.Serializable;
 import java.util.Collection;
 
+import org.jasig.ssp.util.sort.PagingWrapper;
+
 public class PagedResponse<T> extends ServiceResponse implements Serializable {
 
 	private static final long serialVersionUID = -4699337121115833047L;
@@ -29,6 +31,10 @@ public class PagedResponse<T> extends ServiceResponse implements Serializable {
 
 	private Collection<T> rows;
 
+	private boolean totalCounted = true;
+
+	private String continuation;
+
 	public PagedResponse(final boolean success) {
 		super(success);
 	}
@@ -66,6 +72,24 @@ public class PagedResponse<T> extends ServiceResponse implements Serializable {
 		this.rows = rows;
 	}
 
+	/**
+	 * Constructor that copies the total row count and paging metadata from
+	 * the DAO results, with the paged rows already converted for output.
+	 * 
+	 * @param success
+	 *            Success of the service call
+	 * @param paging
+	 *            Results the rows were converted from
+	 * @param rows
+	 *            Only the paged rows that were requested
+	 */
+	public PagedResponse(final boolean success, final PagingWrapper<?> paging,
+			final Collection<T> rows) {
+		this(success, paging.getResults(), rows);
+		this.totalCounted = paging.isTotalCounted();
+		this.continuation = paging.getContinuation();
+	}
+
 	/**
 	 * @return the results
 	 */
@@ -96,4 +120,35 @@ public class PagedResponse<T> extends ServiceResponse implements Serializable {
 		this.rows = rows;
 	}
 
+	/**
+	 * @return false if the results are only the number of rows read so far
+	 */
+	public boolean isTotalCounted() {
+		return totalCounted;
+	}
+
+	/**
+	 * @param totalCounted
+	 *            true if the results are an exact total
+	 */
+	public void setTotalCounted(final boolean totalCounted) {
+		this.totalCounted = totalCounted;
+	}
+
+	/**
+	 * @return opaque token to request the next page with, or null if there
+	 *         are no more rows or keyset paging wasn't requested
+	 */
+	public String getContinuation() {
+		return continuation;
+	}
+
+	/**
+	 * @param continuation
+	 *            the continuation token to set
+	 */
+	public void setContinuation(final String continuation) {
+		this.continuation = continuation;
+	}
+
 }
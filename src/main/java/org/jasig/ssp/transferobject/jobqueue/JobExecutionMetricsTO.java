@@ -0,0 +1,187 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.transferobject.jobqueue;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.UUID;
+
+import org.jasig.ssp.model.jobqueue.Job;
+import org.jasig.ssp.model.jobqueue.WorkflowStatus;
+import org.jasig.ssp.service.jobqueue.BasePersonSearchBasedJobExecutionState;
+
+/**
+ * Progress and throughput of a person search based bulk {@link Job}, as recorded in its execution state. The
+ * person counts are {@code null} if the job's state isn't person search based or it hasn't started yet.
+ */
+public class JobExecutionMetricsTO implements Serializable {
+
+	private static final long serialVersionUID = -3641092213472917034L;
+
+	private UUID jobId;
+	private String executionComponentName;
+	private WorkflowStatus workflowStatus;
+	private Date executionStartedDate;
+	private Date workflowStoppedDate;
+	private Integer parallelism;
+	private Integer personsTargeted;
+	private Integer personsSucceeded;
+	private Integer personsFailed;
+	private Integer failedAttempts;
+	private Integer retryQueueSize;
+	private Integer dlqSize;
+	private Long processingMillis;
+	private Double personsPerSecond;
+
+	public JobExecutionMetricsTO() {
+		super();
+	}
+
+	public JobExecutionMetricsTO(Job job, BasePersonSearchBasedJobExecutionState state) {
+		this.jobId = job.getId();
+		this.executionComponentName = job.getExecutionComponentName();
+		this.workflowStatus = job.getWorkflowStatus();
+		this.executionStartedDate = job.getExecutionStartedDate();
+		this.workflowStoppedDate = job.getWorkflowStoppedDate();
+		if ( state != null ) {
+			this.parallelism = Math.max(1, state.parallelism);
+			this.personsTargeted = state.snapshotTaken ? state.snapshotSize : null;
+			this.personsSucceeded = state.personsSucceededCount;
+			this.personsFailed = state.personsFailedCount;
+			this.failedAttempts = state.failedAttemptsCount;
+			this.retryQueueSize = state.retryQueue == null ? 0 : state.retryQueue.size();
+			this.dlqSize = state.dlq == null ? 0 : state.dlq.size();
+			this.processingMillis = state.processingMillis;
+			this.personsPerSecond = state.processingMillis <= 0 ? null
+					: (state.personsSucceededCount + state.personsFailedCount) * 1000d / state.processingMillis;
+		}
+	}
+
+	public UUID getJobId() {
+		return jobId;
+	}
+
+	public void setJobId(UUID jobId) {
+		this.jobId = jobId;
+	}
+
+	public String getExecutionComponentName() {
+		return executionComponentName;
+	}
+
+	public void setExecutionComponentName(String executionComponentName) {
+		this.executionComponentName = executionComponentName;
+	}
+
+	public WorkflowStatus getWorkflowStatus() {
+		return workflowStatus;
+	}
+
+	public void setWorkflowStatus(WorkflowStatus workflowStatus) {
+		this.workflowStatus = workflowStatus;
+	}
+
+	public Date getExecutionStartedDate() {
+		return executionStartedDate;
+	}
+
+	public void setExecutionStartedDate(Date executionStartedDate) {
+		this.executionStartedDate = executionStartedDate;
+	}
+
+	public Date getWorkflowStoppedDate() {
+		return workflowStoppedDate;
+	}
+
+	public void setWorkflowStoppedDate(Date workflowStoppedDate) {
+		this.workflowStoppedDate = workflowStoppedDate;
+	}
+
+	public Integer getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(Integer parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	public Integer getPersonsTargeted() {
+		return personsTargeted;
+	}
+
+	public void setPersonsTargeted(Integer personsTargeted) {
+		this.personsTargeted = personsTargeted;
+	}
+
+	public Integer getPersonsSucceeded() {
+		return personsSucceeded;
+	}
+
+	public void setPersonsSucceeded(Integer personsSucceeded) {
+		this.personsSucceeded = personsSucceeded;
+	}
+
+	public Integer getPersonsFailed() {
+		return personsFailed;
+	}
+
+	public void setPersonsFailed(Integer personsFailed) {
+		this.personsFailed = personsFailed;
+	}
+
+	public Integer getFailedAttempts() {
+		return failedAttempts;
+	}
+
+	public void setFailedAttempts(Integer failedAttempts) {
+		this.failedAttempts = failedAttempts;
+	}
+
+	public Integer getRetryQueueSize() {
+		return retryQueueSize;
+	}
+
+	public void setRetryQueueSize(Integer retryQueueSize) {
+		this.retryQueueSize = retryQueueSize;
+	}
+
+	public Integer getDlqSize() {
+		return dlqSize;
+	}
+
+	public void setDlqSize(Integer dlqSize) {
+		this.dlqSize = dlqSize;
+	}
+
+	public Long getProcessingMillis() {
+		return processingMillis;
+	}
+
+	public void setProcessingMillis(Long processingMillis) {
+		this.processingMillis = processingMillis;
+	}
+
+	public Double getPersonsPerSecond() {
+		return personsPerSecond;
+	}
+
+	public void setPersonsPerSecond(Double personsPerSecond) {
+		this.personsPerSecond = personsPerSecond;
+	}
+}
@@ -20,13 +20,24 @@ package org.jasig.ssp.util.hibernate;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
+import com.google.common.collect.Lists;
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.internal.CriteriaImpl;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortingAndPaging;
 import org.slf4j.Logger;
@@ -43,6 +54,14 @@ import org.springframework.beans.factory.annotation.Value;
  *		}while(processor.moreToProcess());
  *
  *	return processor.getPagedResults();
+ *
+ * <p>
+ * Criteria-based processing of more than one batch of {@link UUID} or
+ * {@link String} values runs as a single set-based query instead, see
+ * {@link InSetRestriction}, with sorting and paging done by the database
+ * when the criteria returns entities. HQL processing, other value types
+ * and other databases always use the batches.
+ * </p>
  * @param <I>
  * @param <O>
  */
@@ -50,6 +69,16 @@ public class BatchProcessor<I, O> {
 
 	private static final Logger LOGGER = LoggerFactory
 			.getLogger(BatchProcessor.class);
+
+	/**
+	 * Builds the criteria for one chunk in
+	 * {@link BatchProcessor#processInParallel(SessionFactory, ExecutorService, ChunkCriteriaFactory, String)}.
+	 * Called from pool threads, so implementations must only use the given
+	 * session, never the current one.
+	 */
+	public interface ChunkCriteriaFactory {
+		Criteria createCriteria(StatelessSession session);
+	}
 	
 	@Value("#{configProperties.db_batchsize}")
 	private int batchsize = 300;
@@ -58,26 +87,33 @@ public class BatchProcessor<I, O> {
 	
 	Iterator<List<I>> batches;
 	List<O> results = new ArrayList<O>();
+
+	private final Collection<I> in;
+	private boolean started = false;
+	// set when a set-based query already sorted and paged the results
+	private boolean sortedAndPaged = false;
+	private Long totalCount = null;
 	
 	public BatchProcessor(List<I> in, SortingAndPaging sortAndPage) {
-		batches = prepareBatches(in);
-		this.sortAndPage = sortAndPage;
+		this((Collection<I>) in, sortAndPage);
 	}
 	
 	public BatchProcessor(Collection<I> in, SortingAndPaging sortAndPage) {
+		this.in = in;
 		batches = prepareBatches(in);
 		this.sortAndPage = sortAndPage;
 	}
 	
 	public BatchProcessor(List<I> in) {
-		batches = prepareBatches(in);
+		this((Collection<I>) in, null);
 	}
 	
 	public BatchProcessor(Collection<I> in) {
-		batches = prepareBatches(in);
+		this(in, null);
 	}
 	
 	public void process(Query query, String propertyName){
+		started = true;
 		if(batches.hasNext()){
 			List<I> batch = batches.next();
 			if(batch != null && !batch.isEmpty()){
@@ -88,6 +124,7 @@ public class BatchProcessor<I, O> {
 	}
 	
 	public List<I> updateProcess(Query query, String propertyName){
+		started = true;
 		if(batches.hasNext()){
 			List<I> batch = batches.next();
 			if(batch != null && !batch.isEmpty()){
@@ -100,6 +137,7 @@ public class BatchProcessor<I, O> {
 	}
 	
 	public void countDistinct(Query query, String propertyName){
+		started = true;
 		if(batches.hasNext()){
 			List<I> batch = batches.next();
 			if(batch != null && !batch.isEmpty()){
@@ -110,6 +148,12 @@ public class BatchProcessor<I, O> {
 	}
 	
 	public void countDistinct(Criteria query, String propertyName){
+		if(isSetBased(query)){
+			query.add(new InSetRestriction(propertyName, in));
+			count += (Long)(query.uniqueResult());
+			return;
+		}
+		started = true;
 		if(batches.hasNext()){
 			List<I> batch = batches.next();
 			if(batch != null && !batch.isEmpty()){
@@ -120,6 +164,17 @@ public class BatchProcessor<I, O> {
 	}
 	
 	public void process(Criteria criteria, String propertyName){
+		if(isSetBased(criteria)){
+			criteria.add(new InSetRestriction(propertyName, in));
+			if(sortAndPage != null && isOneRowPerEntity((CriteriaImpl)criteria)){
+				// nulls low, same as the in-memory sort of the chunked path
+				totalCount = sortAndPage.applySortingAndPagingToPagedQuery(criteria, false, true);
+				sortedAndPaged = true;
+			}
+			results.addAll(criteria.list());
+			return;
+		}
+		started = true;
 		if(batches.hasNext()){
 			List<I> batch = batches.next();
 			if(batch != null && !batch.isEmpty()){
@@ -129,13 +184,149 @@ public class BatchProcessor<I, O> {
 		}
 	}
 	
+	/**
+	 * Alternative to the {@link #process(Criteria, String)} loop for read-only
+	 * queries whose results don't need the current session, e.g. report
+	 * transfer objects. Processes every value in one call: as a single
+	 * set-based query where supported, sorted and paged by the database,
+	 * otherwise by running the chunks concurrently, each in its own
+	 * {@link StatelessSession}, and sorting and paging the combined rows in
+	 * memory like {@link #process(Criteria, String)} does.
+	 *
+	 * <p>
+	 * If the set-based query ran, {@link #getSortedAndPagedResults()} can't
+	 * report the total; callers that need it must count separately.
+	 * </p>
+	 *
+	 * @param executor
+	 *            runs the chunks. Should be bounded and run rejected tasks
+	 *            in the calling thread, since each running chunk holds a
+	 *            database connection.
+	 */
+	public void processInParallel(final SessionFactory sessionFactory,
+			final ExecutorService executor,
+			final ChunkCriteriaFactory criteriaFactory, final String propertyName){
+		started = true;
+		final List<List<I>> chunks = Lists.newArrayList(batches);
+		batches = Collections.<List<I>>emptyList().iterator();
+		if(chunks.isEmpty()){
+			return;
+		}
+
+		if(chunks.size() > 1 && InSetRestriction.isSupported(
+				((SessionFactoryImplementor)sessionFactory).getDialect(), in)){
+			sortedAndPaged = true;
+			results.addAll(this.<O>listChunk(sessionFactory, criteriaFactory, propertyName,
+					in, true));
+			return;
+		}
+		if(chunks.size() == 1){
+			results.addAll(this.<O>listChunk(sessionFactory, criteriaFactory, propertyName,
+					chunks.get(0), false));
+			return;
+		}
+
+		final List<Future<List<O>>> futures = Lists.newArrayListWithCapacity(chunks.size());
+		try{
+			for(final List<I> chunk : chunks){
+				futures.add(executor.submit(new Callable<List<O>>() {
+					@Override
+					public List<O> call() {
+						return listChunk(sessionFactory, criteriaFactory, propertyName,
+								chunk, false);
+					}
+				}));
+			}
+			for(final Future<List<O>> future : futures){
+				results.addAll(future.get());
+			}
+		}catch(InterruptedException e){
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted waiting for batch chunk queries", e);
+		}catch(ExecutionException e){
+			if(e.getCause() instanceof RuntimeException){
+				throw (RuntimeException)e.getCause();
+			}
+			throw new IllegalStateException("Batch chunk query failed", e.getCause());
+		}finally{
+			for(final Future<List<O>> future : futures){
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Lists one chunk in a new stateless session. With {@code setBased} the
+	 * values are bound as one set and the requested page is sorted and
+	 * paged in SQL, nulls low like the in-memory sort.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> List<T> listChunk(final SessionFactory sessionFactory,
+			final ChunkCriteriaFactory criteriaFactory, final String propertyName,
+			final Collection<I> values, final boolean setBased){
+		final StatelessSession session = sessionFactory.openStatelessSession();
+		try{
+			final Criteria criteria = criteriaFactory.createCriteria(session);
+			if(setBased){
+				criteria.add(new InSetRestriction(propertyName, values));
+				if(sortAndPage != null){
+					sortAndPage.addSortingToCriteria(criteria, true);
+					sortAndPage.addPagingToCriteria(criteria);
+				}
+			}else{
+				criteria.add(Restrictions.in(propertyName, values));
+			}
+			return criteria.list();
+		}finally{
+			try{
+				session.close();
+			}catch(Exception e){
+				// nothing to do and likely harmless
+				LOGGER.info("Failed to close Hibernate StatelessSession", e);
+			}
+		}
+	}
+
+	/**
+	 * Decides whether the first Criteria call can handle every value at once,
+	 * in which case the batches are discarded so the caller's
+	 * {@link #moreToProcess()} loop ends after this call.
+	 */
+	private boolean isSetBased(Criteria criteria){
+		if(started || in == null || in.size() <= batchsize
+				|| !(criteria instanceof CriteriaImpl)){
+			return false;
+		}
+		final SessionImplementor session = ((CriteriaImpl)criteria).getSession();
+		if(session == null
+				|| !InSetRestriction.isSupported(session.getFactory().getDialect(), in)){
+			return false;
+		}
+		started = true;
+		batches = Collections.<List<I>>emptyList().iterator();
+		return true;
+	}
+	
+	/**
+	 * True if each SQL row of the criteria is one distinct entity, so the
+	 * database can count and page them. Not true of projections, nor of
+	 * collection fetch joins de-duplicated by a
+	 * {@link Criteria#DISTINCT_ROOT_ENTITY} transformer: counting and
+	 * paging those in SQL would count and page joined rows.
+	 */
+	private boolean isOneRowPerEntity(CriteriaImpl criteria){
+		return criteria.getProjection() == null
+				&& (criteria.getResultTransformer() == null
+						|| criteria.getResultTransformer() == Criteria.ROOT_ENTITY);
+	}
+
 	public Boolean moreToProcess(){
 		return batches.hasNext();
 	}
 	
 	public List<O> getSortedAndPagedResultsAsList() {
 		
-		if(sortAndPage != null){
+		if(sortAndPage != null && !sortedAndPaged){
 			try{
 				return (List<O>)sortAndPage.sortAndPageList((List<Object>)results);
 			}catch(Exception exp){
@@ -156,6 +347,9 @@ public class BatchProcessor<I, O> {
 	}
 	
 	public PagingWrapper<O> getSortedAndPagedResults(){
+		if(sortedAndPaged){
+			return new PagingWrapper<O>(totalCount == null ? results.size() : totalCount, results);
+		}
 		Integer count = results.size();
 		if(sortAndPage != null){
 			try{
@@ -0,0 +1,228 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.util.hibernate;
+
+import java.io.Serializable;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.hibernate.Criteria;
+import org.hibernate.HibernateException;
+import org.hibernate.criterion.CriteriaQuery;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.TypedValue;
+import org.hibernate.type.CustomType;
+import org.hibernate.type.StringType;
+import org.hibernate.usertype.UserType;
+
+/**
+ * Set-based alternative to {@link org.hibernate.criterion.Restrictions#in}
+ * for large collections of {@link UUID} or {@link String} values: the whole
+ * collection is bound as a single parameter instead of one parameter per
+ * value, so it doesn't have to be split into chunks and run as separate
+ * queries. On PostgreSQL the values are bound as an array
+ * ({@code col = any(?)}); on SQL Server as an XML document shredded into a
+ * derived table. See {@link #isSupported(Dialect, Collection)} for when it can
+ * be used.
+ */
+public class InSetRestriction implements Criterion {
+
+	private static final long serialVersionUID = -5340574925427733497L;
+
+	private final String propertyName;
+
+	private final Object[] values;
+
+	private final boolean uuids;
+
+	public InSetRestriction(final String propertyName,
+			final Collection<?> values) {
+		this.propertyName = propertyName;
+		this.values = values.toArray();
+		this.uuids = this.values.length > 0 && this.values[0] instanceof UUID;
+	}
+
+	/**
+	 * True if the dialect has a set-based implementation and every value is a
+	 * non-null {@link UUID}, or every value a non-null {@link String}.
+	 */
+	public static boolean isSupported(final Dialect dialect,
+			final Collection<?> values) {
+		if (!(dialect instanceof PostgreSQL81Dialect)
+				&& !(dialect instanceof SQLServerDialect)) {
+			return false;
+		}
+		if (values == null || values.isEmpty()) {
+			return false;
+		}
+		final Class<?> type = values.iterator().next() instanceof UUID
+				? UUID.class : String.class;
+		for (final Object value : values) {
+			if (!type.isInstance(value)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toSqlString(final Criteria criteria,
+			final CriteriaQuery criteriaQuery) throws HibernateException {
+		final String[] columns = criteriaQuery.getColumnsUsingProjection(
+				criteria, propertyName);
+		if (columns.length != 1) {
+			throw new HibernateException(
+					"InSetRestriction may only be used with a single-column property: "
+							+ propertyName);
+		}
+		if (isPostgres(criteriaQuery)) {
+			return uuids ? columns[0] + " = any(cast(? as uuid[]))"
+					: columns[0] + " = any(?)";
+		}
+		return columns[0] + " in (select t.c.value('.', '"
+				+ (uuids ? "uniqueidentifier" : "nvarchar(4000)")
+				+ "') from (select cast(? as xml) as x) s cross apply s.x.nodes('/i') t(c))";
+	}
+
+	@Override
+	public TypedValue[] getTypedValues(final Criteria criteria,
+			final CriteriaQuery criteriaQuery) throws HibernateException {
+		if (isPostgres(criteriaQuery)) {
+			final String[] strings = new String[values.length];
+			for (int i = 0; i < values.length; i++) {
+				strings[i] = values[i].toString();
+			}
+			return new TypedValue[] { new TypedValue(new CustomType(
+					new VarcharArrayType()), strings) };
+		}
+		final StringBuilder xml = new StringBuilder(values.length * 45);
+		for (final Object value : values) {
+			xml.append("<i>")
+					.append(StringEscapeUtils.escapeXml(value.toString()))
+					.append("</i>");
+		}
+		return new TypedValue[] { new TypedValue(StringType.INSTANCE,
+				xml.toString()) };
+	}
+
+	private boolean isPostgres(final CriteriaQuery criteriaQuery) {
+		return criteriaQuery.getFactory().getDialect() instanceof PostgreSQL81Dialect;
+	}
+
+	@Override
+	public String toString() {
+		return propertyName + " in set of " + values.length;
+	}
+
+	/**
+	 * Maps a {@code String[]} to a JDBC {@code varchar[]} array.
+	 */
+	static class VarcharArrayType implements UserType {
+
+		@Override
+		public int[] sqlTypes() {
+			return new int[] { Types.ARRAY };
+		}
+
+		@Override
+		public Class<?> returnedClass() {
+			return String[].class;
+		}
+
+		@Override
+		public boolean equals(final Object x, final Object y) {
+			return Arrays.equals((Object[]) x, (Object[]) y);
+		}
+
+		@Override
+		public int hashCode(final Object x) {
+			return Arrays.hashCode((Object[]) x);
+		}
+
+		@Override
+		public Object nullSafeGet(final ResultSet rs, final String[] names,
+				final SessionImplementor session, final Object owner)
+				throws SQLException {
+			final Array array = rs.getArray(names[0]);
+			if (array == null) {
+				return null;
+			}
+			try {
+				final Object[] elements = (Object[]) array.getArray();
+				final String[] strings = new String[elements.length];
+				for (int i = 0; i < elements.length; i++) {
+					strings[i] = elements[i] == null ? null : elements[i]
+							.toString();
+				}
+				return strings;
+			} finally {
+				array.free();
+			}
+		}
+
+		@Override
+		public void nullSafeSet(final PreparedStatement st,
+				final Object value, final int index,
+				final SessionImplementor session) throws SQLException {
+			if (value == null) {
+				st.setNull(index, Types.ARRAY);
+				return;
+			}
+			st.setArray(index, st.getConnection().createArrayOf("varchar",
+					(Object[]) value));
+		}
+
+		@Override
+		public Object deepCopy(final Object value) {
+			return value;
+		}
+
+		@Override
+		public boolean isMutable() {
+			return false;
+		}
+
+		@Override
+		public Serializable disassemble(final Object value) {
+			return (Serializable) value;
+		}
+
+		@Override
+		public Object assemble(final Serializable cached, final Object owner) {
+			return cached;
+		}
+
+		@Override
+		public Object replace(final Object original, final Object target,
+				final Object owner) {
+			return original;
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.util.hibernate;
+
+import org.hibernate.Criteria;
+import org.hibernate.HibernateException;
+import org.hibernate.criterion.CriteriaQuery;
+import org.hibernate.criterion.Order;
+import org.hibernate.dialect.SQLServerDialect;
+
+/**
+ * {@link Order} which always sorts nulls low, i.e. first when ascending and
+ * last when descending, whatever the database's default. That is how SQL
+ * Server sorts them anyway and how
+ * {@link org.jasig.ssp.util.sort.SortingAndPaging.GenericComparator} sorts in
+ * memory, so results come out in the same order whether they were sorted by
+ * the database or not. Elsewhere (e.g. PostgreSQL, which sorts nulls high)
+ * an explicit {@code nulls first}/{@code nulls last} is added.
+ */
+public class NullsLowOrder extends Order {
+
+	private static final long serialVersionUID = 7164390151256913402L;
+
+	private final boolean ascending;
+
+	protected NullsLowOrder(final String propertyName, final boolean ascending) {
+		super(propertyName, ascending);
+		this.ascending = ascending;
+	}
+
+	public static NullsLowOrder asc(final String propertyName) {
+		return new NullsLowOrder(propertyName, true);
+	}
+
+	public static NullsLowOrder desc(final String propertyName) {
+		return new NullsLowOrder(propertyName, false);
+	}
+
+	@Override
+	public String toSqlString(final Criteria criteria,
+			final CriteriaQuery criteriaQuery) throws HibernateException {
+		final String sql = super.toSqlString(criteria, criteriaQuery);
+		if (criteriaQuery.getFactory().getDialect() instanceof SQLServerDialect) {
+			return sql;
+		}
+		final String nulls = ascending ? " nulls first" : " nulls last";
+		// one entry per column for multi-column properties
+		final String[] columns = sql.split(", ");
+		final StringBuilder ordered = new StringBuilder();
+		for (int i = 0; i < columns.length; i++) {
+			if (i > 0) {
+				ordered.append(", ");
+			}
+			ordered.append(columns[i]).append(nulls);
+		}
+		return ordered.toString();
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.util.sort;
+
+/**
+ * How {@link SortingAndPaging} arrives at the total row count for a paged HQL
+ * query, see {@link PagingWrapper#isTotalCounted()}.
+ */
+public enum CountPolicy {
+	/**
+	 * Run a full count query. Use for exports and anything else that needs
+	 * the true total.
+	 */
+	EXACT,
+
+	/**
+	 * No count query. The total is only known once the last page has been
+	 * read; until then it is the number of rows read so far plus one if more
+	 * rows exist.
+	 */
+	SKIP,
+
+	/**
+	 * Count at most {@link SortingAndPaging#COUNT_ESTIMATE_PAGES} pages
+	 * ahead of the current one. The total is exact when the matching rows
+	 * fit in that window, otherwise a lower bound.
+	 */
+	ESTIMATE,
+
+	/**
+	 * Exact count served from the Hibernate query cache (region
+	 * {@link SortingAndPaging#COUNT_CACHE_REGION}) when the same query and
+	 * parameters were counted recently. Same as {@link #EXACT} if query
+	 * caching is disabled.
+	 */
+	CACHED;
+
+	/**
+	 * Parses a string to get the equivalent count policy.
+	 *
+	 * @param countPolicy
+	 *            Policy name, case-insensitive
+	 * @param defaultPolicy
+	 *            Returned if null or invalid parameters were sent
+	 * @return An equivalent count policy, or the default
+	 */
+	public static CountPolicy getCountPolicy(final String countPolicy,
+			final CountPolicy defaultPolicy) {
+		if (countPolicy == null) {
+			return defaultPolicy;
+		}
+		try {
+			return valueOf(countPolicy.trim().toUpperCase()); // NOPMD
+		} catch (final Exception e) {
+			return defaultPolicy;
+		}
+	}
+}
@@ -0,0 +1,226 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.util.sort;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Opaque continuation for keyset (seek) paging, see
+ * {@link SortingAndPaging#useKeyset(String)}.
+ *
+ * <p>
+ * Holds the sort key values of the last row of the previous page (the
+ * <em>anchor</em>), which the next query turns into a seek predicate instead
+ * of an ever-growing offset. If the most recent rows had a sort key that
+ * can't be used as an anchor (e.g. a {@code null}) the previous anchor is kept
+ * and {@link #getOffset()} counts the rows read past it, so paging degrades
+ * to a short offset rather than failing.
+ * </p>
+ *
+ * <p>
+ * Clients should treat the encoded form as opaque. It is only valid for the
+ * sort order it was produced with.
+ * </p>
+ */
+public final class KeysetToken implements Serializable {
+
+	private static final long serialVersionUID = -2379162468236120337L;
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final long position;
+
+	private final int offset;
+
+	private final List<Object> anchor;
+
+	private final int signature;
+
+	/**
+	 * @param position
+	 *            Number of rows returned before the page this token starts
+	 * @param offset
+	 *            Number of rows to skip after the anchor
+	 * @param anchor
+	 *            Sort key values of the anchor row, or null to start from the
+	 *            first row
+	 * @param signature
+	 *            Hash of the sort order the anchor belongs to
+	 */
+	KeysetToken(final long position, final int offset,
+			final List<Object> anchor, final int signature) {
+		this.position = position;
+		this.offset = offset;
+		this.anchor = anchor == null ? null : Collections
+				.unmodifiableList(Lists.newArrayList(anchor));
+		this.signature = signature;
+	}
+
+	public long getPosition() {
+		return position;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public List<Object> getAnchor() {
+		return anchor;
+	}
+
+	public int getSignature() {
+		return signature;
+	}
+
+	/**
+	 * True if the value can be stored as an anchor key, i.e. it is non-null
+	 * and of a type {@link #encode()} knows how to round-trip.
+	 */
+	static boolean isAnchorable(final Object value) {
+		return value instanceof String || value instanceof Date
+				|| value instanceof Integer || value instanceof Long
+				|| value instanceof BigDecimal || value instanceof UUID
+				|| value instanceof Boolean;
+	}
+
+	/**
+	 * URL-safe encoded form of this token.
+	 */
+	public String encode() {
+		final List<Object> parts = Lists.newArrayList();
+		parts.add(signature);
+		parts.add(position);
+		parts.add(offset);
+		if (anchor != null) {
+			for (final Object value : anchor) {
+				parts.add(encodeValue(value));
+			}
+		}
+		try {
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(
+					MAPPER.writeValueAsBytes(parts));
+		} catch (final IOException e) {
+			throw new IllegalStateException("Unable to encode keyset token",
+					e);
+		}
+	}
+
+	/**
+	 * Parse a token previously produced by {@link #encode()}.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the token is malformed
+	 */
+	public static KeysetToken decode(final String encoded) {
+		if (StringUtils.isBlank(encoded)) {
+			throw new IllegalArgumentException("Keyset token may not be blank.");
+		}
+		try {
+			final List<?> parts = MAPPER.readValue(
+					Base64.getUrlDecoder().decode(encoded.trim()), List.class);
+			if (parts.size() < 3) {
+				throw new IllegalArgumentException("Malformed keyset token.");
+			}
+			final int signature = ((Number) parts.get(0)).intValue();
+			final long position = ((Number) parts.get(1)).longValue();
+			final int offset = ((Number) parts.get(2)).intValue();
+			if (position < 0 || offset < 0) {
+				throw new IllegalArgumentException("Malformed keyset token.");
+			}
+			List<Object> anchor = null;
+			if (parts.size() > 3) {
+				anchor = Lists.newArrayListWithCapacity(parts.size() - 3);
+				for (final Object part : parts.subList(3, parts.size())) {
+					anchor.add(decodeValue((String) part));
+				}
+			}
+			return new KeysetToken(position, offset, anchor, signature);
+		} catch (final IllegalArgumentException e) {
+			throw e;
+		} catch (final IOException | RuntimeException e) {
+			throw new IllegalArgumentException("Malformed keyset token.", e);
+		}
+	}
+
+	private static String encodeValue(final Object value) {
+		if (value instanceof String) {
+			return "s" + value;
+		} else if (value instanceof Timestamp) {
+			// keep the sub-millisecond part, e.g. the microseconds of a
+			// database-set PostgreSQL timestamp, or the anchor would sort
+			// before the row it came from and that row would be repeated
+			final Timestamp timestamp = (Timestamp) value;
+			return "t" + timestamp.getTime() + "." + timestamp.getNanos();
+		} else if (value instanceof Date) {
+			return "d" + ((Date) value).getTime();
+		} else if (value instanceof Integer) {
+			return "i" + value;
+		} else if (value instanceof Long) {
+			return "l" + value;
+		} else if (value instanceof BigDecimal) {
+			return "b" + ((BigDecimal) value).toPlainString();
+		} else if (value instanceof UUID) {
+			return "u" + value;
+		} else if (value instanceof Boolean) {
+			return "z" + value;
+		}
+		throw new IllegalArgumentException("Unsupported keyset value type: "
+				+ (value == null ? "null" : value.getClass().getName()));
+	}
+
+	private static Object decodeValue(final String encoded) {
+		final String value = encoded.substring(1);
+		switch (encoded.charAt(0)) {
+			case 's':
+				return value;
+			case 't':
+				final int dot = value.indexOf('.');
+				final Timestamp timestamp = new Timestamp(Long.parseLong(value.substring(0, dot)));
+				timestamp.setNanos(Integer.parseInt(value.substring(dot + 1)));
+				return timestamp;
+			case 'd':
+				return new Date(Long.parseLong(value));
+			case 'i':
+				return Integer.valueOf(value);
+			case 'l':
+				return Long.valueOf(value);
+			case 'b':
+				return new BigDecimal(value);
+			case 'u':
+				return UUID.fromString(value);
+			case 'z':
+				return Boolean.valueOf(value);
+			default:
+				throw new IllegalArgumentException("Malformed keyset token.");
+		}
+	}
+}
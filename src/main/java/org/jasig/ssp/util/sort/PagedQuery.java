@@ -0,0 +1,101 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.util.sort;
+
+import org.hibernate.Query;
+import org.jasig.ssp.util.collections.Pair;
+
+/**
+ * Query prepared by
+ * {@link SortingAndPaging#applySortingAndPagingToPagedQuery(Object, String, String, StringBuilder, boolean, String, Boolean, java.util.Map)}
+ * along with its total row count and whatever else
+ * {@link SortingAndPaging#listPagedQuery(PagedQuery, org.hibernate.transform.ResultTransformer)}
+ * needs to know about how it was built. Keeping that here rather than on the
+ * {@link SortingAndPaging} lets the same instance prepare several queries.
+ */
+public class PagedQuery extends Pair<Long, Query> {
+
+	private final int keysetColumns;
+
+	private final int keysetSignature;
+
+	private final Long uncountedLowerBound;
+
+	/**
+	 * @param totalRows
+	 *            exact total row count, null if not counted
+	 * @param query
+	 *            the query to list
+	 * @param uncountedLowerBound
+	 *            lower bound for the total row count if it wasn't counted
+	 *            exactly, null otherwise
+	 */
+	public PagedQuery(final Long totalRows, final Query query,
+			final Long uncountedLowerBound) {
+		this(totalRows, query, uncountedLowerBound, 0, 0);
+	}
+
+	/**
+	 * Keyset mode query, see {@link SortingAndPaging#useKeyset(String)}.
+	 *
+	 * @param query
+	 *            the query to list
+	 * @param keysetColumns
+	 *            number of sort key columns appended to the select clause
+	 * @param keysetSignature
+	 *            signature of the sort order, see {@link KeysetToken}
+	 */
+	public static PagedQuery keyset(final Query query, final int keysetColumns,
+			final int keysetSignature) {
+		return new PagedQuery(null, query, null, keysetColumns, keysetSignature);
+	}
+
+	private PagedQuery(final Long totalRows, final Query query,
+			final Long uncountedLowerBound, final int keysetColumns,
+			final int keysetSignature) {
+		super(totalRows, query);
+		this.uncountedLowerBound = uncountedLowerBound;
+		this.keysetColumns = keysetColumns;
+		this.keysetSignature = keysetSignature;
+	}
+
+	/**
+	 * @return number of sort key columns appended to the select clause in
+	 *         keyset mode, 0 otherwise
+	 */
+	public int getKeysetColumns() {
+		return keysetColumns;
+	}
+
+	public int getKeysetSignature() {
+		return keysetSignature;
+	}
+
+	public boolean isKeyset() {
+		return keysetColumns > 0;
+	}
+
+	/**
+	 * @return lower bound for the total row count when it wasn't counted
+	 *         exactly, null otherwise
+	 */
+	public Long getUncountedLowerBound() {
+		return uncountedLowerBound;
+	}
+}
@@ -40,6 +40,10 @@ public class PagingWrapper<T> implements Serializable,
 
 	private Collection<T> rows;
 
+	private boolean totalCounted = true;
+
+	private String continuation;
+
 	/**
 	 * Constructor that initializes the paged rows to return.
 	 * <p>
@@ -111,6 +115,44 @@ public class PagingWrapper<T> implements Serializable,
 		this.rows = rows;
 	}
 
+	/**
+	 * False if {@link #getResults()} is not an exact count of all matching
+	 * rows but only the number of rows read so far, e.g. for keyset paging
+	 * which skips the count query.
+	 * 
+	 * @return true if the results are an exact total
+	 */
+	public boolean isTotalCounted() {
+		return totalCounted;
+	}
+
+	/**
+	 * @param totalCounted
+	 *            true if the results are an exact total
+	 */
+	public void setTotalCounted(final boolean totalCounted) {
+		this.totalCounted = totalCounted;
+	}
+
+	/**
+	 * Opaque token for requesting the next page in keyset paging mode, see
+	 * {@link SortingAndPaging#useKeyset(String)}.
+	 * 
+	 * @return the continuation token, or null if there are no more rows or
+	 *         keyset paging wasn't requested
+	 */
+	public String getContinuation() {
+		return continuation;
+	}
+
+	/**
+	 * @param continuation
+	 *            the continuation token to set
+	 */
+	public void setContinuation(final String continuation) {
+		this.continuation = continuation;
+	}
+
 	@Override
 	public Iterator<T> iterator() {
 		return getRows().iterator();
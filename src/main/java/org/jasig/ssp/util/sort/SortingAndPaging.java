@@ -30,8 +30,13 @@ import org.hibernate.StatelessSession;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.SQLServerDialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.internal.CriteriaImpl;
+import org.hibernate.transform.ResultTransformer;
 import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.util.collections.Pair;
+import org.jasig.ssp.util.hibernate.NullsLowOrder;
 import java.lang.reflect.Field;
 import java.util.*;
 
@@ -44,6 +49,12 @@ import java.util.*;
  * Never allows more than {@link #MAXIMUM_ALLOWABLE_RESULTS} results in one
  * query. Use multiple requests with different firstResult settings to see more
  * results beyond the {@link #MAXIMUM_ALLOWABLE_RESULTS} setting.
+ *
+ * <p>
+ * HQL queries can opt into keyset (seek) paging with
+ * {@link #useKeyset(String)}: each page then starts after the sort keys of
+ * the previous page's last row instead of at an offset, so deep pages cost the
+ * same as the first, and the total count query is skipped.
  */
 public final class SortingAndPaging { // NOPMD
 
@@ -58,6 +69,18 @@ public final class SortingAndPaging { // NOPMD
 	 */
 	final public static Integer MAXIMUM_ALLOWABLE_RESULTS = 1000;
 
+	/**
+	 * How many pages past the current one {@link CountPolicy#ESTIMATE} counts
+	 * before settling for a lower bound.
+	 */
+	final public static int COUNT_ESTIMATE_PAGES = 10;
+
+	/**
+	 * Query cache region for {@link CountPolicy#CACHED} counts. See
+	 * ehcache-ssp.xml for size and expiry.
+	 */
+	final public static String COUNT_CACHE_REGION = "ssp.pagedCount";
+
 	final transient private ObjectStatus status;
 
 	final private transient Integer firstResult;
@@ -74,6 +97,18 @@ public final class SortingAndPaging { // NOPMD
 	@JsonProperty
 	private transient List<Pair<String, SortDirection>> sortFields;
 
+	/**
+	 * Bind parameter prefix for keyset anchor values and select clause alias
+	 * prefix for the sort keys read back from each row.
+	 */
+	private static final String KEYSET_PREFIX = "keyset_";
+
+	private transient boolean keyset;
+
+	private transient KeysetToken keysetContinuation;
+
+	private transient CountPolicy countPolicy = CountPolicy.EXACT;
+
 	/**
 	 * Construct a basic instance with only an {@link ObjectStatus} filter but
 	 * not paging or sorting filters.
@@ -195,6 +230,24 @@ public final class SortingAndPaging { // NOPMD
 		this.defaultSortDirection = defaultSortDirection;
 	}
 
+	/**
+	 * Copy of these settings, including keyset and count policy settings,
+	 * for callers which need to adjust them for one query without affecting
+	 * the caller's instance.
+	 *
+	 * @return a new instance with the same settings
+	 */
+	public SortingAndPaging copy() {
+		final SortingAndPaging copy = new SortingAndPaging(status, firstResult,
+				maxResults, sortFields == null ? null : Lists
+						.newArrayList(sortFields), defaultSortProperty,
+				defaultSortDirection, null);
+		copy.keyset = keyset;
+		copy.keysetContinuation = keysetContinuation;
+		copy.countPolicy = countPolicy;
+		return copy;
+	}
+
 	/**
 	 * Gets the object status
 	 * 
@@ -310,6 +363,73 @@ public final class SortingAndPaging { // NOPMD
 				&& !StringUtils.isEmpty(defaultSortProperty);
 	}
 
+	/**
+	 * Switch to keyset (seek) paging for HQL queries. The first result setting
+	 * is ignored; the page instead starts after the row described by the
+	 * continuation token, and rows are ordered by the sort fields followed by
+	 * the query's count column as a unique tie-breaker. The total count query
+	 * is skipped, see {@link PagingWrapper#isTotalCounted()}.
+	 *
+	 * <p>
+	 * Only applies to
+	 * {@link #applySortingAndPagingToPagedQuery(Object, String, String, StringBuilder, boolean, String, Boolean, Map)}
+	 * results listed with {@link #listPagedQuery(PagedQuery, ResultTransformer)} and
+	 * only when paged; otherwise regular offset paging is used.
+	 *
+	 * @param continuation
+	 *            {@link PagingWrapper#getContinuation()} from the previous
+	 *            page, or null for the first page
+	 * @throws IllegalArgumentException
+	 *             if the continuation token is malformed
+	 */
+	public void useKeyset(final String continuation) {
+		keyset = true;
+		keysetContinuation = StringUtils.isBlank(continuation) ? null
+				: KeysetToken.decode(continuation);
+	}
+
+	/**
+	 * True if keyset paging was requested with {@link #useKeyset(String)}.
+	 *
+	 * @return true if keyset paging was requested
+	 */
+	@JsonIgnore
+	public boolean isKeyset() {
+		return keyset;
+	}
+
+	/**
+	 * Gets the decoded continuation token for keyset paging, if any.
+	 *
+	 * @return the continuation token, or null for the first page
+	 */
+	@JsonIgnore
+	public KeysetToken getKeysetContinuation() {
+		return keysetContinuation;
+	}
+
+	/**
+	 * Gets how paged HQL queries count their total rows.
+	 *
+	 * @return the count policy, never null
+	 */
+	@JsonIgnore
+	public CountPolicy getCountPolicy() {
+		return countPolicy;
+	}
+
+	/**
+	 * Sets how paged HQL queries count their total rows. Keyset paging never
+	 * counts, regardless of this setting.
+	 *
+	 * @param countPolicy
+	 *            the count policy, {@link CountPolicy#EXACT} if null
+	 */
+	public void setCountPolicy(final CountPolicy countPolicy) {
+		this.countPolicy = countPolicy == null ? CountPolicy.EXACT
+				: countPolicy;
+	}
+
 	/**
 	 * Add the current object status filter to the specified criteria.
 	 * 
@@ -362,15 +482,24 @@ public final class SortingAndPaging { // NOPMD
 		return query;
 	}
 	
-	public Pair<Long,Query> applySortingAndPagingToPagedQuery(Object session,
+	public PagedQuery applySortingAndPagingToPagedQuery(Object session,
 			  final String countColumn,
 			  final String hqlSelectClause,
 			  final StringBuilder hqlWithoutSelect,
 			  final boolean filterByStatus,String objectToAddStatusFilter, Boolean isInitialRestriction, Map<String,Object> bindParams) {
 
+		boolean statusFiltered = false;
 		if (filterByStatus && StringUtils.isNotBlank(objectToAddStatusFilter)) {
 			addStatusFilterToQuery(hqlWithoutSelect, objectToAddStatusFilter, isInitialRestriction);
 			bindParams.put("objectStatus", getStatus());
+			statusFiltered = isFilteredByStatus();
+		}
+
+		if (isKeyset() && isPaged() && StringUtils.isNotBlank(countColumn)) {
+			final boolean whereAlready = statusFiltered
+					|| Boolean.FALSE.equals(isInitialRestriction);
+			return applyKeysetToPagedQuery(session, countColumn,
+					hqlSelectClause, hqlWithoutSelect, whereAlready, bindParams);
 		}
 		
 		// When using HQL, subqueries can only occur in the select and the where, not in the from.
@@ -378,44 +507,362 @@ public final class SortingAndPaging { // NOPMD
 		// clause begins so we can unambiguously execute the latter twice, once with our count()
 		// function and once for the "real" results. (Parsing to find where the from clause starts is
 		// fraught. E.g. see https://issues.jasig.org/browse/SSP-2192 and related tickets.)
-		final StringBuilder rowCntHql = new StringBuilder("select ");
-		if ( StringUtils.isBlank(countColumn) ) {
-			rowCntHql.append("count(*) ");
-		} else {
-			rowCntHql.append("count(distinct ").append(countColumn).append(") ");
+		final CountPolicy policy = getEffectiveCountPolicy(countColumn);
+		StringBuilder rowCntHql = null;
+		if ( policy == CountPolicy.ESTIMATE ) {
+			// bounded list of distinct rows rather than count() so the db can stop early
+			rowCntHql = new StringBuilder("select distinct ").append(countColumn).append(" ");
+			rowCntHql.append(hqlWithoutSelect);
+		} else if ( policy != CountPolicy.SKIP ) {
+			rowCntHql = new StringBuilder("select ");
+			if ( StringUtils.isBlank(countColumn) ) {
+				rowCntHql.append("count(*) ");
+			} else {
+				rowCntHql.append("count(distinct ").append(countColumn).append(") ");
+			}
+			rowCntHql.append(hqlWithoutSelect);
 		}
-		rowCntHql.append(hqlWithoutSelect);
-		
-		Query fullQuery = null;
-		Query rowCntQuery = null;
+
 		final StringBuilder fullHql = new StringBuilder(hqlSelectClause).append(addSortingToQuery(hqlWithoutSelect));
-		if(session instanceof Session)
-		{
-			Session thisSession = (Session)session;
-			fullQuery = addPagingToQuery(thisSession.createQuery(fullHql.toString())).setProperties(bindParams);
-			fullQuery = postProcessBindParams(fullQuery, bindParams);
-			rowCntQuery = thisSession.createQuery(rowCntHql.toString());
-		} else
-		if(session instanceof StatelessSession)
-		{
-			StatelessSession thisStatelessSession = (StatelessSession)session;
-			fullQuery = addPagingToQuery(thisStatelessSession.createQuery(fullHql.toString())).setProperties(bindParams);
-			fullQuery = postProcessBindParams(fullQuery, bindParams);
-			rowCntQuery = thisStatelessSession.createQuery(rowCntHql.toString());
-		} else
-		{
-			throw new IllegalArgumentException("session paramter for org.jasig.ssp.util.sort.SortingAndPaging.applySortingAndPagingToPagedQuery(Object, StringBuilder, boolean, String, Boolean, Map<String, Object>) must "+
-					"must be of type Session or StatelessSession");
-		}
-
-		rowCntQuery.setProperties(bindParams);
-		rowCntQuery = postProcessBindParams(rowCntQuery, bindParams);
-		final Long totalRows = (Long)rowCntQuery.list().get(0);
+		Query fullQuery = addPagingToQuery(createQuery(session, fullHql.toString())).setProperties(bindParams);
+		fullQuery = postProcessBindParams(fullQuery, bindParams);
+
+		Long totalRows = null;
+		Long uncountedLowerBound = 0L;
+		if ( rowCntHql != null ) {
+			Query rowCntQuery = createQuery(session, rowCntHql.toString());
+			rowCntQuery.setProperties(bindParams);
+			rowCntQuery = postProcessBindParams(rowCntQuery, bindParams);
+			if ( policy == CountPolicy.ESTIMATE ) {
+				final int limit = firstResult + (COUNT_ESTIMATE_PAGES * maxResults);
+				final int found = rowCntQuery.setMaxResults(limit + 1).list().size();
+				if ( found <= limit ) {
+					totalRows = Long.valueOf(found);
+				} else {
+					uncountedLowerBound = Long.valueOf(found);
+				}
+			} else {
+				if ( policy == CountPolicy.CACHED ) {
+					rowCntQuery.setCacheable(true).setCacheRegion(COUNT_CACHE_REGION);
+				}
+				totalRows = (Long)rowCntQuery.list().get(0);
+			}
+		}
+		if ( totalRows == null ) {
+			// read one row past the page so listPagedQuery() can tell whether there is another page
+			fullQuery.setMaxResults(maxResults + 1);
+		} else {
+			uncountedLowerBound = null;
+		}
 
 		// Sorting not added until here b/c if it's present in the count() query
 		// above, the db will usually complain about that field not being
 		// present in a group by/aggr function
-		return new Pair<Long,Query>(totalRows,fullQuery);
+		return new PagedQuery(totalRows, fullQuery, uncountedLowerBound);
+	}
+
+	/**
+	 * {@link #getCountPolicy()} unless it can't apply: unpaged queries list
+	 * every row anyway so never need a count query, and
+	 * {@link CountPolicy#ESTIMATE} needs a count column.
+	 */
+	private CountPolicy getEffectiveCountPolicy(final String countColumn) {
+		if ( !isPaged() ) {
+			return countPolicy == CountPolicy.EXACT || countPolicy == CountPolicy.CACHED
+					? countPolicy : CountPolicy.EXACT;
+		}
+		if ( countPolicy == CountPolicy.ESTIMATE && StringUtils.isBlank(countColumn) ) {
+			return CountPolicy.EXACT;
+		}
+		return countPolicy;
+	}
+
+	/**
+	 * Keyset variant of
+	 * {@link #applySortingAndPagingToPagedQuery(Object, String, String, StringBuilder, boolean, String, Boolean, Map)}.
+	 * Appends the seek predicate for the continuation anchor, selects each
+	 * sort key so {@link #listPagedQuery(PagedQuery, ResultTransformer)} can build
+	 * the next continuation, and reads one row past the page size to find
+	 * out whether there is a next page at all.
+	 */
+	private PagedQuery applyKeysetToPagedQuery(final Object session,
+			final String tieBreakerColumn, final String hqlSelectClause,
+			final StringBuilder hqlWithoutSelect, final boolean whereAlready,
+			final Map<String, Object> bindParams) {
+		final List<Pair<String, SortDirection>> keys = getKeysetFields(tieBreakerColumn);
+		final int signature = getKeysetSignature(keys);
+
+		int offset = 0;
+		if (keysetContinuation != null) {
+			if (keysetContinuation.getSignature() != signature) {
+				throw new IllegalArgumentException(
+						"Keyset token does not match the requested sort order.");
+			}
+			offset = keysetContinuation.getOffset();
+			final List<Object> anchor = keysetContinuation.getAnchor();
+			if (anchor != null) {
+				if (anchor.size() != keys.size()) {
+					throw new IllegalArgumentException(
+							"Keyset token does not match the requested sort order.");
+				}
+				hqlWithoutSelect.append(whereAlready ? " and " : " where ");
+				hqlWithoutSelect.append(buildSeekPredicate(keys,
+						isNullsSortHigh(session)));
+				for (int i = 0; i < anchor.size(); i++) {
+					bindParams.put(KEYSET_PREFIX + i, anchor.get(i));
+				}
+			}
+		}
+
+		final StringBuilder fullHql = new StringBuilder(hqlSelectClause);
+		for (int i = 0; i < keys.size(); i++) {
+			fullHql.append(", ").append(keys.get(i).getFirst())
+					.append(" as ").append(KEYSET_PREFIX).append(i);
+		}
+		fullHql.append(hqlWithoutSelect).append(" Order By ");
+		String seperator = "";
+		for (final Pair<String, SortDirection> key : keys) {
+			fullHql.append(seperator);
+			addSortToQuery(fullHql, key.getFirst(), key.getSecond());
+			seperator = ", ";
+		}
+
+		final Query fullQuery = createQuery(session, fullHql.toString());
+		fullQuery.setProperties(bindParams);
+		postProcessBindParams(fullQuery, bindParams);
+		fullQuery.setFirstResult(offset);
+		fullQuery.setMaxResults(maxResults + 1);
+
+		return PagedQuery.keyset(fullQuery, keys.size(), signature);
+	}
+
+	/**
+	 * Lists the query prepared by
+	 * {@link #applySortingAndPagingToPagedQuery(Object, String, String, StringBuilder, boolean, String, Boolean, Map)}.
+	 * In keyset mode the result carries the continuation for the next page
+	 * and {@link PagingWrapper#getResults()} is the number of rows read so far
+	 * rather than an exact total.
+	 *
+	 * @param querySet
+	 *            Total row count (null in keyset mode) and query to list
+	 * @param transformer
+	 *            Result transformer for the rows, may be null
+	 * @return the paged rows
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> PagingWrapper<T> listPagedQuery(final PagedQuery querySet,
+			final ResultTransformer transformer) {
+		final Query query = querySet.getSecond();
+		if (!querySet.isKeyset()) {
+			if (transformer != null) {
+				query.setResultTransformer(transformer);
+			}
+			if (querySet.getFirst() != null) {
+				return new PagingWrapper<T>(querySet.getFirst(), query.list());
+			}
+			return listUncountedQuery(query, querySet.getUncountedLowerBound());
+		}
+
+		final KeysetResultTransformer keysetTransformer = new KeysetResultTransformer(
+				transformer, querySet.getKeysetColumns());
+		query.setResultTransformer(keysetTransformer);
+		final List<T> rows = query.list();
+		final boolean more = rows.size() > maxResults;
+		final List<T> page = more ? Lists.newArrayList(rows.subList(0,
+				maxResults)) : rows;
+
+		final long position = keysetContinuation == null ? 0
+				: keysetContinuation.getPosition();
+		final PagingWrapper<T> wrapper = new PagingWrapper<T>(position
+				+ page.size(), page);
+		wrapper.setTotalCounted(false);
+		if (more) {
+			wrapper.setContinuation(nextKeysetToken(
+					keysetTransformer.getKeys(page.size() - 1), page.size(),
+					querySet.getKeysetSignature()).encode());
+		}
+		return wrapper;
+	}
+
+	/**
+	 * Offset paging without an exact count: the query reads one row past the
+	 * page, which is enough to tell whether another page exists.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> PagingWrapper<T> listUncountedQuery(final Query query,
+			final Long uncountedLowerBound) {
+		final List<T> rows = query.list();
+		final boolean more = rows.size() > maxResults;
+		final List<T> page = more ? Lists.newArrayList(rows.subList(0,
+				maxResults)) : rows;
+		final long read = firstResult + page.size();
+		if (!more && (firstResult == 0 || !page.isEmpty())) {
+			// read through to the last row, so this is exact after all
+			return new PagingWrapper<T>(read, page);
+		}
+		final long lowerBound = uncountedLowerBound == null ? 0
+				: uncountedLowerBound;
+		final PagingWrapper<T> wrapper = new PagingWrapper<T>(Math.max(
+				more ? read + 1 : read, lowerBound), page);
+		wrapper.setTotalCounted(false);
+		return wrapper;
+	}
+
+	private KeysetToken nextKeysetToken(final List<Object> lastRowKeys,
+			final int pageSize, final int keysetSignature) {
+		final long position = (keysetContinuation == null ? 0
+				: keysetContinuation.getPosition()) + pageSize;
+		boolean anchorable = true;
+		for (final Object key : lastRowKeys) {
+			anchorable &= KeysetToken.isAnchorable(key);
+		}
+		if (anchorable) {
+			return new KeysetToken(position, 0, lastRowKeys, keysetSignature);
+		}
+		// can't seek from this row, so keep counting from the last anchor
+		return keysetContinuation == null
+				? new KeysetToken(position, pageSize, null, keysetSignature)
+				: new KeysetToken(position, keysetContinuation.getOffset()
+						+ pageSize, keysetContinuation.getAnchor(),
+						keysetSignature);
+	}
+
+	/**
+	 * Sort fields in effect plus the tie-breaker column, which must be unique
+	 * per row so every row has a distinct position in the ordering.
+	 */
+	private List<Pair<String, SortDirection>> getKeysetFields(
+			final String tieBreakerColumn) {
+		final List<Pair<String, SortDirection>> keys = Lists.newArrayList();
+		if (isSorted()) {
+			keys.addAll(sortFields);
+		} else if (isDefaultSorted()) {
+			keys.add(new Pair<String, SortDirection>(defaultSortProperty,
+					defaultSortDirection == null ? SortDirection.ASC
+							: defaultSortDirection));
+		}
+		boolean hasTieBreaker = false;
+		for (final Pair<String, SortDirection> key : keys) {
+			hasTieBreaker |= tieBreakerColumn.equals(key.getFirst());
+		}
+		if (!hasTieBreaker) {
+			keys.add(new Pair<String, SortDirection>(tieBreakerColumn,
+					SortDirection.ASC));
+		}
+		return keys;
+	}
+
+	private static int getKeysetSignature(
+			final List<Pair<String, SortDirection>> keys) {
+		final StringBuilder signature = new StringBuilder();
+		for (final Pair<String, SortDirection> key : keys) {
+			signature.append(key.getFirst()).append(' ')
+					.append(key.getSecond()).append(',');
+		}
+		return signature.toString().hashCode();
+	}
+
+	/**
+	 * Builds the predicate matching rows that sort after the anchor bound to
+	 * the {@code keyset_N} parameters, i.e.
+	 * {@code (k0 > :keyset_0 or (k0 = :keyset_0 and (k1 > :keyset_1)))} for
+	 * ascending keys. Null keys are placed where the database sorts them:
+	 * after all values on PostgreSQL, before them on SQL Server.
+	 *
+	 * @param keys
+	 *            Sort keys including the tie-breaker
+	 * @param nullsSortHigh
+	 *            True if the database sorts nulls as if larger than any value
+	 * @return the predicate
+	 */
+	static String buildSeekPredicate(
+			final List<Pair<String, SortDirection>> keys,
+			final boolean nullsSortHigh) {
+		final StringBuilder predicate = new StringBuilder();
+		for (int i = 0; i < keys.size(); i++) {
+			final String column = keys.get(i).getFirst();
+			final String param = ":" + KEYSET_PREFIX + i;
+			final boolean ascending = keys.get(i).getSecond() != SortDirection.DESC;
+			final boolean nullsAfter = ascending == nullsSortHigh;
+			predicate.append('(');
+			if (nullsAfter) {
+				predicate.append('(');
+			}
+			predicate.append(column).append(ascending ? " > " : " < ")
+					.append(param);
+			if (nullsAfter) {
+				predicate.append(" or ").append(column).append(" is null)");
+			}
+			if (i < keys.size() - 1) {
+				predicate.append(" or (").append(column).append(" = ")
+						.append(param).append(" and ");
+			}
+		}
+		predicate.append(')');
+		for (int i = 0; i < keys.size() - 1; i++) {
+			predicate.append("))");
+		}
+		return predicate.toString();
+	}
+
+	private static boolean isNullsSortHigh(final Object session) {
+		return !(((SessionImplementor) session).getFactory().getDialect() instanceof SQLServerDialect);
+	}
+
+	private static Query createQuery(final Object session, final String hql) {
+		if (session instanceof Session) {
+			return ((Session) session).createQuery(hql);
+		} else if (session instanceof StatelessSession) {
+			return ((StatelessSession) session).createQuery(hql);
+		}
+		throw new IllegalArgumentException("session must be of type Session or StatelessSession");
+	}
+
+	/**
+	 * Strips the sort key columns added in keyset mode from each row before
+	 * handing it to the real transformer, remembering them for building the
+	 * next continuation.
+	 */
+	private static class KeysetResultTransformer implements ResultTransformer {
+
+		private static final long serialVersionUID = 2862958424531226441L;
+
+		private final ResultTransformer delegate;
+
+		private final int keyColumns;
+
+		private final List<List<Object>> keys = Lists.newArrayList();
+
+		KeysetResultTransformer(final ResultTransformer delegate,
+				final int keyColumns) {
+			this.delegate = delegate;
+			this.keyColumns = keyColumns;
+		}
+
+		@Override
+		public Object transformTuple(final Object[] tuple,
+				final String[] aliases) {
+			final int width = tuple.length - keyColumns;
+			keys.add(Arrays.asList(Arrays.copyOfRange(tuple, width,
+					tuple.length)));
+			final Object[] row = Arrays.copyOf(tuple, width);
+			if (delegate != null) {
+				return delegate.transformTuple(row,
+						Arrays.copyOf(aliases, width));
+			}
+			return row.length == 1 ? row[0] : row;
+		}
+
+		@SuppressWarnings("rawtypes")
+		@Override
+		public List transformList(final List collection) {
+			return delegate == null ? collection : delegate
+					.transformList(collection);
+		}
+
+		List<Object> getKeys(final int row) {
+			return keys.get(row);
+		}
 	}
 
 	/**
@@ -440,6 +887,17 @@ public final class SortingAndPaging { // NOPMD
 
 	public Long applySortingAndPagingToPagedQuery(final Criteria query,
 			final boolean filterByStatus) {
+		return applySortingAndPagingToPagedQuery(query, filterByStatus, false);
+	}
+
+	/**
+	 * @param nullsLow
+	 *            sort nulls first when ascending and last when descending on
+	 *            every database, like {@link GenericComparator} does
+	 * @see #applySortingAndPagingToPagedQuery(Criteria, boolean)
+	 */
+	public Long applySortingAndPagingToPagedQuery(final Criteria query,
+			final boolean filterByStatus, final boolean nullsLow) {
 
 		if (filterByStatus) {
 			addStatusFilterToCriteria(query);
@@ -449,16 +907,23 @@ public final class SortingAndPaging { // NOPMD
 		// Only query for total count if query is paged or filtered
 		if (isPaged()
 				|| (filterByStatus && isFilteredByStatus())) {
+			// setProjection() replaces the result transformer, so put back
+			// whatever the caller had, e.g. DISTINCT_ROOT_ENTITY
+			final ResultTransformer transformer = query instanceof CriteriaImpl
+					? ((CriteriaImpl) query).getResultTransformer() : null;
 			totalRows = (Long) query.setProjection(
 					Projections.rowCount()).uniqueResult();
 
 			// clear the count projection from the query
 			query.setProjection(null);
+			if (transformer != null) {
+				query.setResultTransformer(transformer);
+			}
 		}
 
 		// Add Sorting and Paging
 		addPagingToCriteria(query);
-		addSortingToCriteria(query);
+		addSortingToCriteria(query, nullsLow);
 
 		return totalRows;
 	}
@@ -470,15 +935,27 @@ public final class SortingAndPaging { // NOPMD
 	 *            Paging filter will be added to this criteria
 	 */
 	public void addSortingToCriteria(final Criteria criteria) {
+		addSortingToCriteria(criteria, false);
+	}
+
+	/**
+	 * @param nullsLow
+	 *            sort nulls first when ascending and last when descending on
+	 *            every database, like {@link GenericComparator} does
+	 * @see #addSortingToCriteria(Criteria)
+	 */
+	public void addSortingToCriteria(final Criteria criteria,
+			final boolean nullsLow) {
 		if (isSorted()) {
 			// sort by each entry in the map
 			for (final Pair<String, SortDirection> entry : sortFields) {
-				addSortToCriteria(criteria, entry.getFirst(), entry.getSecond());
+				addSortToCriteria(criteria, entry.getFirst(), entry.getSecond(),
+						nullsLow);
 			}
 		} else if (isDefaultSorted()) {
 			// sort by the default property
 			addSortToCriteria(criteria, defaultSortProperty,
-					defaultSortDirection);
+					defaultSortDirection, nullsLow);
 		}
 	}
 	
@@ -554,11 +1031,12 @@ public final class SortingAndPaging { // NOPMD
 	}
 
 	private void addSortToCriteria(final Criteria criteria,
-			final String sort, final SortDirection sortDirection) {
+			final String sort, final SortDirection sortDirection,
+			final boolean nullsLow) {
 		if (sortDirection.equals(SortDirection.ASC)) {
-			criteria.addOrder(Order.asc(sort));
+			criteria.addOrder(nullsLow ? NullsLowOrder.asc(sort) : Order.asc(sort));
 		} else {
-			criteria.addOrder(Order.desc(sort));
+			criteria.addOrder(nullsLow ? NullsLowOrder.desc(sort) : Order.desc(sort));
 		}
 	}
 	
@@ -18,18 +18,25 @@
  */
 package org.jasig.ssp.web.api;
 
+import org.jasig.ssp.model.jobqueue.Job;
 import org.jasig.ssp.security.permissions.Permission;
+import org.jasig.ssp.service.ObjectNotFoundException;
 import org.jasig.ssp.service.ScheduledTaskWrapperService;
+import org.jasig.ssp.service.jobqueue.JobService;
 import org.jasig.ssp.transferobject.ServiceResponse;
+import org.jasig.ssp.transferobject.jobqueue.JobExecutionMetricsTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.UUID;
 
 
 /**
@@ -44,6 +51,9 @@ public class BackgroundJobController extends AbstractBaseController {
 	@Autowired
 	private ScheduledTaskWrapperService scheduledTaskWrapperService;
 
+	@Autowired
+	private JobService jobService;
+
 	private static final Logger LOGGER = LoggerFactory.getLogger(BackgroundJobController.class);
 
 
@@ -230,6 +240,32 @@ public class BackgroundJobController extends AbstractBaseController {
         return new ServiceResponse(true, "success");
     }
 
+    /**
+     * Progress and throughput (persons/sec, failures) of every bulk job (bulk email, bulk program status change,
+     * bulk watch) that hasn't finished yet.
+     * @return
+     */
+    @RequestMapping(value = "/bulkjobmetrics", method = RequestMethod.GET)
+    public @ResponseBody List<JobExecutionMetricsTO> getUnfinishedBulkJobMetrics() {
+        return jobService.getUnfinishedExecutionMetrics();
+    }
+
+    /**
+     * Progress and throughput (persons/sec, failures) of a single bulk job, finished or not.
+     * @param id
+     * @return
+     * @throws ObjectNotFoundException if the job is not on file
+     */
+    @RequestMapping(value = "/bulkjobmetrics/{id}", method = RequestMethod.GET)
+    public @ResponseBody JobExecutionMetricsTO getBulkJobMetrics(@PathVariable final UUID id)
+            throws ObjectNotFoundException {
+        final JobExecutionMetricsTO metrics = jobService.getExecutionMetrics(id);
+        if ( metrics == null ) {
+            throw new ObjectNotFoundException(id, Job.class.getName());
+        }
+        return metrics;
+    }
+
 	@Override
 	protected Logger getLogger() {
 		return LOGGER;
@@ -35,6 +35,7 @@ import org.jasig.ssp.transferobject.BulkAddCaseloadReassignmentTO;
 import org.jasig.ssp.transferobject.CaseloadReassignmentRequestTO;
 import org.jasig.ssp.transferobject.PagedResponse;
 import org.jasig.ssp.transferobject.PersonSearchResult2TO;
+import org.jasig.ssp.util.sort.CountPolicy;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortDirection;
 import org.jasig.ssp.util.sort.SortingAndPaging;
@@ -96,7 +97,8 @@ public class CaseloadController extends AbstractBaseController {
 			final @RequestParam(required = false) Integer start,
 			final @RequestParam(required = false) Integer limit,
 			final @RequestParam(required = false) String sort,
-			final @RequestParam(required = false) String sortDirection)
+			final @RequestParam(required = false) String sortDirection,
+			final @RequestParam(required = false) String countPolicy)
 			throws ObjectNotFoundException, ValidationException {
 
 		ProgramStatus programStatus = null;
@@ -108,9 +110,9 @@ public class CaseloadController extends AbstractBaseController {
 				programStatus, 
 				securityService.currentUser().getPerson(),
 				personTableType,
-				buildSortAndPage( limit,  start,  sort,  sortDirection));
+				buildInteractiveSortAndPage(limit, start, sort, sortDirection, countPolicy));
 
-		return new PagedResponse<PersonSearchResult2TO>(true, caseload.getResults(),
+		return new PagedResponse<PersonSearchResult2TO>(true, caseload,
 				factory.asTOList(caseload.getRows()));
 	}
 	
@@ -130,9 +132,11 @@ public class CaseloadController extends AbstractBaseController {
 			programStatus = programStatusService.get(programStatusId);
 		}
 		
+		final SortingAndPaging sortAndPage = buildSortAndPage( limit,  start,  sort,  sortDirection);
+		sortAndPage.setCountPolicy(CountPolicy.CACHED);
 		return service.caseLoadCountFor(
 				programStatus, securityService.currentUser().getPerson(),
-				 buildSortAndPage( limit,  start,  sort,  sortDirection));
+				sortAndPage);
 	}
 
 	@RequestMapping(value = "/{personId}/caseload", method = RequestMethod.GET)
@@ -145,7 +149,8 @@ public class CaseloadController extends AbstractBaseController {
 			final @RequestParam(required = false) Integer start,
 			final @RequestParam(required = false) Integer limit,
 			final @RequestParam(required = false) String sort,
-			final @RequestParam(required = false) String sortDirection)
+			final @RequestParam(required = false) String sortDirection,
+			final @RequestParam(required = false) String countPolicy)
 			throws ObjectNotFoundException, ValidationException {
 
 		ProgramStatus programStatus = null;
@@ -158,12 +163,24 @@ public class CaseloadController extends AbstractBaseController {
 				programStatus, 
 				personService.get(personId),
 				personTableType,
-				buildSortAndPage( limit,  start,  sort,  sortDirection));
+				buildInteractiveSortAndPage(limit, start, sort, sortDirection, countPolicy));
 
-		return new PagedResponse<PersonSearchResult2TO>(true, caseload.getResults(),
+		return new PagedResponse<PersonSearchResult2TO>(true, caseload,
 				factory.asTOList(caseload.getRows()));
 	}
 	
+	/**
+	 * Caseload views only need to know roughly how many pages there are, so
+	 * unless the client asks for a specific {@link CountPolicy} the total is
+	 * estimated rather than counted exactly.
+	 */
+	private SortingAndPaging buildInteractiveSortAndPage(Integer limit, Integer start, String sort,
+			String sortDirection, String countPolicy) {
+		final SortingAndPaging sortAndPage = buildSortAndPage(limit, start, sort, sortDirection);
+		sortAndPage.setCountPolicy(CountPolicy.getCountPolicy(countPolicy, CountPolicy.ESTIMATE));
+		return sortAndPage;
+	}
+
 	private SortingAndPaging buildSortAndPage(Integer limit, Integer start, String sort, String sortDirection){
 		String sortConfigured = sort == null ? "dp.lastName":"dp."+sort;
 		if(sortConfigured.equals("dp.coach")){
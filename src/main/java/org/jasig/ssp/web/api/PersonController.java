@@ -184,7 +184,7 @@ public class PersonController extends AbstractBaseController {
 	@PreAuthorize("hasRole('ROLE_PERSON_READ') or hasRole('ROLE_PERSON_FILTERED_READ')")
 	public @ResponseBody
 	PersonTO get(final @PathVariable UUID id) throws ObjectNotFoundException {
-		final Person model = service.get(id);
+		final Person model = service.get(id, Person.FETCH_PROFILE_FULL);
 		if (model == null) {
 			return null;
 		}
@@ -19,6 +19,7 @@
 package org.jasig.ssp.web.api;
 
 import au.com.bytecode.opencsv.CSVWriter;
+import org.apache.commons.lang.StringUtils;
 import org.jasig.ssp.factory.PersonSearchRequestTOFactory;
 import org.jasig.ssp.factory.PersonSearchResult2TOFactory;
 import org.jasig.ssp.factory.PersonSearchResultTOFactory;
@@ -38,6 +39,7 @@ import org.jasig.ssp.transferobject.PersonSearchResult2TO;
 import org.jasig.ssp.transferobject.PersonSearchResultTO;
 import org.jasig.ssp.transferobject.jsonserializer.DateOnlyFormatting;
 import org.jasig.ssp.util.security.DynamicPermissionChecking;
+import org.jasig.ssp.util.sort.CountPolicy;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortDirection;
 import org.jasig.ssp.util.sort.SortingAndPaging;
@@ -269,10 +271,22 @@ public class PersonSearchController extends AbstractBaseController {
 	 final @RequestParam(required = false) String homeCampus,
 	 final @RequestParam(required = false) String successIndicator,
 	 final @RequestParam(required = false) String transferGoals,
-	 final HttpServletRequest request) throws ObjectNotFoundException
+	 final @RequestParam(required = false) Boolean keyset,
+	 final @RequestParam(required = false) String continuation,
+	 final @RequestParam(required = false) String countPolicy,
+	 final HttpServletRequest request) throws ObjectNotFoundException, ValidationException
 	 {
 		assertSearchApiAuthorization(request);
 		SortingAndPaging sortAndPage = buildSortAndPage( limit,  start,  sort,  sortDirection);
+		// interactive view, so a bounded count unless the client asks otherwise
+		sortAndPage.setCountPolicy(CountPolicy.getCountPolicy(countPolicy, CountPolicy.ESTIMATE));
+		if ( Boolean.TRUE.equals(keyset) || StringUtils.isNotBlank(continuation) ) {
+			try {
+				sortAndPage.useKeyset(continuation);
+			} catch ( IllegalArgumentException e ) {
+				throw new ValidationException(e.getMessage(), e);
+			}
+		}
 		final PagingWrapper<PersonSearchResult2> models = service.searchPersonDirectory(personSearchRequestFactory.from(schoolId,
 				firstName, lastName, 
 				programStatus,specialServiceGroup, 
@@ -287,7 +301,7 @@ public class PersonSearchController extends AbstractBaseController {
 				myCaseload,myPlans,myWatchList, birthDate, actualStartTerm, personTableType,
 				homeCampus, successIndicator, transferGoals, sortAndPage));
 
-         return new PagedResponse<PersonSearchResult2TO>(true, models.getResults(), factory2.asTOList(models.getRows()));
+         return new PagedResponse<PersonSearchResult2TO>(true, models, factory2.asTOList(models.getRows()));
 	}
 
 
@@ -337,6 +351,7 @@ public class PersonSearchController extends AbstractBaseController {
 	 {
 		assertSearchApiAuthorization(request);
 		SortingAndPaging sortAndPage = buildSortAndPage( limit,  start,  sort,  sortDirection);
+		sortAndPage.setCountPolicy(CountPolicy.CACHED);
 		return  service.searchPersonDirectoryCount(personSearchRequestFactory.from(schoolId,
 				firstName, lastName,
 				programStatus,specialServiceGroup,
@@ -34,8 +34,10 @@ import javax.servlet.ServletContext;
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.commons.lang.StringUtils;
+import org.jasig.ssp.security.permissions.Permission;
 import org.jasig.ssp.service.ServerService;
 import org.jasig.ssp.service.reference.ConfigService;
+import org.jasig.ssp.transferobject.ServiceResponse;
 import org.jasig.ssp.transferobject.jsonserializer.DateOnlyFormatting;
 import org.jasig.ssp.util.DateTimeUtils;
 import org.jasig.ssp.util.security.DynamicPermissionChecking;
@@ -44,6 +46,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -90,6 +93,24 @@ public class ServerController extends AbstractBaseController {
 		
 		return serverService.getClientTimeout();
 	}
+
+	@RequestMapping(value = "/cache", method = RequestMethod.GET)
+	@PreAuthorize(Permission.SECURITY_REFERENCE_SYSTEM_CONFIG_WRITE)
+	public @ResponseBody
+	Map<String,Object> getCacheProfile() {
+		return serverService.getCacheProfile();
+	}
+
+	/**
+	 * Only affects the node serving the request.
+	 */
+	@RequestMapping(value = "/cache", method = RequestMethod.DELETE)
+	@PreAuthorize(Permission.SECURITY_REFERENCE_SYSTEM_CONFIG_WRITE)
+	public @ResponseBody
+	ServiceResponse evictCaches() {
+		serverService.evictCaches();
+		return new ServiceResponse(true, "success");
+	}
 	
 	@Override
 	protected Logger getLogger() {
@@ -19,12 +19,14 @@
 package org.jasig.ssp.service
 import static org.junit.Assert.*;
 
+import org.apache.velocity.app.VelocityEngine
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.test.util.ReflectionTestUtils
 
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -35,6 +37,9 @@ class VelocityTemplateServiceTest {
 	@Autowired
 	private VelocityTemplateService service;
 
+	@Autowired
+	private VelocityEngine velocityEngine;
+
 	@Test
 	public void testGenerateContentFromTemplate(){
 		assert("Hello Velocity" == service.generateContentFromTemplate('Hello $val', "test-template", ["val":"Velocity"]))
@@ -42,4 +47,49 @@ class VelocityTemplateServiceTest {
 		//template already loaded with this id, so, you could get something a little different from what you expected...
 		assert("Hello Velocity" == service.generateContentFromTemplate('Hello $val in the World', "test-template", ["val":"Velocity"]))
 	}
+
+	@Test
+	public void testLeastRecentlyUsedTemplateDroppedBeyondCacheSize(){
+		def cache = newService(2)
+		cache.generateContentFromTemplate('A1', "lru-a", [:])
+		cache.generateContentFromTemplate('B1', "lru-b", [:])
+		// touch a, so b is the least recently used
+		cache.generateContentFromTemplate('A1', "lru-a", [:])
+		cache.generateContentFromTemplate('C1', "lru-c", [:])
+
+		assert("A1" == cache.generateContentFromTemplate('A2', "lru-a", [:]))
+		assert("C1" == cache.generateContentFromTemplate('C2', "lru-c", [:]))
+		// parsed again rather than served from the cache
+		assert("B2" == cache.generateContentFromTemplate('B2', "lru-b", [:]))
+	}
+
+	@Test
+	public void testEvictTemplatesDropsOnlyMatchingIds(){
+		def cache = newService(10)
+		cache.generateContentFromTemplate('Subject 1', "evict-x-s-1", [:])
+		cache.generateContentFromTemplate('Body 1', "evict-x-b-1", [:])
+		cache.generateContentFromTemplate('Other 1', "evict-y-s-1", [:])
+
+		assert(2 == cache.evictTemplates("evict-x"))
+
+		assert("Subject 2" == cache.generateContentFromTemplate('Subject 2', "evict-x-s-1", [:]))
+		assert("Body 2" == cache.generateContentFromTemplate('Body 2', "evict-x-b-1", [:]))
+		assert("Other 1" == cache.generateContentFromTemplate('Other 2', "evict-y-s-1", [:]))
+		assert(0 == cache.evictTemplates("evict-z"))
+	}
+
+	@Test
+	public void testWarmedTemplateIsRenderedWithoutReparsing(){
+		def cache = newService(10)
+		cache.warmTemplate('Warm $val', "warm-template")
+
+		assert("Warm Velocity" == cache.generateContentFromTemplate('Cold $val', "warm-template", ["val":"Velocity"]))
+	}
+
+	private VelocityTemplateService newService(int maxCachedTemplates) {
+		def cache = new VelocityTemplateService()
+		ReflectionTestUtils.setField(cache, "velocityEngine", velocityEngine)
+		ReflectionTestUtils.setField(cache, "maxCachedTemplates", maxCachedTemplates)
+		return cache
+	}
 }
\ No newline at end of file
@@ -18,6 +18,10 @@
  */
 package org.jasig.ssp.service.external.impl
 
+import org.jasig.ssp.model.ScheduledApplicationTaskStatus
+import org.jasig.ssp.model.ScheduledTaskStatus
+import org.jasig.ssp.service.ScheduledApplicationTaskStatusService
+import org.jasig.ssp.service.impl.PersonPartitionedTaskRunner
 import org.jasig.ssp.service.reference.ConfigService
 import org.jasig.ssp.util.collections.Pair
 import org.jasig.ssp.util.sort.SortingAndPaging
@@ -28,12 +32,36 @@ public class ExternalPersonSyncTaskImplTest extends Specification {
 
 	StubbedExternalPersonSyncTaskImpl syncTask
 	ConfigService configService = Mock(ConfigService)
+	ScheduledApplicationTaskStatusService taskStatusService
+	ScheduledApplicationTaskStatus fullSyncStatus
+	int workers
 
 	def setup() {
 		this.configService = Mock(ConfigService)
+		// sequential unless a feature says otherwise
+		this.workers = 1
+		configService.getByNameNullOrDefaultValue("task_external_person_sync_workers") >> { String.valueOf(workers) }
+		this.fullSyncStatus = null
+		// keeps the full sync status row in memory, the way the real
+		// service keeps it in the database
+		this.taskStatusService = Mock(ScheduledApplicationTaskStatusService)
+		taskStatusService.getByName(ExternalPersonSyncTaskImpl.FULL_SYNC_STATUS_TASK_NAME) >> { fullSyncStatus }
+		taskStatusService.beginTask(ExternalPersonSyncTaskImpl.FULL_SYNC_STATUS_TASK_NAME) >> {
+			fullSyncStatus = new ScheduledApplicationTaskStatus(
+					taskName: ExternalPersonSyncTaskImpl.FULL_SYNC_STATUS_TASK_NAME,
+					startDate: new Date(), status: ScheduledTaskStatus.RUNNING)
+		}
+		taskStatusService.completeTask(ExternalPersonSyncTaskImpl.FULL_SYNC_STATUS_TASK_NAME) >> {
+			if ( fullSyncStatus ) {
+				fullSyncStatus.completedDate = new Date()
+				fullSyncStatus.status = ScheduledTaskStatus.COMPLETED
+			}
+			fullSyncStatus
+		}
 		this.syncTask = new StubbedExternalPersonSyncTaskImpl(
 			withTransaction: new WithTransactionImpl(),
-			configService: this.configService
+			configService: this.configService,
+			taskStatusService: this.taskStatusService
 		)
 	}
 
@@ -149,7 +177,10 @@ public class ExternalPersonSyncTaskImplTest extends Specification {
 	}
 
 	def "resets if batch yields no results"() {
-		given: "a sync job that works one time but not the next"
+		given: "change detection disabled so every execution is a full sync"
+		configService.getByNameNullOrDefaultValue("task_external_person_sync_full_reconciliation_hours") >> 0
+
+		and: "a sync job that works one time but not the next"
 		def batchCnt = 0
 		def batchIndices = []
 		syncTask.syncWithPersonImpl = { sAndP ->
@@ -181,6 +212,186 @@ public class ExternalPersonSyncTaskImplTest extends Specification {
 
 	}
 
+	def "syncs only changed records once a full sync has completed"() {
+		given: "a configured batch size"
+		configService.getByNameNullOrDefaultValue("task_external_person_sync_batch_size") >> 2
+
+		and: "a full sync that processes everyone in one batch"
+		def fullBatchCnt = 0
+		syncTask.syncWithPersonImpl = { sAndP ->
+			fullBatchCnt++
+			new Pair(2L,2L)
+		}
+
+		and: "three changed records to pick up afterwards"
+		def deltaBatchSizes = []
+		syncTask.syncChangedPeopleImpl = { batchSize ->
+			deltaBatchSizes << batchSize
+			deltaBatchSizes.size() == 1 ? new Pair(2L,2L) : new Pair(1L,1L)
+		}
+
+		when: "the task is executed twice"
+		syncTask.exec()
+		syncTask.exec()
+
+		then: "the second execution runs delta batches until one comes up short"
+		fullBatchCnt == 1
+		deltaBatchSizes == [2,2]
+	}
+
+	def "always runs a full sync if change detection is disabled"() {
+		given: "change detection disabled"
+		configService.getByNameNullOrDefaultValue("task_external_person_sync_full_reconciliation_hours") >> 0
+
+		and: "a full sync that processes everyone in one batch"
+		def fullBatchCnt = 0
+		syncTask.syncWithPersonImpl = { sAndP ->
+			fullBatchCnt++
+			new Pair(10L,10L)
+		}
+
+		and: "a delta sync that should never run"
+		def deltaBatchCnt = 0
+		syncTask.syncChangedPeopleImpl = { batchSize ->
+			deltaBatchCnt++
+			new Pair(0L,0L)
+		}
+
+		when: "the task is executed twice"
+		syncTask.exec()
+		syncTask.exec()
+
+		then:
+		fullBatchCnt == 2
+		deltaBatchCnt == 0
+	}
+
+	def "syncs ranges in parallel if more than one worker is configured"() {
+		given: "four workers configured"
+		workers = 4
+
+		and: "a partitioned runner which finishes every range"
+		def runner = Mock(PersonPartitionedTaskRunner)
+		syncTask.partitionedTaskRunner = runner
+
+		and: "a sequential sync that should never run"
+		def fullBatchCnt = 0
+		syncTask.syncWithPersonImpl = { sAndP ->
+			fullBatchCnt++
+			new Pair(10L,10L)
+		}
+
+		and: "a delta sync to run once the full sync is done"
+		def deltaBatchCnt = 0
+		syncTask.syncChangedPeopleImpl = { batchSize ->
+			deltaBatchCnt++
+			new Pair(0L,0L)
+		}
+
+		when: "the task is executed twice"
+		syncTask.exec()
+		syncTask.exec()
+
+		then: "the first execution is a partitioned full sync, the second a delta sync"
+		1 * runner.execute("task_external_person_sync", 4, _, _, _, _) >> true
+		fullBatchCnt == 0
+		deltaBatchCnt == 1
+	}
+
+	def "skips the full sync after a restart if the last one completed recently"() {
+		given: "a full sync completed an hour ago, e.g. by another node"
+		fullSyncStatus = new ScheduledApplicationTaskStatus(
+				taskName: ExternalPersonSyncTaskImpl.FULL_SYNC_STATUS_TASK_NAME,
+				completedDate: new Date(System.currentTimeMillis() - 3600000L),
+				status: ScheduledTaskStatus.COMPLETED)
+
+		and: "a freshly started task"
+		def fullBatchCnt = 0
+		syncTask.syncWithPersonImpl = { sAndP ->
+			fullBatchCnt++
+			new Pair(10L,10L)
+		}
+		def deltaBatchCnt = 0
+		syncTask.syncChangedPeopleImpl = { batchSize ->
+			deltaBatchCnt++
+			new Pair(0L,0L)
+		}
+
+		when: "the task is executed"
+		syncTask.exec()
+
+		then: "only the delta sync runs"
+		fullBatchCnt == 0
+		deltaBatchCnt == 1
+	}
+
+	def "runs a full sync once the reconciliation period has passed"() {
+		given: "a full sync completed longer ago than the default 168 hours"
+		fullSyncStatus = new ScheduledApplicationTaskStatus(
+				taskName: ExternalPersonSyncTaskImpl.FULL_SYNC_STATUS_TASK_NAME,
+				completedDate: new Date(System.currentTimeMillis() - 200 * 3600000L),
+				status: ScheduledTaskStatus.COMPLETED)
+
+		and: "a full sync that processes everyone in one batch"
+		def fullBatchCnt = 0
+		syncTask.syncWithPersonImpl = { sAndP ->
+			fullBatchCnt++
+			new Pair(10L,10L)
+		}
+
+		when: "the task is executed"
+		syncTask.exec()
+
+		then: "a full sync runs and its completion is recorded"
+		fullBatchCnt == 1
+		fullSyncStatus.status == ScheduledTaskStatus.COMPLETED
+		System.currentTimeMillis() - fullSyncStatus.completedDate.time < 3600000L
+	}
+
+	def "runs a full sync if the last one never finished"() {
+		given: "a full sync that was still running when its node went away"
+		fullSyncStatus = new ScheduledApplicationTaskStatus(
+				taskName: ExternalPersonSyncTaskImpl.FULL_SYNC_STATUS_TASK_NAME,
+				startDate: new Date(System.currentTimeMillis() - 3600000L),
+				status: ScheduledTaskStatus.RUNNING)
+
+		and: "a full sync that processes everyone in one batch"
+		def fullBatchCnt = 0
+		syncTask.syncWithPersonImpl = { sAndP ->
+			fullBatchCnt++
+			new Pair(10L,10L)
+		}
+
+		when: "the task is executed"
+		syncTask.exec()
+
+		then:
+		fullBatchCnt == 1
+	}
+
+	def "refreshes external person fingerprints once per execution"() {
+		given: "a configured batch size"
+		configService.getByNameNullOrDefaultValue("task_external_person_sync_batch_size") >> 2
+
+		and: "a full sync needing three batches"
+		syncTask.syncWithPersonImpl = { sAndP -> new Pair(2L,6L) }
+
+		and: "a delta sync needing two batches"
+		def deltaBatchCnt = 0
+		syncTask.syncChangedPeopleImpl = { batchSize ->
+			deltaBatchCnt++
+			deltaBatchCnt == 1 ? new Pair(2L,2L) : new Pair(1L,1L)
+		}
+
+		when: "the task is executed twice"
+		syncTask.exec()
+		syncTask.exec()
+
+		then:
+		syncTask.fingerprintRefreshCnt == 2
+		deltaBatchCnt == 2
+	}
+
 	// only use batch limit for this, not batch size, b/c SortingAndPaging assigns
 	// other semantics to all possible batch size values
 	def "does nothing if disabled by a zeroed batch limit"() {
@@ -279,6 +490,15 @@ class StubbedExternalPersonSyncTaskImpl extends ExternalPersonSyncTaskImpl {
 
 	Closure syncWithPersonImpl
 
+	Closure syncChangedPeopleImpl
+
+	int fingerprintRefreshCnt
+
+	@Override
+	def void refreshSyncFingerprintSnapshot() {
+		fingerprintRefreshCnt++
+	}
+
 	@Override
 	def Pair<Long, Long> syncWithPerson(final SortingAndPaging sAndP) {
 		if (!(syncWithPersonImpl)) {
@@ -288,6 +508,15 @@ class StubbedExternalPersonSyncTaskImpl extends ExternalPersonSyncTaskImpl {
 		}
 	}
 
+	@Override
+	def Pair<Long, Long> syncChangedPeople(final int batchSize) {
+		if (!(syncChangedPeopleImpl)) {
+			new Pair(0L,0L)
+		} else {
+			syncChangedPeopleImpl.call(batchSize)
+		}
+	}
+
 	// Some weird stuff here b/c of private field visibility rules for super
 	// classes.
 	// http://groovy.329449.n5.nabble.com/Sub-classes-and-private-fields-td349921.html
@@ -300,6 +529,14 @@ class StubbedExternalPersonSyncTaskImpl extends ExternalPersonSyncTaskImpl {
 		metaClass.setAttribute(ExternalPersonSyncTaskImpl, this, "withTransaction", wt, false, true)
 	}
 
+	void setTaskStatusService(ScheduledApplicationTaskStatusService tss) {
+		metaClass.setAttribute(ExternalPersonSyncTaskImpl, this, "taskStatusService", tss, false, true)
+	}
+
+	void setPartitionedTaskRunner(PersonPartitionedTaskRunner runner) {
+		metaClass.setAttribute(ExternalPersonSyncTaskImpl, this, "partitionedTaskRunner", runner, false, true)
+	}
+
 	void setNextPersonIndex(lr) {
 		metaClass.setAttribute(ExternalPersonSyncTaskImpl, this, "nextPersonIndex", lr, false, true)
 	}
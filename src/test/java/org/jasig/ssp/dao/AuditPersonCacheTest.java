@@ -0,0 +1,186 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jasig.ssp.model.AuditPerson;
+import org.jasig.ssp.model.ObjectStatus;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
+import org.jasig.ssp.transferobject.PersonTO;
+import org.jasig.ssp.util.sort.SortingAndPaging;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Checks that lazy {@link AuditPerson} createdBy/modifiedBy references are
+ * resolved in batches, and that names cached in the
+ * {@link AuditPerson#CACHE_REGION} region are evicted on rename, see
+ * {@link AuditableEntityInterceptor}.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("dao-testConfig.xml")
+@TransactionConfiguration(defaultRollback = true)
+@Transactional
+public class AuditPersonCacheTest {
+
+	@Autowired
+	private transient PersonDao dao;
+
+	@Autowired
+	private transient SessionFactory sessionFactory;
+
+	@Autowired
+	private transient SecurityServiceInTestEnvironment securityService;
+
+	private boolean statisticsWereEnabled;
+
+	@Before
+	public void setUp() {
+		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		statisticsWereEnabled = sessionFactory.getStatistics().isStatisticsEnabled();
+	}
+
+	@After
+	public void tearDown() {
+		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		sessionFactory.getStatistics().setStatisticsEnabled(statisticsWereEnabled);
+	}
+
+	@Test
+	public void testRenamedPersonIsNotServedFromCache() throws ObjectNotFoundException {
+		final Person author = saveAndFlush(newPerson("audit.rename.author", "Before"));
+		final UUID authoredId = saveAsAndFlush(author, newPerson("audit.rename.authored", "Authored")).getId();
+
+		// cache the author's current name
+		sessionFactory.getCurrentSession().clear();
+		assertEquals("Before", dao.get(authoredId).getCreatedBy().getFirstName());
+		assertTrue("Resolved audit person should be cached",
+				sessionFactory.getCache().containsEntity(AuditPerson.class, author.getId()));
+
+		final Person renamed = dao.get(author.getId());
+		renamed.setFirstName("After");
+		saveAndFlush(renamed);
+		assertFalse("Renaming a person should evict their cached audit person",
+				sessionFactory.getCache().containsEntity(AuditPerson.class, author.getId()));
+
+		sessionFactory.getCurrentSession().clear();
+		assertEquals("Audit person should have the new name", "After",
+				dao.get(authoredId).getCreatedBy().getFirstName());
+	}
+
+	@Test
+	public void testUnrelatedChangeKeepsCachedName() throws ObjectNotFoundException {
+		final Person author = saveAndFlush(newPerson("audit.keep.author", "Kept"));
+		final UUID authoredId = saveAsAndFlush(author, newPerson("audit.keep.authored", "Authored")).getId();
+
+		sessionFactory.getCurrentSession().clear();
+		dao.get(authoredId).getCreatedBy().getFirstName();
+
+		final Person changed = dao.get(author.getId());
+		changed.setPrimaryEmailAddress("audit.keep.changed@sinclair.edu");
+		saveAndFlush(changed);
+		assertTrue("Changes other than the name should not evict the cached audit person",
+				sessionFactory.getCache().containsEntity(AuditPerson.class, author.getId()));
+	}
+
+	/**
+	 * Every entity has a different author, so without batching each name
+	 * would cost a statement of its own.
+	 */
+	@Test
+	public void testAuditPersonNamesResolvedInBatches() throws ObjectNotFoundException {
+		final List<UUID> ids = Lists.newArrayList();
+		for ( int i = 0; i < 50; i++ ) {
+			final Person author = saveAndFlush(newPerson("audit.batch.author." + i, "Author" + i));
+			ids.add(saveAsAndFlush(author, newPerson("audit.batch.authored." + i, "Authored" + i)).getId());
+		}
+
+		final long tenAuthorsStatements = countStatementsToConvert(ids.subList(0, 10));
+		final long fiftyAuthorsStatements = countStatementsToConvert(ids);
+
+		assertEquals("Converting a page with more distinct authors should not issue more statements",
+				tenAuthorsStatements, fiftyAuthorsStatements);
+	}
+
+	private long countStatementsToConvert(final List<UUID> ids) {
+		sessionFactory.getCurrentSession().clear();
+		sessionFactory.getCache().evictEntityRegions();
+		sessionFactory.getCache().evictCollectionRegions();
+		sessionFactory.getCache().evictQueryRegions();
+		final Statistics stats = sessionFactory.getStatistics();
+		stats.setStatisticsEnabled(true);
+		stats.clear();
+
+		final List<Person> people = dao.getPeopleInList(ids,
+				new SortingAndPaging(ObjectStatus.ALL));
+		final List<PersonTO> tos = PersonTO.toTOList(people);
+		assertEquals(ids.size(), tos.size());
+		for ( final PersonTO to : tos ) {
+			assertTrue("Audit person name should have been resolved",
+					to.getCreatedBy().getFirstName().startsWith("Author"));
+		}
+
+		return stats.getPrepareStatementCount();
+	}
+
+	private Person newPerson(final String username, final String firstName) {
+		final Person person = new Person();
+		person.setObjectStatus(ObjectStatus.ACTIVE);
+		person.setFirstName(firstName);
+		person.setLastName("Audit");
+		person.setUsername(username);
+		person.setSchoolId(username);
+		person.setPrimaryEmailAddress(username + "@sinclair.edu");
+		return person;
+	}
+
+	private Person saveAsAndFlush(final Person author, final Person person) {
+		securityService.setCurrent(author);
+		try {
+			return saveAndFlush(person);
+		} finally {
+			securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		}
+	}
+
+	private Person saveAndFlush(final Person person) {
+		final Person saved = dao.save(person);
+		sessionFactory.getCurrentSession().flush();
+		return saved;
+	}
+}
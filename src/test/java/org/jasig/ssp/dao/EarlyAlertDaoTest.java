@@ -273,6 +273,27 @@ public class EarlyAlertDaoTest {
 				count.get(PERSON_ID).intValue());
 	}
 
+	/**
+	 * More ids than fit in one batch, so the counts come from a single
+	 * set-based query rather than chunked IN lists.
+	 */
+	@Test
+	public void getCountOfActiveAlertsForLargePeopleIdSet()
+			throws ObjectNotFoundException {
+		final Collection<UUID> peopleIds = Lists.newArrayList();
+		peopleIds.add(PERSON_ID);
+		for (int i = 0; i < 1000; i++) {
+			peopleIds.add(UUID.randomUUID());
+		}
+
+		final Map<UUID, Number> count = dao
+				.getCountOfActiveAlertsForPeopleIds(peopleIds);
+		assertEquals("Count of ActiveAlertsForPeopleIds was not expected.",
+				peopleIds.size(), count.size());
+		assertEquals("Count of PERSON_ID was not expected.", 1,
+				count.get(PERSON_ID).intValue());
+	}
+
 	@Test
 	public void getCountOfActiveAlertsForPeopleIdsEmpty()
 			throws ObjectNotFoundException {
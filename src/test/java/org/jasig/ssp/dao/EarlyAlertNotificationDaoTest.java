@@ -0,0 +1,209 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.jasig.ssp.model.EarlyAlert;
+import org.jasig.ssp.model.EarlyAlertNotification;
+import org.jasig.ssp.model.ObjectStatus;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.service.PersonService;
+import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
+import org.jasig.ssp.service.reference.CampusService;
+import org.jasig.ssp.util.service.stub.Stubs;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.Lists;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("dao-testConfig.xml")
+@TransactionConfiguration(defaultRollback = true)
+@Transactional
+public class EarlyAlertNotificationDaoTest {
+
+	private static final int RETRY_LIMIT = 5;
+
+	@Autowired
+	private transient EarlyAlertNotificationDao dao;
+
+	@Autowired
+	private transient EarlyAlertDao earlyAlertDao;
+
+	@Autowired
+	private transient PersonService personService;
+
+	@Autowired
+	private transient CampusService campusService;
+
+	@Autowired
+	private transient SessionFactory sessionFactory;
+
+	@Autowired
+	private transient SecurityServiceInTestEnvironment securityService;
+
+	private EarlyAlert earlyAlert;
+
+	@Before
+	public void setUp() throws ObjectNotFoundException {
+		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		earlyAlert = earlyAlertDao.save(Stubs.arrangeEarlyAlert(personService, campusService));
+	}
+
+	@Test
+	public void claimSkipsClaimedAndReclaimsLapsed() {
+		final List<UUID> created = createNotifications(3);
+		final Date now = new Date();
+		final Date claimedUntil = new Date(now.getTime() + 60000);
+
+		// whatever else is already waiting gets claimed too, so after this
+		// nothing at all should be claimable until the claim lapses
+		assertTrue("Should have claimed the new notifications",
+				dao.claim(100000, "first", now, claimedUntil, RETRY_LIMIT) >= created.size());
+		assertTrue("Claimed notifications should be readable by their claim",
+				dao.getClaimed("first").containsAll(created));
+
+		assertEquals("Claimed notifications should not be claimable again", 0,
+				dao.claim(100000, "second", now, claimedUntil, RETRY_LIMIT));
+		assertTrue("Nothing should be claimed by a failed claim",
+				dao.getClaimed("second").isEmpty());
+
+		final Date later = new Date(claimedUntil.getTime() + 1);
+		dao.claim(100000, "third", later, new Date(later.getTime() + 60000), RETRY_LIMIT);
+		assertTrue("Lapsed claims should be claimable again",
+				dao.getClaimed("third").containsAll(created));
+		assertTrue("Lapsed claims should no longer be readable by their old claim",
+				dao.getClaimed("first").isEmpty());
+	}
+
+	@Test
+	public void concurrentClaimsAreDisjoint() {
+		createNotifications(2);
+		final Date now = new Date();
+		final Date claimedUntil = new Date(now.getTime() + 60000);
+
+		assertEquals(1, dao.claim(1, "first", now, claimedUntil, RETRY_LIMIT));
+		assertEquals(1, dao.claim(1, "second", now, claimedUntil, RETRY_LIMIT));
+
+		final List<UUID> first = dao.getClaimed("first");
+		final List<UUID> second = dao.getClaimed("second");
+		assertEquals(1, first.size());
+		assertEquals(1, second.size());
+		assertFalse("No notification should be held by two claims",
+				first.get(0).equals(second.get(0)));
+	}
+
+	@Test
+	public void claimSkipsNotificationsGivenUpOn() {
+		final List<UUID> created = createNotifications(3);
+		final UUID atLimit = created.get(0);
+		final UUID belowLimit = created.get(1);
+		final UUID abandoned = created.get(2);
+		setAttempts(atLimit, RETRY_LIMIT, ObjectStatus.ACTIVE);
+		setAttempts(belowLimit, RETRY_LIMIT - 1, ObjectStatus.ACTIVE);
+		setAttempts(abandoned, RETRY_LIMIT, ObjectStatus.INACTIVE);
+
+		final Date now = new Date();
+		dao.claim(100000, "claim", now, new Date(now.getTime() + 60000), RETRY_LIMIT);
+
+		final List<UUID> claimed = dao.getClaimed("claim");
+		assertTrue("Notifications below the retry limit should be claimed",
+				claimed.contains(belowLimit));
+		assertFalse("Notifications at the retry limit should be skipped",
+				claimed.contains(atLimit));
+		assertFalse("Inactive notifications should be skipped",
+				claimed.contains(abandoned));
+	}
+
+	@Test
+	public void markProcessedOnlyOnce() {
+		final UUID id = createNotifications(1).get(0);
+		final Date now = new Date();
+		dao.claim(100000, "claim", now, new Date(now.getTime() + 60000), RETRY_LIMIT);
+
+		assertTrue("First mark should process the notification",
+				dao.markProcessed(id, new Date()));
+		assertFalse("Second mark should find it already processed",
+				dao.markProcessed(id, new Date()));
+		assertFalse("Processed notifications should not be readable by their claim",
+				dao.getClaimed("claim").contains(id));
+
+		final Date later = new Date(now.getTime() + 120000);
+		dao.claim(100000, "later", later, new Date(later.getTime() + 60000), RETRY_LIMIT);
+		assertFalse("Processed notifications should never be claimed again",
+				dao.getClaimed("later").contains(id));
+	}
+
+	@Test
+	public void deleteAbandonedBeforeDeletesOnlyInactiveUnprocessed() {
+		final List<UUID> created = createNotifications(3);
+		final UUID waiting = created.get(0);
+		final UUID abandoned = created.get(1);
+		final UUID processed = created.get(2);
+		setAttempts(abandoned, RETRY_LIMIT, ObjectStatus.INACTIVE);
+		dao.markProcessed(processed, new Date());
+
+		final Date tomorrow = new Date(System.currentTimeMillis() + 24 * 60 * 60 * 1000L);
+		assertTrue(dao.deleteAbandonedBefore(tomorrow) >= 1);
+		sessionFactory.getCurrentSession().clear();
+
+		final List<?> remaining = sessionFactory.getCurrentSession()
+				.createQuery("select id from EarlyAlertNotification where id in (:ids)")
+				.setParameterList("ids", created)
+				.list();
+		assertTrue("Waiting notifications should be kept", remaining.contains(waiting));
+		assertTrue("Processed notifications should be kept", remaining.contains(processed));
+		assertFalse("Abandoned notifications should be deleted", remaining.contains(abandoned));
+	}
+
+	private List<UUID> createNotifications(final int count) {
+		final List<UUID> ids = Lists.newArrayList();
+		for ( int i = 0; i < count; i++ ) {
+			ids.add(dao.save(new EarlyAlertNotification(earlyAlert,
+					EarlyAlertNotification.Type.ADVISOR_AND_FACULTY, null)).getId());
+		}
+		sessionFactory.getCurrentSession().flush();
+		return ids;
+	}
+
+	private void setAttempts(final UUID id, final int attempts, final ObjectStatus objectStatus) {
+		sessionFactory.getCurrentSession()
+				.createQuery("update EarlyAlertNotification set attempts = :attempts, objectStatus = :objectStatus"
+						+ " where id = :id")
+				.setInteger("attempts", attempts)
+				.setInteger("objectStatus", objectStatus.ordinal())
+				.setParameter("id", id)
+				.executeUpdate();
+	}
+}
@@ -0,0 +1,260 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.jasig.ssp.model.AnomalyCode;
+import org.jasig.ssp.model.MapStatusReport;
+import org.jasig.ssp.model.MapStatusReportCourseDetails;
+import org.jasig.ssp.model.MapStatusReportTermDetails;
+import org.jasig.ssp.model.ObjectStatus;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.Plan;
+import org.jasig.ssp.model.TermStatus;
+import org.jasig.ssp.model.external.PlanStatus;
+import org.jasig.ssp.service.MapStatusReportService;
+import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.service.PersonService;
+import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
+import org.jasig.ssp.web.api.validation.ValidationException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("dao-testConfig.xml")
+@TransactionConfiguration(defaultRollback = true)
+@Transactional
+public class MapStatusReportDaoTest {
+
+	private static final UUID KEN_ID = UUID
+			.fromString("f549ecab-5110-4cc1-b2bb-369cac854dea");
+
+	private static final String FINGERPRINT = "test-fingerprint";
+
+	@Autowired
+	private transient MapStatusReportDao dao;
+
+	@Autowired
+	private transient PlanDao planDao;
+
+	@Autowired
+	private transient MapStatusReportService mapStatusReportService;
+
+	@Autowired
+	private transient PersonService personService;
+
+	@Autowired
+	private transient SecurityServiceInTestEnvironment securityService;
+
+	@Autowired
+	private transient SessionFactory sessionFactory;
+
+	private Person ken;
+
+	@Before
+	public void setUp() throws ObjectNotFoundException {
+		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		ken = personService.get(KEN_ID);
+	}
+
+	@Test
+	public void planWithoutReportNeedsCalculation() {
+		final Plan plan = newPlan(ObjectStatus.ACTIVE);
+
+		assertTrue(dao.getPlanIdsNeedingCalculation(FINGERPRINT).contains(plan.getId()));
+	}
+
+	@Test
+	public void inactivePlanNeverNeedsCalculation() {
+		final Plan plan = newPlan(ObjectStatus.INACTIVE);
+
+		assertFalse(dao.getPlanIdsNeedingCalculation(FINGERPRINT).contains(plan.getId()));
+	}
+
+	@Test
+	public void upToDateReportDoesNotNeedCalculation() throws ObjectNotFoundException, ValidationException {
+		final Plan plan = newPlan(ObjectStatus.ACTIVE);
+		saveReport(plan, currentTranscriptWatermark(), plan.getModifiedDate(), FINGERPRINT);
+
+		assertFalse(dao.getPlanIdsNeedingCalculation(FINGERPRINT).contains(plan.getId()));
+	}
+
+	@Test
+	public void changedInputsFingerprintNeedsCalculation() throws ObjectNotFoundException, ValidationException {
+		final Plan plan = newPlan(ObjectStatus.ACTIVE);
+		saveReport(plan, currentTranscriptWatermark(), plan.getModifiedDate(), FINGERPRINT);
+
+		assertTrue(dao.getPlanIdsNeedingCalculation("other-fingerprint").contains(plan.getId()));
+	}
+
+	@Test
+	public void changedTranscriptWatermarkNeedsCalculation() throws ObjectNotFoundException, ValidationException {
+		final Plan plan = newPlan(ObjectStatus.ACTIVE);
+		saveReport(plan, "stale-watermark", plan.getModifiedDate(), FINGERPRINT);
+
+		assertTrue(dao.getPlanIdsNeedingCalculation(FINGERPRINT).contains(plan.getId()));
+	}
+
+	@Test
+	public void changedPlanNeedsCalculation() throws ObjectNotFoundException, ValidationException {
+		final Plan plan = newPlan(ObjectStatus.ACTIVE);
+		saveReport(plan, currentTranscriptWatermark(), new Date(plan.getModifiedDate().getTime() - 1000L),
+				FINGERPRINT);
+
+		assertTrue(dao.getPlanIdsNeedingCalculation(FINGERPRINT).contains(plan.getId()));
+	}
+
+	@Test
+	public void transcriptWatermarkIsStable() {
+		assertEquals(currentTranscriptWatermark(), currentTranscriptWatermark());
+	}
+
+	@Test
+	public void saveCalculatedReportUpdatesExistingReportInPlace() throws ObjectNotFoundException,
+			ValidationException {
+		final Plan plan = newPlan(ObjectStatus.ACTIVE);
+		final MapStatusReport original = newReport(plan, "watermark-1", plan.getModifiedDate(), FINGERPRINT);
+		final MapStatusReportCourseDetails courseDetail = new MapStatusReportCourseDetails();
+		courseDetail.setReport(original);
+		courseDetail.setAnomalyCode(AnomalyCode.COURSE_NOT_TAKEN);
+		courseDetail.setFormattedCourse("ENG101");
+		courseDetail.setTermCode("FA12");
+		original.getCourseDetails().add(courseDetail);
+		final UUID reportId = mapStatusReportService.saveCalculatedReport(original, null).getId();
+		flushAndClear();
+
+		final MapStatusReport recalculated = newReport(plan, "watermark-2", plan.getModifiedDate(),
+				"other-fingerprint");
+		recalculated.setPlanStatus(PlanStatus.ON);
+		for ( String termCode : new String[] { "FA12", "SP13" } ) {
+			final MapStatusReportTermDetails termDetail = new MapStatusReportTermDetails();
+			termDetail.setReport(recalculated);
+			termDetail.setTermCode(termCode);
+			termDetail.setTermStatus(TermStatus.TEST);
+			termDetail.setAnomalyCode(AnomalyCode.NO_ANOMALY);
+			termDetail.setTermRatio(BigDecimal.ONE.movePointLeft(1));
+			recalculated.getTermDetails().add(termDetail);
+		}
+		final MapStatusReport existing = dao.getByPlanIds(Collections.singleton(plan.getId())).get(plan.getId());
+		final MapStatusReport saved = mapStatusReportService.saveCalculatedReport(recalculated, existing);
+		flushAndClear();
+
+		assertEquals("Existing report should have been updated rather than replaced", reportId, saved.getId());
+		final Map<UUID, MapStatusReport> reports = dao.getByPlanIds(Collections.singleton(plan.getId()));
+		assertEquals(1, reports.size());
+		final MapStatusReport reloaded = reports.get(plan.getId());
+		assertEquals(reportId, reloaded.getId());
+		assertEquals(PlanStatus.ON, reloaded.getPlanStatus());
+		assertEquals("watermark-2", reloaded.getTranscriptWatermark());
+		assertEquals("other-fingerprint", reloaded.getInputsFingerprint());
+		assertTrue("Old details should have been removed", reloaded.getCourseDetails().isEmpty());
+		assertEquals(2, reloaded.getTermDetails().size());
+	}
+
+	@Test
+	public void getByPlanIdsLeavesDuplicatesToDeleteDuplicateReports() throws ObjectNotFoundException,
+			ValidationException {
+		final Plan plan = newPlan(ObjectStatus.ACTIVE);
+		saveReport(plan, "watermark", plan.getModifiedDate(), FINGERPRINT);
+		saveReport(plan, "watermark", plan.getModifiedDate(), FINGERPRINT);
+		flushAndClear();
+
+		final MapStatusReport returned = dao.getByPlanIds(Collections.singleton(plan.getId())).get(plan.getId());
+		assertNotNull(returned);
+		flushAndClear();
+		assertEquals("Looking reports up should not delete any", 2, reportCount(plan));
+
+		assertEquals(1, dao.deleteDuplicateReports());
+		flushAndClear();
+		final MapStatusReport kept = dao.getByPlanIds(Collections.singleton(plan.getId())).get(plan.getId());
+		assertEquals(returned.getId(), kept.getId());
+		assertEquals(1, reportCount(plan));
+		assertEquals(0, dao.deleteDuplicateReports());
+	}
+
+	private Plan newPlan(ObjectStatus objectStatus) {
+		final Plan plan = new Plan();
+		plan.setPerson(ken);
+		plan.setOwner(ken);
+		plan.setName("TestPlan");
+		plan.setObjectStatus(objectStatus);
+		planDao.save(plan);
+		sessionFactory.getCurrentSession().flush();
+		return plan;
+	}
+
+	private MapStatusReport newReport(Plan plan, String transcriptWatermark, Date planModifiedDate,
+									  String inputsFingerprint) {
+		final MapStatusReport report = new MapStatusReport();
+		report.setPlan(plan);
+		report.setPerson(plan.getPerson());
+		report.setPlanStatus(PlanStatus.OFF);
+		report.setPlanRatio(BigDecimal.ONE.movePointLeft(1));
+		report.setTranscriptWatermark(transcriptWatermark);
+		report.setPlanModifiedDate(planModifiedDate);
+		report.setInputsFingerprint(inputsFingerprint);
+		return report;
+	}
+
+	private MapStatusReport saveReport(Plan plan, String transcriptWatermark, Date planModifiedDate,
+									   String inputsFingerprint) throws ObjectNotFoundException, ValidationException {
+		final MapStatusReport report = mapStatusReportService.saveCalculatedReport(
+				newReport(plan, transcriptWatermark, planModifiedDate, inputsFingerprint), null);
+		sessionFactory.getCurrentSession().flush();
+		return report;
+	}
+
+	private String currentTranscriptWatermark() {
+		final String watermark = dao.getTranscriptWatermarksBySchoolIds(Collections.singleton(ken.getSchoolId()))
+				.get(ken.getSchoolId());
+		return watermark == null ? MapStatusReportDao.NO_TRANSCRIPT_WATERMARK : watermark;
+	}
+
+	private int reportCount(Plan plan) {
+		int count = 0;
+		for ( MapStatusReport report : dao.getAllForPersonId(KEN_ID, null).getRows() ) {
+			if ( plan.getId().equals(report.getPlan().getId()) ) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private void flushAndClear() {
+		sessionFactory.getCurrentSession().flush();
+		sessionFactory.getCurrentSession().clear();
+	}
+}
@@ -18,9 +18,15 @@
  */
 package org.jasig.ssp.dao; // NOPMD by jon.adams on 5/16/12 9:59 PM
 
+import com.google.common.collect.Lists;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.jasig.ssp.model.ArchivedMessage;
 import org.jasig.ssp.model.Message;
 import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.Task;
+import org.jasig.ssp.model.TaskMessageEnqueue;
 import org.jasig.ssp.service.ObjectNotFoundException;
 import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
 import org.jasig.ssp.util.sort.PagingWrapper;
@@ -39,12 +45,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -65,6 +73,18 @@ public class MessageDaoTest {
 	@Autowired
 	private transient PersonDao personDao;
 
+	@Autowired
+	private transient TaskDao taskDao;
+
+	@Autowired
+	private transient TaskMessageEnqueueDao taskMessageEnqueueDao;
+
+	@Autowired
+	private transient SessionFactory sessionFactory;
+
+	private static final UUID TASK_ID = UUID
+			.fromString("f42f4970-b566-11e1-a224-0026b9e7ff4c");
+
 	@Before
 	public void setUp() {
 		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
@@ -202,6 +222,109 @@ public class MessageDaoTest {
 		}
 	}
 
+	@Test
+	@Rollback
+	public void claimQueuedSkipsClaimedAndReclaimsLapsed() {
+		final List<UUID> created = Lists.newArrayList();
+		for ( int i = 0; i < 3; i++ ) {
+			created.add(dao.save(createTestMessage()).getId());
+		}
+		final Date now = new Date();
+		final Date claimedUntil = new Date(now.getTime() + 60000);
+
+		// whatever else is already queued gets claimed too, so after this
+		// nothing at all should be claimable until the claim lapses
+		assertTrue("Should have claimed the new messages",
+				dao.claimQueued(100000, "first", now, claimedUntil) >= created.size());
+		assertTrue("Claimed messages should be readable by their claim",
+				idsOf(dao.getClaimed("first")).containsAll(created));
+
+		assertEquals("Claimed messages should not be claimable again", 0,
+				dao.claimQueued(100000, "second", now, claimedUntil));
+		assertTrue("Nothing should be claimed by a failed claim",
+				dao.getClaimed("second").isEmpty());
+
+		final Date later = new Date(claimedUntil.getTime() + 1);
+		dao.claimQueued(100000, "third", later, new Date(later.getTime() + 60000));
+		assertTrue("Lapsed claims should be claimable again",
+				idsOf(dao.getClaimed("third")).containsAll(created));
+	}
+
+	@Test
+	@Rollback
+	public void getPrunableIdsOldestFirstExcludingEnqueuedTaskMessages()
+			throws ObjectNotFoundException, InterruptedException {
+		final List<UUID> created = Lists.newArrayList();
+		for ( int i = 0; i < 3; i++ ) {
+			created.add(dao.save(createTestMessage()).getId());
+			Thread.sleep(100); // make sure date sorting works predictably
+		}
+		final Task task = taskDao.get(TASK_ID);
+		final Message enqueued = dao.save(createTestMessage());
+		taskMessageEnqueueDao.save(new TaskMessageEnqueue(task, enqueued, 14));
+		sessionFactory.getCurrentSession().flush();
+
+		final Date tomorrow = new Date(System.currentTimeMillis() + 24 * 60 * 60 * 1000L);
+		final List<UUID> prunable = dao.getPrunableIds(tomorrow, 100000);
+		assertTrue("Unreferenced messages should be prunable",
+				prunable.containsAll(created));
+		assertFalse("Messages referenced by a TaskMessageEnqueue should not be prunable",
+				prunable.contains(enqueued.getId()));
+		assertTrue("Prunable messages should be oldest first",
+				prunable.indexOf(created.get(0)) < prunable.indexOf(created.get(1))
+				&& prunable.indexOf(created.get(1)) < prunable.indexOf(created.get(2)));
+
+		assertEquals("Should return no more than the max results", 1,
+				dao.getPrunableIds(tomorrow, 1).size());
+		assertTrue("Messages created after the cutoff should not be prunable",
+				dao.getPrunableIds(new Date(0L), 100000).isEmpty());
+	}
+
+	@Test
+	@Rollback
+	public void archiveAndPruneMessagesMovesOnlyGivenMessages() {
+		final Message pruned1 = dao.save(createTestMessage());
+		final Message pruned2 = dao.save(createTestMessage());
+		final Message kept = dao.save(createTestMessage());
+		final Session session = sessionFactory.getCurrentSession();
+		session.flush();
+
+		assertEquals("No ids should prune nothing", 0,
+				dao.archiveAndPruneMessages(Lists.<UUID>newArrayList()));
+		assertEquals("Unexpected number of messages pruned", 2,
+				dao.archiveAndPruneMessages(Lists.newArrayList(pruned1.getId(), pruned2.getId())));
+		session.clear();
+
+		for ( final Message message : Lists.newArrayList(pruned1, pruned2) ) {
+			try {
+				dao.get(message.getId());
+				fail("Pruned message should have been deleted");
+			} catch ( final ObjectNotFoundException e ) {
+				// expected
+			}
+			final ArchivedMessage archived = (ArchivedMessage) session.get(
+					ArchivedMessage.class, message.getId());
+			assertNotNull("Pruned message should have been archived", archived);
+			assertEquals("Archived message subject should be copied",
+					message.getSubject(), archived.getSubject());
+		}
+		try {
+			assertNotNull("Other messages should not be pruned", dao.get(kept.getId()));
+		} catch ( final ObjectNotFoundException e ) {
+			fail("Other messages should not be pruned");
+		}
+		assertNull("Other messages should not be archived",
+				session.get(ArchivedMessage.class, kept.getId()));
+	}
+
+	private List<UUID> idsOf(final List<Message> messages) {
+		final List<UUID> ids = Lists.newArrayListWithCapacity(messages.size());
+		for ( final Message message : messages ) {
+			ids.add(message.getId());
+		}
+		return ids;
+	}
+
 	/**
 	 * Create a new sample message to use for testing.
 	 * 
@@ -53,6 +53,7 @@ import org.springframework.test.context.transaction.TransactionConfiguration;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration("dao-testConfig.xml")
@@ -245,4 +246,49 @@ public class PersonDaoTest { // NOPMD Test suites love lots of methods!
 		assertEquals(advisor0, results.getRows().iterator().next());
 		assertEquals(2, results.getResults()); //Changed because data has been added 2/8/2013 J. Stanley
 	}
+
+	@Test
+	public void activeIdPartitionBoundariesSplitActivePersonsIntoRanges() {
+		final List<Person> all = dao.getActiveInIdRange(null, null, null, 0);
+		assertTrue("Test data should have several active persons",
+				all.size() > 3);
+
+		final List<UUID> boundaries = dao.getActiveIdPartitionBoundaries(3);
+		assertEquals("Incorrect number of boundaries", 2, boundaries.size());
+
+		// every active person falls in exactly one range, in ID order
+		final List<Person> covered = Lists.newArrayList();
+		for ( int i = 0; i <= boundaries.size(); i++ ) {
+			final List<Person> range = dao.getActiveInIdRange(
+					i == 0 ? null : boundaries.get(i - 1), null,
+					i == boundaries.size() ? null : boundaries.get(i), 0);
+			assertFalse("Range " + i + " should not be empty", range.isEmpty());
+			covered.addAll(range);
+		}
+		assertEquals(all, covered);
+	}
+
+	@Test
+	public void activeIdPartitionBoundariesCappedByPersonCount() {
+		final int total = dao.getActiveInIdRange(null, null, null, 0).size();
+		final List<UUID> boundaries = dao.getActiveIdPartitionBoundaries(total + 5);
+		assertEquals("No more ranges than persons", total - 1, boundaries.size());
+		assertEquals("Boundaries should be distinct", boundaries.size(),
+				Sets.newHashSet(boundaries).size());
+		assertTrue(dao.getActiveIdPartitionBoundaries(1).isEmpty());
+	}
+
+	@Test
+	public void activeInIdRangePagesAfterTheGivenId() {
+		final List<Person> all = dao.getActiveInIdRange(null, null, null, 0);
+		final List<Person> paged = Lists.newArrayList();
+		UUID after = null;
+		List<Person> page;
+		while ( !((page = dao.getActiveInIdRange(null, after, null, 2)).isEmpty()) ) {
+			assertTrue("Incorrect page size", page.size() <= 2);
+			paged.addAll(page);
+			after = page.get(page.size() - 1).getId();
+		}
+		assertEquals(all, paged);
+	}
 }
@@ -19,16 +19,21 @@
 package org.jasig.ssp.dao;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
 
 import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.Person;
 import org.jasig.ssp.service.ObjectNotFoundException;
 import org.jasig.ssp.service.PersonService;
 import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
+import org.jasig.ssp.transferobject.PersonTO;
 import org.jasig.ssp.util.service.stub.Stubs;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortingAndPaging;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -38,6 +43,8 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.transaction.TransactionConfiguration;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.collect.Lists;
+
 import static org.junit.Assert.assertEquals;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -61,9 +68,17 @@ public class PersonDaoWithRollbackTest {
 	@Autowired
 	private transient SecurityServiceInTestEnvironment securityService;
 
+	private boolean statisticsWereEnabled;
+
 	@Before
 	public void setUp() {
 		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		statisticsWereEnabled = sessionFactory.getStatistics().isStatisticsEnabled();
+	}
+
+	@After
+	public void tearDown() {
+		sessionFactory.getStatistics().setStatisticsEnabled(statisticsWereEnabled);
 	}
 
 	@Test
@@ -82,6 +97,50 @@ public class PersonDaoWithRollbackTest {
 		assertEquals(3, results.getResults());
 	}
 
+	/**
+	 * Associations touched by {@link PersonTO} are batch fetched, so
+	 * converting 100 people should take exactly as many statements as
+	 * converting 10.
+	 */
+	@Test
+	public void testPersonTOConversionStatementCountIndependentOfPageSize()
+			throws Exception {
+		final List<UUID> ids = Lists.newArrayList();
+		for ( int i = 0; i < 100; i++ ) {
+			final Person person = new Person();
+			person.setObjectStatus(ObjectStatus.ACTIVE);
+			person.setFirstName("Batch");
+			person.setLastName("Fetch" + i);
+			person.setUsername("batch.fetch." + i);
+			person.setSchoolId("batch.fetch." + i);
+			person.setPrimaryEmailAddress("batch.fetch." + i + "@sinclair.edu");
+			saveAndFlush(person);
+			ids.add(person.getId());
+		}
+
+		final long tenPeopleStatements = countStatementsToConvert(ids.subList(0, 10));
+		final long hundredPeopleStatements = countStatementsToConvert(ids);
+
+		assertEquals("Converting a larger page of people should not issue more statements",
+				tenPeopleStatements, hundredPeopleStatements);
+	}
+
+	private long countStatementsToConvert(final List<UUID> ids) throws Exception {
+		sessionFactory.getCurrentSession().clear();
+		sessionFactory.getCache().evictEntityRegions();
+		sessionFactory.getCache().evictCollectionRegions();
+		sessionFactory.getCache().evictQueryRegions();
+		final Statistics stats = sessionFactory.getStatistics();
+		stats.setStatisticsEnabled(true);
+		stats.clear();
+
+		final List<Person> people = dao.getPeopleInList(ids,
+				new SortingAndPaging(ObjectStatus.ALL));
+		assertEquals(ids.size(), PersonTO.toTOList(people).size());
+
+		return stats.getPrepareStatementCount();
+	}
+
 	private void saveAndFlush(Person... persons) throws ObjectNotFoundException {
 		for ( Person person : persons ) {
 			dao.save(person);
@@ -0,0 +1,123 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.jasig.ssp.dao.reference.SuccessIndicatorDao;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.PersonSuccessIndicatorAlert;
+import org.jasig.ssp.model.reference.SuccessIndicator;
+import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.Lists;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("dao-testConfig.xml")
+@TransactionConfiguration(defaultRollback = true)
+@Transactional
+public class PersonSuccessIndicatorAlertDaoTest {
+
+	private static final UUID KEN_ID = UUID
+			.fromString("f549ecab-5110-4cc1-b2bb-369cac854dea");
+
+	private static final UUID JAMES_ID = UUID
+			.fromString("1010e4a0-1001-0110-1011-4ffc02fe81ff");
+
+	// system.student.gpa
+	private static final UUID SUCCESS_INDICATOR_ID = UUID
+			.fromString("c12b49f8-594b-11e4-bdb3-406c8f22c3ce");
+
+	@Autowired
+	private transient PersonSuccessIndicatorAlertDao dao;
+
+	@Autowired
+	private transient PersonDao personDao;
+
+	@Autowired
+	private transient SuccessIndicatorDao successIndicatorDao;
+
+	@Autowired
+	private transient SecurityServiceInTestEnvironment securityService;
+
+	private Person ken;
+
+	private Person james;
+
+	private SuccessIndicator successIndicator;
+
+	@Before
+	public void setUp() throws ObjectNotFoundException {
+		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		ken = personDao.get(KEN_ID);
+		james = personDao.get(JAMES_ID);
+		successIndicator = successIndicatorDao.get(SUCCESS_INDICATOR_ID);
+	}
+
+	@Test
+	public void saveAndDeleteAllAppliesBoth() {
+		final PersonSuccessIndicatorAlert kensAlert = alert(ken);
+		final PersonSuccessIndicatorAlert jamesAlert = alert(james);
+		dao.saveAndDeleteAll(Lists.newArrayList(kensAlert, jamesAlert),
+				Lists.<PersonSuccessIndicatorAlert>newArrayList());
+
+		assertNotNull(kensAlert.getId());
+		assertNotNull(dao.get(ken, successIndicator));
+		assertNotNull(dao.get(james, successIndicator));
+
+		dao.saveAndDeleteAll(Lists.<PersonSuccessIndicatorAlert>newArrayList(),
+				Lists.newArrayList(kensAlert));
+
+		assertNull(dao.get(ken, successIndicator));
+		assertNotNull(dao.get(james, successIndicator));
+	}
+
+	@Test
+	public void getForPersonIdsReturnsAlertsOfThosePersons() {
+		dao.saveAndDeleteAll(Lists.newArrayList(alert(ken), alert(james)),
+				Lists.<PersonSuccessIndicatorAlert>newArrayList());
+
+		final List<PersonSuccessIndicatorAlert> kensAlerts = dao.getForPersonIds(Lists.newArrayList(KEN_ID));
+		assertEquals("Incorrect number of alerts", 1, kensAlerts.size());
+		assertEquals(ken, kensAlerts.get(0).getPerson());
+
+		assertEquals(2, dao.getForPersonIds(Lists.newArrayList(KEN_ID, JAMES_ID)).size());
+	}
+
+	private PersonSuccessIndicatorAlert alert(final Person person) {
+		final PersonSuccessIndicatorAlert alert = new PersonSuccessIndicatorAlert();
+		alert.setPerson(person);
+		alert.setSuccessIndicator(successIndicator);
+		return alert;
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.PersonSuccessIndicatorCount;
+import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.Lists;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("dao-testConfig.xml")
+@TransactionConfiguration(defaultRollback = true)
+@Transactional
+public class PersonSuccessIndicatorCountDaoTest {
+
+	private static final UUID KEN_ID = UUID
+			.fromString("f549ecab-5110-4cc1-b2bb-369cac854dea");
+
+	private static final UUID JAMES_ID = UUID
+			.fromString("1010e4a0-1001-0110-1011-4ffc02fe81ff");
+
+	@Autowired
+	private transient PersonSuccessIndicatorCountDao dao;
+
+	@Autowired
+	private transient PersonDao personDao;
+
+	@Autowired
+	private transient SecurityServiceInTestEnvironment securityService;
+
+	private Person ken;
+
+	private Person james;
+
+	@Before
+	public void setUp() throws ObjectNotFoundException {
+		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		ken = personDao.get(KEN_ID);
+		james = personDao.get(JAMES_ID);
+		dao.deleteAllSuccessIndicatorCountsForPersonIds(Lists.newArrayList(KEN_ID, JAMES_ID));
+	}
+
+	@Test
+	public void saveAllInsertsEveryCount() {
+		dao.saveAll(Lists.newArrayList(count(ken, 3), count(james, 5)));
+
+		final Collection<PersonSuccessIndicatorCount> kensCounts = dao.getAllForPerson(ken);
+		assertEquals("Incorrect number of counts", 1, kensCounts.size());
+		assertEquals(Integer.valueOf(3), kensCounts.iterator().next().getLowCount());
+		assertEquals(Integer.valueOf(5), dao.getAllForPerson(james).iterator().next().getLowCount());
+	}
+
+	@Test
+	public void deleteForPersonIdsOnlyDeletesThosePersons() {
+		dao.saveAll(Lists.newArrayList(count(ken, 1), count(james, 1)));
+
+		dao.deleteAllSuccessIndicatorCountsForPersonIds(Lists.newArrayList(KEN_ID));
+
+		assertTrue(dao.getAllForPerson(ken).isEmpty());
+		assertEquals(1, dao.getAllForPerson(james).size());
+	}
+
+	@Test
+	public void deleteForNoPersonIdsDoesNothing() {
+		dao.saveAll(Lists.newArrayList(count(ken, 1)));
+
+		dao.deleteAllSuccessIndicatorCountsForPersonIds(Lists.<UUID>newArrayList());
+
+		assertEquals(1, dao.getAllForPerson(ken).size());
+	}
+
+	private static PersonSuccessIndicatorCount count(final Person person, final int lowCount) {
+		final PersonSuccessIndicatorCount count = new PersonSuccessIndicatorCount();
+		count.setPerson(person);
+		count.setLowCount(lowCount);
+		count.setMediumCount(0);
+		count.setHighCount(0);
+		count.setLowAlertCount(0);
+		return count;
+	}
+}
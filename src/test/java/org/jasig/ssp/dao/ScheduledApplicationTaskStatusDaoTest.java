@@ -0,0 +1,164 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.ScheduledApplicationTaskStatus;
+import org.jasig.ssp.model.ScheduledTaskStatus;
+import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("dao-testConfig.xml")
+@TransactionConfiguration(defaultRollback = true)
+@Transactional
+public class ScheduledApplicationTaskStatusDaoTest {
+
+	private static final String TASK_NAME = "test_lease_task";
+
+	private static final long LEASE_MILLIS = 60000L;
+
+	@Autowired
+	private transient ScheduledApplicationTaskStatusDao dao;
+
+	@Autowired
+	private transient SessionFactory sessionFactory;
+
+	@Autowired
+	private transient SecurityServiceInTestEnvironment securityService;
+
+	private Date now;
+
+	@Before
+	public void setUp() {
+		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		final ScheduledApplicationTaskStatus taskStatus = new ScheduledApplicationTaskStatus();
+		taskStatus.setTaskName(TASK_NAME);
+		taskStatus.setStatus(ScheduledTaskStatus.COMPLETED);
+		dao.save(taskStatus);
+		sessionFactory.getCurrentSession().flush();
+		now = new Date();
+	}
+
+	@Test
+	public void testAcquireFreeLease() {
+		assertTrue(dao.acquireLease(TASK_NAME, "node-a", now, expiresAfter(now), null));
+		assertEquals(Long.valueOf(1L), dao.getFencingToken(TASK_NAME, "node-a"));
+		assertNull(dao.getFencingToken(TASK_NAME, "node-b"));
+	}
+
+	@Test
+	public void testCannotAcquireLeaseHeldByAnotherNode() {
+		assertTrue(dao.acquireLease(TASK_NAME, "node-a", now, expiresAfter(now), null));
+		assertFalse(dao.acquireLease(TASK_NAME, "node-b", now, expiresAfter(now), null));
+		assertEquals(Long.valueOf(1L), dao.getFencingToken(TASK_NAME, "node-a"));
+	}
+
+	@Test
+	public void testExpiredLeaseIsAbandonedAndCanBeStolen() {
+		assertTrue(dao.acquireLease(TASK_NAME, "node-a", now, expiresAfter(now), null));
+
+		final Date afterExpiry = new Date(now.getTime() + LEASE_MILLIS + 1);
+		final List<ScheduledApplicationTaskStatus> abandoned = dao.getAbandonedLeases(afterExpiry);
+		assertEquals(1, countByName(abandoned, TASK_NAME));
+		assertEquals(0, countByName(dao.getAbandonedLeases(now), TASK_NAME));
+
+		assertTrue(dao.acquireLease(TASK_NAME, "node-b", afterExpiry, expiresAfter(afterExpiry), null));
+		assertEquals(Long.valueOf(2L), dao.getFencingToken(TASK_NAME, "node-b"));
+		assertNull(dao.getFencingToken(TASK_NAME, "node-a"));
+	}
+
+	@Test
+	public void testSupersededHolderCannotRenewOrRelease() {
+		assertTrue(dao.acquireLease(TASK_NAME, "node-a", now, expiresAfter(now), null));
+		final Date afterExpiry = new Date(now.getTime() + LEASE_MILLIS + 1);
+		assertTrue(dao.acquireLease(TASK_NAME, "node-b", afterExpiry, expiresAfter(afterExpiry), null));
+
+		assertFalse(dao.renewLease(TASK_NAME, "node-a", 1L, expiresAfter(afterExpiry)));
+		assertFalse(dao.releaseLease(TASK_NAME, "node-a", 1L, ScheduledTaskStatus.COMPLETED, afterExpiry));
+		// stale token from the right owner is refused too
+		assertFalse(dao.renewLease(TASK_NAME, "node-b", 1L, expiresAfter(afterExpiry)));
+
+		assertTrue(dao.renewLease(TASK_NAME, "node-b", 2L, expiresAfter(afterExpiry)));
+		assertTrue(dao.releaseLease(TASK_NAME, "node-b", 2L, ScheduledTaskStatus.COMPLETED, afterExpiry));
+	}
+
+	@Test
+	public void testReleasedLeaseCanBeAcquiredAgain() {
+		assertTrue(dao.acquireLease(TASK_NAME, "node-a", now, expiresAfter(now), null));
+		assertTrue(dao.releaseLease(TASK_NAME, "node-a", 1L, ScheduledTaskStatus.COMPLETED, now));
+		assertTrue(dao.acquireLease(TASK_NAME, "node-b", now, expiresAfter(now), null));
+		assertEquals(Long.valueOf(2L), dao.getFencingToken(TASK_NAME, "node-b"));
+	}
+
+	@Test
+	public void testOccurrenceAlreadyRunIsNotRunAgain() {
+		final Date occurrence = new Date(now.getTime() - 1000);
+		assertTrue(dao.acquireLease(TASK_NAME, "node-a", now, expiresAfter(now), occurrence));
+		assertTrue(dao.releaseLease(TASK_NAME, "node-a", 1L, ScheduledTaskStatus.COMPLETED, now));
+
+		// slower node firing the same occurrence after node-a finished
+		final Date later = new Date(now.getTime() + 500);
+		assertFalse(dao.acquireLease(TASK_NAME, "node-b", later, expiresAfter(later), occurrence));
+
+		// but the next occurrence runs
+		final Date nextOccurrence = new Date(now.getTime() + 1000);
+		final Date atNext = new Date(nextOccurrence.getTime() + 10);
+		assertTrue(dao.acquireLease(TASK_NAME, "node-b", atNext, expiresAfter(atNext), nextOccurrence));
+	}
+
+	@Test
+	public void testAbandonedLeaseRecoveryIgnoresOccurrence() {
+		final Date occurrence = new Date(now.getTime() - 1000);
+		assertTrue(dao.acquireLease(TASK_NAME, "node-a", now, expiresAfter(now), occurrence));
+		final Date afterExpiry = new Date(now.getTime() + LEASE_MILLIS + 1);
+		assertFalse(dao.acquireLease(TASK_NAME, "node-b", afterExpiry, expiresAfter(afterExpiry), occurrence));
+		assertTrue(dao.acquireLease(TASK_NAME, "node-b", afterExpiry, expiresAfter(afterExpiry), null));
+	}
+
+	private Date expiresAfter(Date from) {
+		return new Date(from.getTime() + LEASE_MILLIS);
+	}
+
+	private int countByName(List<ScheduledApplicationTaskStatus> statuses, String taskName) {
+		int count = 0;
+		for ( ScheduledApplicationTaskStatus status : statuses ) {
+			if ( taskName.equals(status.getTaskName()) ) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
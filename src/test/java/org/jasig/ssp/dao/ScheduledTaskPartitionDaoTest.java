@@ -0,0 +1,125 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.jasig.ssp.model.ScheduledTaskPartition;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.Lists;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("dao-testConfig.xml")
+@TransactionConfiguration(defaultRollback = true)
+@Transactional
+public class ScheduledTaskPartitionDaoTest {
+
+	private static final String TASK_NAME = "test_partitioned_task";
+
+	private static final UUID BOUNDARY = UUID
+			.fromString("8a1e6d4c-3b2f-4e91-a0c7-5d9f2b6e1a38");
+
+	@Autowired
+	private transient ScheduledTaskPartitionDao dao;
+
+	@Test
+	public void neverPartitionedTaskHasNoPartitions() {
+		assertTrue(dao.getPartitions(TASK_NAME).isEmpty());
+	}
+
+	@Test
+	public void replacePartitionsStoresUnprocessedRanges() {
+		dao.replacePartitions(TASK_NAME, partitions(2));
+
+		final List<ScheduledTaskPartition> stored = dao.getPartitions(TASK_NAME);
+		assertEquals("Incorrect number of partitions", 2, stored.size());
+		assertEquals(0, stored.get(0).getPartitionIndex());
+		assertNull(stored.get(0).getRangeStart());
+		assertEquals(BOUNDARY, stored.get(0).getRangeEnd());
+		assertEquals(1, stored.get(1).getPartitionIndex());
+		assertEquals(BOUNDARY, stored.get(1).getRangeStart());
+		assertNull(stored.get(1).getRangeEnd());
+		for ( ScheduledTaskPartition partition : stored ) {
+			assertEquals(TASK_NAME, partition.getTaskName());
+			assertEquals(2, partition.getPartitionCount());
+			assertNull(partition.getLastProcessedId());
+			assertEquals(0L, partition.getProcessedCount());
+			assertFalse(partition.isCompleted());
+		}
+	}
+
+	@Test
+	public void replacePartitionsDiscardsPreviousRanges() {
+		dao.replacePartitions(TASK_NAME, partitions(2));
+		dao.checkpoint(TASK_NAME, 0, UUID.randomUUID(), 10, new Date());
+
+		dao.replacePartitions(TASK_NAME, partitions(1));
+
+		final List<ScheduledTaskPartition> stored = dao.getPartitions(TASK_NAME);
+		assertEquals("Incorrect number of partitions", 1, stored.size());
+		assertEquals(1, stored.get(0).getPartitionCount());
+		assertEquals(0L, stored.get(0).getProcessedCount());
+		assertFalse(stored.get(0).isCompleted());
+	}
+
+	@Test
+	public void checkpointAccumulatesProgressOfOneRange() {
+		dao.replacePartitions(TASK_NAME, partitions(2));
+		final UUID first = UUID.randomUUID();
+		final UUID second = UUID.randomUUID();
+
+		dao.checkpoint(TASK_NAME, 1, first, 100, null);
+		dao.checkpoint(TASK_NAME, 1, second, 42, new Date());
+
+		final List<ScheduledTaskPartition> stored = dao.getPartitions(TASK_NAME);
+		assertNull("Other range should be untouched", stored.get(0).getLastProcessedId());
+		assertEquals(0L, stored.get(0).getProcessedCount());
+		assertEquals(second, stored.get(1).getLastProcessedId());
+		assertEquals(142L, stored.get(1).getProcessedCount());
+		assertTrue(stored.get(1).isCompleted());
+	}
+
+	private List<ScheduledTaskPartition> partitions(final int count) {
+		final List<ScheduledTaskPartition> partitions = Lists.newArrayList();
+		for ( int i = 0; i < count; i++ ) {
+			final ScheduledTaskPartition partition = new ScheduledTaskPartition();
+			partition.setTaskName(TASK_NAME);
+			partition.setPartitionIndex(i);
+			partition.setPartitionCount(count);
+			partition.setRangeStart(i == 0 ? null : BOUNDARY);
+			partition.setRangeEnd(i == count - 1 ? null : BOUNDARY);
+			partitions.add(partition);
+		}
+		return partitions;
+	}
+}
@@ -26,6 +26,7 @@ import static org.junit.Assert.assertTrue;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.jasig.ssp.TestUtils;
@@ -41,6 +42,7 @@ import org.jasig.ssp.service.ObjectNotFoundException;
 import org.jasig.ssp.service.PersonService;
 import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
 import org.jasig.ssp.service.reference.ConfidentialityLevelService;
+import org.jasig.ssp.util.collections.Pair;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortingAndPaging;
 import org.junit.After;
@@ -256,4 +258,21 @@ public class TaskDaoTest {
 
 		dao.delete(obj);
 	}
+
+	@Test
+	public void getOpenVsClosedTaskCountsForPersonIdsMatchesPerPersonCounts() {
+		final UUID unknown = UUID.randomUUID();
+
+		final Map<UUID, Pair<Long, Long>> counts = dao
+				.getOpenVsClosedTaskCountsForPersonIds(Lists.newArrayList(ken.getId(), unknown));
+
+		final Pair<Long, Long> expected = dao.getOpenVsClosedTaskCountsForPerson(ken);
+		assertEquals(expected.getFirst(), counts.get(ken.getId()).getFirst());
+		assertEquals(expected.getSecond(), counts.get(ken.getId()).getSecond());
+		assertTrue("setUp() creates an open task",
+				counts.get(ken.getId()).getFirst() > 0);
+		assertEquals("Persons without tasks should count zero", Long.valueOf(0L),
+				counts.get(unknown).getFirst());
+		assertEquals(Long.valueOf(0L), counts.get(unknown).getSecond());
+	}
 }
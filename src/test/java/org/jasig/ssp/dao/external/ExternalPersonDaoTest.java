@@ -19,10 +19,16 @@
 package org.jasig.ssp.dao.external;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Date;
 import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
 
 import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.external.ExternalPerson;
@@ -32,6 +38,7 @@ import org.jasig.ssp.util.sort.SortingAndPaging;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.transaction.TransactionConfiguration;
@@ -45,9 +52,15 @@ import com.google.common.collect.Lists;
 @Transactional
 public class ExternalPersonDaoTest {
 
+	private static final UUID KEN_ID = UUID
+			.fromString("f549ecab-5110-4cc1-b2bb-369cac854dea");
+
 	@Autowired
 	private transient ExternalPersonDao dao;
 
+	@Autowired
+	private transient SessionFactory sessionFactory;
+
 	@SuppressWarnings("null")
 	@Test
 	public void getBySchoolId() {
@@ -81,4 +94,66 @@ public class ExternalPersonDaoTest {
 		assertEquals("Incorrect number of external_user entries", 2L,
 				diff.getResults());
 	}
+
+	@Test
+	@Rollback
+	public void changedExternalDataIsDetectedUntilFingerprintRecorded() {
+		dao.refreshSyncFingerprintSnapshot();
+		assertTrue("Never synced, so should count as changed",
+				changedPersonIds().contains(KEN_ID));
+
+		dao.recordSyncFingerprints(Lists.newArrayList(KEN_ID), new Date());
+		assertFalse("Just synced, so should not count as changed",
+				changedPersonIds().contains(KEN_ID));
+
+		updateKen("first_name = 'Kenny'");
+		assertFalse("Change should not be seen before the snapshot is refreshed",
+				changedPersonIds().contains(KEN_ID));
+
+		dao.refreshSyncFingerprintSnapshot();
+		assertTrue("External record changed, so should count as changed",
+				changedPersonIds().contains(KEN_ID));
+	}
+
+	@Test
+	@Rollback
+	public void nullAndEmptyExternalValuesFingerprintDifferently() {
+		updateKen("middle_name = null");
+		dao.refreshSyncFingerprintSnapshot();
+		dao.recordSyncFingerprints(Lists.newArrayList(KEN_ID), new Date());
+
+		updateKen("middle_name = ''");
+		dao.refreshSyncFingerprintSnapshot();
+		assertTrue(changedPersonIds().contains(KEN_ID));
+	}
+
+	@Test
+	@Rollback
+	public void changedPersonIdsPageAfterTheGivenId() {
+		dao.refreshSyncFingerprintSnapshot();
+		final List<UUID> all = changedPersonIds();
+		assertFalse("Test data should have unsynced persons", all.isEmpty());
+
+		final List<UUID> paged = Lists.newArrayList();
+		UUID after = null;
+		List<UUID> page;
+		while ( !((page = dao.getPersonIdsWithChangedExternalData(after, 1)).isEmpty()) ) {
+			assertEquals("Incorrect page size", 1, page.size());
+			paged.add(page.get(0));
+			after = page.get(0);
+		}
+		assertEquals("Paging should visit each changed person once, in order",
+				all, paged);
+	}
+
+	private List<UUID> changedPersonIds() {
+		return dao.getPersonIdsWithChangedExternalData(null, 1000);
+	}
+
+	private void updateKen(final String assignment) {
+		sessionFactory.getCurrentSession()
+				.createSQLQuery("update external_person set " + assignment
+						+ " where school_id = 'ken.1'")
+				.executeUpdate();
+	}
 }
@@ -0,0 +1,167 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao.jobqueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.google.common.collect.Lists;
+import org.hibernate.SessionFactory;
+import org.jasig.ssp.dao.PersonDao;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.jobqueue.Job;
+import org.jasig.ssp.model.jobqueue.WorkflowStatus;
+import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
+import org.jasig.ssp.transferobject.ImmutablePersonIdentifiersTO;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("../dao-testConfig.xml")
+@TransactionConfiguration(defaultRollback = true)
+@Transactional
+public class JobDaoTest {
+
+	/**
+	 * More than one multi-row insert statement's worth.
+	 */
+	private static final int TARGET_COUNT = 600;
+
+	@Autowired
+	private transient JobDao dao;
+
+	@Autowired
+	private transient PersonDao personDao;
+
+	@Autowired
+	private transient SessionFactory sessionFactory;
+
+	@Autowired
+	private transient SecurityServiceInTestEnvironment securityService;
+
+	private Job job;
+
+	@Before
+	public void setUp() {
+		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		final Person owner = personDao.fromUsername("ken");
+		job = new Job();
+		job.setOwner(owner);
+		job.setRunAs(owner);
+		job.setExecutionComponentName("test-executor");
+		job.setWorkflowStatus(WorkflowStatus.EXECUTING);
+		job = dao.save(job);
+		sessionFactory.getCurrentSession().flush();
+	}
+
+	@Test
+	public void testInsertTargetsKeepsOrderAcrossStatements() {
+		final List<ImmutablePersonIdentifiersTO> targets = newTargets(TARGET_COUNT);
+		dao.insertTargets(job.getId(), targets);
+
+		assertEquals(targets, dao.getTargets(job.getId(), 0, TARGET_COUNT + 1));
+	}
+
+	@Test
+	public void testInsertTargetsAllowsMissingIdentifiers() {
+		final List<ImmutablePersonIdentifiersTO> targets = Lists.newArrayList(
+				new ImmutablePersonIdentifiersTO(null, "no-operational-record"),
+				new ImmutablePersonIdentifiersTO(UUID.randomUUID(), null));
+		dao.insertTargets(job.getId(), targets);
+
+		final List<ImmutablePersonIdentifiersTO> stored = dao.getTargets(job.getId(), 0, 10);
+		assertEquals(2, stored.size());
+		assertNull(stored.get(0).getId());
+		assertNull(stored.get(1).getSchoolId());
+	}
+
+	@Test
+	public void testGetTargetsPagesByIndex() {
+		final List<ImmutablePersonIdentifiersTO> targets = newTargets(TARGET_COUNT);
+		dao.insertTargets(job.getId(), targets);
+
+		final int pageSize = 70;
+		final List<ImmutablePersonIdentifiersTO> paged = Lists.newArrayList();
+		List<ImmutablePersonIdentifiersTO> page;
+		int firstIndex = 0;
+		while ( !((page = dao.getTargets(job.getId(), firstIndex, pageSize)).isEmpty()) ) {
+			assertTrue("Page larger than requested", page.size() <= pageSize);
+			paged.addAll(page);
+			firstIndex += page.size();
+		}
+
+		assertEquals(targets, paged);
+		assertTrue(dao.getTargets(job.getId(), TARGET_COUNT, pageSize).isEmpty());
+	}
+
+	@Test
+	public void testDeleteTargetsOnlyRemovesThatJobsTargets() {
+		final Job otherJob = new Job();
+		otherJob.setOwner(job.getOwner());
+		otherJob.setRunAs(job.getRunAs());
+		otherJob.setExecutionComponentName("test-executor");
+		otherJob.setWorkflowStatus(WorkflowStatus.EXECUTING);
+		dao.save(otherJob);
+		sessionFactory.getCurrentSession().flush();
+
+		dao.insertTargets(job.getId(), newTargets(10));
+		dao.insertTargets(otherJob.getId(), newTargets(5));
+
+		assertEquals(10, dao.deleteTargets(job.getId()));
+		assertTrue(dao.getTargets(job.getId(), 0, 100).isEmpty());
+		assertEquals(5, dao.getTargets(otherJob.getId(), 0, 100).size());
+	}
+
+	@Test
+	public void testProcessedTargetsAreReportedWithinRange() {
+		dao.insertTargets(job.getId(), newTargets(10));
+
+		assertTrue(dao.markTargetProcessed(job.getId(), 3, "{\"id\":\"three\"}"));
+		assertTrue(dao.markTargetProcessed(job.getId(), 4, null));
+		assertTrue(dao.markTargetProcessed(job.getId(), 8, "{}"));
+		assertFalse(dao.markTargetProcessed(job.getId(), 10, "{}"));
+
+		final Map<Integer, String> processed = dao.getProcessedTargets(job.getId(), 2, 4);
+		assertEquals(2, processed.size());
+		assertEquals("{\"id\":\"three\"}", processed.get(3));
+		assertTrue(processed.containsKey(4));
+		assertNull(processed.get(4));
+		assertTrue(dao.getProcessedTargets(job.getId(), 5, 3).isEmpty());
+	}
+
+	private List<ImmutablePersonIdentifiersTO> newTargets(int count) {
+		final List<ImmutablePersonIdentifiersTO> targets = Lists.newArrayListWithCapacity(count);
+		for ( int i = 0; i < count; i++ ) {
+			targets.add(new ImmutablePersonIdentifiersTO(UUID.randomUUID(), String.format("student%05d", i)));
+		}
+		return targets;
+	}
+}
@@ -0,0 +1,162 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao.reference;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Set;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.jasig.ssp.model.ObjectStatus;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.reference.Challenge;
+import org.jasig.ssp.model.reference.ChallengeChallengeReferral;
+import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
+import org.jasig.ssp.util.collections.Pair;
+import org.jasig.ssp.util.sort.PagingWrapper;
+import org.jasig.ssp.util.sort.SortDirection;
+import org.jasig.ssp.util.sort.SortingAndPaging;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * For tests of {@link ChallengeDao} which require rollback
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("../dao-testConfig.xml")
+@TransactionConfiguration(defaultRollback = true)
+@Transactional
+public class ChallengeDaoWithRollbackTest {
+
+	private static final UUID CONFIDENTIALITYLEVEL_ID = UUID
+			.fromString("afe3e3e6-87fa-11e1-91b2-0026b9e7ff4c");
+
+	private static final UUID CHALLENGE_REFERRAL_ID = UUID
+			.fromString("43724de8-93cb-411c-a9fe-322a62756d04");
+
+	private static final UUID OTHER_CHALLENGE_REFERRAL_ID = UUID
+			.fromString("51a92fd5-7639-46dd-accc-215305e46bc0");
+
+	/**
+	 * More than one BatchProcessor batch, so getAll() uses a single
+	 * set-based query
+	 */
+	private static final int CHALLENGES = 350;
+
+	@Autowired
+	private transient ChallengeDao dao;
+
+	@Autowired
+	private transient ChallengeReferralDao challengeReferralDao;
+
+	@Autowired
+	private transient ChallengeChallengeReferralDao challengeChallengeReferralDao;
+
+	@Autowired
+	private transient ConfidentialityLevelDao confidentialityLevelDao;
+
+	@Autowired
+	private transient SessionFactory sessionFactory;
+
+	@Autowired
+	private transient SecurityServiceInTestEnvironment securityService;
+
+	@Before
+	public void setUp() throws ObjectNotFoundException {
+		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		for (int i = 0; i < CHALLENGES; i++) {
+			final Challenge challenge = new Challenge();
+			challenge.setName(String.format("Large set challenge %04d", i));
+			challenge.setObjectStatus(ObjectStatus.ACTIVE);
+			challenge.setShowInSelfHelpSearch(false);
+			challenge.setShowInStudentIntake(false);
+			challenge.setDefaultConfidentialityLevel(confidentialityLevelDao
+					.load(CONFIDENTIALITYLEVEL_ID));
+			dao.save(challenge);
+			// several referrals each, so the fetch join returns several rows
+			// per challenge
+			addReferral(challenge, CHALLENGE_REFERRAL_ID);
+			addReferral(challenge, OTHER_CHALLENGE_REFERRAL_ID);
+		}
+		sessionFactory.getCurrentSession().flush();
+		sessionFactory.getCurrentSession().clear();
+	}
+
+	@Test
+	public void testGetAllWithFetchJoinsReturnsEachChallengeOnce() {
+		final long active = (Long) sessionFactory.getCurrentSession()
+				.createQuery("select count(*) from Challenge where objectStatus = :objectStatus")
+				.setParameter("objectStatus", ObjectStatus.ACTIVE)
+				.uniqueResult();
+
+		final PagingWrapper<Challenge> page = dao.getAll(new SortingAndPaging(
+				ObjectStatus.ACTIVE, 0, 100,
+				Lists.newArrayList(new Pair<String, SortDirection>("name",
+						SortDirection.ASC)), null, null));
+
+		assertEquals("Total should have counted challenges, not joined rows.",
+				active, page.getResults());
+		assertEquals(100, page.getRows().size());
+		final Set<UUID> ids = Sets.newHashSet();
+		for (final Challenge challenge : page.getRows()) {
+			ids.add(challenge.getId());
+		}
+		assertEquals("Page should not have repeated any challenge.", 100,
+				ids.size());
+	}
+
+	@Test
+	public void testGetAllPagesThroughEveryChallenge() {
+		final Set<UUID> ids = Sets.newHashSet();
+		int start = 0;
+		long total;
+		do {
+			final PagingWrapper<Challenge> page = dao.getAll(new SortingAndPaging(
+					ObjectStatus.ACTIVE, start, 100,
+					Lists.newArrayList(new Pair<String, SortDirection>("name",
+							SortDirection.ASC)), null, null));
+			for (final Challenge challenge : page.getRows()) {
+				ids.add(challenge.getId());
+			}
+			total = page.getResults();
+			start += 100;
+		} while (start < total);
+		assertEquals(total, ids.size());
+	}
+
+	private void addReferral(final Challenge challenge, final UUID referralId)
+			throws ObjectNotFoundException {
+		final ChallengeChallengeReferral referral = new ChallengeChallengeReferral();
+		referral.setChallenge(challenge);
+		referral.setChallengeReferral(challengeReferralDao.get(referralId));
+		referral.setObjectStatus(ObjectStatus.ACTIVE);
+		challengeChallengeReferralDao.save(referral);
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.dao.reference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.UUID;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.jasig.ssp.model.ObjectStatus;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.reference.AbstractReference;
+import org.jasig.ssp.model.reference.ConfidentialityLevel;
+import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.service.impl.SecurityServiceInTestEnvironment;
+import org.jasig.ssp.util.sort.SortingAndPaging;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Checks the second-level and query cache configuration for reference
+ * entities, see ehcache-ssp.xml.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("../dao-testConfig.xml")
+@TransactionConfiguration(defaultRollback = true)
+@Transactional
+public class ReferenceCacheTest {
+
+	private static final UUID CONFIDENTIALITYLEVEL_ID = UUID
+			.fromString("afe3e3e6-87fa-11e1-91b2-0026b9e7ff4c");
+
+	@Autowired
+	transient private ConfidentialityLevelDao dao;
+
+	@Autowired
+	transient private SessionFactory sessionFactory;
+
+	@Autowired
+	transient private SecurityServiceInTestEnvironment securityService;
+
+	private boolean statisticsWereEnabled;
+
+	@Before
+	public void setUp() {
+		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+		final Statistics stats = sessionFactory.getStatistics();
+		statisticsWereEnabled = stats.isStatisticsEnabled();
+		stats.setStatisticsEnabled(true);
+		stats.clear();
+		sessionFactory.getCache().evictEntityRegion(ConfidentialityLevel.class);
+		sessionFactory.getCache().evictQueryRegion(AbstractReference.QUERY_CACHE_REGION);
+	}
+
+	@After
+	public void tearDown() {
+		sessionFactory.getStatistics().setStatisticsEnabled(statisticsWereEnabled);
+	}
+
+	@Test
+	public void testReferenceEntityIsCachedOnLoad() throws ObjectNotFoundException {
+		final Cache cache = sessionFactory.getCache();
+		assertFalse(cache.containsEntity(ConfidentialityLevel.class, CONFIDENTIALITYLEVEL_ID));
+		dao.get(CONFIDENTIALITYLEVEL_ID);
+		assertTrue(cache.containsEntity(ConfidentialityLevel.class, CONFIDENTIALITYLEVEL_ID));
+	}
+
+	@Test
+	public void testSecondLoadIsServedFromCache() throws ObjectNotFoundException {
+		dao.get(CONFIDENTIALITYLEVEL_ID);
+		sessionFactory.getCurrentSession().clear();
+
+		final Statistics stats = sessionFactory.getStatistics();
+		final long hits = stats.getSecondLevelCacheStatistics(
+				AbstractReference.CACHE_REGION).getHitCount();
+		dao.get(CONFIDENTIALITYLEVEL_ID);
+		assertEquals(hits + 1, stats.getSecondLevelCacheStatistics(
+				AbstractReference.CACHE_REGION).getHitCount());
+	}
+
+	@Test
+	public void testGetAllUsesQueryCache() {
+		final Statistics stats = sessionFactory.getStatistics();
+		dao.getAll(new SortingAndPaging(ObjectStatus.ACTIVE));
+		assertTrue(stats.getQueryCachePutCount() > 0);
+		assertEquals(0, stats.getQueryCacheHitCount());
+		sessionFactory.getCurrentSession().clear();
+		dao.getAll(new SortingAndPaging(ObjectStatus.ACTIVE));
+		assertTrue(stats.getQueryCacheHitCount() > 0);
+	}
+
+	@Test
+	public void testSaveEvictsStaleQueryResults() throws ObjectNotFoundException {
+		final Statistics stats = sessionFactory.getStatistics();
+		dao.getAll(new SortingAndPaging(ObjectStatus.ACTIVE));
+
+		final ConfidentialityLevel level = dao.get(CONFIDENTIALITYLEVEL_ID);
+		level.setDescription("changed");
+		dao.save(level);
+
+		dao.getAll(new SortingAndPaging(ObjectStatus.ACTIVE));
+		assertEquals(0, stats.getQueryCacheHitCount());
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.jasig.ssp.dao.EarlyAlertNotificationDao;
+import org.jasig.ssp.model.EarlyAlertNotification;
+import org.jasig.ssp.model.ObjectStatus;
+import org.jasig.ssp.service.EarlyAlertService;
+import org.jasig.ssp.service.reference.ConfigService;
+import org.jasig.ssp.util.transaction.WithTransaction;
+import org.jasig.ssp.web.api.validation.ValidationException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests {@link EarlyAlertNotificationServiceImpl} retry bookkeeping against a
+ * mocked {@link EarlyAlertNotificationDao}.
+ */
+public class EarlyAlertNotificationServiceImplTest {
+
+	private static final int RETRY_LIMIT = 3;
+
+	@Mock private EarlyAlertNotificationDao dao;
+	@Mock private EarlyAlertService earlyAlertService;
+	@Mock private ConfigService configService;
+	@Mock private WithTransaction withTransaction;
+
+	@InjectMocks private EarlyAlertNotificationServiceImpl service;
+
+	private final UUID id = UUID.randomUUID();
+
+	private EarlyAlertNotification notification;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		notification = new EarlyAlertNotification(null, EarlyAlertNotification.Type.STUDENT, null);
+		notification.setId(id);
+		notification.setClaimedBy("claim");
+		notification.setClaimedUntil(new Date());
+		when(configService.getByNameExceptionOrDefaultAsInt("early_alert_notification_retry_limit"))
+				.thenReturn(RETRY_LIMIT);
+		when(withTransaction.withTransactionAndUncheckedExceptions(any(Callable.class))).then(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				return ((Callable<?>) invocation.getArguments()[0]).call();
+			}
+		});
+		// one short batch, so processing stops after it
+		when(dao.claim(anyInt(), anyString(), any(Date.class), any(Date.class), eq(RETRY_LIMIT)))
+				.thenReturn(1);
+		when(dao.getClaimed(anyString())).thenReturn(Collections.singletonList(id));
+		when(dao.get(id)).thenReturn(notification);
+	}
+
+	@Test
+	public void testFailureIncrementsAttemptsAndKeepsClaim() throws Exception {
+		doThrow(new ValidationException("bad template")).when(earlyAlertService).sendNotification(id);
+
+		service.processQueuedNotifications();
+
+		verify(dao).save(notification);
+		assertEquals(1, notification.getAttempts());
+		assertNotNull("Failure should be recorded", notification.getLastError());
+		assertEquals(ObjectStatus.ACTIVE, notification.getObjectStatus());
+		assertEquals("Failed notification should wait for its claim to lapse",
+				"claim", notification.getClaimedBy());
+	}
+
+	@Test
+	public void testFailureAtRetryLimitMakesNotificationInactive() throws Exception {
+		notification.setAttempts(RETRY_LIMIT - 1);
+		doThrow(new ValidationException("bad template")).when(earlyAlertService).sendNotification(id);
+
+		service.processQueuedNotifications();
+
+		verify(dao).save(notification);
+		assertEquals(RETRY_LIMIT, notification.getAttempts());
+		assertEquals("Notification should be given up on at the retry limit",
+				ObjectStatus.INACTIVE, notification.getObjectStatus());
+		assertNull(notification.getClaimedBy());
+		assertNull(notification.getClaimedUntil());
+	}
+
+	@Test
+	public void testSuccessLeavesNotificationToSendNotification() throws Exception {
+		service.processQueuedNotifications();
+
+		verify(earlyAlertService).sendNotification(id);
+		verify(dao, never()).save(any(EarlyAlertNotification.class));
+		assertEquals(0, notification.getAttempts());
+	}
+
+	@Test
+	public void testPrunesProcessedAndAbandonedNotifications() {
+		when(dao.deleteProcessedBefore(any(Date.class))).thenReturn(2);
+		when(dao.deleteAbandonedBefore(any(Date.class))).thenReturn(1);
+
+		service.processQueuedNotifications();
+
+		verify(dao).deleteProcessedBefore(any(Date.class));
+		verify(dao).deleteAbandonedBefore(any(Date.class));
+	}
+}
@@ -41,6 +41,7 @@ import org.jasig.ssp.model.reference.EarlyAlertOutreach;
 import org.jasig.ssp.model.reference.EarlyAlertSuggestion;
 import org.jasig.ssp.model.reference.JournalSource;
 import org.jasig.ssp.model.reference.JournalTrack;
+import org.jasig.ssp.service.EarlyAlertNotificationService;
 import org.jasig.ssp.service.EarlyAlertResponseService;
 import org.jasig.ssp.service.EarlyAlertService;
 import org.jasig.ssp.service.JournalEntryService;
@@ -119,6 +120,9 @@ public class EarlyAlertResponseServiceTest {
 	@Autowired
 	private transient EarlyAlertService earlyAlertService;
 
+	@Autowired
+	private transient EarlyAlertNotificationService earlyAlertNotificationService;
+
 	@Autowired
 	private transient EarlyAlertOutcomeService earlyAlertOutcomeService;
 
@@ -177,6 +181,8 @@ public class EarlyAlertResponseServiceTest {
 
 		// act
 		earlyAlertService.create(obj.getEarlyAlert());
+		sessionFactory.getCurrentSession().flush();
+		earlyAlertNotificationService.processQueuedNotifications();
 
 		// can't use the Domain Entity-based EA Response create() anymore
 		EarlyAlertResponseTO objTo = new EarlyAlertResponseTO();
@@ -30,6 +30,7 @@ import static org.junit.Assert.fail;
 
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -47,6 +48,7 @@ import org.jasig.ssp.model.reference.EarlyAlertReason;
 import org.jasig.ssp.model.reference.EarlyAlertSuggestion;
 import org.jasig.ssp.model.reference.MessageTemplate;
 import org.jasig.ssp.model.reference.StudentType;
+import org.jasig.ssp.service.EarlyAlertNotificationService;
 import org.jasig.ssp.service.EarlyAlertRoutingService;
 import org.jasig.ssp.service.EarlyAlertService;
 import org.jasig.ssp.service.MessageService;
@@ -87,6 +89,9 @@ public class EarlyAlertServiceTest {
 	@Autowired
 	private transient EarlyAlertService earlyAlertService;
 
+	@Autowired
+	private transient EarlyAlertNotificationService earlyAlertNotificationService;
+
 	@Autowired
 	private transient EarlyAlertRoutingService earlyAlertRoutingService;
 
@@ -148,6 +153,8 @@ public class EarlyAlertServiceTest {
 		// act
 		earlyAlertService.create(obj);
 		sessionFactory.getCurrentSession().flush();
+		earlyAlertNotificationService.processQueuedNotifications();
+		sessionFactory.getCurrentSession().flush();
 
 		// Try to send all messages to the fake server.
 		messageService.sendQueuedMessages(null);
@@ -169,6 +176,46 @@ public class EarlyAlertServiceTest {
 						message.getBody().contains(obj.getCourseName()));
 	}
 
+	/**
+	 * A notification processed again, e.g. by a node whose claim on it
+	 * lapsed, must not queue its messages a second time.
+	 */
+	@Test
+	public void testSendNotificationTwiceQueuesMessagesOnce()
+			throws ObjectNotFoundException, ValidationException, SendFailedException {
+		final EarlyAlert obj = Stubs.arrangeEarlyAlert(personService, campusService);
+		earlyAlertService.create(obj);
+		sessionFactory.getCurrentSession().flush();
+
+		@SuppressWarnings("unchecked")
+		final List<UUID> notificationIds = sessionFactory.getCurrentSession()
+				.createQuery("select id from EarlyAlertNotification where earlyAlert.id = :earlyAlertId")
+				.setParameter("earlyAlertId", obj.getId())
+				.list();
+		assertFalse("Creating the Early Alert should have recorded a notification",
+				notificationIds.isEmpty());
+
+		for ( final UUID notificationId : notificationIds ) {
+			earlyAlertService.sendNotification(notificationId);
+		}
+		sessionFactory.getCurrentSession().flush();
+		final long queued = countMessages();
+		assertTrue("Processing the notifications should have queued messages", queued > 0);
+
+		for ( final UUID notificationId : notificationIds ) {
+			earlyAlertService.sendNotification(notificationId);
+		}
+		sessionFactory.getCurrentSession().flush();
+		assertEquals("Processing the notifications again should queue nothing",
+				queued, countMessages());
+	}
+
+	private long countMessages() {
+		return (Long) sessionFactory.getCurrentSession()
+				.createQuery("select count(*) from Message")
+				.uniqueResult();
+	}
+
 	@Test(expected = ValidationException.class)
 	public void testCreateEarlyAlertInvalidPerson()
 			throws ObjectNotFoundException,
@@ -269,6 +316,8 @@ public class EarlyAlertServiceTest {
 		earlyAlertRoutingService.create(route1);
 		earlyAlertService.create(obj);
 		sessionFactory.getCurrentSession().flush();
+		earlyAlertNotificationService.processQueuedNotifications();
+		sessionFactory.getCurrentSession().flush();
 
 		// Try to send all messages to the fake server.
 		messageService.sendQueuedMessages(null);
@@ -295,6 +344,8 @@ public class EarlyAlertServiceTest {
 		earlyAlertRoutingService.create(route1);
 		earlyAlertService.create(obj);
 		sessionFactory.getCurrentSession().flush();
+		earlyAlertNotificationService.processQueuedNotifications();
+		sessionFactory.getCurrentSession().flush();
 
 		// Send all messages to the fake server.
 		messageService.sendQueuedMessages(null);
@@ -332,6 +383,8 @@ public class EarlyAlertServiceTest {
 		// act
 		earlyAlertService.create(obj);
 		sessionFactory.getCurrentSession().flush();
+		earlyAlertNotificationService.processQueuedNotifications();
+		sessionFactory.getCurrentSession().flush();
 
 		// Try to send all messages to the fake server.
 		messageService.sendQueuedMessages(null);
@@ -0,0 +1,108 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.jasig.ssp.model.ObjectStatus;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.service.EvaluatedSuccessIndicatorService;
+import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.transferobject.EvaluatedSuccessIndicatorTO;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.google.common.collect.Lists;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("../service-testConfig.xml")
+@TransactionConfiguration
+@Transactional
+public class EvaluatedSuccessIndicatorServiceIntegrationTest {
+
+	private static final UUID KEN_ID = UUID
+			.fromString("f549ecab-5110-4cc1-b2bb-369cac854dea");
+
+	private static final UUID JAMES_ID = UUID
+			.fromString("1010e4a0-1001-0110-1011-4ffc02fe81ff");
+
+	@Autowired
+	private transient EvaluatedSuccessIndicatorService service;
+
+	@Autowired
+	private transient SecurityServiceInTestEnvironment securityService;
+
+	@Before
+	public void setUp() {
+		securityService.setCurrent(new Person(Person.SYSTEM_ADMINISTRATOR_ID));
+	}
+
+	@Test
+	public void getForPeopleMatchesGetForPerson() throws ObjectNotFoundException {
+		final Map<UUID, List<EvaluatedSuccessIndicatorTO>> batched =
+				service.getForPeople(Lists.newArrayList(KEN_ID, JAMES_ID), ObjectStatus.ALL, null);
+
+		assertEquals("Incorrect number of persons evaluated", 2, batched.size());
+		for ( UUID personId : Lists.newArrayList(KEN_ID, JAMES_ID) ) {
+			final List<String> expected = describe(service.getForPerson(personId, ObjectStatus.ALL, null));
+			assertFalse("Test data should yield some indicators", expected.isEmpty());
+			assertEquals("Batched evaluation differs for " + personId, expected,
+					describe(batched.get(personId)));
+		}
+	}
+
+	@Test
+	public void getForPeopleOmitsUnknownPersons() {
+		final UUID unknown = UUID.randomUUID();
+
+		final Map<UUID, List<EvaluatedSuccessIndicatorTO>> batched =
+				service.getForPeople(Lists.newArrayList(KEN_ID, unknown), ObjectStatus.ALL, null);
+
+		assertTrue(batched.containsKey(KEN_ID));
+		assertFalse(batched.containsKey(unknown));
+	}
+
+	@Test
+	public void getForPeopleWithNoPersons() {
+		assertTrue(service.getForPeople(Lists.<UUID>newArrayList(), ObjectStatus.ALL, null).isEmpty());
+	}
+
+	private static List<String> describe(final List<EvaluatedSuccessIndicatorTO> evaluations) {
+		final List<String> described = Lists.newArrayListWithCapacity(evaluations.size());
+		for ( EvaluatedSuccessIndicatorTO evaluation : evaluations ) {
+			described.add(evaluation.getIndicatorCode() + "|" + evaluation.getEvaluation() + "|"
+					+ evaluation.getDisplayValue() + "|" + evaluation.getEvaluationDisplayName());
+		}
+		Collections.sort(described);
+		return described;
+	}
+}
@@ -0,0 +1,305 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.jasig.ssp.model.MapStatusReport;
+import org.jasig.ssp.model.external.ExternalStudentTranscriptCourse;
+import org.jasig.ssp.model.external.ExternalStudentTranscriptNonCourseEntity;
+import org.jasig.ssp.model.external.ExternalSubstitutableCourse;
+import org.jasig.ssp.model.external.Term;
+import org.jasig.ssp.service.MapStatusReportService;
+import org.jasig.ssp.service.PlanService;
+import org.jasig.ssp.service.external.ExternalStudentTranscriptCourseService;
+import org.jasig.ssp.service.external.ExternalStudentTranscriptNonCourseEntityService;
+import org.jasig.ssp.service.external.TermService;
+import org.jasig.ssp.service.reference.ConfigService;
+import org.jasig.ssp.transferobject.reports.MapStatusReportPerson;
+import org.jasig.ssp.util.CallableExecutor;
+import org.jasig.ssp.util.transaction.WithTransaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class MapStatusReportCalcTaskImplTest {
+
+	private static final int PLAN_COUNT = 5;
+
+	@Mock private ConfigService configService;
+
+	@Mock private PlanService planService;
+
+	@Mock private TermService termService;
+
+	@Mock private MapStatusReportService mapStatusReportService;
+
+	@Mock private ExternalStudentTranscriptCourseService externalStudentTranscriptCourseService;
+
+	@Mock private ExternalStudentTranscriptNonCourseEntityService externalStudentTranscriptNonCourseEntityService;
+
+	@Mock private WithTransaction withTransaction;
+
+	@Mock private SessionFactory sessionFactory;
+
+	@Mock private Session session;
+
+	@InjectMocks private MapStatusReportCalcTaskImpl task;
+
+	private final List<MapStatusReportPerson> plans = Lists.newArrayList();
+
+	private final Term cutoffTerm = term("FA15", 2015);
+
+	private final List<Term> terms = Lists.newArrayList(term("FA16", 2016), cutoffTerm, term("FA14", 2014));
+
+	private final ExternalSubstitutableCourse substitutableCourse = new ExternalSubstitutableCourse();
+
+	private final ExternalStudentTranscriptNonCourseEntity nonCourseEntity =
+			new ExternalStudentTranscriptNonCourseEntity();
+
+	// names of the threads plans were evaluated on
+	private final Set<String> evaluatingThreads = Collections.synchronizedSet(Sets.<String>newHashSet());
+
+	private final List<UUID> evaluatedPlanIds = Collections.synchronizedList(Lists.<UUID>newArrayList());
+
+	private final CallableExecutor<Void> batchExecutor = new CallableExecutor<Void>() {
+		@Override
+		public Void exec(Callable<Void> work) throws Exception {
+			return work.call();
+		}
+	};
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		for ( int i = 0; i < PLAN_COUNT; i++ ) {
+			plans.add(new MapStatusReportPerson(new UUID(0L, i + 1), UUID.randomUUID(), "school" + i, "PROG",
+					"2015", "First" + i, "Last" + i, null, null));
+		}
+		when(sessionFactory.getCurrentSession()).thenReturn(session);
+		when(withTransaction.withNewTransactionAndUncheckedExceptions(any(Callable.class))).then(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				return ((Callable<?>) invocation.getArguments()[0]).call();
+			}
+		});
+		when(configService.getByNameEmpty(anyString())).thenReturn("");
+		when(configService.getByNameEmpty("calculate_map_plan_status")).thenReturn("true");
+		when(configService.getByNameEmpty("map_plan_status_use_substitutable_courses")).thenReturn("true");
+		when(configService.getByNameNullOrDefaultValue("map_plan_status_chunk_size")).thenReturn("2");
+		workers(1);
+		when(planService.getAllActivePlanIds()).thenReturn(plans);
+		when(termService.getAll()).thenReturn(terms);
+		when(mapStatusReportService.deriveCutoffTerm()).thenReturn(cutoffTerm);
+		when(mapStatusReportService.getAllSubstitutableCourses())
+				.thenReturn(Lists.newArrayList(substitutableCourse));
+		when(externalStudentTranscriptNonCourseEntityService.getAllNonCourseTranscripts())
+				.thenReturn(Lists.newArrayList(nonCourseEntity));
+		when(mapStatusReportService.evaluatePlan(anySetOf(String.class), anySetOf(String.class), any(Term.class),
+				anyListOf(Term.class), any(MapStatusReportPerson.class),
+				anyCollectionOf(ExternalSubstitutableCourse.class),
+				anyCollectionOf(ExternalStudentTranscriptNonCourseEntity.class),
+				anyListOf(ExternalStudentTranscriptCourse.class), anyBoolean(), anyBoolean()))
+				.then(new Answer<MapStatusReport>() {
+					@Override
+					public MapStatusReport answer(InvocationOnMock invocation) {
+						final MapStatusReportPerson plan = (MapStatusReportPerson) invocation.getArguments()[4];
+						evaluatingThreads.add(Thread.currentThread().getName());
+						evaluatedPlanIds.add(plan.getPlanId());
+						return new MapStatusReport();
+					}
+				});
+	}
+
+	@Test
+	public void evaluatesEveryPlanOnceWithOneTranscriptLookupPerChunk() throws Exception {
+		task.exec(batchExecutor);
+
+		assertEquals(PLAN_COUNT, evaluatedPlanIds.size());
+		assertEquals(Sets.newHashSet(planIds(plans)), Sets.newHashSet(evaluatedPlanIds));
+		verify(externalStudentTranscriptCourseService, times(3)).getTranscriptsBySchoolIds(anyListOf(String.class));
+		verify(mapStatusReportService, times(PLAN_COUNT)).saveCalculatedReport(any(MapStatusReport.class),
+				any(MapStatusReport.class));
+	}
+
+	@Test
+	public void singleWorkerEvaluatesOnCallingThread() {
+		task.exec(batchExecutor);
+
+		assertEquals(Sets.newHashSet(Thread.currentThread().getName()), evaluatingThreads);
+	}
+
+	@Test
+	public void multipleWorkersEvaluateEveryPlanOnceOffCallingThread() {
+		workers(4);
+
+		task.exec(batchExecutor);
+
+		assertEquals(PLAN_COUNT, evaluatedPlanIds.size());
+		assertEquals(Sets.newHashSet(planIds(plans)), Sets.newHashSet(evaluatedPlanIds));
+		for ( String thread : evaluatingThreads ) {
+			assertTrue("Plan evaluated on unexpected thread " + thread, thread.startsWith("map-status-worker-"));
+		}
+	}
+
+	@Test
+	public void detachesSharedInputsBeforeHandingThemToWorkers() {
+		workers(4);
+
+		task.exec(batchExecutor);
+
+		final InOrder inOrder = inOrder(session, mapStatusReportService);
+		inOrder.verify(session).evict(substitutableCourse);
+		inOrder.verify(session).evict(nonCourseEntity);
+		inOrder.verify(mapStatusReportService, times(PLAN_COUNT)).evaluatePlan(anySetOf(String.class),
+				anySetOf(String.class), any(Term.class), anyListOf(Term.class), any(MapStatusReportPerson.class),
+				anyCollectionOf(ExternalSubstitutableCourse.class),
+				anyCollectionOf(ExternalStudentTranscriptNonCourseEntity.class),
+				anyListOf(ExternalStudentTranscriptCourse.class), anyBoolean(), anyBoolean());
+		// the cutoff term is also one of all terms
+		for ( Term term : terms ) {
+			verify(session, atLeastOnce()).evict(term);
+		}
+	}
+
+	@Test
+	public void retriesFailedChunkOnePlanAtATime() throws Exception {
+		// first plan of the second chunk, so the rest of that chunk is only ever saved by the retry
+		final MapStatusReportPerson badPlan = plans.get(2);
+		final MapStatusReportPerson chunkMate = plans.get(3);
+		doThrow(new IllegalStateException("bad plan")).when(mapStatusReportService).evaluatePlan(
+				anySetOf(String.class), anySetOf(String.class), any(Term.class), anyListOf(Term.class), eq(badPlan),
+				anyCollectionOf(ExternalSubstitutableCourse.class),
+				anyCollectionOf(ExternalStudentTranscriptNonCourseEntity.class),
+				anyListOf(ExternalStudentTranscriptCourse.class), anyBoolean(), anyBoolean());
+
+		task.exec(batchExecutor);
+
+		assertEquals("Every plan but the bad one should have been evaluated once",
+				Sets.newHashSet(planIds(Lists.newArrayList(plans.get(0), plans.get(1), chunkMate, plans.get(4)))),
+				Sets.newHashSet(evaluatedPlanIds));
+		assertEquals(PLAN_COUNT - 1, evaluatedPlanIds.size());
+		verify(mapStatusReportService, times(PLAN_COUNT - 1)).saveCalculatedReport(any(MapStatusReport.class),
+				any(MapStatusReport.class));
+		// chunk of two, then each of its plans on its own
+		verify(externalStudentTranscriptCourseService).getTranscriptsBySchoolIds(
+				argThat(new ContainsExactly(badPlan.getSchoolId(), chunkMate.getSchoolId())));
+		verify(externalStudentTranscriptCourseService).getTranscriptsBySchoolIds(
+				argThat(new ContainsExactly(badPlan.getSchoolId())));
+		verify(externalStudentTranscriptCourseService).getTranscriptsBySchoolIds(
+				argThat(new ContainsExactly(chunkMate.getSchoolId())));
+	}
+
+	@Test
+	public void incrementalCalculationEvaluatesOnlyOutOfDatePlans() {
+		when(configService.getByNameEmpty("map_plan_status_incremental_calculation")).thenReturn("true");
+		when(mapStatusReportService.getPlanIdsNeedingCalculation(anyString()))
+				.thenReturn(planIds(Lists.newArrayList(plans.get(1), plans.get(3))));
+
+		task.exec(batchExecutor);
+
+		assertEquals(Sets.newHashSet(planIds(Lists.newArrayList(plans.get(1), plans.get(3)))),
+				Sets.newHashSet(evaluatedPlanIds));
+		assertEquals(2, evaluatedPlanIds.size());
+		verify(mapStatusReportService, never()).deleteAllOldReports();
+		verify(mapStatusReportService).deleteReportsForInactivePlans();
+		verify(mapStatusReportService).deleteDuplicateReports();
+	}
+
+	@Test
+	public void skipsEvaluationWhenDisabled() {
+		when(configService.getByNameEmpty("calculate_map_plan_status")).thenReturn("false");
+
+		task.exec(batchExecutor);
+
+		assertTrue(evaluatedPlanIds.isEmpty());
+		verify(planService, never()).getAllActivePlanIds();
+	}
+
+	private void workers(int workers) {
+		when(configService.getByNameNullOrDefaultValue("map_plan_status_workers")).thenReturn(String.valueOf(workers));
+	}
+
+	private static Term term(String code, int year) {
+		final Term term = new Term(code);
+		final Calendar start = Calendar.getInstance();
+		start.clear();
+		start.set(year, Calendar.AUGUST, 20);
+		term.setStartDate(start.getTime());
+		start.add(Calendar.MONTH, 4);
+		term.setEndDate(start.getTime());
+		return term;
+	}
+
+	private static List<UUID> planIds(Collection<MapStatusReportPerson> plans) {
+		final List<UUID> ids = Lists.newArrayList();
+		for ( MapStatusReportPerson plan : plans ) {
+			ids.add(plan.getPlanId());
+		}
+		return ids;
+	}
+
+	private static final class ContainsExactly extends ArgumentMatcher<List<String>> {
+		private final Set<String> expected;
+
+		private ContainsExactly(String... expected) {
+			this.expected = Sets.newHashSet(expected);
+		}
+
+		@Override
+		public boolean matches(Object argument) {
+			return argument instanceof List && expected.equals(Sets.newHashSet((List<?>) argument));
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.jasig.ssp.model.external.ExternalStudentTranscriptCourse;
+import org.jasig.ssp.model.external.ExternalStudentTranscriptNonCourseEntity;
+import org.jasig.ssp.model.external.ExternalSubstitutableCourse;
+import org.junit.Test;
+
+public class MapStatusReportIndexesTest {
+
+	@Test
+	public void testKeysMatchTrimmedEqualsIgnoreCase() {
+		final String[] values = { "ENG101", " eng101 ", "Eng101\t", "ENG 101", "ENG102", "\u0130NG101", "ing101", "" };
+		for ( String a : values ) {
+			for ( String b : values ) {
+				assertEquals("Keys of [" + a + "] and [" + b + "] disagree with equalsIgnoreCase()",
+						a.trim().equalsIgnoreCase(b.trim()),
+						MapStatusReportIndexes.key(a).equals(MapStatusReportIndexes.key(b)));
+			}
+		}
+		assertNull(MapStatusReportIndexes.key(null));
+	}
+
+	@Test
+	public void testTranscriptKeepsTranscriptOrder() {
+		final ExternalStudentTranscriptCourse first = transcriptCourse("ENG101", "FA12");
+		final ExternalStudentTranscriptCourse other = transcriptCourse("MAT101", "FA12");
+		final ExternalStudentTranscriptCourse retake = transcriptCourse(" eng101", "SP13");
+		final ExternalStudentTranscriptCourse noCourse = transcriptCourse(null, "SP13");
+		final MapStatusReportIndexes.Transcript index =
+				new MapStatusReportIndexes.Transcript(Arrays.asList(first, other, retake, noCourse));
+
+		assertEquals(Arrays.asList(first, retake), index.forCourse("Eng101"));
+		assertEquals(Arrays.asList(retake), index.forTermAndCourse("SP13", "ENG101"));
+		assertTrue(index.forTermAndCourse("sp13", "ENG101").isEmpty());
+		assertTrue(index.forCourse("ENG102").isEmpty());
+		assertTrue(index.forCourse(null).isEmpty());
+	}
+
+	@Test
+	public void testSubstitutableCoursesBySourceCourse() {
+		final ExternalSubstitutableCourse termBound = substitutableCourse("ENG101", "FA12");
+		final ExternalSubstitutableCourse unbound = substitutableCourse("eng101 ", null);
+		final ExternalSubstitutableCourse other = substitutableCourse("MAT101", null);
+		final List<ExternalSubstitutableCourse> all = Arrays.asList(termBound, other, unbound);
+		final MapStatusReportIndexes.SubstitutableCourses index = MapStatusReportIndexes.SubstitutableCourses.of(all);
+
+		assertEquals(Arrays.asList(termBound, unbound), index.forSourceCourse("ENG101"));
+		assertEquals(all.size(), index.size());
+		assertSame(index, MapStatusReportIndexes.SubstitutableCourses.of(index));
+		assertTrue(MapStatusReportIndexes.SubstitutableCourses.of(null).isEmpty());
+	}
+
+	@Test
+	public void testNonCourseEntitiesFirstMatchWins() {
+		final ExternalStudentTranscriptNonCourseEntity first = nonCourseEntity("ENG101", "FA12");
+		final ExternalStudentTranscriptNonCourseEntity duplicate = nonCourseEntity("eng101", "fa12 ");
+		final Collection<ExternalStudentTranscriptNonCourseEntity> all = Arrays.asList(first, duplicate);
+		final MapStatusReportIndexes.NonCourseEntities index = MapStatusReportIndexes.NonCourseEntities.of(all);
+
+		assertSame(first, index.forCourseAndTerm(" Eng101", "FA12"));
+		assertNull(index.forCourseAndTerm("ENG101", "SP13"));
+		assertNull(index.forCourseAndTerm("ENG101", null));
+	}
+
+	private ExternalStudentTranscriptCourse transcriptCourse(String formattedCourse, String termCode) {
+		final ExternalStudentTranscriptCourse course = new ExternalStudentTranscriptCourse();
+		course.setFormattedCourse(formattedCourse);
+		course.setTermCode(termCode);
+		return course;
+	}
+
+	private ExternalSubstitutableCourse substitutableCourse(String sourceFormattedCourse, String termCode) {
+		final ExternalSubstitutableCourse course = new ExternalSubstitutableCourse();
+		course.setSourceFormattedCourse(sourceFormattedCourse);
+		course.setTermCode(termCode);
+		return course;
+	}
+
+	private ExternalStudentTranscriptNonCourseEntity nonCourseEntity(String targetFormattedCourse, String termCode) {
+		final ExternalStudentTranscriptNonCourseEntity entity = new ExternalStudentTranscriptNonCourseEntity();
+		entity.setTargetFormattedCourse(targetFormattedCourse);
+		entity.setTermCode(termCode);
+		return entity;
+	}
+}
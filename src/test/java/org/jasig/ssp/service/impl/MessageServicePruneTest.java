@@ -0,0 +1,251 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import org.jasig.ssp.dao.MessageDao;
+import org.jasig.ssp.service.reference.ConfigService;
+import org.jasig.ssp.util.transaction.WithTransaction;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+
+/**
+ * Tests {@link MessageServiceImpl#archiveAndPruneMessages()} chunking, time
+ * budget and archive file against a mocked {@link MessageDao}.
+ */
+public class MessageServicePruneTest {
+
+	private static final int CHUNK_SIZE = 2;
+
+	@Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Mock private MessageDao messageDao;
+	@Mock private ConfigService configService;
+	@Mock private WithTransaction withTransaction;
+
+	@InjectMocks private MessageServiceImpl service;
+
+	private final List<UUID> ids = Lists.newArrayList();
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		for ( int i = 0; i < 5; i++ ) {
+			ids.add(new UUID(0L, i + 1));
+		}
+		ReflectionTestUtils.setField(service, "pruneChunkSize", CHUNK_SIZE);
+		ReflectionTestUtils.setField(service, "pruneChunkPauseMillis", 0L);
+		ReflectionTestUtils.setField(service, "pruneTimeBudgetMillis", 60000L);
+		when(configService.getByNameEmpty("mail_age_in_days_limit")).thenReturn("30");
+		// same contract as WithTransactionImpl, minus the transaction
+		when(withTransaction.withNewTransactionAndUncheckedExceptions(any(Callable.class))).then(new Answer<Object>() {
+			@Override
+			public Object answer(InvocationOnMock invocation) throws Throwable {
+				try {
+					return ((Callable<?>) invocation.getArguments()[0]).call();
+				} catch ( RuntimeException e ) {
+					throw e;
+				} catch ( Exception e ) {
+					throw new RuntimeException(e);
+				}
+			}
+		});
+		when(messageDao.archiveAndPruneMessages(anyListOf(UUID.class))).then(new Answer<Integer>() {
+			@Override
+			public Integer answer(InvocationOnMock invocation) throws Throwable {
+				return ((List<?>) invocation.getArguments()[0]).size();
+			}
+		});
+	}
+
+	@Test
+	public void testPrunesInChunksUntilNoneRemain() {
+		prunable(ids.subList(0, 2), ids.subList(2, 4), ids.subList(4, 5));
+
+		assertEquals(5, service.archiveAndPruneMessages());
+
+		final InOrder inOrder = inOrder(messageDao);
+		inOrder.verify(messageDao).archiveAndPruneMessages(ids.subList(0, 2));
+		inOrder.verify(messageDao).archiveAndPruneMessages(ids.subList(2, 4));
+		inOrder.verify(messageDao).archiveAndPruneMessages(ids.subList(4, 5));
+		verify(messageDao, times(3)).getPrunableIds(any(Date.class), eq(CHUNK_SIZE));
+		verify(withTransaction, times(3)).withNewTransactionAndUncheckedExceptions(any(Callable.class));
+	}
+
+	@Test
+	public void testPrunesMessagesOlderThanAgeLimit() {
+		prunable(Collections.<UUID>emptyList());
+
+		assertEquals(0, service.archiveAndPruneMessages());
+
+		final ArgumentCaptor<Date> cutoff = ArgumentCaptor.forClass(Date.class);
+		verify(messageDao).getPrunableIds(cutoff.capture(), eq(CHUNK_SIZE));
+		final Calendar expected = Calendar.getInstance();
+		expected.add(Calendar.DAY_OF_MONTH, -30);
+		assertTrue("Cutoff should be 30 days ago",
+				Math.abs(expected.getTimeInMillis() - cutoff.getValue().getTime()) < 60000L);
+		verify(messageDao, never()).archiveAndPruneMessages(anyListOf(UUID.class));
+	}
+
+	@Test
+	public void testStopsOnceTimeBudgetIsSpent() {
+		ReflectionTestUtils.setField(service, "pruneTimeBudgetMillis", 0L);
+		prunable(ids.subList(0, 2), ids.subList(2, 4), ids.subList(4, 5));
+
+		assertEquals("Only the first chunk should fit in the budget",
+				2, service.archiveAndPruneMessages());
+
+		verify(messageDao, times(1)).getPrunableIds(any(Date.class), anyInt());
+		verify(messageDao).archiveAndPruneMessages(ids.subList(0, 2));
+	}
+
+	@Test
+	public void testInvalidAgeLimitPrunesNothing() {
+		when(configService.getByNameEmpty("mail_age_in_days_limit")).thenReturn("thirty");
+
+		assertEquals(0, service.archiveAndPruneMessages());
+
+		verify(messageDao, never()).getPrunableIds(any(Date.class), anyInt());
+	}
+
+	@Test
+	public void testWritesEachChunkToArchiveFileBeforePruning() throws Exception {
+		final File directory = new File(tempFolder.getRoot(), "archive");
+		ReflectionTestUtils.setField(service, "pruneArchiveDirectory", directory.getPath());
+		prunable(ids.subList(0, 2), ids.subList(2, 3));
+		archiveRows();
+
+		assertEquals(3, service.archiveAndPruneMessages());
+
+		final InOrder inOrder = inOrder(messageDao);
+		inOrder.verify(messageDao).forEachArchiveRow(eq(ids.subList(0, 2)), any(Consumer.class));
+		inOrder.verify(messageDao).archiveAndPruneMessages(ids.subList(0, 2));
+		inOrder.verify(messageDao).forEachArchiveRow(eq(ids.subList(2, 3)), any(Consumer.class));
+		inOrder.verify(messageDao).archiveAndPruneMessages(ids.subList(2, 3));
+
+		final File[] files = directory.listFiles();
+		assertEquals("Both chunks should go to today's one file", 1, files.length);
+		assertTrue(files[0].getName().matches("message-archive-\\d{8}\\.jsonl\\.gz"));
+
+		// one gzip member per chunk, read back as a single stream
+		final List<Map<?, ?>> lines = Lists.newArrayList();
+		final ObjectMapper mapper = new ObjectMapper();
+		try ( BufferedReader in = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(new FileInputStream(files[0])), StandardCharsets.UTF_8)) ) {
+			String line;
+			while ( (line = in.readLine()) != null ) {
+				lines.add(mapper.readValue(line, Map.class));
+			}
+		}
+		assertEquals(3, lines.size());
+		for ( int i = 0; i < lines.size(); i++ ) {
+			assertEquals(ids.get(i).toString(), lines.get(i).get("id"));
+			assertEquals("Subject " + i, lines.get(i).get("subject"));
+			assertEquals("Body " + i, lines.get(i).get("body"));
+			assertEquals(14, lines.get(i).size());
+		}
+	}
+
+	@Test
+	public void testArchiveFileFailurePrunesNothing() throws Exception {
+		// a plain file where the directory should be
+		final File notADirectory = tempFolder.newFile("archive");
+		ReflectionTestUtils.setField(service, "pruneArchiveDirectory", notADirectory.getPath());
+		prunable(ids.subList(0, 2));
+		archiveRows();
+
+		try {
+			service.archiveAndPruneMessages();
+			fail("Archive file failure should abandon the run");
+		} catch ( RuntimeException e ) {
+			// expected
+		}
+
+		verify(messageDao, never()).archiveAndPruneMessages(anyListOf(UUID.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void prunable(List<UUID>... chunks) {
+		final List<UUID> first = chunks[0];
+		final List<UUID>[] rest = new List[chunks.length];
+		System.arraycopy(chunks, 1, rest, 0, chunks.length - 1);
+		rest[chunks.length - 1] = Collections.<UUID>emptyList();
+		when(messageDao.getPrunableIds(any(Date.class), anyInt())).thenReturn(first, rest);
+	}
+
+	private void archiveRows() {
+		doAnswer(new Answer<Void>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				final List<UUID> chunk = (List<UUID>) invocation.getArguments()[0];
+				final Consumer<Object[]> rowHandler = (Consumer<Object[]>) invocation.getArguments()[1];
+				for ( final UUID id : chunk ) {
+					final int i = ids.indexOf(id);
+					rowHandler.accept(new Object[] { id, new Date(), new Date(), null,
+							UUID.randomUUID(), "student" + i + "@example.edu", null,
+							"student" + i + "@example.edu", null, null, "ssp@example.edu",
+							null, "Subject " + i, "Body " + i });
+				}
+				return null;
+			}
+		}).when(messageDao).forEachArchiveRow(anyListOf(UUID.class), any(Consumer.class));
+	}
+}
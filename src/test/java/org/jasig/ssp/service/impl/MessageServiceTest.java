@@ -172,11 +172,11 @@ public class MessageServiceTest {
 		assertFalse("Faux mail server should be running but was not.",
 				smtpServer.isStopped());
 
-		// we know the batch size on sendQueuedMessages() is 25. So create
-		// 26 messages, the first 25 of which are bad. The 26th should still
-		// be sent, either in the first or second call to sendQueuedMessages()
-		// (we don't really care how the impl "unstucks" itself from completely
-		// errored batches)
+		// create 26 messages, the first 25 of which are bad. The 26th should
+		// still be sent, either in the first or second call to
+		// sendQueuedMessages(), whether or not it shares a batch
+		// (smtp_queue_batch_size) with the bad ones (we don't really care how
+		// the impl "unstucks" itself from errored batches)
 		Message validMsg = null;
 		for ( int i = 0; i < 26; i++ ) {
             try {
@@ -210,4 +210,27 @@ public class MessageServiceTest {
 				"Unexpected sent message. Subject was wrong.", "Subject 25", // 0-based naming
 				receivedMessage.getHeaderValue("Subject"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void sendQueuedMessagesDrainsMoreThanOneCleanBatch()
+			throws ObjectNotFoundException, ValidationException {
+
+		// setup
+		final SimpleSmtpServer smtpServer = mockMailService.getSmtpServer();
+		assertFalse("Faux mail server should be running but was not.",
+				smtpServer.isStopped());
+
+		// more than one default batch of 100, all valid, so the queue should
+		// be drained by a single call, spread across the SMTP connections
+		final int messageCount = 130;
+		for ( int i = 0; i < messageCount; i++ ) {
+			service.createMessage("to" + i + "@email.com", null,
+					new SubjectAndBody("Subject " + i, "Message " + i));
+		}
+
+		service.sendQueuedMessages(null);
+
+		assertEquals("Unexpected number of sent messages.", messageCount,
+				smtpServer.getReceivedEmailSize());
+	}
+}
@@ -0,0 +1,332 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.function.IntSupplier;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.jasig.ssp.dao.ScheduledTaskPartitionDao;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.ScheduledApplicationTaskStatus;
+import org.jasig.ssp.model.ScheduledTaskPartition;
+import org.jasig.ssp.service.PersonService;
+import org.jasig.ssp.service.ScheduledTaskWrapperService;
+import org.jasig.ssp.util.transaction.WithTransaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class PersonPartitionedTaskRunnerTest {
+
+	private static final String TASK_NAME = "test_partitioned_task";
+
+	private static final int PERSON_COUNT = 10;
+
+	@Mock private PersonService personService;
+
+	@Mock private ScheduledTaskWrapperService scheduledTaskWrapperService;
+
+	@Mock private WithTransaction withTransaction;
+
+	@Mock private SessionFactory sessionFactory;
+
+	@Mock private Session session;
+
+	@Spy private InMemoryPartitionDao partitionDao = new InMemoryPartitionDao();
+
+	@InjectMocks private PersonPartitionedTaskRunner runner;
+
+	// IDs whose natural ordering matches the order a database would use
+	private final List<Person> people = Lists.newArrayList();
+
+	private final List<UUID> processed = Collections.synchronizedList(Lists.<UUID>newArrayList());
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		for ( int i = 0; i < PERSON_COUNT; i++ ) {
+			people.add(new Person(new UUID(0L, i + 1)));
+		}
+		when(sessionFactory.getCurrentSession()).thenReturn(session);
+		when(withTransaction.withNewTransaction(any(Callable.class))).then(new CallFirstArgument());
+		when(withTransaction.withNewTransactionAndUncheckedExceptions(any(Callable.class)))
+				.then(new CallFirstArgument());
+		doAnswer(new RunArgument(1)).when(scheduledTaskWrapperService)
+				.execWithClusterLease(any(String.class), any(Runnable.class));
+		doAnswer(new RunArgument(1)).when(scheduledTaskWrapperService)
+				.execWithTaskContext(any(String.class), any(Runnable.class), anyBoolean(), any(UUID.class));
+		when(personService.getActiveIdPartitionBoundaries(anyInt())).then(new Answer<List<UUID>>() {
+			@Override
+			public List<UUID> answer(InvocationOnMock invocation) {
+				final int partitions = (Integer) invocation.getArguments()[0];
+				final List<UUID> boundaries = Lists.newArrayList();
+				for ( int i = 1; i < partitions; i++ ) {
+					boundaries.add(people.get(PERSON_COUNT * i / partitions).getId());
+				}
+				return boundaries;
+			}
+		});
+		when(personService.getActiveInIdRange(any(UUID.class), any(UUID.class), any(UUID.class), anyInt()))
+				.then(new Answer<List<Person>>() {
+					@Override
+					public List<Person> answer(InvocationOnMock invocation) {
+						final Object[] args = invocation.getArguments();
+						return activeInIdRange((UUID) args[0], (UUID) args[1], (UUID) args[2],
+								(Integer) args[3]);
+					}
+				});
+	}
+
+	@Test
+	public void processesEveryPersonOnceAcrossRanges() {
+		final boolean finished = runner.execute(TASK_NAME, 2, constant(3), constant(-1), null,
+				new RecordingWork(null));
+
+		assertTrue("All ranges should have finished", finished);
+		Collections.sort(processed);
+		assertEquals(ids(people), processed);
+		final List<ScheduledTaskPartition> partitions = partitionDao.getPartitions(TASK_NAME);
+		assertEquals("Incorrect number of ranges", 2, partitions.size());
+		for ( ScheduledTaskPartition partition : partitions ) {
+			assertTrue(partition.isCompleted());
+			assertEquals(PERSON_COUNT / 2, partition.getProcessedCount());
+		}
+		verify(scheduledTaskWrapperService).execWithClusterLease(
+				eq(ScheduledApplicationTaskStatus.subLeaseTaskName(TASK_NAME, 0)), any(Runnable.class));
+		verify(scheduledTaskWrapperService).execWithClusterLease(
+				eq(ScheduledApplicationTaskStatus.subLeaseTaskName(TASK_NAME, 1)), any(Runnable.class));
+	}
+
+	@Test
+	public void failedRangeResumesFromItsCheckpoint() {
+		// second batch of the second range fails
+		final UUID poison = people.get(8).getId();
+
+		final boolean firstRun = runner.execute(TASK_NAME, 2, constant(3), constant(-1), null,
+				new RecordingWork(poison));
+
+		assertFalse("Failed range should be unfinished", firstRun);
+		final List<ScheduledTaskPartition> afterFailure = partitionDao.getPartitions(TASK_NAME);
+		assertTrue(afterFailure.get(0).isCompleted());
+		assertFalse(afterFailure.get(1).isCompleted());
+		assertEquals(people.get(7).getId(), afterFailure.get(1).getLastProcessedId());
+
+		processed.clear();
+		final boolean secondRun = runner.execute(TASK_NAME, 2, constant(3), constant(-1), null,
+				new RecordingWork(null));
+
+		assertTrue(secondRun);
+		assertEquals("Only the failed batch onwards should be processed again",
+				ids(people.subList(8, PERSON_COUNT)), processed);
+		verify(personService, times(1)).getActiveIdPartitionBoundaries(2);
+	}
+
+	@Test
+	public void plansNewRangesOnceAllAreFinished() {
+		runner.execute(TASK_NAME, 2, constant(-1), constant(-1), null, new RecordingWork(null));
+		processed.clear();
+
+		final boolean finished = runner.execute(TASK_NAME, 2, constant(-1), constant(-1), null,
+				new RecordingWork(null));
+
+		assertTrue(finished);
+		Collections.sort(processed);
+		assertEquals("A finished run should start over", ids(people), processed);
+		verify(personService, times(2)).getActiveIdPartitionBoundaries(2);
+	}
+
+	@Test
+	public void plansNewRangesIfWorkerCountChanges() {
+		runner.execute(TASK_NAME, 2, constant(3), constant(1), null, new RecordingWork(null));
+
+		runner.execute(TASK_NAME, 4, constant(3), constant(-1), null, new RecordingWork(null));
+
+		assertEquals("Incorrect number of ranges", 4, partitionDao.getPartitions(TASK_NAME).size());
+		verify(personService).getActiveIdPartitionBoundaries(4);
+	}
+
+	@Test
+	public void batchLimitIsSharedByAllRanges() {
+		final boolean finished = runner.execute(TASK_NAME, 2, constant(2), constant(2), null,
+				new RecordingWork(null));
+
+		assertFalse(finished);
+		assertEquals("Two batches of two, whichever ranges ran them", 4, processed.size());
+	}
+
+	@Test
+	public void zeroBatchLimitDoesNothing() {
+		final boolean finished = runner.execute(TASK_NAME, 2, constant(2), constant(0), null,
+				new RecordingWork(null));
+
+		assertFalse(finished);
+		assertTrue(processed.isEmpty());
+		verify(personService, never()).getActiveInIdRange(any(UUID.class), any(UUID.class),
+				any(UUID.class), anyInt());
+	}
+
+	private List<Person> activeInIdRange(final UUID rangeStart, final UUID after, final UUID rangeEnd,
+										 final int maxResults) {
+		final List<Person> range = Lists.newArrayList();
+		for ( Person person : people ) {
+			final UUID id = person.getId();
+			if ( after != null ? id.compareTo(after) <= 0 : rangeStart != null && id.compareTo(rangeStart) < 0 ) {
+				continue;
+			}
+			if ( rangeEnd != null && id.compareTo(rangeEnd) >= 0 ) {
+				break;
+			}
+			if ( maxResults > 0 && range.size() == maxResults ) {
+				break;
+			}
+			range.add(person);
+		}
+		return range;
+	}
+
+	private static List<UUID> ids(final List<Person> people) {
+		final List<UUID> ids = Lists.newArrayList();
+		for ( Person person : people ) {
+			ids.add(person.getId());
+		}
+		return ids;
+	}
+
+	private static IntSupplier constant(final int value) {
+		return () -> value;
+	}
+
+	private class RecordingWork implements PersonPartitionedTaskRunner.PersonBatchWork {
+
+		private final UUID failOn;
+
+		RecordingWork(final UUID failOn) {
+			this.failOn = failOn;
+		}
+
+		@Override
+		public void process(final List<Person> batch) throws Exception {
+			if ( ids(batch).contains(failOn) ) {
+				throw new IllegalStateException("Failing batch containing " + failOn);
+			}
+			processed.addAll(ids(batch));
+		}
+	}
+
+	private static class CallFirstArgument implements Answer<Object> {
+		@Override
+		public Object answer(InvocationOnMock invocation) throws Throwable {
+			return ((Callable<?>) invocation.getArguments()[0]).call();
+		}
+	}
+
+	private static class RunArgument implements Answer<Void> {
+
+		private final int index;
+
+		RunArgument(final int index) {
+			this.index = index;
+		}
+
+		@Override
+		public Void answer(InvocationOnMock invocation) {
+			((Runnable) invocation.getArguments()[index]).run();
+			return null;
+		}
+	}
+
+	/**
+	 * Keeps partitions in memory. Failed batches never reach
+	 * {@link #checkpoint(String, int, UUID, long, Date)}, which is all a
+	 * transaction rollback would undo here.
+	 */
+	static class InMemoryPartitionDao extends ScheduledTaskPartitionDao {
+
+		private final Map<Integer, ScheduledTaskPartition> partitions = Maps.newTreeMap();
+
+		@Override
+		public synchronized List<ScheduledTaskPartition> getPartitions(final String taskName) {
+			final List<ScheduledTaskPartition> copies = Lists.newArrayList();
+			for ( ScheduledTaskPartition partition : partitions.values() ) {
+				copies.add(copy(partition));
+			}
+			return copies;
+		}
+
+		@Override
+		public synchronized void replacePartitions(final String taskName,
+												   final List<ScheduledTaskPartition> replacements) {
+			partitions.clear();
+			for ( ScheduledTaskPartition partition : replacements ) {
+				partitions.put(partition.getPartitionIndex(), copy(partition));
+			}
+		}
+
+		@Override
+		public synchronized void checkpoint(final String taskName, final int partitionIndex,
+											final UUID lastProcessedId, final long processed,
+											final Date completedDate) {
+			final ScheduledTaskPartition partition = partitions.get(partitionIndex);
+			partition.setLastProcessedId(lastProcessedId);
+			partition.setProcessedCount(partition.getProcessedCount() + processed);
+			partition.setCompletedDate(completedDate);
+		}
+
+		private static ScheduledTaskPartition copy(final ScheduledTaskPartition partition) {
+			final ScheduledTaskPartition copy = new ScheduledTaskPartition();
+			copy.setTaskName(partition.getTaskName());
+			copy.setPartitionIndex(partition.getPartitionIndex());
+			copy.setPartitionCount(partition.getPartitionCount());
+			copy.setRangeStart(partition.getRangeStart());
+			copy.setRangeEnd(partition.getRangeEnd());
+			copy.setLastProcessedId(partition.getLastProcessedId());
+			copy.setProcessedCount(partition.getProcessedCount());
+			copy.setCompletedDate(partition.getCompletedDate());
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+
+import org.jasig.ssp.service.impl.ScheduledTaskWrapperServiceImpl.OccurrenceTrackingTrigger;
+import org.junit.Test;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+public class ScheduledTaskWrapperServiceImplTest {
+
+	@Test
+	public void testOccurrenceTrackingTriggerRemembersLastScheduledTime() {
+		final Date first = new Date(1000L);
+		final Date second = new Date(2000L);
+		final OccurrenceTrackingTrigger trigger = new OccurrenceTrackingTrigger(new Trigger() {
+			private int calls;
+			@Override
+			public Date nextExecutionTime(TriggerContext triggerContext) {
+				return calls++ == 0 ? first : second;
+			}
+		});
+
+		assertNull(trigger.getLastScheduledExecutionTime());
+		assertEquals(first, trigger.nextExecutionTime(new SimpleTriggerContext()));
+		assertEquals(first, trigger.getLastScheduledExecutionTime());
+		assertEquals(second, trigger.nextExecutionTime(new SimpleTriggerContext()));
+		assertEquals(second, trigger.getLastScheduledExecutionTime());
+	}
+}
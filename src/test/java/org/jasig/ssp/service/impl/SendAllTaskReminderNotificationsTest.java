@@ -0,0 +1,226 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.jasig.ssp.dao.TaskDao;
+import org.jasig.ssp.model.AuditPerson;
+import org.jasig.ssp.model.Message;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.SubjectAndBody;
+import org.jasig.ssp.model.Task;
+import org.jasig.ssp.model.TaskMessageEnqueue;
+import org.jasig.ssp.model.reference.ConfidentialityLevel;
+import org.jasig.ssp.service.MessageService;
+import org.jasig.ssp.service.PersonService;
+import org.jasig.ssp.service.TaskMessageEnqueueService;
+import org.jasig.ssp.service.reference.ConfigService;
+import org.jasig.ssp.service.reference.MessageTemplateService;
+import org.jasig.ssp.transferobject.messagetemplate.TaskMessageTemplateTO;
+import org.jasig.ssp.util.sort.SortingAndPaging;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests {@link TaskServiceImpl} sendAllTaskReminderNotifications, with and
+ * without the per-student reminder digest.
+ */
+public class SendAllTaskReminderNotificationsTest {
+
+	private static final int DAYS_BEFORE = 14;
+
+	@Mock private ConfigService configService;
+	@Mock private MessageService messageService;
+	@Mock private MessageTemplateService messageTemplateService;
+	@Mock private PersonService personService;
+	@Mock private TaskDao dao;
+	@Mock private TaskMessageEnqueueService taskMessageSentService;
+
+	@Mock private SubjectAndBody digestSubjectAndBody;
+	@Mock private SubjectAndBody taskSubjectAndBody;
+	@Mock private Message digestMessage;
+	@Mock private Message taskMessage;
+
+	@InjectMocks private TaskServiceImpl service;
+
+	private final ConfidentialityLevel confidentialityLevel =
+			new ConfidentialityLevel(UUID.randomUUID(), "Everyone");
+
+	private final UUID creatorId = UUID.randomUUID();
+
+	private List<Task> tasks;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		tasks = Lists.newArrayList();
+		given(dao.getAllWhichNeedRemindersSent(any(SortingAndPaging.class))).willReturn(tasks);
+		given(configService.getByNameNull("numberOfDaysPriorForTaskReminders"))
+				.willReturn(String.valueOf(DAYS_BEFORE));
+		given(messageTemplateService.createTaskReminderDigestMessage(any(Person.class),
+				anyListOf(TaskMessageTemplateTO.class))).willReturn(digestSubjectAndBody);
+		given(messageTemplateService.createCustomActionPlanTaskMessage(any(TaskMessageTemplateTO.class)))
+				.willReturn(taskSubjectAndBody);
+		given(messageService.createMessage(any(Person.class), eq((String) null), eq(digestSubjectAndBody)))
+				.willReturn(digestMessage);
+		given(messageService.createMessage(any(Person.class), eq((String) null), eq(taskSubjectAndBody)))
+				.willReturn(taskMessage);
+	}
+
+	@Test
+	public void testDigestGroupsRemindersByStudent() throws Exception {
+		digestEnabled(true);
+		final Person student = new Person(UUID.randomUUID());
+		final Person otherStudent = new Person(UUID.randomUUID());
+		final Task first = addDueTask(student);
+		addDueTask(otherStudent);
+		final Task second = addDueTask(student);
+
+		service.sendAllTaskReminderNotifications();
+
+		@SuppressWarnings("unchecked")
+		final ArgumentCaptor<List<TaskMessageTemplateTO>> digested =
+				(ArgumentCaptor<List<TaskMessageTemplateTO>>) (Object) ArgumentCaptor.forClass(List.class);
+		verify(messageTemplateService).createTaskReminderDigestMessage(eq(student), digested.capture());
+		assertEquals("Digest should list the student's tasks in order", 2, digested.getValue().size());
+		assertEquals(first.getId(), digested.getValue().get(0).getId());
+		assertEquals(second.getId(), digested.getValue().get(1).getId());
+
+		verify(messageService).createMessage(student, null, digestSubjectAndBody);
+		verify(messageService).createMessage(otherStudent, null, taskSubjectAndBody);
+		verify(messageService, never()).createMessage(otherStudent, null, digestSubjectAndBody);
+
+		// shared creator is looked up once per digest, once more for the single task
+		verify(personService, times(2)).get(creatorId);
+	}
+
+	@Test
+	public void testDigestFallsBackToTaskMessageForSingleTask() throws Exception {
+		digestEnabled(true);
+		final Person student = new Person(UUID.randomUUID());
+		final Task task = addDueTask(student);
+
+		service.sendAllTaskReminderNotifications();
+
+		verify(messageTemplateService, never()).createTaskReminderDigestMessage(any(Person.class),
+				anyListOf(TaskMessageTemplateTO.class));
+		final ArgumentCaptor<TaskMessageTemplateTO> templated =
+				ArgumentCaptor.forClass(TaskMessageTemplateTO.class);
+		verify(messageTemplateService).createCustomActionPlanTaskMessage(templated.capture());
+		assertEquals(task.getId(), templated.getValue().getId());
+		verify(messageService).createMessage(student, null, taskSubjectAndBody);
+	}
+
+	@Test
+	public void testDigestRecordsOneEnqueuePerTask() throws Exception {
+		digestEnabled(true);
+		final Person student = new Person(UUID.randomUUID());
+		final Task first = addDueTask(student);
+		final Task second = addDueTask(student);
+		final Task third = addDueTask(student);
+
+		service.sendAllTaskReminderNotifications();
+
+		verify(messageService, times(1)).createMessage(any(Person.class), eq((String) null),
+				any(SubjectAndBody.class));
+		final ArgumentCaptor<TaskMessageEnqueue> enqueued =
+				ArgumentCaptor.forClass(TaskMessageEnqueue.class);
+		verify(taskMessageSentService, times(3)).save(enqueued.capture());
+		final List<Task> recorded = Lists.newArrayList();
+		for (final TaskMessageEnqueue enqueue : enqueued.getAllValues()) {
+			assertSame("Every task should point at the one digest message",
+					digestMessage, enqueue.getMessage());
+			assertEquals(Integer.valueOf(DAYS_BEFORE), enqueue.getDaysBefore());
+			assertEquals(enqueue.getTask().getDueDate(), enqueue.getTaskDueDate());
+			recorded.add(enqueue.getTask());
+		}
+		assertEquals(Lists.newArrayList(first, second, third), recorded);
+	}
+
+	@Test
+	public void testDigestDisabledSendsOneMessagePerTask() throws Exception {
+		digestEnabled(false);
+		final Person student = new Person(UUID.randomUUID());
+		addDueTask(student);
+		addDueTask(student);
+
+		service.sendAllTaskReminderNotifications();
+
+		verify(messageTemplateService, never()).createTaskReminderDigestMessage(any(Person.class),
+				anyListOf(TaskMessageTemplateTO.class));
+		verify(messageService, times(2)).createMessage(student, null, taskSubjectAndBody);
+		final ArgumentCaptor<TaskMessageEnqueue> enqueued =
+				ArgumentCaptor.forClass(TaskMessageEnqueue.class);
+		verify(taskMessageSentService, times(2)).save(enqueued.capture());
+		for (final TaskMessageEnqueue enqueue : enqueued.getAllValues()) {
+			assertSame(taskMessage, enqueue.getMessage());
+		}
+	}
+
+	@Test
+	public void testTasksNotDueAreSkipped() throws Exception {
+		digestEnabled(true);
+		final Person student = new Person(UUID.randomUUID());
+		addDueTask(student);
+		addDueTask(student).setDueDate(DateUtils.addDays(new Date(), DAYS_BEFORE + 1));
+
+		service.sendAllTaskReminderNotifications();
+
+		verify(messageTemplateService, never()).createTaskReminderDigestMessage(any(Person.class),
+				anyListOf(TaskMessageTemplateTO.class));
+		verify(taskMessageSentService, times(1)).save(any(TaskMessageEnqueue.class));
+	}
+
+	private void digestEnabled(final boolean enabled) {
+		given(configService.getByNameEmpty("task_reminder_digest_enabled"))
+				.willReturn(String.valueOf(enabled));
+	}
+
+	private Task addDueTask(final Person student) {
+		final Task task = new Task();
+		task.setId(UUID.randomUUID());
+		task.setName("Task " + (tasks.size() + 1));
+		task.setPerson(student);
+		task.setDueDate(DateUtils.addDays(new Date(), DAYS_BEFORE));
+		task.setCreatedBy(new AuditPerson(creatorId));
+		task.setConfidentialityLevel(confidentialityLevel);
+		tasks.add(task);
+		return task;
+	}
+}
@@ -0,0 +1,443 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.jobqueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.jasig.ssp.factory.PersonSearchRequestTOFactory;
+import org.jasig.ssp.model.PersonSearchRequest;
+import org.jasig.ssp.model.PersonSearchResult2;
+import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.service.PersonSearchService;
+import org.jasig.ssp.service.PersonService;
+import org.jasig.ssp.service.reference.ConfigService;
+import org.jasig.ssp.transferobject.ImmutablePersonIdentifiersTO;
+import org.jasig.ssp.transferobject.PersonSearchRequestTO;
+import org.jasig.ssp.transferobject.form.HasPersonSearchRequest;
+import org.jasig.ssp.transferobject.form.HasPersonSearchRequestCoreSpec;
+import org.jasig.ssp.util.sort.PagingWrapper;
+import org.jasig.ssp.util.sort.SortingAndPaging;
+import org.jasig.ssp.web.api.validation.ValidationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+
+public class AbstractPersonSearchBasedJobExecutorTest {
+
+	private static final int PAGE_SIZE = 2;
+
+	private static final String RESULT_KEY = "schoolId";
+
+	private final UUID jobId = UUID.randomUUID();
+
+	private JobService jobService;
+	private PersonSearchService personSearchService;
+	private PersonService personService;
+	private ConfigService configService;
+	private PersonSearchRequestTOFactory personSearchRequestFactory;
+	private List<ImmutablePersonIdentifiersTO> processed;
+	private Set<ImmutablePersonIdentifiersTO> failing;
+	private List<ImmutablePersonIdentifiersTO> storedTargets;
+	private Map<Integer, String> processedMarkers;
+	private TestExecutor executor;
+	private ExecutorService personExecutor;
+	private BasePersonSearchBasedJobExecutionState finalState;
+	private int runs;
+
+	// stands in for the per-job logger subclasses keep in a thread local
+	private static final ThreadLocal<String> WORKER_CONTEXT = new ThreadLocal<String>();
+	private List<String> workerContexts;
+
+	@Before
+	public void setUp() throws ObjectNotFoundException {
+		jobService = mock(JobService.class);
+		personSearchService = mock(PersonSearchService.class);
+		personService = mock(PersonService.class);
+		personSearchRequestFactory = mock(PersonSearchRequestTOFactory.class);
+		configService = mock(ConfigService.class);
+		when(personSearchRequestFactory.from(any(PersonSearchRequestTO.class))).thenReturn(new PersonSearchRequest());
+		when(configService.getByNameExceptionOrDefaultAsInt("test_page_size")).thenReturn(PAGE_SIZE);
+		when(configService.getByNameExceptionOrDefaultAsInt("test_dlq_size")).thenReturn(10);
+
+		storedTargets = Lists.newArrayList();
+		when(jobService.getTargets(eq(jobId), anyInt(), anyInt())).thenAnswer(
+				new Answer<List<ImmutablePersonIdentifiersTO>>() {
+					@Override
+					public List<ImmutablePersonIdentifiersTO> answer(InvocationOnMock invocation) {
+						final int firstIndex = (Integer)invocation.getArguments()[1];
+						final int maxResults = (Integer)invocation.getArguments()[2];
+						if ( firstIndex >= storedTargets.size() ) {
+							return Lists.newArrayList();
+						}
+						return Lists.newArrayList(storedTargets.subList(firstIndex,
+								Math.min(storedTargets.size(), firstIndex + maxResults)));
+					}
+				});
+
+		processedMarkers = new ConcurrentHashMap<Integer, String>();
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				processedMarkers.put((Integer)invocation.getArguments()[1], (String)invocation.getArguments()[2]);
+				return null;
+			}
+		}).when(jobService).markTargetProcessed(eq(jobId), anyInt(), anyString());
+		when(jobService.getProcessedTargets(eq(jobId), anyInt(), anyInt())).thenAnswer(
+				new Answer<Map<Integer, String>>() {
+					@Override
+					public Map<Integer, String> answer(InvocationOnMock invocation) {
+						final int firstIndex = (Integer)invocation.getArguments()[1];
+						final int maxResults = (Integer)invocation.getArguments()[2];
+						final Map<Integer, String> inRange = Maps.newHashMap();
+						for ( Map.Entry<Integer, String> marker : processedMarkers.entrySet() ) {
+							if ( marker.getKey() >= firstIndex && marker.getKey() < firstIndex + maxResults ) {
+								inRange.put(marker.getKey(), marker.getValue());
+							}
+						}
+						return inRange;
+					}
+				});
+
+		processed = Collections.synchronizedList(Lists.<ImmutablePersonIdentifiersTO>newArrayList());
+		workerContexts = Collections.synchronizedList(Lists.<String>newArrayList());
+		failing = Sets.newHashSet();
+		executor = new TestExecutor(null);
+	}
+
+	@After
+	public void tearDown() {
+		if ( personExecutor != null ) {
+			personExecutor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testSnapshotIsCapturedOnceAndPagedThroughByIndex() {
+		final List<ImmutablePersonIdentifiersTO> targets = newTargets(5);
+		givenSearchResults(targets);
+
+		final int runs = runToCompletion();
+
+		// one run to capture, three chunks of at most two, one to notice there's nothing left
+		assertEquals(5, runs);
+		verify(personSearchService, times(1)).searchPersonDirectoryIdentifiers(any(PersonSearchRequest.class));
+		verify(jobService).saveTargets(jobId, targets);
+		verify(jobService).getTargets(jobId, 0, PAGE_SIZE);
+		verify(jobService).getTargets(jobId, 2, PAGE_SIZE);
+		verify(jobService).getTargets(jobId, 4, PAGE_SIZE);
+		assertEquals(targets, processed);
+		assertEquals(5, finalState.personsSucceededCount);
+	}
+
+	@Test
+	public void testEmptySnapshotCompletesWithoutReadingTargets() {
+		givenSearchResults(Lists.<ImmutablePersonIdentifiersTO>newArrayList());
+
+		assertEquals(2, runToCompletion());
+		verify(jobService, never()).getTargets(any(UUID.class), anyInt(), anyInt());
+		assertTrue(processed.isEmpty());
+	}
+
+	@Test
+	public void testEachChunkIsPrefetchedWithOneQuery() {
+		final List<ImmutablePersonIdentifiersTO> targets = newTargets(3);
+		targets.add(new ImmutablePersonIdentifiersTO(null, "no-operational-record"));
+		givenSearchResults(targets);
+
+		runToCompletion();
+
+		verify(personService).peopleFromListOfIds(
+				eq(Lists.newArrayList(targets.get(0).getId(), targets.get(1).getId())), isNull(SortingAndPaging.class));
+		verify(personService).peopleFromListOfIds(
+				eq(Lists.newArrayList(targets.get(2).getId())), isNull(SortingAndPaging.class));
+		verify(personService, times(2)).peopleFromListOfIds(any(List.class), any(SortingAndPaging.class));
+	}
+
+	@Test
+	public void testCompletionLeavesSnapshotCleanupToJobService() {
+		givenSearchResults(newTargets(3));
+
+		runToCompletion();
+
+		// discarded when the job's workflow terminates, whatever the outcome. see JobServiceImplTest
+		verify(jobService, never()).deleteTargets(any(UUID.class));
+	}
+
+	@Test
+	public void testParallelismDefaultsToSeededValue() {
+		assertEquals(AbstractPersonSearchBasedJobExecutor.DEFAULT_PERSON_PARALLELISM, executor.getParallelism());
+		when(configService.getByNameNullOrDefaultValue(
+				AbstractPersonSearchBasedJobExecutor.BULK_JOB_PARALLELISM_CONFIG_NAME)).thenReturn("100");
+		assertEquals(AbstractPersonSearchBasedJobExecutor.MAX_PERSON_PARALLELISM, executor.getParallelism());
+	}
+
+	@Test
+	public void testParallelWorkersMarkEachPersonProcessed() {
+		givenParallelExecutor();
+		final List<ImmutablePersonIdentifiersTO> targets = newTargets(5);
+		givenSearchResults(targets);
+
+		runToCompletion();
+
+		assertEquals(Sets.newHashSet(targets), Sets.newHashSet(processed));
+		assertEquals(5, processed.size());
+		assertEquals(Sets.newHashSet(0, 1, 2, 3, 4), processedMarkers.keySet());
+		for ( int i = 0; i < targets.size(); i++ ) {
+			assertTrue(processedMarkers.get(i).contains(targets.get(i).getSchoolId()));
+		}
+		assertEquals(5, finalState.personsSucceededCount);
+	}
+
+	@Test
+	public void testParallelWorkersRunThroughWorkerHook() {
+		givenParallelExecutor();
+		// two full pages, since single-person pages are processed serially
+		givenSearchResults(newTargets(4));
+
+		runToCompletion();
+
+		assertEquals("Every person should have been processed inside runPersonWorker()",
+				Collections.nCopies(4, "worker"), workerContexts);
+	}
+
+	@Test
+	public void testReplayedPageSkipsPersonsAlreadyProcessed() {
+		givenParallelExecutor();
+		final List<ImmutablePersonIdentifiersTO> targets = newTargets(4);
+		givenSearchResults(targets);
+		// as if the first page's workers committed but the job's state didn't
+		processedMarkers.put(0, "{\"" + RESULT_KEY + "\":\"" + targets.get(0).getSchoolId() + "\"}");
+
+		runToCompletion();
+
+		assertEquals(Sets.newHashSet(targets.subList(1, 4)), Sets.newHashSet(processed));
+		assertEquals(3, processed.size());
+		assertEquals(4, finalState.personsSucceededCount);
+		assertEquals(Lists.newArrayList(targets.get(0).getSchoolId()), executor.recordedWithoutProcessing);
+	}
+
+	@Test
+	public void testFailedParallelPersonIsRetriedButNotMarked() {
+		givenParallelExecutor();
+		final List<ImmutablePersonIdentifiersTO> targets = newTargets(2);
+		givenSearchResults(targets);
+		failing.add(targets.get(1));
+
+		final BasePersonSearchBasedJobExecutionState state = runUntil(JobExecutionStatus.FAILED_PARTIAL);
+
+		assertEquals(Lists.newArrayList(targets.get(1)), state.retryQueue);
+		assertEquals(Sets.newHashSet(0), processedMarkers.keySet());
+		assertEquals(1, state.personsSucceededCount);
+	}
+
+	@Test
+	public void testParallelExecutorIsNotUsedWithoutSnapshot() {
+		givenParallelExecutor();
+		final BasePersonSearchBasedJobExecutionState state = new BasePersonSearchBasedJobExecutionState();
+		state.keysetPaging = true;
+		state.parallelism = 4;
+		state.pageSize = PAGE_SIZE;
+		state.maxDlqLength = 10;
+		final List<ImmutablePersonIdentifiersTO> targets = newTargets(2);
+		final List<PersonSearchResult2> rows = Lists.newArrayList();
+		for ( ImmutablePersonIdentifiersTO target : targets ) {
+			final PersonSearchResult2 row = new PersonSearchResult2();
+			row.setId(target.getId());
+			row.setSchoolId(target.getSchoolId());
+			rows.add(row);
+		}
+		final PagingWrapper<PersonSearchResult2> page = new PagingWrapper<PersonSearchResult2>(2, rows);
+		when(personSearchService.searchPersonDirectory(any(PersonSearchRequest.class))).thenReturn(page);
+		final PersonSearchRequest criteria = new PersonSearchRequest();
+		criteria.setSortAndPage(SortingAndPaging.createForSingleSortWithPaging(null, 0, PAGE_SIZE, null, null, null));
+		when(personSearchRequestFactory.from(any(PersonSearchRequestTO.class))).thenReturn(criteria);
+
+		executor.executeJobDeserialized(new TestJobSpec(), state, jobId);
+
+		assertEquals(targets, processed);
+		verify(jobService, never()).markTargetProcessed(any(UUID.class), anyInt(), anyString());
+	}
+
+	private void givenParallelExecutor() {
+		when(configService.getByNameNullOrDefaultValue(
+				AbstractPersonSearchBasedJobExecutor.BULK_JOB_PARALLELISM_CONFIG_NAME)).thenReturn("4");
+		personExecutor = Executors.newFixedThreadPool(4);
+		executor = new TestExecutor(personExecutor);
+	}
+
+	private void givenSearchResults(List<ImmutablePersonIdentifiersTO> targets) {
+		storedTargets.addAll(targets);
+		when(personSearchService.searchPersonDirectoryIdentifiers(any(PersonSearchRequest.class)))
+				.thenReturn(Lists.newArrayList(targets));
+	}
+
+	private int runToCompletion() {
+		runUntil(JobExecutionStatus.DONE);
+		return runs;
+	}
+
+	private BasePersonSearchBasedJobExecutionState runUntil(JobExecutionStatus expectedStatus) {
+		BasePersonSearchBasedJobExecutionState state = null;
+		final TestJobSpec spec = new TestJobSpec();
+		for ( runs = 1; runs <= 100; runs++ ) {
+			final JobExecutionResult<BasePersonSearchBasedJobExecutionState> result =
+					executor.executeJobDeserialized(spec, state, jobId);
+			state = result.getDetail();
+			if ( result.getStatus() == expectedStatus ) {
+				finalState = state;
+				return state;
+			}
+			assertEquals(JobExecutionStatus.PARTIAL, result.getStatus());
+		}
+		throw new AssertionError("Job never returned " + expectedStatus);
+	}
+
+	private List<ImmutablePersonIdentifiersTO> newTargets(int count) {
+		final List<ImmutablePersonIdentifiersTO> targets = Lists.newArrayListWithCapacity(count);
+		for ( int i = 0; i < count; i++ ) {
+			targets.add(new ImmutablePersonIdentifiersTO(UUID.randomUUID(), "student" + i));
+		}
+		return targets;
+	}
+
+	private static class TestCoreSpec implements HasPersonSearchRequest {
+		@Override
+		public PersonSearchRequestTO getCriteria() {
+			return new PersonSearchRequestTO();
+		}
+	}
+
+	private static class TestJobSpec implements HasPersonSearchRequestCoreSpec<TestCoreSpec> {
+		@Override
+		public TestCoreSpec getCoreSpec() {
+			return new TestCoreSpec();
+		}
+	}
+
+	private class TestExecutor
+			extends AbstractPersonSearchBasedJobExecutor<TestJobSpec, BasePersonSearchBasedJobExecutionState> {
+
+		private final Logger logger = LoggerFactory.getLogger(AbstractPersonSearchBasedJobExecutorTest.class);
+
+		private final List<Object> recordedWithoutProcessing = Collections.synchronizedList(Lists.newArrayList());
+
+		TestExecutor(ExecutorService personExecutor) {
+			super("test-executor", jobService, mock(PlatformTransactionManager.class), null, personSearchService,
+					personSearchRequestFactory, configService, personService, personExecutor);
+		}
+
+		@Override
+		protected Map<String, ?> executeForSinglePerson(ImmutablePersonIdentifiersTO personIds, TestJobSpec executionSpec,
+														BasePersonSearchBasedJobExecutionState executionState, UUID jobId)
+				throws ValidationException {
+			if ( failing.contains(personIds) ) {
+				throw new ValidationException("Failing " + personIds);
+			}
+			processed.add(personIds);
+			workerContexts.add(WORKER_CONTEXT.get());
+			final Map<String, Object> results = Maps.newHashMap();
+			results.put(RESULT_KEY, personIds.getSchoolId());
+			return results;
+		}
+
+		@Override
+		protected void recordSuccessful(ImmutablePersonIdentifiersTO personIds, Map<String, ?> results,
+										TestJobSpec executionSpec, BasePersonSearchBasedJobExecutionState executionState,
+										UUID jobId) {
+			super.recordSuccessful(personIds, results, executionSpec, executionState, jobId);
+			if ( !(processed.contains(personIds)) ) {
+				recordedWithoutProcessing.add(results.get(RESULT_KEY));
+			}
+		}
+
+		@Override
+		protected BasePersonSearchBasedJobExecutionState newJobExecutionState() {
+			return new BasePersonSearchBasedJobExecutionState();
+		}
+
+		@Override
+		protected String getPageSizeConfigName() {
+			return "test_page_size";
+		}
+
+		@Override
+		protected String getDlqSizeConfigName() {
+			return "test_dlq_size";
+		}
+
+		@Override
+		protected String getFailOnSlqOverflowConfigName() {
+			return "test_fail_on_dlq_overflow";
+		}
+
+		@Override
+		protected TestJobSpec deserializeJobSpecWithCheckedExceptions(String jobSpecStr) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		protected BasePersonSearchBasedJobExecutionState deserializeJobStateWithCheckedExceptions(String jobStateStr) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		protected Logger getCurrentLogger() {
+			return logger;
+		}
+
+		@Override
+		protected void runPersonWorker(Runnable worker) {
+			try {
+				WORKER_CONTEXT.set("worker");
+				worker.run();
+			} finally {
+				WORKER_CONTEXT.set(null);
+			}
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.jobqueue.impl;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.UUID;
+
+import org.jasig.ssp.model.jobqueue.Job;
+import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.service.ScheduledTaskWrapperService;
+import org.jasig.ssp.service.jobqueue.JobExecutionResult;
+import org.jasig.ssp.service.jobqueue.JobService;
+import org.jasig.ssp.service.jobqueue.JobWorkflowStatusDescription;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class JobExecutionWorkflowTest {
+
+	private final UUID jobId = UUID.randomUUID();
+	private ScheduledTaskWrapperService taskHelper;
+	private JobService jobService;
+
+	@Before
+	public void setUp() {
+		taskHelper = mock(ScheduledTaskWrapperService.class);
+		jobService = mock(JobService.class);
+		// run task context work inline
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				((Runnable) invocation.getArguments()[1]).run();
+				return null;
+			}
+		}).when(taskHelper).execWithTaskContext(anyString(), any(Runnable.class), anyBoolean(), any(UUID.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void doesNotRunOrTerminateJobWhoseClaimWasLost() throws ObjectNotFoundException {
+		when(jobService.markExecuting(jobId)).thenReturn(null);
+
+		new JobExecutionWorkflow(jobId, taskHelper, jobService).run();
+
+		verify(jobService, never()).findRegisteredJobExecutor(anyString());
+		verify(jobService, never()).markTerminated(any(UUID.class), any(JobExecutionResult.class));
+		verify(jobService).requestDispatch();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void doesNotRunOrTerminateJobNoLongerOnFile() throws ObjectNotFoundException {
+		when(jobService.markExecuting(jobId)).thenThrow(new ObjectNotFoundException(jobId, Job.class.getName()));
+
+		new JobExecutionWorkflow(jobId, taskHelper, jobService).run();
+
+		verify(jobService, never()).findRegisteredJobExecutor(anyString());
+		verify(jobService, never()).markTerminated(any(UUID.class), any(JobExecutionResult.class));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void terminatesJobWithNoRegisteredExecutorAsError() throws ObjectNotFoundException {
+		final Job job = new Job();
+		job.setId(jobId);
+		job.setExecutionComponentName("missing");
+		when(jobService.markExecuting(jobId)).thenReturn(job);
+		when(jobService.findRegisteredJobExecutor("missing")).thenReturn(null);
+
+		new JobExecutionWorkflow(jobId, taskHelper, jobService).run();
+
+		verify(jobService).markTerminated(eq(jobId),
+				(JobExecutionResult<JobWorkflowStatusDescription>) any(JobExecutionResult.class));
+	}
+}
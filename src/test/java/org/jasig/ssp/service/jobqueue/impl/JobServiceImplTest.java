@@ -0,0 +1,270 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.service.jobqueue.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jasig.ssp.dao.jobqueue.JobDao;
+import org.jasig.ssp.model.Person;
+import org.jasig.ssp.model.jobqueue.Job;
+import org.jasig.ssp.model.jobqueue.WorkflowStatus;
+import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.service.PersonService;
+import org.jasig.ssp.service.ScheduledTaskWrapperService;
+import org.jasig.ssp.service.jobqueue.JobExecutionResult;
+import org.jasig.ssp.service.jobqueue.JobExecutionStatus;
+import org.jasig.ssp.service.jobqueue.JobWorkflowStatusDescription;
+import org.jasig.ssp.web.api.validation.ValidationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.AdditionalAnswers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class JobServiceImplTest {
+
+	private static final long DISPATCH_TIMEOUT_MILLIS = 5000;
+
+	@Mock private JobDao dao;
+
+	@Mock private PersonService personService;
+
+	@Mock private ScheduledTaskWrapperService scheduledTaskWrapperService;
+
+	@InjectMocks private JobServiceImpl service;
+
+	private final UUID jobId = UUID.randomUUID();
+	private Job job;
+	private ThreadPoolTaskExecutor taskExecutor;
+	private CountDownLatch releaseTasks;
+
+	@Before
+	public void setUp() throws ObjectNotFoundException {
+		MockitoAnnotations.initMocks(this);
+		job = new Job();
+		job.setId(jobId);
+		job.setWorkflowStatus(WorkflowStatus.SCHEDULING);
+		when(dao.get(jobId)).thenReturn(job);
+		when(dao.save(any(Job.class))).then(AdditionalAnswers.returnsFirstArg());
+		when(personService.get(any(UUID.class))).thenReturn(mock(Person.class));
+
+		taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setCorePoolSize(2);
+		taskExecutor.setMaxPoolSize(2);
+		taskExecutor.initialize();
+		service.taskExecutor = taskExecutor;
+		releaseTasks = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() {
+		releaseTasks.countDown();
+		service.destroy();
+		taskExecutor.shutdown();
+		if ( TransactionSynchronizationManager.isSynchronizationActive() ) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	public void markExecutingTransitionsJobClaimedByThisProcess() throws ObjectNotFoundException {
+		job.setScheduledByProcess(service.getProcessIdentifier());
+
+		final Job executing = service.markExecuting(jobId);
+
+		assertNotNull(executing);
+		assertEquals(WorkflowStatus.EXECUTING, executing.getWorkflowStatus());
+		assertNotNull(executing.getExecutionStartedDate());
+		assertNotNull(executing.getLeaseExpiresDate());
+	}
+
+	@Test
+	public void markExecutingReturnsNullForJobClaimedElsewhere() throws ObjectNotFoundException {
+		job.setScheduledByProcess("some-other-node-0." + UUID.randomUUID());
+
+		assertNull(service.markExecuting(jobId));
+		assertEquals(WorkflowStatus.SCHEDULING, job.getWorkflowStatus());
+		verify(dao, never()).save(any(Job.class));
+	}
+
+	@Test(expected = ObjectNotFoundException.class)
+	public void markExecutingFailsForJobNotOnFile() throws ObjectNotFoundException {
+		when(dao.get(jobId)).thenReturn(null);
+		service.markExecuting(jobId);
+	}
+
+	@Test
+	public void markTerminatedDiscardsTargetsOfCompletedJob() throws ObjectNotFoundException {
+		assertTerminatedAs(JobExecutionStatus.DONE, WorkflowStatus.COMPLETED);
+		verify(dao).deleteTargets(jobId);
+	}
+
+	@Test
+	public void markTerminatedDiscardsTargetsOfFailedJob() throws ObjectNotFoundException {
+		assertTerminatedAs(JobExecutionStatus.FAILED, WorkflowStatus.FAILURE);
+		verify(dao).deleteTargets(jobId);
+	}
+
+	@Test
+	public void markTerminatedDiscardsTargetsOfErroredJob() throws ObjectNotFoundException {
+		assertTerminatedAs(JobExecutionStatus.ERROR, WorkflowStatus.FAILURE);
+		verify(dao).deleteTargets(jobId);
+	}
+
+	@Test
+	public void markTerminatedKeepsTargetsOfInterruptedJob() throws ObjectNotFoundException {
+		assertTerminatedAs(JobExecutionStatus.INTERRUPTED, WorkflowStatus.QUEUED);
+		verify(dao, never()).deleteTargets(any(UUID.class));
+	}
+
+	@Test
+	public void markTerminatedKeepsTargetsOfJobClaimedElsewhere() throws ObjectNotFoundException {
+		job.setScheduledByProcess("some-other-node-0." + UUID.randomUUID());
+
+		service.markTerminated(jobId, new JobExecutionResult<JobWorkflowStatusDescription>(JobExecutionStatus.DONE, null));
+
+		verify(dao, never()).deleteTargets(any(UUID.class));
+	}
+
+	private void assertTerminatedAs(JobExecutionStatus executionStatus, WorkflowStatus expectedWorkflowStatus)
+			throws ObjectNotFoundException {
+		job.setScheduledByProcess(service.getProcessIdentifier());
+
+		final Job terminated = service.markTerminated(jobId,
+				new JobExecutionResult<JobWorkflowStatusDescription>(executionStatus, null));
+
+		assertEquals(expectedWorkflowStatus, terminated.getWorkflowStatus());
+	}
+
+	@Test
+	public void queueDispatchesOnlyAfterCommit() throws ValidationException {
+		service.afterPropertiesSet();
+		TransactionSynchronizationManager.initSynchronization();
+
+		service.queue(UUID.randomUUID(), UUID.randomUUID(), "test-executor", null, null);
+
+		verify(scheduledTaskWrapperService, never()).scheduledQueuedJobs();
+		final List<TransactionSynchronization> synchronizations =
+				TransactionSynchronizationManager.getSynchronizations();
+		assertEquals(1, synchronizations.size());
+
+		synchronizations.get(0).afterCommit();
+
+		verify(scheduledTaskWrapperService, timeout(DISPATCH_TIMEOUT_MILLIS)).scheduledQueuedJobs();
+	}
+
+	@Test
+	public void queueOutsideTransactionDispatchesImmediately() throws ValidationException {
+		service.afterPropertiesSet();
+
+		service.queue(UUID.randomUUID(), UUID.randomUUID(), "test-executor", null, null);
+
+		verify(scheduledTaskWrapperService, timeout(DISPATCH_TIMEOUT_MILLIS)).scheduledQueuedJobs();
+	}
+
+	@Test
+	public void dispatchIsSkippedWithoutFreeCapacity() throws InterruptedException {
+		occupyExecutorThreads(2);
+		service.afterPropertiesSet();
+
+		service.requestDispatch();
+		Thread.sleep(500);
+		verify(scheduledTaskWrapperService, never()).scheduledQueuedJobs();
+
+		releaseTasks.countDown();
+		waitForIdleExecutor();
+		service.requestDispatch();
+
+		verify(scheduledTaskWrapperService, timeout(DISPATCH_TIMEOUT_MILLIS).times(1)).scheduledQueuedJobs();
+	}
+
+	@Test
+	public void freeExecutionCapacityCountsBusyAndQueuedTasks() throws InterruptedException {
+		assertEquals(2, service.getFreeExecutionCapacity());
+
+		occupyExecutorThreads(1);
+		assertEquals(1, service.getFreeExecutionCapacity());
+
+		occupyExecutorThreads(1);
+		assertEquals(0, service.getFreeExecutionCapacity());
+
+		// waits in the queue, and capacity never goes negative
+		taskExecutor.execute(new BlockingTask(releaseTasks, null));
+		assertEquals(0, service.getFreeExecutionCapacity());
+
+		releaseTasks.countDown();
+		waitForIdleExecutor();
+		assertEquals(2, service.getFreeExecutionCapacity());
+	}
+
+	private void occupyExecutorThreads(int count) throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(count);
+		for ( int i = 0; i < count; i++ ) {
+			taskExecutor.execute(new BlockingTask(releaseTasks, started));
+		}
+		started.await(DISPATCH_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+	}
+
+	private void waitForIdleExecutor() throws InterruptedException {
+		final long giveUpAt = System.currentTimeMillis() + DISPATCH_TIMEOUT_MILLIS;
+		while ( taskExecutor.getActiveCount() > 0 && System.currentTimeMillis() < giveUpAt ) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static class BlockingTask implements Runnable {
+		private final CountDownLatch release;
+		private final CountDownLatch started;
+
+		BlockingTask(CountDownLatch release, CountDownLatch started) {
+			this.release = release;
+			this.started = started;
+		}
+
+		@Override
+		public void run() {
+			if ( started != null ) {
+				started.countDown();
+			}
+			try {
+				release.await();
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -27,6 +27,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
@@ -34,6 +35,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.jasig.ssp.dao.reference.ConfigDao;
@@ -47,6 +49,7 @@ import org.jasig.ssp.web.api.validation.ValidationException;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
 /**
@@ -176,7 +179,7 @@ public class ConfigServiceTest {
 		daoOne.setName("foo");
 		daoOne.setValue("{\"bar-key\": \"bar-value\", \"baz-key\": \"baz-value\"}");
 
-		expect(dao.getByName("foo")).andReturn(daoOne);
+		expectSnapshot(daoOne);
 
 		replay(dao);
 
@@ -196,7 +199,7 @@ public class ConfigServiceTest {
 		daoOne.setName("foo");
 		daoOne.setValue("{\"barKey\": \"bar-value\", \"bazKey\": \"baz-value\"}");
 
-		expect(dao.getByName("foo")).andReturn(daoOne);
+		expectSnapshot(daoOne);
 
 		replay(dao);
 
@@ -216,7 +219,7 @@ public class ConfigServiceTest {
 		daoOne.setValue(null);
 		daoOne.setDefaultValue("{\"bar-key\": \"bar-value\", \"baz-key\": \"baz-value\"}");
 
-		expect(dao.getByName("foo")).andReturn(daoOne);
+		expectSnapshot(daoOne);
 
 		replay(dao);
 
@@ -236,7 +239,7 @@ public class ConfigServiceTest {
 		daoOne.setValue(null);
 		daoOne.setDefaultValue(null);
 
-		expect(dao.getByName("foo")).andReturn(daoOne);
+		expectSnapshot(daoOne);
 
 		replay(dao);
 
@@ -256,13 +259,92 @@ public class ConfigServiceTest {
 		daoOne.setName("foo");
 		daoOne.setValue("malformed json");
 
-		expect(dao.getByName("foo")).andReturn(daoOne);
+		expectSnapshot(daoOne);
 
 		replay(dao);
 
 		service.getObjectByNameOrDefault("foo", Map.class, new HashMap());
 	}
 
+	@Test
+	public void testValuesServedFromSnapshot() {
+		final Config daoOne = new Config(UUID.randomUUID());
+		daoOne.setName("foo");
+		daoOne.setValue("42");
+
+		// loaded exactly once despite repeated reads
+		expectSnapshot(daoOne);
+
+		replay(dao);
+
+		assertEquals(42, service.getByNameExceptionOrDefaultAsInt("foo"));
+		assertEquals(42, service.getByNameExceptionOrDefaultAsInt("foo"));
+		assertEquals("42", service.getByNameEmpty("foo"));
+		assertNull(service.getByNameNull("bar"));
+		verify(dao);
+	}
+
+	@Test
+	public void testSnapshotReloadedAfterSave() throws ObjectNotFoundException,
+			ValidationException {
+		final Config daoOne = new Config(UUID.randomUUID());
+		daoOne.setName("foo");
+		daoOne.setValue("before");
+		final Config daoTwo = new Config(daoOne.getId());
+		daoTwo.setName("foo");
+		daoTwo.setValue("after");
+
+		expectSnapshot(daoOne);
+		expect(dao.save(daoTwo)).andReturn(daoTwo);
+		expectSnapshot(daoTwo);
+
+		replay(dao);
+
+		assertEquals("before", service.getByNameEmpty("foo"));
+		service.save(daoTwo);
+		assertEquals("after", service.getByNameEmpty("foo"));
+		verify(dao);
+	}
+
+	@Test
+	public void testSetValueFallsBackToDefault() {
+		final Config daoOne = new Config(UUID.randomUUID());
+		daoOne.setName("foo");
+		daoOne.setValue(" ");
+		daoOne.setDefaultValue("A, B ,,C");
+
+		expectSnapshot(daoOne);
+
+		replay(dao);
+
+		final Set<String> result = service.getByNameNullOrDefaultValueAsSet("foo");
+		assertEquals(3, result.size());
+		assertTrue(result.contains("A") && result.contains("B") && result.contains("C"));
+		assertTrue(service.getByNameNullOrDefaultValueAsSet("bar").isEmpty());
+		verify(dao);
+	}
+
+	@Test
+	public void testSetValueStripsAllSpaces() {
+		final Config daoOne = new Config(UUID.randomUUID());
+		daoOne.setName("foo");
+		daoOne.setValue(" A , C + ,D-");
+
+		expectSnapshot(daoOne);
+
+		replay(dao);
+
+		final Set<String> result = service.getByNameNullOrDefaultValueAsSet("foo");
+		assertEquals(3, result.size());
+		assertTrue(result.contains("A") && result.contains("C+") && result.contains("D-"));
+		verify(dao);
+	}
+
+	private void expectSnapshot(final Config... configs) {
+		expect(dao.getVersion()).andReturn(UUID.randomUUID().toString());
+		expect(dao.getAllEntries()).andReturn(Lists.newArrayList(configs));
+	}
+
 	static class Foo {
 		private String barKey;
 		private String bazKey;
@@ -23,23 +23,32 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.isA;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.UUID;
 
+import org.apache.velocity.exception.ParseErrorException;
 import org.jasig.ssp.dao.reference.MessageTemplateDao;
 import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.model.reference.MessageTemplate;
 import org.jasig.ssp.service.ObjectNotFoundException;
+import org.jasig.ssp.service.VelocityTemplateService;
 import org.jasig.ssp.util.sort.PagingWrapper;
 import org.jasig.ssp.util.sort.SortingAndPaging;
 import org.jasig.ssp.web.api.validation.ValidationException;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+
+import com.google.common.collect.Lists;
 
 /**
  * MessageTemplate service tests
@@ -50,12 +59,16 @@ public class MessageTemplateServiceTest {
 
 	private transient MessageTemplateDao dao;
 
+	private transient RecordingVelocityTemplateService velocityTemplateService;
+
 	@Before
 	public void setUp() {
 		service = new MessageTemplateServiceImpl();
 		dao = createMock(MessageTemplateDao.class);
+		velocityTemplateService = new RecordingVelocityTemplateService();
 
 		service.setDao(dao);
+		service.setVelocityTemplateService(velocityTemplateService);
 	}
 
 	@Test
@@ -99,6 +112,45 @@ public class MessageTemplateServiceTest {
 		assertNotNull("Save response should not have been null.",
 				service.save(daoOne));
 		verify(dao);
+		assertEquals("Cached versions of the saved template should have been evicted.",
+				Lists.newArrayList(id.toString()), velocityTemplateService.evicted);
+	}
+
+	@Test
+	public void testSaveNewEvictsNothing() throws ObjectNotFoundException, ValidationException {
+		final MessageTemplate daoOne = new MessageTemplate();
+
+		expect(dao.save(daoOne)).andReturn(daoOne);
+
+		replay(dao);
+
+		service.save(daoOne);
+		verify(dao);
+		assertTrue("Nothing should have been evicted for a new template.",
+				velocityTemplateService.evicted.isEmpty());
+	}
+
+	@Test
+	public void testContextRefreshWarmsActiveTemplatesOnce() {
+		final MessageTemplate first = newTemplate("First subject", "First body");
+		final MessageTemplate unparseable = newTemplate("Bad subject", RecordingVelocityTemplateService.UNPARSEABLE);
+		final MessageTemplate last = newTemplate("Last subject", "Last body");
+
+		expect(dao.getAll(ObjectStatus.ACTIVE)).andReturn(
+				new PagingWrapper<MessageTemplate>(Lists.newArrayList(first, unparseable, last)));
+
+		replay(dao);
+
+		final ContextRefreshedEvent event = new ContextRefreshedEvent(new StaticApplicationContext());
+		service.onApplicationEvent(event);
+		// e.g. the web context refreshing after the root context
+		service.onApplicationEvent(event);
+
+		verify(dao);
+		assertEquals("A template which fails to parse should not stop the rest from being warmed.",
+				Lists.newArrayList(first.subjectTemplateId(), first.bodyTemplateId(),
+						unparseable.subjectTemplateId(), last.subjectTemplateId(), last.bodyTemplateId()),
+				velocityTemplateService.warmed);
 	}
 
 	@Test
@@ -125,4 +177,38 @@ public class MessageTemplateServiceTest {
 		assertFalse("Object should not have been found after deletion.", found);
 		verify(dao);
 	}
-}
\ No newline at end of file
+
+	private static MessageTemplate newTemplate(final String subject, final String body) {
+		final MessageTemplate template = new MessageTemplate(UUID.randomUUID());
+		template.setSubject(subject);
+		template.setBody(body);
+		template.setModifiedDate(new Date());
+		return template;
+	}
+
+	/**
+	 * Records what it's asked to warm and evict, without a Velocity engine
+	 */
+	private static class RecordingVelocityTemplateService extends VelocityTemplateService {
+
+		static final String UNPARSEABLE = "#if(";
+
+		final List<String> warmed = new ArrayList<String>();
+
+		final List<String> evicted = new ArrayList<String>();
+
+		@Override
+		public void warmTemplate(final String templateText, final String templateId) {
+			warmed.add(templateId);
+			if ( UNPARSEABLE.equals(templateText) ) {
+				throw new ParseErrorException("Unparseable " + templateId);
+			}
+		}
+
+		@Override
+		public int evictTemplates(final String templateIdPrefix) {
+			evicted.add(templateIdPrefix);
+			return 0;
+		}
+	}
+}
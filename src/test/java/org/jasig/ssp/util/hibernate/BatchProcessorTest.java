@@ -0,0 +1,194 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.util.hibernate;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.hibernate.Criteria;
+import org.hibernate.StatelessSession;
+import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Order;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQL82Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.jasig.ssp.model.ObjectStatus;
+import org.jasig.ssp.util.collections.Pair;
+import org.jasig.ssp.util.sort.SortDirection;
+import org.jasig.ssp.util.sort.SortingAndPaging;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class BatchProcessorTest {
+
+	private ExecutorService executor;
+
+	private Queue<List<Row>> chunkRows;
+
+	private int criteriaCreated;
+
+	@Before
+	public void setUp() {
+		executor = Executors.newFixedThreadPool(2);
+		chunkRows = new ConcurrentLinkedQueue<List<Row>>();
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testChunksAreSortedAndPagedTogether() {
+		// 700 values is three chunks of the default batch size
+		final List<UUID> ids = uuids(700);
+		chunkRows.add(Lists.newArrayList(new Row("d"), new Row(null)));
+		chunkRows.add(Lists.newArrayList(new Row("b"), new Row("e")));
+		chunkRows.add(Lists.newArrayList(new Row("a"), new Row("c")));
+
+		final BatchProcessor<UUID, Row> processor = new BatchProcessor<UUID, Row>(
+				ids, sortedByName(1, 3));
+		processor.processInParallel(sessionFactory(new H2Dialect()), executor,
+				chunkFactory(null), "id");
+
+		assertEquals(3, criteriaCreated);
+		assertEquals("Nulls should have sorted first, then the page applied.",
+				Lists.newArrayList("a", "b", "c"),
+				names(processor.getSortedAndPagedResultsAsList()));
+	}
+
+	@Test
+	public void testSingleChunkIsSortedInMemory() {
+		chunkRows.add(Lists.newArrayList(new Row("b"), new Row("a")));
+
+		final BatchProcessor<UUID, Row> processor = new BatchProcessor<UUID, Row>(
+				uuids(10), sortedByName(0, 10));
+		final ExecutorService unused = mock(ExecutorService.class);
+		processor.processInParallel(sessionFactory(new H2Dialect()), unused,
+				chunkFactory(null), "id");
+
+		assertEquals(1, criteriaCreated);
+		assertEquals(Lists.newArrayList("a", "b"),
+				names(processor.getSortedAndPagedResultsAsList()));
+		verifyZeroInteractions(unused);
+	}
+
+	@Test
+	public void testSetBasedQuerySortsAndPagesInDatabase() {
+		// the database has already sorted and paged these
+		chunkRows.add(Lists.newArrayList(new Row("x"), new Row("y")));
+		final Criteria criteria = mockCriteria();
+
+		final BatchProcessor<UUID, Row> processor = new BatchProcessor<UUID, Row>(
+				uuids(700), sortedByName(5, 2));
+		final ExecutorService unused = mock(ExecutorService.class);
+		processor.processInParallel(sessionFactory(new PostgreSQL82Dialect()),
+				unused, chunkFactory(criteria), "id");
+
+		assertEquals(1, criteriaCreated);
+		verify(criteria).add(isA(InSetRestriction.class));
+		verify(criteria, times(1)).addOrder(isA(NullsLowOrder.class));
+		verify(criteria).setFirstResult(5);
+		verify(criteria).setMaxResults(2);
+		assertEquals(Lists.newArrayList("x", "y"),
+				names(processor.getSortedAndPagedResultsAsList()));
+		verifyZeroInteractions(unused);
+	}
+
+	private SortingAndPaging sortedByName(final int first, final int max) {
+		return new SortingAndPaging(ObjectStatus.ACTIVE, first, max,
+				Lists.newArrayList(new Pair<String, SortDirection>("name",
+						SortDirection.ASC)), null, null);
+	}
+
+	private SessionFactoryImplementor sessionFactory(final Dialect dialect) {
+		final SessionFactoryImplementor sessionFactory = mock(SessionFactoryImplementor.class);
+		when(sessionFactory.getDialect()).thenReturn(dialect);
+		when(sessionFactory.openStatelessSession()).thenReturn(
+				mock(StatelessSession.class));
+		return sessionFactory;
+	}
+
+	private BatchProcessor.ChunkCriteriaFactory chunkFactory(
+			final Criteria criteria) {
+		return new BatchProcessor.ChunkCriteriaFactory() {
+			@Override
+			public Criteria createCriteria(final StatelessSession session) {
+				synchronized (BatchProcessorTest.this) {
+					criteriaCreated++;
+				}
+				final Criteria chunkCriteria = criteria == null ? mockCriteria()
+						: criteria;
+				when(chunkCriteria.list()).thenReturn(chunkRows.poll());
+				return chunkCriteria;
+			}
+		};
+	}
+
+	private Criteria mockCriteria() {
+		final Criteria criteria = mock(Criteria.class);
+		when(criteria.add(any(Criterion.class))).thenReturn(criteria);
+		when(criteria.addOrder(any(Order.class))).thenReturn(criteria);
+		when(criteria.setFirstResult(anyInt())).thenReturn(criteria);
+		when(criteria.setMaxResults(anyInt())).thenReturn(criteria);
+		return criteria;
+	}
+
+	private List<UUID> uuids(final int count) {
+		final List<UUID> ids = Lists.newArrayList();
+		for (int i = 0; i < count; i++) {
+			ids.add(UUID.randomUUID());
+		}
+		return ids;
+	}
+
+	private List<String> names(final List<Row> rows) {
+		final List<String> names = Lists.newArrayList();
+		for (final Row row : rows) {
+			names.add(row.name);
+		}
+		return names;
+	}
+
+	public static class Row {
+		private String name;
+
+		public Row(final String name) {
+			this.name = name;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ * Licensed to Apereo under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work
+ * for additional information regarding copyright ownership.
+ * Apereo licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License.  You may obtain a
+ * copy of the License at the following location:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.jasig.ssp.util.hibernate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.PostgreSQL82Dialect;
+import org.hibernate.dialect.SQLServer2008Dialect;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class InSetRestrictionTest {
+
+	@Test
+	public void testIsSupported() {
+		assertTrue(InSetRestriction.isSupported(new PostgreSQL82Dialect(),
+				Lists.newArrayList(UUID.randomUUID(), UUID.randomUUID())));
+		assertTrue(InSetRestriction.isSupported(new SQLServer2008Dialect(),
+				Lists.newArrayList("a", "b")));
+		assertFalse("Mixed value types should not have been supported.",
+				InSetRestriction.isSupported(new PostgreSQL82Dialect(),
+						Lists.<Object> newArrayList(UUID.randomUUID(), "b")));
+		assertFalse("Other dialects should not have been supported.",
+				InSetRestriction.isSupported(new H2Dialect(),
+						Lists.newArrayList("a", "b")));
+		assertFalse(InSetRestriction.isSupported(new PostgreSQL82Dialect(),
+				Collections.emptyList()));
+	}
+
+	@Test
+	public void testVarcharArrayRead() throws SQLException {
+		final ResultSet rs = mock(ResultSet.class);
+		final Array array = mock(Array.class);
+		when(rs.getArray("col")).thenReturn(array);
+		when(array.getArray()).thenReturn(new Object[] { "a", null, "c" });
+
+		final Object read = new InSetRestriction.VarcharArrayType()
+				.nullSafeGet(rs, new String[] { "col" }, null, null);
+		assertArrayEquals(new String[] { "a", null, "c" }, (String[]) read);
+		verify(array).free();
+	}
+
+	@Test
+	public void testVarcharArrayReadNull() throws SQLException {
+		final ResultSet rs = mock(ResultSet.class);
+		assertNull(new InSetRestriction.VarcharArrayType().nullSafeGet(rs,
+				new String[] { "col" }, null, null));
+	}
+
+	@Test
+	public void testVarcharArrayBindNull() throws SQLException {
+		final PreparedStatement st = mock(PreparedStatement.class);
+		new InSetRestriction.VarcharArrayType().nullSafeSet(st, null, 1, null);
+		verify(st).setNull(1, Types.ARRAY);
+	}
+
+	@Test
+	public void testToString() {
+		assertEquals("id in set of 2", new InSetRestriction("id",
+				Lists.newArrayList("a", "b")).toString());
+	}
+}
@@ -23,10 +23,25 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.UUID;
 
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.hibernate.transform.ResultTransformer;
 import org.jasig.ssp.model.ObjectStatus;
 import org.jasig.ssp.util.collections.Pair;
 import org.junit.Before;
@@ -156,4 +171,160 @@ public class SortingAndPagingTests {
 				Integer.valueOf(0),
 				maxLimit.getFirstResult());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testKeysetTokenRoundTrip() {
+		final Date date = new Date();
+		final UUID id = UUID.randomUUID();
+		final List<Object> anchor = Lists.<Object> newArrayList("Smith", date,
+				Integer.valueOf(3), id);
+		final KeysetToken token = KeysetToken.decode(new KeysetToken(500, 0,
+				anchor, 42).encode());
+		assertEquals("Position did not survive encoding.", 500,
+				token.getPosition());
+		assertEquals("Offset did not survive encoding.", 0, token.getOffset());
+		assertEquals("Signature did not survive encoding.", 42,
+				token.getSignature());
+		assertEquals("Anchor did not survive encoding.", anchor,
+				token.getAnchor());
+	}
+
+	@Test
+	public void testKeysetTokenKeepsTimestampNanos() {
+		final Timestamp timestamp = new Timestamp(new Date().getTime());
+		timestamp.setNanos(123456789);
+		final KeysetToken token = KeysetToken.decode(new KeysetToken(10, 0,
+				Lists.<Object> newArrayList(timestamp), 42).encode());
+		final Object decoded = token.getAnchor().get(0);
+		assertTrue("Timestamp anchor should decode as a Timestamp.",
+				decoded instanceof Timestamp);
+		assertEquals("Timestamp anchor lost its sub-millisecond part.",
+				timestamp, decoded);
+		assertEquals(123456789, ((Timestamp) decoded).getNanos());
+	}
+
+	@Test
+	public void testKeysetTokenWithoutAnchor() {
+		final KeysetToken token = KeysetToken.decode(new KeysetToken(20, 20,
+				null, 7).encode());
+		assertNull("Anchor should have been null.", token.getAnchor());
+		assertEquals("Offset did not survive encoding.", 20, token.getOffset());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMalformedKeysetToken() {
+		new SortingAndPaging(ObjectStatus.ALL).useKeyset("not-a-token");
+	}
+
+	@Test
+	public void testUseKeysetWithoutContinuation() {
+		testObjFull.useKeyset(null);
+		assertTrue("Keyset paging should have been flagged.",
+				testObjFull.isKeyset());
+		assertNull("First keyset page should not have a continuation.",
+				testObjFull.getKeysetContinuation());
+	}
+
+	@Test
+	public void testSeekPredicate() {
+		final List<Pair<String, SortDirection>> keys = Lists.newArrayList();
+		keys.add(new Pair<String, SortDirection>("dp.lastName",
+				SortDirection.DESC));
+		keys.add(new Pair<String, SortDirection>("dp.schoolId",
+				SortDirection.ASC));
+
+		assertEquals("Nulls sorting high should follow ascending keys only.",
+				"(dp.lastName < :keyset_0 or (dp.lastName = :keyset_0 and "
+						+ "((dp.schoolId > :keyset_1 or dp.schoolId is null))))",
+				SortingAndPaging.buildSeekPredicate(keys, true));
+		assertEquals("Nulls sorting low should follow descending keys only.",
+				"((dp.lastName < :keyset_0 or dp.lastName is null) or "
+						+ "(dp.lastName = :keyset_0 and (dp.schoolId > :keyset_1)))",
+				SortingAndPaging.buildSeekPredicate(keys, false));
+	}
+
+	@Test
+	public void testCountPolicyDefaults() {
+		assertEquals("Counts should have been exact by default.",
+				CountPolicy.EXACT, testObjFull.getCountPolicy());
+		testObjFull.setCountPolicy(CountPolicy.SKIP);
+		testObjFull.setCountPolicy(null);
+		assertEquals("Null count policy should have reverted to exact.",
+				CountPolicy.EXACT, testObjFull.getCountPolicy());
+		assertEquals("Count policy should have been parsed.",
+				CountPolicy.CACHED,
+				CountPolicy.getCountPolicy("cached", CountPolicy.EXACT));
+		assertEquals("Invalid count policy should have used the default.",
+				CountPolicy.ESTIMATE,
+				CountPolicy.getCountPolicy("bogus", CountPolicy.ESTIMATE));
+	}
+
+	@Test
+	public void testPreparedQueriesDoNotShareState() {
+		final Session session = mock(Session.class);
+		final Query keysetQuery = mockQuery();
+		final Query plainQuery = mockQuery();
+		final Query countQuery = mockQuery();
+		when(session.createQuery(anyString())).thenReturn(keysetQuery,
+				plainQuery, countQuery);
+		when(keysetQuery.list()).thenReturn(Lists.newArrayList("a", "b", "c"));
+		when(plainQuery.list()).thenReturn(Lists.newArrayList("a"));
+		when(countQuery.list()).thenReturn(Lists.<Object> newArrayList(1L));
+
+		testObjFull.useKeyset(null);
+		final PagedQuery keyset = testObjFull.applySortingAndPagingToPagedQuery(
+				session, "p.id", "select p", new StringBuilder(" from Person p"),
+				false, null, true, new HashMap<String, Object>());
+		// no count column, so this one can't use keyset paging
+		final PagedQuery plain = testObjFull.applySortingAndPagingToPagedQuery(
+				session, null, "select p", new StringBuilder(" from Person p"),
+				false, null, true, new HashMap<String, Object>());
+
+		assertTrue("First query should still have been prepared for keyset paging.",
+				keyset.isKeyset());
+		assertFalse("Second query should not have used keyset paging.",
+				plain.isKeyset());
+
+		final PagingWrapper<Object> keysetPage = testObjFull.listPagedQuery(
+				keyset, null);
+		assertFalse("Keyset page should not have carried an exact count.",
+				keysetPage.isTotalCounted());
+		assertEquals(3, keysetPage.getResults());
+		verify(keysetQuery).setResultTransformer(any(ResultTransformer.class));
+
+		final PagingWrapper<Object> plainPage = testObjFull.listPagedQuery(
+				plain, null);
+		assertTrue("Counted page should have carried an exact count.",
+				plainPage.isTotalCounted());
+		assertEquals(1, plainPage.getResults());
+		verify(plainQuery, never()).setResultTransformer(any(ResultTransformer.class));
+	}
+
+	private Query mockQuery() {
+		final Query query = mock(Query.class);
+		when(query.setProperties(anyMap())).thenReturn(query);
+		when(query.setFirstResult(anyInt())).thenReturn(query);
+		when(query.setMaxResults(anyInt())).thenReturn(query);
+		return query;
+	}
+
+	@Test
+	public void testCopyIsIndependent() {
+		testObjFull.useKeyset(null);
+		testObjFull.setCountPolicy(CountPolicy.ESTIMATE);
+
+		final SortingAndPaging copy = testObjFull.copy();
+		assertEquals(testObjFull.getFirstResult(), copy.getFirstResult());
+		assertEquals(testObjFull.getMaxResults(), copy.getMaxResults());
+		assertEquals(testObjFull.getSortFields(), copy.getSortFields());
+		assertTrue("Copy should have kept keyset paging.", copy.isKeyset());
+		assertEquals(CountPolicy.ESTIMATE, copy.getCountPolicy());
+
+		copy.setCountPolicy(CountPolicy.EXACT);
+		copy.appendSortField("id", SortDirection.ASC);
+		assertEquals("Original count policy should not have changed.",
+				CountPolicy.ESTIMATE, testObjFull.getCountPolicy());
+		assertEquals("Original sort fields should not have changed.", 1,
+				testObjFull.getSortFields().size());
+	}
+}
@@ -107,7 +107,7 @@ public class CaseloadControllerIntegrationTest {
 			ValidationException {
 		// arrange, act
 		controller
-				.caseloadFor(UUID.randomUUID(), null, null, null, 0, 10, null, null);
+				.caseloadFor(UUID.randomUUID(), null, null, null, 0, 10, null, null, null);
 
 		// assert
 		fail("Exception should have been thrown for missing person identifier.");
@@ -125,7 +125,7 @@ public class CaseloadControllerIntegrationTest {
 	@Test
 	public void testControllerCaseloadFor() throws ObjectNotFoundException, ValidationException {
 		final Collection<PersonSearchResult2TO> list = controller.caseloadFor(
-				ADVISOR_ID, null, ObjectStatus.ACTIVE, null, null, null, null, null)
+				ADVISOR_ID, null, ObjectStatus.ACTIVE, null, null, null, null, null, null)
 				.getRows();
 
 		assertEquals("List should have had 0 rows.", 2, list.size());
@@ -147,7 +147,7 @@ public class CaseloadControllerIntegrationTest {
 				.caseloadFor(ADVISOR_ID,
 						programStatusService.get(ProgramStatus.TRANSITIONED_ID)
 								.getId(), ObjectStatus.ACTIVE, null, null, null,
-						null, null);
+						null, null, null);
 		final Collection<PersonSearchResult2TO> list = result.getRows();
 
 		assertEquals("Filtered list should have 2 results.", 0,